@@ -138,6 +138,9 @@ while [ ! $# -eq 0 ]; do
   --no-ffmpeg-kit-protocols)
     export NO_FFMPEG_KIT_PROTOCOLS="1"
     ;;
+  --native-benchmarks)
+    export FFMPEG_KIT_NATIVE_BENCHMARKS="1"
+    ;;
   *)
     print_unknown_option "$1"
     ;;
@@ -249,6 +252,7 @@ export API=${ORIGINAL_API}
 rm -f "${BASEDIR}"/android/build/.armv7 1>>"${BASEDIR}"/build.log 2>&1
 rm -f "${BASEDIR}"/android/build/.armv7neon 1>>"${BASEDIR}"/build.log 2>&1
 rm -f "${BASEDIR}"/android/build/.lts 1>>"${BASEDIR}"/build.log 2>&1
+rm -f "${BASEDIR}"/android/build/.benchmark 1>>"${BASEDIR}"/build.log 2>&1
 ANDROID_ARCHITECTURES=""
 if [[ ${ENABLED_ARCHITECTURES[ARCH_ARM_V7A]} -eq 1 ]] || [[ ${ENABLED_ARCHITECTURES[ARCH_ARM_V7A_NEON]} -eq 1 ]]; then
   ANDROID_ARCHITECTURES+="$(get_android_arch 0) "
@@ -274,6 +278,10 @@ if [[ ! -z ${FFMPEG_KIT_LTS_BUILD} ]]; then
   mkdir -p "${BASEDIR}"/android/build 1>>"${BASEDIR}"/build.log 2>&1
   create_file "${BASEDIR}"/android/build/.lts
 fi
+if [[ ${FFMPEG_KIT_NATIVE_BENCHMARKS} == "1" ]]; then
+  mkdir -p "${BASEDIR}"/android/build 1>>"${BASEDIR}"/build.log 2>&1
+  create_file "${BASEDIR}"/android/build/.benchmark
+fi
 
 # BUILD FFMPEG-KIT
 if [[ -n ${ANDROID_ARCHITECTURES} ]]; then
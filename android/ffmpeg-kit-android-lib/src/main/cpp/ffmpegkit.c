@@ -17,6 +17,7 @@
  * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
  */
 
+#include <limits.h>
 #include <pthread.h>
 #include <stdatomic.h>
 #include <sys/types.h>
@@ -24,22 +25,29 @@
 
 #include "config.h"
 #include "libavcodec/jni.h"
-#include "libavutil/bprint.h"
 #include "libavutil/file.h"
+#include "libavutil/mem.h"
+#include "libavutil/thread.h"
 #include "fftools_ffmpeg.h"
 #include "ffmpegkit.h"
 #include "ffprobekit.h"
+#include "ffmpegkit_profile.h"
+#include "ffmpegkit_memory.h"
+#include "ffmpegkit_cpu.h"
+#include "ffmpegkit_log.h"
 
 # define LogType 1
 # define StatisticsType 2
+# define DrainType 3
 
 /** Callback data structure */
 struct CallbackData {
-  int type;                 // 1 (log callback) or 2 (statistics callback)
+  int type;                 // 1 (log callback), 2 (statistics callback) or 3 (drain notification)
   long sessionId;           // session identifier
 
   int logLevel;             // log level
-  AVBPrint logData;         // log data
+  char *logData;            // log data, allocated together with the struct
+  int logDataLength;        // log data length
 
   int statisticsFrameNumber;        // statistics frame number
   float statisticsFps;              // statistics fps
@@ -48,6 +56,10 @@ struct CallbackData {
   double statisticsTime;            // statistics time
   double statisticsBitrate;         // statistics bitrate
   double statisticsSpeed;           // statistics speed
+  int64_t *statisticsStreams;       // statistics of output files and streams
+  int statisticsStreamsLength;      // number of values in statistics of output files and streams
+
+  int64_t nativeFinishedTime;       // monotonic time the session finished, in nanoseconds
 
   struct CallbackData *next;
 };
@@ -57,6 +69,10 @@ struct CallbackData {
 static atomic_short sessionMap[SESSION_MAP_SIZE];
 static atomic_int sessionInTransitMessageCountMap[SESSION_MAP_SIZE];
 
+/** Session specific log levels, SESSION_LOG_LEVEL_UNSET for sessions using the global log level */
+#define SESSION_LOG_LEVEL_UNSET INT_MIN
+static atomic_int sessionLogLevelMap[SESSION_MAP_SIZE];
+
 /** Redirection control variables */
 static pthread_mutex_t lockMutex;
 static pthread_mutex_t monitorMutex;
@@ -68,6 +84,10 @@ int redirectionEnabled;
 struct CallbackData *callbackDataHead;
 struct CallbackData *callbackDataTail;
 
+/** Number of entries in the callback data list and number of messages dropped before it */
+static atomic_llong callbackDataCount;
+static atomic_llong droppedMessageCount;
+
 /** Global reference to the virtual machine running */
 static JavaVM *globalVm;
 
@@ -80,12 +100,42 @@ static jmethodID logMethod;
 /** Global reference of statistics redirection method in Java */
 static jmethodID statisticsMethod;
 
+/** Global reference of drain notification method in Java */
+static jmethodID callbacksDrainedMethod;
+
 /** Global reference of safOpen method in Java */
 static jmethodID safOpenMethod;
 
 /** Global reference of safClose method in Java */
 static jmethodID safCloseMethod;
 
+/** Global references of fkio protocol methods in Java */
+static jmethodID fkioOpenMethod;
+static jmethodID fkioSegmentsMethod;
+static jmethodID fkioReadMethod;
+static jmethodID fkioWriteMethod;
+static jmethodID fkioSeekMethod;
+static jmethodID fkioCloseMethod;
+
+/** Detaches threads attached by fkio protocol when they exit */
+static pthread_key_t fkioThreadKey;
+static pthread_once_t fkioThreadKeyOnce = PTHREAD_ONCE_INIT;
+
+/** State of an open fkio protocol url */
+struct FkioData {
+  int id;                   // fkio identifier
+  jobject buffer;           // global reference of the direct buffer shared with Java
+  uint8_t *bufferAddress;   // address of the shared buffer
+  int bufferSize;           // capacity of the shared buffer
+
+  int segmentCount;         // number of buffers backing the url, zero if url is not backed by buffers
+  jobject *segments;        // global references of the buffers backing the url
+  uint8_t **segmentAddresses;   // addresses of the buffers backing the url
+  int64_t *segmentOffsets;  // offset of each buffer inside the url, followed by the url size
+  int currentSegment;       // index of the buffer holding the current position
+  int64_t position;         // current position inside the url
+};
+
 /** Global reference of String class in Java */
 static jclass stringClass;
 
@@ -120,83 +170,27 @@ JNINativeMethod configMethods[] = {
     {"getNativeFFmpegVersion", "()Ljava/lang/String;", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_getNativeFFmpegVersion},
     {"getNativeVersion", "()Ljava/lang/String;", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_getNativeVersion},
     {"nativeFFmpegExecute", "(J[Ljava/lang/String;)I", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_nativeFFmpegExecute},
+    {"nativeFFmpegExecutePacked", "(J[BI)I", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_nativeFFmpegExecutePacked},
     {"nativeFFmpegCancel", "(J)V", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_nativeFFmpegCancel},
     {"nativeFFprobeExecute", "(J[Ljava/lang/String;)I", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_nativeFFprobeExecute},
     {"registerNewNativeFFmpegPipe", "(Ljava/lang/String;)I", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_registerNewNativeFFmpegPipe},
     {"getNativeBuildDate", "()Ljava/lang/String;", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_getNativeBuildDate},
     {"setNativeEnvironmentVariable", "(Ljava/lang/String;Ljava/lang/String;)I", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_setNativeEnvironmentVariable},
     {"ignoreNativeSignal", "(I)V", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_ignoreNativeSignal},
-    {"messagesInTransmit", "(J)I", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_messagesInTransmit}
+    {"messagesInTransmit", "(J)I", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_messagesInTransmit},
+    {"setNativeStageProfilingEnabled", "(Z)V", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_setNativeStageProfilingEnabled},
+    {"getNativeStageProfile", "(J)[J", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_getNativeStageProfile},
+    {"setNativeMemoryAccountingEnabled", "(Z)V", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_setNativeMemoryAccountingEnabled},
+    {"setNativeSessionMemoryLimit", "(JJ)V", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_setNativeSessionMemoryLimit},
+    {"getNativeSessionMemory", "(J)[J", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_getNativeSessionMemory},
+    {"getNativeSessionCpuTime", "(J)[J", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_getNativeSessionCpuTime},
+    {"getNativeCallbackCounters", "()[J", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_getNativeCallbackCounters},
+    {"setNativeSessionLogLevel", "(JI)V", (void*) Java_com_arthenica_ffmpegkit_FFmpegKitConfig_setNativeSessionLogLevel}
 };
 
 /** Forward declaration for function defined in fftools_ffmpeg.c */
 int ffmpeg_execute(int argc, char **argv);
 
-static const char *avutil_log_get_level_str(int level) {
-    switch (level) {
-    case AV_LOG_STDERR:
-        return "stderr";
-    case AV_LOG_QUIET:
-        return "quiet";
-    case AV_LOG_DEBUG:
-        return "debug";
-    case AV_LOG_VERBOSE:
-        return "verbose";
-    case AV_LOG_INFO:
-        return "info";
-    case AV_LOG_WARNING:
-        return "warning";
-    case AV_LOG_ERROR:
-        return "error";
-    case AV_LOG_FATAL:
-        return "fatal";
-    case AV_LOG_PANIC:
-        return "panic";
-    default:
-        return "";
-    }
-}
-
-static void avutil_log_format_line(void *avcl, int level, const char *fmt, va_list vl, AVBPrint part[4], int *print_prefix) {
-    int flags = av_log_get_flags();
-    AVClass* avc = avcl ? *(AVClass **) avcl : NULL;
-    av_bprint_init(part+0, 0, 1);
-    av_bprint_init(part+1, 0, 1);
-    av_bprint_init(part+2, 0, 1);
-    av_bprint_init(part+3, 0, 65536);
-
-    if (*print_prefix && avc) {
-        if (avc->parent_log_context_offset) {
-            AVClass** parent = *(AVClass ***) (((uint8_t *) avcl) +
-                                   avc->parent_log_context_offset);
-            if (parent && *parent) {
-                av_bprintf(part+0, "[%s @ %p] ",
-                         (*parent)->item_name(parent), parent);
-            }
-        }
-        av_bprintf(part+1, "[%s @ %p] ",
-                 avc->item_name(avcl), avcl);
-    }
-
-    if (*print_prefix && (level > AV_LOG_QUIET) && (flags & AV_LOG_PRINT_LEVEL))
-        av_bprintf(part+2, "[%s] ", avutil_log_get_level_str(level));
-
-    av_vbprintf(part+3, fmt, vl);
-
-    if(*part[0].str || *part[1].str || *part[2].str || *part[3].str) {
-        char lastc = part[3].len && part[3].len <= part[3].size ? part[3].str[part[3].len - 1] : 0;
-        *print_prefix = lastc == '\n' || lastc == '\r';
-    }
-}
-
-static void avutil_log_sanitize(uint8_t *line) {
-    while(*line){
-        if(*line < 0x08 || (*line > 0x0D && *line < 0x20))
-            *line='?';
-        line++;
-    }
-}
-
 void mutexInit() {
     pthread_mutexattr_t attributes;
     pthread_mutexattr_init(&attributes);
@@ -268,22 +262,11 @@ void monitorNotify() {
 }
 
 /**
- * Adds log data to the end of callback data list.
+ * Adds callback data to the end of callback data list.
  *
- * @param level log level
- * @param data log data
+ * @param newData callback data
  */
-void logCallbackDataAdd(int level, AVBPrint *data) {
-
-    // CREATE DATA STRUCT FIRST
-    struct CallbackData *newData = (struct CallbackData*)av_malloc(sizeof(struct CallbackData));
-    newData->type = LogType;
-    newData->sessionId = globalSessionId;
-    newData->logLevel = level;
-    av_bprint_init(&newData->logData, 0, AV_BPRINT_SIZE_UNLIMITED);
-    av_bprintf(&newData->logData, "%s", data->str);
-    newData->next = NULL;
-
+void callbackDataEnqueue(struct CallbackData *newData) {
     mutexLock();
 
     // INSERT IT TO THE END OF QUEUE
@@ -304,7 +287,37 @@ void logCallbackDataAdd(int level, AVBPrint *data) {
 
     mutexUnlock();
 
+    atomic_fetch_add(&callbackDataCount, 1);
+
     monitorNotify();
+}
+
+/**
+ * Adds log data to the end of callback data list. Data is copied into the same block as the
+ * callback data.
+ *
+ * @param level log level
+ * @param data log data
+ * @param length log data length
+ */
+void logCallbackDataAdd(int level, const char *data, int length) {
+
+    // CREATE DATA STRUCT FIRST
+    struct CallbackData *newData = (struct CallbackData*)av_malloc(sizeof(struct CallbackData) + length + 1);
+    if (newData == NULL) {
+        atomic_fetch_add(&droppedMessageCount, 1);
+        return;
+    }
+    newData->type = LogType;
+    newData->sessionId = globalSessionId;
+    newData->logLevel = level;
+    newData->logData = (char *) (newData + 1);
+    memcpy(newData->logData, data, length);
+    newData->logData[length] = '\0';
+    newData->logDataLength = length;
+    newData->next = NULL;
+
+    callbackDataEnqueue(newData);
 
     atomic_fetch_add(&sessionInTransitMessageCountMap[globalSessionId % SESSION_MAP_SIZE], 1);
 }
@@ -312,10 +325,15 @@ void logCallbackDataAdd(int level, AVBPrint *data) {
 /**
  * Adds statistics data to the end of callback data list.
  */
-void statisticsCallbackDataAdd(int frameNumber, float fps, float quality, int64_t size, double time, double bitrate, double speed) {
+void statisticsCallbackDataAdd(int frameNumber, float fps, float quality, int64_t size, double time, double bitrate, double speed, int64_t *streams, int streamsLength) {
 
     // CREATE DATA STRUCT FIRST
     struct CallbackData *newData = (struct CallbackData*)av_malloc(sizeof(struct CallbackData));
+    if (newData == NULL) {
+        atomic_fetch_add(&droppedMessageCount, 1);
+        av_free(streams);
+        return;
+    }
     newData->type = StatisticsType;
     newData->sessionId = globalSessionId;
     newData->statisticsFrameNumber = frameNumber;
@@ -325,32 +343,36 @@ void statisticsCallbackDataAdd(int frameNumber, float fps, float quality, int64_
     newData->statisticsTime = time;
     newData->statisticsBitrate = bitrate;
     newData->statisticsSpeed = speed;
+    newData->statisticsStreams = streams;
+    newData->statisticsStreamsLength = streamsLength;
 
     newData->next = NULL;
 
-    mutexLock();
+    callbackDataEnqueue(newData);
 
-    // INSERT IT TO THE END OF QUEUE
-    if (callbackDataTail == NULL) {
-        callbackDataTail = newData;
+    atomic_fetch_add(&sessionInTransitMessageCountMap[globalSessionId % SESSION_MAP_SIZE], 1);
+}
 
-        if (callbackDataHead != NULL) {
-            LOGE("Dangling callback data head detected. This can cause memory leak.");
-        } else {
-            callbackDataHead = newData;
-        }
-    } else {
-        struct CallbackData *oldTail = callbackDataTail;
-        oldTail->next = newData;
+/**
+ * Adds a drain notification to the end of callback data list. Since the list is consumed in
+ * order, it is delivered after all logs and statistics the session has produced.
+ *
+ * @param id session id
+ */
+void drainCallbackDataAdd(long id) {
+    struct timespec now;
+    clock_gettime(CLOCK_MONOTONIC, &now);
 
-        callbackDataTail = newData;
+    struct CallbackData *newData = (struct CallbackData*)av_malloc(sizeof(struct CallbackData));
+    if (newData == NULL) {
+        return;
     }
+    newData->type = DrainType;
+    newData->sessionId = id;
+    newData->nativeFinishedTime = (int64_t) now.tv_sec * 1000000000 + now.tv_nsec;
+    newData->next = NULL;
 
-    mutexUnlock();
-
-    monitorNotify();
-
-    atomic_fetch_add(&sessionInTransitMessageCountMap[globalSessionId % SESSION_MAP_SIZE], 1);
+    callbackDataEnqueue(newData);
 }
 
 /**
@@ -360,6 +382,11 @@ void statisticsCallbackDataAdd(int frameNumber, float fps, float quality, int64_
  */
 void addSession(long id) {
     atomic_store(&sessionMap[id % SESSION_MAP_SIZE], 1);
+    memoryReset(id);
+
+    // SESSIONS ARE ADDED ON THE THREAD THAT RUNS THEM
+    cpuReset(id);
+    cpuThreadStart(id);
 }
 
 /**
@@ -391,6 +418,10 @@ struct CallbackData *callbackDataRemove() {
 
     mutexUnlock();
 
+    if (currentData != NULL) {
+        atomic_fetch_sub(&callbackDataCount, 1);
+    }
+
     return currentData;
 }
 
@@ -401,6 +432,13 @@ struct CallbackData *callbackDataRemove() {
  */
 void removeSession(long id) {
     atomic_store(&sessionMap[id % SESSION_MAP_SIZE], 0);
+    atomic_store(&sessionLogLevelMap[id % SESSION_MAP_SIZE], SESSION_LOG_LEVEL_UNSET);
+    memorySetLimit(id, 0);
+    cpuThreadEnd();
+
+    if (redirectionEnabled) {
+        drainCallbackDataAdd(id);
+    }
 }
 
 /**
@@ -444,40 +482,34 @@ void resetMessagesInTransmit(long id) {
  * @param vargs arguments
  */
 void ffmpegkit_log_callback_function(void *ptr, int level, const char* format, va_list vargs) {
-    AVBPrint fullLine;
-    AVBPrint part[4];
-    int print_prefix = 1;
+    const char *line;
 
     if (level >= 0) {
         level &= 0xff;
     }
     int activeLogLevel = av_log_get_level();
 
+    // SESSION SPECIFIC LOG LEVEL OVERRIDES THE GLOBAL ONE
+    long sessionId = globalSessionId;
+    if (sessionId != 0) {
+        int sessionLogLevel = atomic_load_explicit(&sessionLogLevelMap[sessionId % SESSION_MAP_SIZE], memory_order_relaxed);
+        if (sessionLogLevel != SESSION_LOG_LEVEL_UNSET) {
+            activeLogLevel = sessionLogLevel;
+        }
+    }
+
     // AV_LOG_STDERR logs are always redirected
     if ((activeLogLevel == AV_LOG_QUIET && level != AV_LOG_STDERR) || (level > activeLogLevel)) {
         return;
     }
 
-    av_bprint_init(&fullLine, 0, AV_BPRINT_SIZE_UNLIMITED);
-
-    avutil_log_format_line(ptr, level, format, vargs, part, &print_prefix);
-    avutil_log_sanitize(part[0].str);
-    avutil_log_sanitize(part[1].str);
-    avutil_log_sanitize(part[2].str);
-    avutil_log_sanitize(part[3].str);
-
-    // COMBINE ALL 4 LOG PARTS
-    av_bprintf(&fullLine, "%s%s%s%s", part[0].str, part[1].str, part[2].str, part[3].str);
-
-    if (fullLine.len > 0) {
-        logCallbackDataAdd(level, &fullLine);
+    // FORMATTED INTO A BUFFER REUSED BY THIS THREAD
+    int length = logLineFormat(ptr, level, format, vargs, &line);
+    if (length > 0) {
+        logCallbackDataAdd(level, line, length);
+    } else if (length < 0) {
+        atomic_fetch_add(&droppedMessageCount, 1);
     }
-
-    av_bprint_finalize(part, NULL);
-    av_bprint_finalize(part+1, NULL);
-    av_bprint_finalize(part+2, NULL);
-    av_bprint_finalize(part+3, NULL);
-    av_bprint_finalize(&fullLine, NULL);
 }
 
 /**
@@ -490,9 +522,11 @@ void ffmpegkit_log_callback_function(void *ptr, int level, const char* format, v
  * @param time processed output duration
  * @param bitrate output bit rate in kbits/s
  * @param speed processing speed = processed duration / operation duration
+ * @param streams statistics of output files and streams, ownership is transferred
+ * @param streamsLength number of values in streams
  */
-void ffmpegkit_statistics_callback_function(int frameNumber, float fps, float quality, int64_t size, double time, double bitrate, double speed) {
-    statisticsCallbackDataAdd(frameNumber, fps, quality, size, time, bitrate, speed);
+void ffmpegkit_statistics_callback_function(int frameNumber, float fps, float quality, int64_t size, double time, double bitrate, double speed, int64_t *streams, int streamsLength) {
+    statisticsCallbackDataAdd(frameNumber, fps, quality, size, time, bitrate, speed, streams, streamsLength);
 }
 
 /**
@@ -523,29 +557,49 @@ void *callbackThreadFunction() {
 
                 // LOG CALLBACK
 
-                int size = callbackData->logData.len;
+                int size = callbackData->logDataLength;
 
                 jbyteArray byteArray = (jbyteArray) (*env)->NewByteArray(env, size);
-                (*env)->SetByteArrayRegion(env, byteArray, 0, size, callbackData->logData.str);
+                (*env)->SetByteArrayRegion(env, byteArray, 0, size, (const jbyte *) callbackData->logData);
                 (*env)->CallStaticVoidMethod(env, configClass, logMethod, (jlong) callbackData->sessionId, callbackData->logLevel, byteArray);
                 (*env)->DeleteLocalRef(env, byteArray);
 
-                // CLEAN LOG DATA
-                av_bprint_finalize(&callbackData->logData, NULL);
-
-            } else {
+            } else if (callbackData->type == StatisticsType) {
 
                 // STATISTICS CALLBACK
 
+                jlongArray streamArray = NULL;
+                if (callbackData->statisticsStreams != NULL) {
+                    streamArray = (*env)->NewLongArray(env, callbackData->statisticsStreamsLength);
+                    if (streamArray != NULL) {
+                        (*env)->SetLongArrayRegion(env, streamArray, 0, callbackData->statisticsStreamsLength, (const jlong *) callbackData->statisticsStreams);
+                    }
+                }
+
                 (*env)->CallStaticVoidMethod(env, configClass, statisticsMethod,
                     (jlong) callbackData->sessionId, callbackData->statisticsFrameNumber,
                     callbackData->statisticsFps, callbackData->statisticsQuality,
                     callbackData->statisticsSize, callbackData->statisticsTime,
-                    callbackData->statisticsBitrate, callbackData->statisticsSpeed);
+                    callbackData->statisticsBitrate, callbackData->statisticsSpeed, streamArray);
+
+                if (streamArray != NULL) {
+                    (*env)->DeleteLocalRef(env, streamArray);
+                }
+
+                // CLEAN STATISTICS DATA
+                av_free(callbackData->statisticsStreams);
 
+            } else {
+
+                // DRAIN NOTIFICATION
+
+                (*env)->CallStaticVoidMethod(env, configClass, callbacksDrainedMethod, (jlong) callbackData->sessionId, (jlong) callbackData->nativeFinishedTime);
             }
 
-            atomic_fetch_sub(&sessionInTransitMessageCountMap[callbackData->sessionId % SESSION_MAP_SIZE], 1);
+            // DRAIN NOTIFICATIONS ARE NOT COUNTED AS MESSAGES IN TRANSMIT
+            if (callbackData->type != DrainType) {
+                atomic_fetch_sub(&sessionInTransitMessageCountMap[callbackData->sessionId % SESSION_MAP_SIZE], 1);
+            }
 
             // CLEAN STRUCT
             callbackData->next = NULL;
@@ -581,6 +635,298 @@ int saf_close(int fd) {
     return (*env)->CallStaticIntMethod(env, configClass, safCloseMethod, fd);
 }
 
+static void fkioDetachThread(void *value) {
+    (*globalVm)->DetachCurrentThread(globalVm);
+}
+
+static void fkioCreateThreadKey() {
+    pthread_key_create(&fkioThreadKey, fkioDetachThread);
+}
+
+/**
+ * Returns the JNI environment of the current thread. fkio urls are accessed from FFmpeg threads
+ * too, so threads unknown to the VM are attached here and detached when they exit.
+ */
+static JNIEnv *fkioGetEnv() {
+    JNIEnv *env = NULL;
+
+    if ((*globalVm)->GetEnv(globalVm, (void**) &env, JNI_VERSION_1_6) == JNI_EDETACHED) {
+        if ((*globalVm)->AttachCurrentThread(globalVm, &env, NULL) != 0) {
+            LOGE("fkio failed to AttachCurrentThread.\n");
+            return NULL;
+        }
+
+        pthread_once(&fkioThreadKeyOnce, fkioCreateThreadKey);
+        pthread_setspecific(fkioThreadKey, env);
+    }
+
+    return env;
+}
+
+static int fkioExceptionOccurred(JNIEnv *env) {
+    if ((*env)->ExceptionCheck(env)) {
+        (*env)->ExceptionClear(env);
+        return 1;
+    }
+
+    return 0;
+}
+
+int fkio_close(void *opaque);
+
+/**
+ * Opens an fkio url backed by direct buffers. Buffer memory is read directly, without calling
+ * back into Java.
+ */
+static void *fkio_open_segments(JNIEnv *env, int fkioId, jobjectArray segments) {
+    int segmentCount = (*env)->GetArrayLength(env, segments);
+
+    struct FkioData *fkioData = (struct FkioData*)av_mallocz(sizeof(struct FkioData));
+    if (fkioData == NULL) {
+        (*env)->DeleteLocalRef(env, segments);
+        return NULL;
+    }
+
+    fkioData->id = fkioId;
+    fkioData->segmentCount = segmentCount;
+    fkioData->segments = (jobject *)av_mallocz(sizeof(jobject) * FFMAX(segmentCount, 1));
+    fkioData->segmentAddresses = (uint8_t **)av_mallocz(sizeof(uint8_t *) * FFMAX(segmentCount, 1));
+    fkioData->segmentOffsets = (int64_t *)av_mallocz(sizeof(int64_t) * (segmentCount + 1));
+    if (fkioData->segments == NULL || fkioData->segmentAddresses == NULL || fkioData->segmentOffsets == NULL) {
+        (*env)->DeleteLocalRef(env, segments);
+        fkio_close(fkioData);
+        return NULL;
+    }
+
+    int64_t offset = 0;
+    for (int i = 0; i < segmentCount; i++) {
+        jobject segment = (*env)->GetObjectArrayElement(env, segments, i);
+        fkioData->segments[i] = (*env)->NewGlobalRef(env, segment);
+        fkioData->segmentAddresses[i] = (uint8_t *)(*env)->GetDirectBufferAddress(env, segment);
+        fkioData->segmentOffsets[i] = offset;
+        offset += (*env)->GetDirectBufferCapacity(env, segment);
+        (*env)->DeleteLocalRef(env, segment);
+
+        if (fkioData->segmentAddresses[i] == NULL && offset > fkioData->segmentOffsets[i]) {
+            LOGE("fkio id %d segment %d is not a direct buffer.\n", fkioId, i);
+            (*env)->DeleteLocalRef(env, segments);
+            fkio_close(fkioData);
+            return NULL;
+        }
+    }
+    fkioData->segmentOffsets[segmentCount] = offset;
+    (*env)->DeleteLocalRef(env, segments);
+
+    return fkioData;
+}
+
+static int fkio_read_segments(struct FkioData *fkioData, unsigned char *buf, int size) {
+    int bytesRead = 0;
+
+    while (bytesRead < size && fkioData->currentSegment < fkioData->segmentCount) {
+        int64_t segmentEnd = fkioData->segmentOffsets[fkioData->currentSegment + 1];
+        if (fkioData->position >= segmentEnd) {
+            fkioData->currentSegment++;
+            continue;
+        }
+
+        int64_t segmentPosition = fkioData->position - fkioData->segmentOffsets[fkioData->currentSegment];
+        int chunkSize = (int)FFMIN(size - bytesRead, segmentEnd - fkioData->position);
+        memcpy(buf + bytesRead, fkioData->segmentAddresses[fkioData->currentSegment] + segmentPosition, chunkSize);
+
+        bytesRead += chunkSize;
+        fkioData->position += chunkSize;
+    }
+
+    return (bytesRead == 0) ? AVERROR_EOF : bytesRead;
+}
+
+static int64_t fkio_seek_segments(struct FkioData *fkioData, int64_t pos, int whence) {
+    int64_t size = fkioData->segmentOffsets[fkioData->segmentCount];
+    int64_t newPosition;
+
+    switch (whence) {
+        case AVSEEK_SIZE:
+            return size;
+        case SEEK_SET:
+            newPosition = pos;
+            break;
+        case SEEK_CUR:
+            newPosition = fkioData->position + pos;
+            break;
+        case SEEK_END:
+            newPosition = size + pos;
+            break;
+        default:
+            return AVERROR(EINVAL);
+    }
+
+    if (newPosition < 0) {
+        return AVERROR(EINVAL);
+    }
+
+    // FIND THE BUFFER HOLDING THE NEW POSITION
+    int segment = 0;
+    while (segment < fkioData->segmentCount && newPosition >= fkioData->segmentOffsets[segment + 1]) {
+        segment++;
+    }
+
+    fkioData->currentSegment = segment;
+    fkioData->position = newPosition;
+
+    return newPosition;
+}
+
+/**
+ * Used by fkio protocol to open a url.
+ */
+void *fkio_open(int fkioId, int write) {
+    JNIEnv *env = fkioGetEnv();
+    if (env == NULL) {
+        return NULL;
+    }
+
+    jobjectArray segments = (jobjectArray)(*env)->CallStaticObjectMethod(env, configClass, fkioSegmentsMethod, fkioId);
+    if (fkioExceptionOccurred(env)) {
+        return NULL;
+    }
+    if (segments != NULL) {
+        return write ? NULL : fkio_open_segments(env, fkioId, segments);
+    }
+
+    jobject buffer = (*env)->CallStaticObjectMethod(env, configClass, fkioOpenMethod, fkioId, write);
+    if (fkioExceptionOccurred(env) || buffer == NULL) {
+        return NULL;
+    }
+
+    struct FkioData *fkioData = (struct FkioData*)av_mallocz(sizeof(struct FkioData));
+    if (fkioData == NULL) {
+        (*env)->DeleteLocalRef(env, buffer);
+        return NULL;
+    }
+
+    fkioData->id = fkioId;
+    fkioData->buffer = (*env)->NewGlobalRef(env, buffer);
+    fkioData->bufferAddress = (uint8_t *)(*env)->GetDirectBufferAddress(env, buffer);
+    fkioData->bufferSize = (int)(*env)->GetDirectBufferCapacity(env, buffer);
+    (*env)->DeleteLocalRef(env, buffer);
+
+    if (fkioData->bufferAddress == NULL || fkioData->bufferSize <= 0) {
+        LOGE("fkio id %d buffer is not a direct buffer.\n", fkioId);
+        fkio_close(fkioData);
+        return NULL;
+    }
+
+    return fkioData;
+}
+
+/**
+ * Used by fkio protocol to read from a url.
+ */
+int fkio_read(void *opaque, unsigned char *buf, int size) {
+    struct FkioData *fkioData = (struct FkioData*)opaque;
+    if (fkioData->segments != NULL) {
+        return fkio_read_segments(fkioData, buf, size);
+    }
+
+    JNIEnv *env = fkioGetEnv();
+    if (env == NULL) {
+        return AVERROR(EIO);
+    }
+
+    jint rc = (*env)->CallStaticIntMethod(env, configClass, fkioReadMethod, fkioData->id, FFMIN(size, fkioData->bufferSize));
+    if (fkioExceptionOccurred(env) || rc < -1) {
+        return AVERROR(EIO);
+    } else if (rc == -1) {
+        return AVERROR_EOF;
+    }
+
+    memcpy(buf, fkioData->bufferAddress, rc);
+
+    return rc;
+}
+
+/**
+ * Used by fkio protocol to write to a url.
+ */
+int fkio_write(void *opaque, const unsigned char *buf, int size) {
+    struct FkioData *fkioData = (struct FkioData*)opaque;
+    JNIEnv *env = fkioGetEnv();
+    if (env == NULL) {
+        return AVERROR(EIO);
+    }
+
+    int written = 0;
+    while (written < size) {
+        int chunkSize = FFMIN(size - written, fkioData->bufferSize);
+        memcpy(fkioData->bufferAddress, buf + written, chunkSize);
+
+        jint rc = (*env)->CallStaticIntMethod(env, configClass, fkioWriteMethod, fkioData->id, chunkSize);
+        if (fkioExceptionOccurred(env) || rc < 0) {
+            return AVERROR(EIO);
+        }
+
+        written += chunkSize;
+    }
+
+    return written;
+}
+
+/**
+ * Used by fkio protocol to seek a url.
+ */
+int64_t fkio_seek(void *opaque, int64_t pos, int whence) {
+    struct FkioData *fkioData = (struct FkioData*)opaque;
+    if (fkioData->segments != NULL) {
+        return fkio_seek_segments(fkioData, pos, whence);
+    }
+
+    JNIEnv *env = fkioGetEnv();
+    if (env == NULL) {
+        return AVERROR(EIO);
+    }
+
+    jlong rc = (*env)->CallStaticLongMethod(env, configClass, fkioSeekMethod, fkioData->id, (jlong) pos, whence);
+    if (fkioExceptionOccurred(env) || rc < 0) {
+        return AVERROR(ENOSYS);
+    }
+
+    return rc;
+}
+
+/**
+ * Used by fkio protocol to close a url.
+ */
+int fkio_close(void *opaque) {
+    struct FkioData *fkioData = (struct FkioData*)opaque;
+    int rc = 0;
+
+    JNIEnv *env = fkioGetEnv();
+    if (env != NULL) {
+        rc = (*env)->CallStaticIntMethod(env, configClass, fkioCloseMethod, fkioData->id);
+        if (fkioExceptionOccurred(env) || rc < 0) {
+            rc = AVERROR(EIO);
+        }
+        if (fkioData->buffer != NULL) {
+            (*env)->DeleteGlobalRef(env, fkioData->buffer);
+        }
+        if (fkioData->segments != NULL) {
+            for (int i = 0; i < fkioData->segmentCount; i++) {
+                if (fkioData->segments[i] != NULL) {
+                    (*env)->DeleteGlobalRef(env, fkioData->segments[i]);
+                }
+            }
+        }
+    }
+
+    av_free(fkioData->segments);
+    av_free(fkioData->segmentAddresses);
+    av_free(fkioData->segmentOffsets);
+    av_free(fkioData);
+
+    return rc;
+}
+
 /**
  * Used by JNI methods to enable redirection.
  */
@@ -625,7 +971,7 @@ jint JNI_OnLoad(JavaVM *vm, void *reserved) {
         return JNI_FALSE;
     }
 
-    if ((*env)->RegisterNatives(env, localConfigClass, configMethods, 14) < 0) {
+    if ((*env)->RegisterNatives(env, localConfigClass, configMethods, 23) < 0) {
         LOGE("OnLoad failed to RegisterNatives for class %s.\n", configClassName);
         return JNI_FALSE;
     }
@@ -644,12 +990,18 @@ jint JNI_OnLoad(JavaVM *vm, void *reserved) {
         return JNI_FALSE;
     }
 
-    statisticsMethod = (*env)->GetStaticMethodID(env, localConfigClass, "statistics", "(JIFFJDDD)V");
+    statisticsMethod = (*env)->GetStaticMethodID(env, localConfigClass, "statistics", "(JIFFJDDD[J)V");
     if (statisticsMethod == NULL) {
         LOGE("OnLoad thread failed to GetStaticMethodID for %s.\n", "statistics");
         return JNI_FALSE;
     }
 
+    callbacksDrainedMethod = (*env)->GetStaticMethodID(env, localConfigClass, "callbacksDrained", "(JJ)V");
+    if (callbacksDrainedMethod == NULL) {
+        LOGE("OnLoad thread failed to GetStaticMethodID for %s.\n", "callbacksDrained");
+        return JNI_FALSE;
+    }
+
     safOpenMethod = (*env)->GetStaticMethodID(env, localConfigClass, "safOpen", "(I)I");
     if (safOpenMethod == NULL) {
         LOGE("OnLoad thread failed to GetStaticMethodID for %s.\n", "safOpen");
@@ -662,6 +1014,42 @@ jint JNI_OnLoad(JavaVM *vm, void *reserved) {
         return JNI_FALSE;
     }
 
+    fkioOpenMethod = (*env)->GetStaticMethodID(env, localConfigClass, "fkioOpen", "(II)Ljava/nio/ByteBuffer;");
+    if (fkioOpenMethod == NULL) {
+        LOGE("OnLoad thread failed to GetStaticMethodID for %s.\n", "fkioOpen");
+        return JNI_FALSE;
+    }
+
+    fkioSegmentsMethod = (*env)->GetStaticMethodID(env, localConfigClass, "fkioSegments", "(I)[Ljava/nio/ByteBuffer;");
+    if (fkioSegmentsMethod == NULL) {
+        LOGE("OnLoad thread failed to GetStaticMethodID for %s.\n", "fkioSegments");
+        return JNI_FALSE;
+    }
+
+    fkioReadMethod = (*env)->GetStaticMethodID(env, localConfigClass, "fkioRead", "(II)I");
+    if (fkioReadMethod == NULL) {
+        LOGE("OnLoad thread failed to GetStaticMethodID for %s.\n", "fkioRead");
+        return JNI_FALSE;
+    }
+
+    fkioWriteMethod = (*env)->GetStaticMethodID(env, localConfigClass, "fkioWrite", "(II)I");
+    if (fkioWriteMethod == NULL) {
+        LOGE("OnLoad thread failed to GetStaticMethodID for %s.\n", "fkioWrite");
+        return JNI_FALSE;
+    }
+
+    fkioSeekMethod = (*env)->GetStaticMethodID(env, localConfigClass, "fkioSeek", "(IJI)J");
+    if (fkioSeekMethod == NULL) {
+        LOGE("OnLoad thread failed to GetStaticMethodID for %s.\n", "fkioSeek");
+        return JNI_FALSE;
+    }
+
+    fkioCloseMethod = (*env)->GetStaticMethodID(env, localConfigClass, "fkioClose", "(I)I");
+    if (fkioCloseMethod == NULL) {
+        LOGE("OnLoad thread failed to GetStaticMethodID for %s.\n", "fkioClose");
+        return JNI_FALSE;
+    }
+
     stringConstructor = (*env)->GetMethodID(env, localStringClass, "<init>", "([BLjava/lang/String;)V");
     if (stringConstructor == NULL) {
         LOGE("OnLoad thread failed to GetMethodID for %s.\n", "<init>");
@@ -679,6 +1067,7 @@ jint JNI_OnLoad(JavaVM *vm, void *reserved) {
     for(int i = 0; i<SESSION_MAP_SIZE; i++) {
         atomic_init(&sessionMap[i], 0);
         atomic_init(&sessionInTransitMessageCountMap[i], 0);
+        atomic_init(&sessionLogLevelMap[i], SESSION_LOG_LEVEL_UNSET);
     }
 
     mutexInit();
@@ -688,6 +1077,13 @@ jint JNI_OnLoad(JavaVM *vm, void *reserved) {
 
     av_set_saf_open(saf_open);
     av_set_saf_close(saf_close);
+    av_set_fkio_open(fkio_open);
+    av_set_fkio_read(fkio_read);
+    av_set_fkio_write(fkio_write);
+    av_set_fkio_seek(fkio_seek);
+    av_set_fkio_close(fkio_close);
+    av_set_mem_hooks(memoryAllocHook, memoryFreeHook);
+    av_set_thread_hooks(cpuThreadOwner, cpuThreadStart, cpuThreadEnd);
 
     enableNativeRedirection();
 
@@ -771,6 +1167,36 @@ JNIEXPORT jstring JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_getNative
     return (*env)->NewStringUTF(env, FFMPEG_KIT_VERSION);
 }
 
+/**
+ * Runs FFmpeg for a session with the given argv. Shared by the FFmpeg execute entry points,
+ * which differ only in how they build argv.
+ *
+ * @param id session id
+ * @param argumentCount number of entries in argv, including the program name
+ * @param argv FFmpeg command arguments
+ * @return zero on successful execution, non-zero on error
+ */
+static int executeFFmpegSession(long id, int argumentCount, char **argv) {
+
+    // SETS DEFAULT LOG LEVEL BEFORE STARTING A NEW RUN
+    av_log_set_level(configuredLogLevel);
+
+    // REGISTER THE ID BEFORE STARTING THE SESSION
+    globalSessionId = id;
+    addSession(id);
+    profileReset(id);
+
+    resetMessagesInTransmit(globalSessionId);
+
+    // RUN
+    int returnCode = ffmpeg_execute(argumentCount, argv);
+
+    // ALWAYS REMOVE THE ID FROM THE MAP
+    removeSession(id);
+
+    return returnCode;
+}
+
 /**
  * Synchronously executes FFmpeg natively with arguments provided.
  *
@@ -785,9 +1211,6 @@ JNIEXPORT jint JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_nativeFFmpeg
     int argumentCount = 1;
     char **argv = NULL;
 
-    // SETS DEFAULT LOG LEVEL BEFORE STARTING A NEW RUN
-    av_log_set_level(configuredLogLevel);
-
     if (stringArray) {
         int programArgumentCount = (*env)->GetArrayLength(env, stringArray);
         argumentCount = programArgumentCount + 1;
@@ -813,17 +1236,7 @@ JNIEXPORT jint JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_nativeFFmpeg
         }
     }
 
-    // REGISTER THE ID BEFORE STARTING THE SESSION
-    globalSessionId = (long) id;
-    addSession((long) id);
-
-    resetMessagesInTransmit(globalSessionId);
-
-    // RUN
-    int returnCode = ffmpeg_execute(argumentCount, argv);
-
-    // ALWAYS REMOVE THE ID FROM THE MAP
-    removeSession((long) id);
+    int returnCode = executeFFmpegSession((long) id, argumentCount, argv);
 
     // CLEANUP
     if (tempArray) {
@@ -839,6 +1252,72 @@ JNIEXPORT jint JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_nativeFFmpeg
     return returnCode;
 }
 
+/**
+ * Synchronously executes FFmpeg natively with packed arguments provided. An alternative to
+ * nativeFFmpegExecute, used when packed arguments are enabled.
+ *
+ * Arguments are copied from the Java array in a single operation and argv entries point inside
+ * that copy. This avoids converting and allocating each argument separately.
+ *
+ * @param env pointer to native method interface
+ * @param object reference to the class on which this method is invoked
+ * @param id session id
+ * @param packedArguments UTF-8 encoded FFmpeg command arguments, each one terminated with a NUL character
+ * @param programArgumentCount number of arguments inside packedArguments
+ * @return zero on successful execution, non-zero on error
+ */
+JNIEXPORT jint JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_nativeFFmpegExecutePacked(JNIEnv *env, jclass object, jlong id, jbyteArray packedArguments, jint programArgumentCount) {
+    int argumentCount = programArgumentCount + 1;
+    int packedLength = (*env)->GetArrayLength(env, packedArguments);
+
+    /* PRESERVE USAGE FORMAT
+     *
+     * ffmpeg <arguments>
+     *
+     * argv and argument strings share a single allocation
+     */
+    size_t argvSize = sizeof(char*) * (argumentCount + 1);
+    char **argv = (char **)av_malloc(argvSize + strlen(LIB_NAME) + 1 + packedLength + 1);
+    if (argv == NULL) {
+        LOGE("Failed to allocate packed arguments for session %ld.\n", (long) id);
+
+        // CLEARS SESSION STATE SET BEFORE THE CALL AND DELIVERS THE DRAIN EXPECTED BY JAVA
+        removeSession((long) id);
+        return AVERROR(ENOMEM);
+    }
+
+    char *strings = (char *)argv + argvSize;
+    strcpy(strings, LIB_NAME);
+    argv[0] = strings;
+
+    char *arguments = strings + strlen(LIB_NAME) + 1;
+    (*env)->GetByteArrayRegion(env, packedArguments, 0, packedLength, (jbyte *) arguments);
+    arguments[packedLength] = '\0';
+
+    // POINT ARGV ENTRIES TO PACKED ARGUMENTS
+    char *current = arguments;
+    char *end = arguments + packedLength;
+    int i = 1;
+    for (; i < argumentCount && current < end; i++) {
+        argv[i] = current;
+        current += strlen(current) + 1;
+    }
+    if (i != argumentCount) {
+        LOGE("Packed arguments of session %ld include %d arguments instead of %d.\n", (long) id, i - 1, programArgumentCount);
+        av_free(argv);
+        removeSession((long) id);
+        return AVERROR(EINVAL);
+    }
+    argv[argumentCount] = NULL;
+
+    int returnCode = executeFFmpegSession((long) id, argumentCount, argv);
+
+    // CLEANUP
+    av_free(argv);
+
+    return returnCode;
+}
+
 /**
  * Cancels an ongoing FFmpeg operation natively.
  *
@@ -929,3 +1408,132 @@ JNIEXPORT void JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_ignoreNative
 JNIEXPORT int JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_messagesInTransmit(JNIEnv *env, jclass object, jlong id) {
     return atomic_load(&sessionInTransitMessageCountMap[id % SESSION_MAP_SIZE]);
 }
+
+/**
+ * Enables or disables collecting stage profiles for FFmpeg sessions.
+ *
+ * @param env pointer to native method interface
+ * @param object reference to the class on which this method is invoked
+ * @param enabled whether stage profiles are collected
+ */
+JNIEXPORT void JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_setNativeStageProfilingEnabled(JNIEnv *env, jclass object, jboolean enabled) {
+    profileSetEnabled(enabled == JNI_TRUE);
+}
+
+/**
+ * Returns stage profile counters collected for the given session.
+ *
+ * @param env pointer to native method interface
+ * @param object reference to the class on which this method is invoked
+ * @param id session id
+ * @return profile counters or NULL if the array can not be created
+ */
+JNIEXPORT jlongArray JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_getNativeStageProfile(JNIEnv *env, jclass object, jlong id) {
+    int64_t values[PROFILE_VALUE_COUNT];
+    profileSnapshot((long) id, values);
+
+    jlongArray profile = (*env)->NewLongArray(env, PROFILE_VALUE_COUNT);
+    if (profile != NULL) {
+        (*env)->SetLongArrayRegion(env, profile, 0, PROFILE_VALUE_COUNT, (const jlong *) values);
+    }
+
+    return profile;
+}
+
+/**
+ * Enables or disables native memory accounting for sessions.
+ *
+ * @param env pointer to native method interface
+ * @param object reference to the class on which this method is invoked
+ * @param enabled whether allocations are accounted
+ */
+JNIEXPORT void JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_setNativeMemoryAccountingEnabled(JNIEnv *env, jclass object, jboolean enabled) {
+    memorySetAccountingEnabled(enabled == JNI_TRUE);
+}
+
+/**
+ * Sets native memory limit of a session. Session is cancelled when the limit is exceeded.
+ *
+ * @param env pointer to native method interface
+ * @param object reference to the class on which this method is invoked
+ * @param id session id
+ * @param limit memory limit in bytes, zero means no limit
+ */
+JNIEXPORT void JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_setNativeSessionMemoryLimit(JNIEnv *env, jclass object, jlong id, jlong limit) {
+    memorySetLimit((long) id, (int64_t) limit);
+}
+
+/**
+ * Returns current and peak native memory of a session.
+ *
+ * @param env pointer to native method interface
+ * @param object reference to the class on which this method is invoked
+ * @param id session id
+ * @return current and peak memory in bytes or NULL if the array can not be created
+ */
+JNIEXPORT jlongArray JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_getNativeSessionMemory(JNIEnv *env, jclass object, jlong id) {
+    int64_t values[2];
+    memoryGet((long) id, &values[0], &values[1]);
+
+    jlongArray memory = (*env)->NewLongArray(env, 2);
+    if (memory != NULL) {
+        (*env)->SetLongArrayRegion(env, memory, 0, 2, (const jlong *) values);
+    }
+
+    return memory;
+}
+
+/**
+ * Returns user and system cpu time used by a session on the threads it runs on and the threads
+ * they create.
+ *
+ * @param env pointer to native method interface
+ * @param object reference to the class on which this method is invoked
+ * @param id session id
+ * @return user and system cpu time in microseconds or NULL if the array can not be created
+ */
+JNIEXPORT jlongArray JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_getNativeSessionCpuTime(JNIEnv *env, jclass object, jlong id) {
+    int64_t values[2];
+    cpuGet((long) id, &values[0], &values[1]);
+
+    jlongArray cpuTime = (*env)->NewLongArray(env, 2);
+    if (cpuTime != NULL) {
+        (*env)->SetLongArrayRegion(env, cpuTime, 0, 2, (const jlong *) values);
+    }
+
+    return cpuTime;
+}
+
+/**
+ * Returns the number of messages waiting in the callback data list and the number of messages
+ * dropped because they could not be added to it.
+ *
+ * @param env pointer to native method interface
+ * @param object reference to the class on which this method is invoked
+ * @return callback counters or NULL if the array can not be created
+ */
+JNIEXPORT jlongArray JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_getNativeCallbackCounters(JNIEnv *env, jclass object) {
+    int64_t values[2];
+    values[0] = atomic_load(&callbackDataCount);
+    values[1] = atomic_load(&droppedMessageCount);
+
+    jlongArray counters = (*env)->NewLongArray(env, 2);
+    if (counters != NULL) {
+        (*env)->SetLongArrayRegion(env, counters, 0, 2, (const jlong *) values);
+    }
+
+    return counters;
+}
+
+/**
+ * Sets the log level of a session. Logs printed on the threads of the session are filtered with
+ * this level instead of the global one until the session ends.
+ *
+ * @param env pointer to native method interface
+ * @param object reference to the class on which this method is invoked
+ * @param id session id
+ * @param level log level
+ */
+JNIEXPORT void JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_setNativeSessionLogLevel(JNIEnv *env, jclass object, jlong id, jint level) {
+    atomic_store(&sessionLogLevelMap[id % SESSION_MAP_SIZE], level);
+}
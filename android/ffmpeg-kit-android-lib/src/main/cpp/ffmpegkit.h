@@ -96,6 +96,13 @@ JNIEXPORT jstring JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_getNative
  */
 JNIEXPORT jint JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_nativeFFmpegExecute(JNIEnv *, jclass, jlong, jobjectArray);
 
+/*
+ * Class:     com_arthenica_ffmpegkit_FFmpegKitConfig
+ * Method:    nativeFFmpegExecutePacked
+ * Signature: (J[BI)I
+ */
+JNIEXPORT jint JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_nativeFFmpegExecutePacked(JNIEnv *, jclass, jlong, jbyteArray, jint);
+
 /*
  * Class:     com_arthenica_ffmpegkit_FFmpegKitConfig
  * Method:    nativeFFmpegCancel
@@ -138,4 +145,60 @@ JNIEXPORT void JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_ignoreNative
  */
 JNIEXPORT int JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_messagesInTransmit(JNIEnv *env, jclass object, jlong id);
 
+/*
+ * Class:     com_arthenica_ffmpegkit_FFmpegKitConfig
+ * Method:    setNativeStageProfilingEnabled
+ * Signature: (Z)V
+ */
+JNIEXPORT void JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_setNativeStageProfilingEnabled(JNIEnv *env, jclass object, jboolean enabled);
+
+/*
+ * Class:     com_arthenica_ffmpegkit_FFmpegKitConfig
+ * Method:    getNativeStageProfile
+ * Signature: (J)[J
+ */
+JNIEXPORT jlongArray JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_getNativeStageProfile(JNIEnv *env, jclass object, jlong id);
+
+/*
+ * Class:     com_arthenica_ffmpegkit_FFmpegKitConfig
+ * Method:    setNativeMemoryAccountingEnabled
+ * Signature: (Z)V
+ */
+JNIEXPORT void JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_setNativeMemoryAccountingEnabled(JNIEnv *env, jclass object, jboolean enabled);
+
+/*
+ * Class:     com_arthenica_ffmpegkit_FFmpegKitConfig
+ * Method:    setNativeSessionMemoryLimit
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_setNativeSessionMemoryLimit(JNIEnv *env, jclass object, jlong id, jlong limit);
+
+/*
+ * Class:     com_arthenica_ffmpegkit_FFmpegKitConfig
+ * Method:    getNativeSessionMemory
+ * Signature: (J)[J
+ */
+JNIEXPORT jlongArray JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_getNativeSessionMemory(JNIEnv *env, jclass object, jlong id);
+
+/*
+ * Class:     com_arthenica_ffmpegkit_FFmpegKitConfig
+ * Method:    getNativeSessionCpuTime
+ * Signature: (J)[J
+ */
+JNIEXPORT jlongArray JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_getNativeSessionCpuTime(JNIEnv *env, jclass object, jlong id);
+
+/*
+ * Class:     com_arthenica_ffmpegkit_FFmpegKitConfig
+ * Method:    getNativeCallbackCounters
+ * Signature: ()[J
+ */
+JNIEXPORT jlongArray JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_getNativeCallbackCounters(JNIEnv *env, jclass object);
+
+/*
+ * Class:     com_arthenica_ffmpegkit_FFmpegKitConfig
+ * Method:    setNativeSessionLogLevel
+ * Signature: (JI)V
+ */
+JNIEXPORT void JNICALL Java_com_arthenica_ffmpegkit_FFmpegKitConfig_setNativeSessionLogLevel(JNIEnv *env, jclass object, jlong id, jint level);
+
 #endif /* FFMPEG_KIT_H */
\ No newline at end of file
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include <pthread.h>
+#include <stdio.h>
+#include <string.h>
+#include <sys/resource.h>
+#include <sys/syscall.h>
+#include <unistd.h>
+
+#include "ffmpegkit.h"
+#include "ffmpegkit_cpu.h"
+
+extern __thread long globalSessionId;
+
+/** Cpu time of threads that ended, indexed the same way sessions are */
+typedef struct SessionCpu {
+    long sessionId;
+    int64_t user;
+    int64_t system;
+    int untrackedThreads;
+} SessionCpu;
+
+/** A thread accounted to a session, cpu time it used before the session is subtracted */
+typedef struct CpuThread {
+    long sessionId;
+    pid_t tid;
+    int64_t user;
+    int64_t system;
+} CpuThread;
+
+#define CPU_MAP_SIZE 1000
+#define CPU_THREAD_LIMIT 256
+
+static SessionCpu cpuMap[CPU_MAP_SIZE];
+static CpuThread cpuThreads[CPU_THREAD_LIMIT];
+static pthread_mutex_t cpuLock = PTHREAD_MUTEX_INITIALIZER;
+
+static __thread long cpuSessionId = 0;
+static __thread int cpuThreadIndex = -1;
+static __thread int64_t cpuStartUser;
+static __thread int64_t cpuStartSystem;
+
+static void cpuThreadUsage(int64_t *user, int64_t *system) {
+    struct rusage usage;
+
+    if (getrusage(RUSAGE_THREAD, &usage) != 0) {
+        *user = 0;
+        *system = 0;
+        return;
+    }
+
+    *user = (int64_t) usage.ru_utime.tv_sec * 1000000 + usage.ru_utime.tv_usec;
+    *system = (int64_t) usage.ru_stime.tv_sec * 1000000 + usage.ru_stime.tv_usec;
+}
+
+/**
+ * Reads cpu time of another thread of this process from procfs. Values have clock tick
+ * resolution.
+ */
+static int cpuTaskUsage(pid_t tid, int64_t *user, int64_t *system) {
+    char path[64];
+    char stat[512];
+
+    snprintf(path, sizeof(path), "/proc/self/task/%d/stat", (int) tid);
+
+    FILE *file = fopen(path, "r");
+    if (file == NULL) {
+        return -1;
+    }
+    size_t length = fread(stat, 1, sizeof(stat) - 1, file);
+    fclose(file);
+    stat[length] = '\0';
+
+    // THREAD NAME MAY INCLUDE SPACES, FIELDS ARE COUNTED AFTER ITS CLOSING PARENTHESIS
+    char *fields = strrchr(stat, ')');
+    unsigned long long utime, stime;
+    if (fields == NULL || sscanf(fields + 2, "%*c %*d %*d %*d %*d %*d %*u %*u %*u %*u %*u %llu %llu", &utime, &stime) != 2) {
+        return -1;
+    }
+
+    long ticks = sysconf(_SC_CLK_TCK);
+    if (ticks <= 0) {
+        return -1;
+    }
+    *user = (int64_t) utime * 1000000 / ticks;
+    *system = (int64_t) stime * 1000000 / ticks;
+
+    return 0;
+}
+
+void cpuReset(long sessionId) {
+    pthread_mutex_lock(&cpuLock);
+    SessionCpu *cpu = &cpuMap[sessionId % CPU_MAP_SIZE];
+    cpu->sessionId = sessionId;
+    cpu->user = 0;
+    cpu->system = 0;
+    cpu->untrackedThreads = 0;
+    pthread_mutex_unlock(&cpuLock);
+}
+
+void cpuThreadStart(long sessionId) {
+    if (sessionId == 0) {
+        return;
+    }
+
+    // THREADS ARE REUSED BY EXECUTORS, CPU TIME USED BEFORE THE SESSION IS EXCLUDED
+    cpuThreadUsage(&cpuStartUser, &cpuStartSystem);
+    cpuSessionId = sessionId;
+    cpuThreadIndex = -1;
+
+    // CODEC AND FILTER THREADS LOG AND ALLOCATE FOR THE SESSION THAT CREATED THEM
+    globalSessionId = sessionId;
+
+    int untrackedThreads = 0;
+
+    pthread_mutex_lock(&cpuLock);
+    for (int i = 0; i < CPU_THREAD_LIMIT; i++) {
+        if (cpuThreads[i].tid == 0) {
+            cpuThreads[i].sessionId = sessionId;
+            cpuThreads[i].tid = (pid_t) syscall(SYS_gettid);
+            cpuThreads[i].user = cpuStartUser;
+            cpuThreads[i].system = cpuStartSystem;
+            cpuThreadIndex = i;
+            break;
+        }
+    }
+    if (cpuThreadIndex < 0) {
+        SessionCpu *cpu = &cpuMap[sessionId % CPU_MAP_SIZE];
+        if (cpu->sessionId == sessionId) {
+            untrackedThreads = ++cpu->untrackedThreads;
+        }
+    }
+    pthread_mutex_unlock(&cpuLock);
+
+    // AN UNTRACKED THREAD IS STILL ACCOUNTED WHEN IT ENDS, ONLY RUNNING TOTALS MISS IT
+    if (untrackedThreads == 1) {
+        LOGW("Session %ld started a thread while %d threads were already tracked. Cpu time of untracked threads is added when they end.\n", sessionId, CPU_THREAD_LIMIT);
+    }
+}
+
+void cpuThreadEnd(void) {
+    int64_t user, system;
+    long sessionId = cpuSessionId;
+
+    if (sessionId == 0) {
+        return;
+    }
+
+    cpuThreadUsage(&user, &system);
+
+    pthread_mutex_lock(&cpuLock);
+    SessionCpu *cpu = &cpuMap[sessionId % CPU_MAP_SIZE];
+    if (cpu->sessionId == sessionId) {
+        cpu->user += user - cpuStartUser;
+        cpu->system += system - cpuStartSystem;
+    }
+    if (cpuThreadIndex >= 0) {
+        cpuThreads[cpuThreadIndex].tid = 0;
+    }
+    pthread_mutex_unlock(&cpuLock);
+
+    cpuSessionId = 0;
+    cpuThreadIndex = -1;
+}
+
+long cpuThreadOwner(void) {
+    return cpuSessionId;
+}
+
+void cpuGet(long sessionId, int64_t *user, int64_t *system) {
+    CpuThread running[CPU_THREAD_LIMIT];
+    int runningCount = 0;
+
+    *user = 0;
+    *system = 0;
+
+    pthread_mutex_lock(&cpuLock);
+    SessionCpu *cpu = &cpuMap[sessionId % CPU_MAP_SIZE];
+    if (cpu->sessionId == sessionId) {
+        *user = cpu->user;
+        *system = cpu->system;
+    }
+    for (int i = 0; i < CPU_THREAD_LIMIT; i++) {
+        if (cpuThreads[i].tid != 0 && cpuThreads[i].sessionId == sessionId) {
+            running[runningCount++] = cpuThreads[i];
+        }
+    }
+    pthread_mutex_unlock(&cpuLock);
+
+    // PROCFS IS READ WITHOUT HOLDING THE LOCK, A THREAD ENDING MEANWHILE IS SKIPPED
+    for (int i = 0; i < runningCount; i++) {
+        int64_t threadUser, threadSystem;
+        if (cpuTaskUsage(running[i].tid, &threadUser, &threadSystem) == 0) {
+            if (threadUser > running[i].user) {
+                *user += threadUser - running[i].user;
+            }
+            if (threadSystem > running[i].system) {
+                *system += threadSystem - running[i].system;
+            }
+        }
+    }
+}
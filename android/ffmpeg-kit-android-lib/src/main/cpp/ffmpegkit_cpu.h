@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef FFMPEG_KIT_CPU_H
+#define FFMPEG_KIT_CPU_H
+
+#include <stdint.h>
+
+/** Clears cpu time counters of the given session. */
+void cpuReset(long sessionId);
+
+/** Starts accounting cpu time of the current thread to the given session. */
+void cpuThreadStart(long sessionId);
+
+/** Adds cpu time used by the current thread since cpuThreadStart to its session. */
+void cpuThreadEnd(void);
+
+/** Returns the session the current thread is accounted to, zero if there is none. */
+long cpuThreadOwner(void);
+
+/**
+ * Reads user and system cpu time of the given session in microseconds. Threads that are still
+ * running are included.
+ */
+void cpuGet(long sessionId, int64_t *user, int64_t *system);
+
+#endif // FFMPEG_KIT_CPU_H
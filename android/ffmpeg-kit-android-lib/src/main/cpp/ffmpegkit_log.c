@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include <pthread.h>
+#include <stdint.h>
+#include <stdio.h>
+#include <stdlib.h>
+
+#include "libavutil/log.h"
+#include "ffmpegkit_log.h"
+
+/** Log line buffer of a thread */
+typedef struct LogLine {
+    char *data;
+    size_t size;
+} LogLine;
+
+static pthread_key_t logLineKey;
+static pthread_once_t logLineKeyOnce = PTHREAD_ONCE_INIT;
+static __thread LogLine *threadLogLine = NULL;
+
+static void logLineFree(void *value) {
+    LogLine *logLine = (LogLine *) value;
+
+    free(logLine->data);
+    free(logLine);
+
+    // DESTRUCTORS OF OTHER KEYS MAY STILL LOG ON THIS THREAD, THEY MUST ALLOCATE A NEW LINE
+    threadLogLine = NULL;
+}
+
+static void logLineKeyCreate(void) {
+    pthread_key_create(&logLineKey, logLineFree);
+}
+
+/**
+ * Returns the log line buffer of the current thread, creating it on first use. Buffers are not
+ * allocated with av_malloc, so they are not accounted to sessions that happen to run on the
+ * thread.
+ */
+static LogLine *logLineGet(void) {
+    LogLine *logLine = threadLogLine;
+    if (logLine != NULL) {
+        return logLine;
+    }
+
+    pthread_once(&logLineKeyOnce, logLineKeyCreate);
+
+    logLine = (LogLine *) malloc(sizeof(LogLine));
+    if (logLine == NULL) {
+        return NULL;
+    }
+    logLine->data = (char *) malloc(LOG_LINE_INITIAL_SIZE);
+    if (logLine->data == NULL) {
+        free(logLine);
+        return NULL;
+    }
+    logLine->size = LOG_LINE_INITIAL_SIZE;
+
+    // REGISTERED TO BE RELEASED WHEN THE THREAD EXITS
+    pthread_setspecific(logLineKey, logLine);
+    threadLogLine = logLine;
+
+    return logLine;
+}
+
+/**
+ * Appends formatted text at the given offset of the line, growing the buffer up to
+ * LOG_LINE_MAX_SIZE when needed. Returns the new length of the line.
+ */
+static size_t logLineVAppend(LogLine *logLine, size_t length, const char *format, va_list vargs) {
+    va_list copy;
+
+    va_copy(copy, vargs);
+    int required = vsnprintf(logLine->data + length, logLine->size - length, format, copy);
+    va_end(copy);
+
+    if (required < 0) {
+        logLine->data[length] = '\0';
+        return length;
+    }
+    if (length + required < logLine->size) {
+        return length + required;
+    }
+
+    size_t newSize = logLine->size;
+    while (newSize <= length + required && newSize < LOG_LINE_MAX_SIZE) {
+        newSize *= 2;
+    }
+    if (newSize > LOG_LINE_MAX_SIZE) {
+        newSize = LOG_LINE_MAX_SIZE;
+    }
+
+    char *newData = (char *) realloc(logLine->data, newSize);
+    if (newData != NULL) {
+        logLine->data = newData;
+        logLine->size = newSize;
+
+        va_copy(copy, vargs);
+        vsnprintf(logLine->data + length, logLine->size - length, format, copy);
+        va_end(copy);
+    }
+
+    // TRUNCATED IF IT DOES NOT FIT
+    if (length + required < logLine->size) {
+        return length + required;
+    } else {
+        return logLine->size - 1;
+    }
+}
+
+static size_t logLineAppend(LogLine *logLine, size_t length, const char *format, ...) {
+    va_list vargs;
+
+    va_start(vargs, format);
+    length = logLineVAppend(logLine, length, format, vargs);
+    va_end(vargs);
+
+    return length;
+}
+
+static const char *avutil_log_get_level_str(int level) {
+    switch (level) {
+    case AV_LOG_STDERR:
+        return "stderr";
+    case AV_LOG_QUIET:
+        return "quiet";
+    case AV_LOG_DEBUG:
+        return "debug";
+    case AV_LOG_VERBOSE:
+        return "verbose";
+    case AV_LOG_INFO:
+        return "info";
+    case AV_LOG_WARNING:
+        return "warning";
+    case AV_LOG_ERROR:
+        return "error";
+    case AV_LOG_FATAL:
+        return "fatal";
+    case AV_LOG_PANIC:
+        return "panic";
+    default:
+        return "";
+    }
+}
+
+static size_t avutil_log_format_line(void *avcl, int level, const char *fmt, va_list vl, LogLine *logLine, int *print_prefix) {
+    int flags = av_log_get_flags();
+    AVClass* avc = avcl ? *(AVClass **) avcl : NULL;
+    size_t length = 0;
+
+    logLine->data[0] = '\0';
+
+    if (*print_prefix && avc) {
+        if (avc->parent_log_context_offset) {
+            AVClass** parent = *(AVClass ***) (((uint8_t *) avcl) +
+                                   avc->parent_log_context_offset);
+            if (parent && *parent) {
+                length = logLineAppend(logLine, length, "[%s @ %p] ",
+                         (*parent)->item_name(parent), parent);
+            }
+        }
+        length = logLineAppend(logLine, length, "[%s @ %p] ",
+                 avc->item_name(avcl), avcl);
+    }
+
+    if (*print_prefix && (level > AV_LOG_QUIET) && (flags & AV_LOG_PRINT_LEVEL))
+        length = logLineAppend(logLine, length, "[%s] ", avutil_log_get_level_str(level));
+
+    length = logLineVAppend(logLine, length, fmt, vl);
+
+    if (length > 0) {
+        char lastc = logLine->data[length - 1];
+        *print_prefix = lastc == '\n' || lastc == '\r';
+    }
+
+    return length;
+}
+
+/**
+ * Replaces control characters in the line. Returns the length of the line up to its first
+ * null character.
+ */
+static size_t avutil_log_sanitize(uint8_t *line) {
+    uint8_t *start = line;
+
+    while(*line){
+        if(*line < 0x08 || (*line > 0x0D && *line < 0x20))
+            *line='?';
+        line++;
+    }
+
+    return line - start;
+}
+
+int logLineFormat(void *avcl, int level, const char *format, va_list vargs, const char **line) {
+    int print_prefix = 1;
+
+    LogLine *logLine = logLineGet();
+    if (logLine == NULL) {
+        return -1;
+    }
+
+    avutil_log_format_line(avcl, level, format, vargs, logLine, &print_prefix);
+
+    *line = logLine->data;
+    return (int) avutil_log_sanitize((uint8_t *) logLine->data);
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef FFMPEG_KIT_LOG_H
+#define FFMPEG_KIT_LOG_H
+
+#include <stdarg.h>
+
+/** Initial size of the log line buffer of a thread */
+#define LOG_LINE_INITIAL_SIZE 1024
+
+/** Maximum size of a formatted log line, longer lines are truncated */
+#define LOG_LINE_MAX_SIZE (65536 + 1024)
+
+/**
+ * Formats a log line the way av_log_default_callback does and replaces control characters in
+ * it. The line is written into a buffer owned by the current thread and reused by its next
+ * call, so nothing is allocated once the buffer is large enough. The buffer is released when
+ * the thread exits.
+ *
+ * @param avcl AVClass context of the log, can be NULL
+ * @param level log level
+ * @param format format string
+ * @param vargs arguments
+ * @param line set to the formatted line, valid until the next call on the same thread
+ * @return length of the line, zero if the line is empty and -1 on error
+ */
+int logLineFormat(void *avcl, int level, const char *format, va_list vargs, const char **line);
+
+#endif // FFMPEG_KIT_LOG_H
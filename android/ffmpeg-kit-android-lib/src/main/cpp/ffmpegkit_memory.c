@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2018-2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include <pthread.h>
+#include <stdatomic.h>
+#include <stdlib.h>
+
+#include "ffmpegkit.h"
+#include "ffmpegkit_memory.h"
+
+/** Holds the id of the session the current thread is running */
+extern __thread long globalSessionId;
+
+/** Cancels the given session, defined in ffmpegkit.c */
+extern void cancelSession(long id);
+
+/** A block allocated by a session */
+struct MemoryBlock {
+    void *ptr;
+    size_t size;
+    long sessionId;
+    struct MemoryBlock *next;
+};
+
+/** Holds memory counters of a session */
+typedef struct SessionMemory {
+    atomic_long sessionId;
+    atomic_llong current;
+    atomic_llong peak;
+    atomic_llong limit;
+    atomic_int limitExceeded;
+} SessionMemory;
+
+/** Counters are indexed the same way sessions are */
+#define MEMORY_MAP_SIZE 1000
+static SessionMemory memoryMap[MEMORY_MAP_SIZE];
+
+/** Blocks are kept in a hash table, each stripe of buckets has its own lock */
+#define MEMORY_BUCKET_COUNT 16384
+#define MEMORY_STRIPE_COUNT 64
+static struct MemoryBlock *memoryBuckets[MEMORY_BUCKET_COUNT];
+static pthread_mutex_t memoryStripes[MEMORY_STRIPE_COUNT] = {
+    [0 ... MEMORY_STRIPE_COUNT - 1] = PTHREAD_MUTEX_INITIALIZER
+};
+
+static atomic_int accountingEnabled;
+static atomic_llong recordedBlockCount;
+
+static unsigned int memoryBucket(void *ptr) {
+    uintptr_t key = (uintptr_t) ptr;
+
+    // LOWER BITS ARE ZERO BECAUSE OF ALIGNMENT
+    key ^= key >> 17;
+    key *= 0x9E3779B1u;
+    return (unsigned int) ((key >> 4) % MEMORY_BUCKET_COUNT);
+}
+
+static void memoryAdd(long sessionId, int64_t size) {
+    SessionMemory *memory = &memoryMap[sessionId % MEMORY_MAP_SIZE];
+    int64_t current = atomic_fetch_add(&memory->current, size) + size;
+
+    int64_t peak = atomic_load(&memory->peak);
+    while (current > peak && !atomic_compare_exchange_weak(&memory->peak, &peak, current)) {
+    }
+
+    int64_t limit = atomic_load(&memory->limit);
+    if (limit > 0 && current > limit && atomic_exchange(&memory->limitExceeded, 1) == 0) {
+        LOGW("Session %ld exceeded its native memory limit of %lld bytes with %lld bytes. Cancelling session.\n", sessionId, (long long) limit, (long long) current);
+        cancelSession(sessionId);
+    }
+}
+
+void memorySetAccountingEnabled(int enabled) {
+    atomic_store(&accountingEnabled, enabled);
+    if (enabled) {
+        return;
+    }
+
+    // FREES ARE NOT LOOKED UP WHILE ACCOUNTING IS OFF, SO RECORDS WOULD GO STALE
+    for (int i = 0; i < MEMORY_BUCKET_COUNT; i++) {
+        pthread_mutex_t *stripe = &memoryStripes[i % MEMORY_STRIPE_COUNT];
+
+        pthread_mutex_lock(stripe);
+        struct MemoryBlock *block = memoryBuckets[i];
+        memoryBuckets[i] = NULL;
+        pthread_mutex_unlock(stripe);
+
+        while (block != NULL) {
+            struct MemoryBlock *next = block->next;
+            atomic_fetch_sub(&recordedBlockCount, 1);
+            free(block);
+            block = next;
+        }
+    }
+}
+
+void memoryReset(long sessionId) {
+    SessionMemory *memory = &memoryMap[sessionId % MEMORY_MAP_SIZE];
+
+    atomic_store(&memory->sessionId, sessionId);
+    atomic_store(&memory->current, 0);
+    atomic_store(&memory->peak, 0);
+    atomic_store(&memory->limitExceeded, 0);
+}
+
+void memorySetLimit(long sessionId, int64_t limit) {
+    atomic_store(&memoryMap[sessionId % MEMORY_MAP_SIZE].limit, limit);
+}
+
+void memoryGet(long sessionId, int64_t *current, int64_t *peak) {
+    SessionMemory *memory = &memoryMap[sessionId % MEMORY_MAP_SIZE];
+
+    // SLOT MAY ALREADY BELONG TO A LATER SESSION
+    if (atomic_load(&memory->sessionId) != sessionId) {
+        *current = 0;
+        *peak = 0;
+        return;
+    }
+
+    *current = atomic_load(&memory->current);
+    *peak = atomic_load(&memory->peak);
+}
+
+void memoryAllocHook(void *ptr, size_t size) {
+    long sessionId = globalSessionId;
+
+    // ONLY THREADS RUNNING A SESSION ARE ACCOUNTED
+    if (sessionId == 0 || !atomic_load_explicit(&accountingEnabled, memory_order_relaxed)) {
+        return;
+    }
+
+    // BLOCKS ARE NOT ALLOCATED WITH av_malloc, OTHERWISE THIS HOOK WOULD RECURSE
+    struct MemoryBlock *block = (struct MemoryBlock *) malloc(sizeof(struct MemoryBlock));
+    if (block == NULL) {
+        return;
+    }
+    block->ptr = ptr;
+    block->size = size;
+    block->sessionId = sessionId;
+
+    unsigned int bucket = memoryBucket(ptr);
+    pthread_mutex_t *stripe = &memoryStripes[bucket % MEMORY_STRIPE_COUNT];
+
+    pthread_mutex_lock(stripe);
+    block->next = memoryBuckets[bucket];
+    memoryBuckets[bucket] = block;
+    pthread_mutex_unlock(stripe);
+
+    atomic_fetch_add(&recordedBlockCount, 1);
+    memoryAdd(sessionId, (int64_t) size);
+}
+
+size_t memoryFreeHook(void *ptr) {
+    if (!atomic_load_explicit(&accountingEnabled, memory_order_relaxed) || atomic_load_explicit(&recordedBlockCount, memory_order_relaxed) == 0) {
+        return 0;
+    }
+
+    unsigned int bucket = memoryBucket(ptr);
+    pthread_mutex_t *stripe = &memoryStripes[bucket % MEMORY_STRIPE_COUNT];
+    struct MemoryBlock *block = NULL;
+
+    pthread_mutex_lock(stripe);
+    struct MemoryBlock **link = &memoryBuckets[bucket];
+    while (*link != NULL) {
+        if ((*link)->ptr == ptr) {
+            block = *link;
+            *link = block->next;
+            break;
+        }
+        link = &(*link)->next;
+    }
+    pthread_mutex_unlock(stripe);
+
+    if (block == NULL) {
+        return 0;
+    }
+
+    size_t size = block->size;
+    SessionMemory *memory = &memoryMap[block->sessionId % MEMORY_MAP_SIZE];
+    atomic_fetch_sub(&recordedBlockCount, 1);
+
+    // A LATE FREE OF A FINISHED SESSION IS NOT CHARGED TO THE SESSION REUSING ITS SLOT
+    if (atomic_load(&memory->sessionId) == block->sessionId) {
+        atomic_fetch_sub(&memory->current, (int64_t) size);
+    }
+    free(block);
+
+    return size;
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2018-2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef FFMPEG_KIT_MEMORY_H
+#define FFMPEG_KIT_MEMORY_H
+
+#include <stddef.h>
+#include <stdint.h>
+
+/** Enables or disables accounting. Disabling drops the records of blocks not freed yet. */
+void memorySetAccountingEnabled(int enabled);
+
+/** Clears memory counters of the given session. Memory limit is kept. */
+void memoryReset(long sessionId);
+
+/** Sets the memory limit of the given session in bytes, zero removes it. */
+void memorySetLimit(long sessionId, int64_t limit);
+
+/** Reads current and peak memory of the given session in bytes, zero if its slot is reused. */
+void memoryGet(long sessionId, int64_t *current, int64_t *peak);
+
+/** Records a block allocated on the current thread. */
+void memoryAllocHook(void *ptr, size_t size);
+
+/** Removes a block from the records, returns its size or zero if it was not recorded. */
+size_t memoryFreeHook(void *ptr);
+
+#endif // FFMPEG_KIT_MEMORY_H
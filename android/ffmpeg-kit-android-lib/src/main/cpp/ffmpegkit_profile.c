@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2018-2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include <stdatomic.h>
+#include <time.h>
+
+#include "ffmpegkit_profile.h"
+
+/** Holds profile counters of a session */
+typedef struct SessionProfile {
+    atomic_llong stageCount[ProfileStageCount];
+    atomic_llong stageWallTime[ProfileStageCount];
+    atomic_llong stageCpuTime[ProfileStageCount];
+    atomic_int queueDepth[ProfileQueueCount];
+    atomic_int queueMaxDepth[ProfileQueueCount];
+} SessionProfile;
+
+/** Profiles are indexed the same way sessions are */
+#define PROFILE_MAP_SIZE 1000
+static SessionProfile profileMap[PROFILE_MAP_SIZE];
+
+static atomic_int profileEnabled;
+
+static int64_t profileClock(clockid_t clock) {
+    struct timespec ts;
+    clock_gettime(clock, &ts);
+    return (int64_t)ts.tv_sec * 1000000000 + ts.tv_nsec;
+}
+
+void profileSetEnabled(int enabled) {
+    atomic_store(&profileEnabled, enabled);
+}
+
+int profileIsEnabled(void) {
+    return atomic_load(&profileEnabled);
+}
+
+void profileReset(long sessionId) {
+    SessionProfile *profile = &profileMap[sessionId % PROFILE_MAP_SIZE];
+
+    for (int i = 0; i < ProfileStageCount; i++) {
+        atomic_store(&profile->stageCount[i], 0);
+        atomic_store(&profile->stageWallTime[i], 0);
+        atomic_store(&profile->stageCpuTime[i], 0);
+    }
+    for (int i = 0; i < ProfileQueueCount; i++) {
+        atomic_store(&profile->queueDepth[i], 0);
+        atomic_store(&profile->queueMaxDepth[i], 0);
+    }
+}
+
+ProfileMark profileStageStart(void) {
+    ProfileMark mark = { 0, 0 };
+
+    if (atomic_load_explicit(&profileEnabled, memory_order_relaxed)) {
+        mark.wall = profileClock(CLOCK_MONOTONIC);
+        mark.cpu = profileClock(CLOCK_THREAD_CPUTIME_ID);
+    }
+
+    return mark;
+}
+
+void profileStageEnd(ProfileStage stage, ProfileMark mark) {
+    if (mark.wall == 0) {
+        return;
+    }
+
+    SessionProfile *profile = &profileMap[globalSessionId % PROFILE_MAP_SIZE];
+    int64_t wall = profileClock(CLOCK_MONOTONIC) - mark.wall;
+    int64_t cpu = profileClock(CLOCK_THREAD_CPUTIME_ID) - mark.cpu;
+
+    atomic_fetch_add_explicit(&profile->stageCount[stage], 1, memory_order_relaxed);
+    atomic_fetch_add_explicit(&profile->stageWallTime[stage], wall, memory_order_relaxed);
+    atomic_fetch_add_explicit(&profile->stageCpuTime[stage], cpu, memory_order_relaxed);
+}
+
+void profileQueueDepth(ProfileQueue queue, int depth) {
+    if (!atomic_load_explicit(&profileEnabled, memory_order_relaxed)) {
+        return;
+    }
+
+    SessionProfile *profile = &profileMap[globalSessionId % PROFILE_MAP_SIZE];
+    atomic_store_explicit(&profile->queueDepth[queue], depth, memory_order_relaxed);
+
+    int max = atomic_load_explicit(&profile->queueMaxDepth[queue], memory_order_relaxed);
+    while (depth > max && !atomic_compare_exchange_weak(&profile->queueMaxDepth[queue], &max, depth)) {
+    }
+}
+
+void profileSnapshot(long sessionId, int64_t *values) {
+    SessionProfile *profile = &profileMap[sessionId % PROFILE_MAP_SIZE];
+    int index = 0;
+
+    for (int i = 0; i < ProfileStageCount; i++) {
+        values[index++] = atomic_load(&profile->stageCount[i]);
+        values[index++] = atomic_load(&profile->stageWallTime[i]);
+        values[index++] = atomic_load(&profile->stageCpuTime[i]);
+    }
+    for (int i = 0; i < ProfileQueueCount; i++) {
+        values[index++] = atomic_load(&profile->queueDepth[i]);
+        values[index++] = atomic_load(&profile->queueMaxDepth[i]);
+    }
+}
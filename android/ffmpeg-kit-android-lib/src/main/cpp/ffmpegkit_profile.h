@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2018-2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef FFMPEG_KIT_PROFILE_H
+#define FFMPEG_KIT_PROFILE_H
+
+#include <stdint.h>
+
+/** Holds the id of the session the current thread is running, defined in ffmpegkit.c */
+extern __thread long globalSessionId;
+
+/** Transcode stages measured by the profiler. */
+typedef enum {
+    ProfileStageDemux = 0,
+    ProfileStageDecode,
+    ProfileStageFilter,
+    ProfileStageEncode,
+    ProfileStageMux,
+    ProfileStageCount
+} ProfileStage;
+
+/** Queues sampled by the profiler. */
+typedef enum {
+    ProfileQueueThread = 0,
+    ProfileQueueSync,
+    ProfileQueueCount
+} ProfileQueue;
+
+/**
+ * Number of values in a profile snapshot. Each stage contributes invocation count, wall time
+ * and cpu time; each queue contributes current and maximum depth.
+ */
+#define PROFILE_VALUE_COUNT (ProfileStageCount * 3 + ProfileQueueCount * 2)
+
+/** Start mark of a stage measurement. A zero wall time means profiling was disabled. */
+typedef struct ProfileMark {
+    int64_t wall;
+    int64_t cpu;
+} ProfileMark;
+
+/** Enables or disables stage profiling for all sessions. */
+void profileSetEnabled(int enabled);
+
+/** Returns whether stage profiling is enabled. */
+int profileIsEnabled(void);
+
+/** Clears profile counters of the given session. */
+void profileReset(long sessionId);
+
+/** Starts measuring a stage on the current thread. */
+ProfileMark profileStageStart(void);
+
+/** Adds the time elapsed since the mark to the stage counters of the current session. */
+void profileStageEnd(ProfileStage stage, ProfileMark mark);
+
+/** Records the depth of a queue for the current session. */
+void profileQueueDepth(ProfileQueue queue, int depth);
+
+/**
+ * Copies profile counters of the given session into values, which must hold
+ * PROFILE_VALUE_COUNT entries.
+ */
+void profileSnapshot(long sessionId, int64_t *values);
+
+#endif // FFMPEG_KIT_PROFILE_H
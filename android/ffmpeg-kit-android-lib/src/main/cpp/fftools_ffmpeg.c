@@ -103,6 +103,7 @@
 #include <stdint.h>
 
 #include "ffmpegkit_exception.h"
+#include "ffmpegkit_profile.h"
 #include "fftools_opt_common.h"
 
 #if HAVE_IO_H
@@ -222,7 +223,7 @@ __thread int64_t keyboard_last_time = 0;
 __thread int first_report = 1;
 __thread int qp_histogram[52];
 
-void (*report_callback)(int, float, float, int64_t, double, double, double) = NULL;
+void (*report_callback)(int, float, float, int64_t, double, double, double, int64_t *, int) = NULL;
 
 extern int opt_map(void *optctx, const char *opt, const char *arg);
 extern int opt_map_channel(void *optctx, const char *opt, const char *arg);
@@ -653,12 +654,16 @@ static int read_key(void)
 
 int decode_interrupt_cb(void *ctx);
 
+/*
+ * opaque holds the session id, so the callback checks the cancel flag of the right session
+ * from demuxer and muxer threads too
+ */
 int decode_interrupt_cb(void *ctx)
 {
-    return received_nb_signals > atomic_load(&transcode_init_done);
+    return received_nb_signals > atomic_load(&transcode_init_done) || cancelRequested((long)(intptr_t)ctx);
 }
 
-__thread const AVIOInterruptCB int_cb = { decode_interrupt_cb, NULL };
+__thread AVIOInterruptCB int_cb = { decode_interrupt_cb, NULL };
 
 static void ffmpeg_cleanup(int ret)
 {
@@ -1043,6 +1048,7 @@ static int encode_frame(OutputFile *of, OutputStream *ost, AVFrame *frame)
     AVPacket         *pkt = ost->pkt;
     const char *type_desc = av_get_media_type_string(enc->codec_type);
     const char    *action = frame ? "encode" : "flush";
+    ProfileMark      mark;
     int ret;
 
     if (frame) {
@@ -1064,7 +1070,9 @@ static int encode_frame(OutputFile *of, OutputStream *ost, AVFrame *frame)
 
     update_benchmark(NULL);
 
+    mark = profileStageStart();
     ret = avcodec_send_frame(enc, frame);
+    profileStageEnd(ProfileStageEncode, mark);
     if (ret < 0 && !(ret == AVERROR_EOF && !frame)) {
         av_log(ost, AV_LOG_ERROR, "Error submitting %s frame to the encoder\n",
                type_desc);
@@ -1072,7 +1080,9 @@ static int encode_frame(OutputFile *of, OutputStream *ost, AVFrame *frame)
     }
 
     while (1) {
+        mark = profileStageStart();
         ret = avcodec_receive_packet(enc, pkt);
+        profileStageEnd(ProfileStageEncode, mark);
         update_benchmark("%s_%s %d.%d", action, type_desc,
                          ost->file_index, ost->index);
 
@@ -1460,6 +1470,7 @@ static void do_video_out(OutputFile *of,
 
     if (nb_frames_prev == 0 && ost->last_dropped) {
         nb_frames_drop++;
+        ost->nb_frames_drop++;
         av_log(ost, AV_LOG_VERBOSE,
                "*** dropping frame %"PRId64" at ts %"PRId64"\n",
                ost->vsync_frame_number, ost->last_frame->pts);
@@ -1468,9 +1479,11 @@ static void do_video_out(OutputFile *of,
         if (nb_frames > dts_error_threshold * 30) {
             av_log(ost, AV_LOG_ERROR, "%"PRId64" frame duplication too large, skipping\n", nb_frames - 1);
             nb_frames_drop++;
+            ost->nb_frames_drop++;
             return;
         }
         nb_frames_dup += nb_frames - (nb_frames_prev && ost->last_dropped) - (nb_frames > nb_frames_prev);
+        ost->nb_frames_dup += nb_frames - (nb_frames_prev && ost->last_dropped) - (nb_frames > nb_frames_prev);
         av_log(ost, AV_LOG_VERBOSE, "*** %"PRId64" dup!\n", nb_frames - 1);
         if (nb_frames_dup > dup_warning) {
             av_log(ost, AV_LOG_WARNING, "More than %"PRIu64" frames duplicated\n", dup_warning);
@@ -1551,8 +1564,10 @@ static int reap_filters(int flush)
         filtered_frame = ost->filtered_frame;
 
         while (1) {
+            ProfileMark mark = profileStageStart();
             ret = av_buffersink_get_frame_flags(filter, filtered_frame,
                                                AV_BUFFERSINK_FLAG_NO_REQUEST);
+            profileStageEnd(ProfileStageFilter, mark);
             if (ret < 0) {
                 if (ret != AVERROR(EAGAIN) && ret != AVERROR_EOF) {
                     av_log(NULL, AV_LOG_WARNING,
@@ -1729,18 +1744,63 @@ static void print_final_stats(int64_t total_size)
     }
 }
 
+/*
+ * Collects progress of each output file and output stream. Returned array is owned by the
+ * caller and is laid out as described for STREAM_REPORT_FIELDS.
+ */
+static int64_t *collect_stream_report(int *length)
+{
+    int64_t *report;
+    int nb_streams = 0;
+    int i = 0;
+
+    for (OutputStream *ost = ost_iter(NULL); ost; ost = ost_iter(ost))
+        nb_streams++;
+
+    *length = 1 + nb_output_files + nb_streams * STREAM_REPORT_FIELDS;
+    report = av_malloc_array(*length, sizeof(*report));
+    if (!report) {
+        *length = 0;
+        return NULL;
+    }
+
+    report[i++] = nb_output_files;
+    for (int j = 0; j < nb_output_files; j++)
+        report[i++] = of_filesize(output_files[j]);
+
+    for (OutputStream *ost = ost_iter(NULL); ost; ost = ost_iter(ost)) {
+        union { float f; int32_t i; } q;
+        q.f = ost->enc_ctx ? ost->quality / (float) FF_QP2LAMBDA : -1;
+
+        report[i++] = ost->file_index;
+        report[i++] = ost->index;
+        report[i++] = ost->st->codecpar->codec_type;
+        report[i++] = atomic_load(&ost->packets_written);
+        report[i++] = ost->data_size_mux;
+        report[i++] = ost->last_mux_dts;
+        report[i++] = q.i;
+        report[i++] = ost->nb_frames_dup;
+        report[i++] = ost->nb_frames_drop;
+    }
+
+    return report;
+}
+
 static void forward_report(uint64_t frame_number, float fps, float quality, int64_t total_size, int64_t pts, double bitrate, double speed)
 {
     // FORWARD DATA
     if (report_callback != NULL) {
+        int stream_report_length;
+        int64_t *stream_report = collect_stream_report(&stream_report_length);
+
         double milliseconds = 0;
         if (pts != AV_NOPTS_VALUE) {
             milliseconds = ((double)FFABS64U(pts)) / 1000;
         }
         if (pts < 0) {
-            report_callback(frame_number, fps, quality, total_size, 0 - milliseconds, bitrate, speed);
+            report_callback(frame_number, fps, quality, total_size, 0 - milliseconds, bitrate, speed, stream_report, stream_report_length);
         } else {
-            report_callback(frame_number, fps, quality, total_size, milliseconds, bitrate, speed);
+            report_callback(frame_number, fps, quality, total_size, milliseconds, bitrate, speed, stream_report, stream_report_length);
         }
     }
 }
@@ -1862,8 +1922,10 @@ static void print_report(int is_last_report, int64_t timer_start, int64_t cur_ti
             }
         }
 
-        if (is_last_report)
+        if (is_last_report) {
             nb_frames_drop += ost->last_dropped;
+            ost->nb_frames_drop += ost->last_dropped;
+        }
     }
 
     us    = FFABS64U(pts) % AV_TIME_BASE;
@@ -2167,6 +2229,7 @@ static int ifilter_send_frame(InputFilter *ifilter, AVFrame *frame, int keep_ref
 {
     FilterGraph *fg = ifilter->graph;
     AVFrameSideData *sd;
+    ProfileMark mark;
     int need_reinit, ret;
     int buffersrc_flags = AV_BUFFERSRC_FLAG_PUSH;
 
@@ -2233,7 +2296,9 @@ static int ifilter_send_frame(InputFilter *ifilter, AVFrame *frame, int keep_ref
         }
     }
 
+    mark = profileStageStart();
     ret = av_buffersrc_add_frame_flags(ifilter->filter, frame, buffersrc_flags);
+    profileStageEnd(ProfileStageFilter, mark);
     if (ret < 0) {
         if (ret != AVERROR_EOF)
             av_log(NULL, AV_LOG_ERROR, "Error while filtering: %s\n", av_err2str(ret));
@@ -2280,19 +2345,24 @@ static int ifilter_send_eof(InputFilter *ifilter, int64_t pts)
 static int decode(InputStream *ist, AVCodecContext *avctx,
                   AVFrame *frame, int *got_frame, AVPacket *pkt)
 {
+    ProfileMark mark;
     int ret;
 
     *got_frame = 0;
 
+    mark = profileStageStart();
     if (pkt) {
         ret = avcodec_send_packet(avctx, pkt);
         // In particular, we don't expect AVERROR(EAGAIN), because we read all
         // decoded frames with avcodec_receive_frame() until done.
-        if (ret < 0 && ret != AVERROR_EOF)
+        if (ret < 0 && ret != AVERROR_EOF) {
+            profileStageEnd(ProfileStageDecode, mark);
             return ret;
+        }
     }
 
     ret = avcodec_receive_frame(avctx, frame);
+    profileStageEnd(ProfileStageDecode, mark);
     if (ret < 0 && ret != AVERROR(EAGAIN))
         return ret;
     if (ret >= 0) {
@@ -4067,9 +4137,12 @@ static int transcode_from_filter(FilterGraph *graph, InputStream **best_ist)
     int nb_requests, nb_requests_max = 0;
     InputFilter *ifilter;
     InputStream *ist;
+    ProfileMark mark;
 
     *best_ist = NULL;
+    mark = profileStageStart();
     ret = avfilter_graph_request_oldest(graph->graph);
+    profileStageEnd(ProfileStageFilter, mark);
     if (ret >= 0)
         return reap_filters(0);
 
@@ -4367,7 +4440,7 @@ void ffmpeg_var_cleanup() {
     }
 }
 
-void set_report_callback(void (*callback)(int, float, float, int64_t, double, double, double))
+void set_report_callback(void (*callback)(int, float, float, int64_t, double, double, double, int64_t *, int))
 {
     report_callback = callback;
 }
@@ -4389,6 +4462,9 @@ int ffmpeg_execute(int argc, char **argv)
     program_name = (char*)&_program_name;
     program_birth_year = 2000;
 
+    /* io of this session is interrupted when the session is cancelled */
+    int_cb.opaque = (void *)(intptr_t)globalSessionId;
+
     #define OFFSET(x) offsetof(OptionsContext, x)
     OptionDef options[] = {
 
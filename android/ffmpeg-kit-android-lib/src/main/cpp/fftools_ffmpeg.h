@@ -715,6 +715,9 @@ typedef struct OutputStream {
     uint64_t samples_encoded;
     // number of packets received from the encoder
     uint64_t packets_encoded;
+    // number of frames duplicated and dropped by video sync
+    int64_t nb_frames_dup;
+    int64_t nb_frames_drop;
 
     /* packet quality factor */
     int quality;
@@ -798,7 +801,7 @@ extern __thread int filter_complex_nbthreads;
 extern __thread int vstats_version;
 extern __thread int auto_conversion_filters;
 
-extern __thread const AVIOInterruptCB int_cb;
+extern __thread AVIOInterruptCB int_cb;
 
 extern __thread HWDevice *filter_hw_device;
 
@@ -906,7 +909,16 @@ extern const char * const opt_name_codec_tags[];
 extern const char * const opt_name_frame_rates[];
 extern const char * const opt_name_top_field_first[];
 
-void set_report_callback(void (*callback)(int, float, float, int64_t, double, double, double));
+/*
+ * Number of values reported for each output stream to the report callback. Stream values
+ * follow the number of output files and the size of each output file:
+ * file index, stream index, media type, packets written, bytes written, last muxed dts in
+ * AV_TIME_BASE units, quality as float bits, duplicated frames, dropped frames.
+ * The report callback takes ownership of the stream values and frees them with av_free.
+ */
+#define STREAM_REPORT_FIELDS 9
+
+void set_report_callback(void (*callback)(int, float, float, int64_t, double, double, double, int64_t *, int));
 void cancel_operation(long id);
 
 #endif /* FFTOOLS_FFMPEG_H */
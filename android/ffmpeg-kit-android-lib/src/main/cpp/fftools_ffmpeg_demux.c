@@ -37,6 +37,7 @@
 
 #include "fftools_ffmpeg.h"
 #include "fftools_ffmpeg_mux.h"
+#include "ffmpegkit_profile.h"
 
 #include "libavutil/avassert.h"
 #include "libavutil/avstring.h"
@@ -87,6 +88,9 @@ typedef struct Demuxer {
     int                   thread_queue_size;
     pthread_t             thread;
     int                   non_blocking;
+
+    /* id of the session that opened this file, set on the demuxer thread */
+    long                  session_id;
 } Demuxer;
 
 typedef struct DemuxMsg {
@@ -267,10 +271,14 @@ static void *input_thread(void *arg)
 
     thread_set_name(f);
 
+    globalSessionId = d->session_id;
+
     while (1) {
         DemuxMsg msg = { NULL };
+        ProfileMark mark = profileStageStart();
 
         ret = av_read_frame(f->ctx, pkt);
+        profileStageEnd(ProfileStageDemux, mark);
 
         if (ret == AVERROR(EAGAIN)) {
             av_usleep(10000);
@@ -412,6 +420,8 @@ static int thread_start(Demuxer *d)
         }
     }
 
+    d->session_id = globalSessionId;
+
     if ((ret = pthread_create(&d->thread, NULL, input_thread, d))) {
         av_log(NULL, AV_LOG_ERROR, "pthread_create failed: %s. Try to increase `ulimit -v` or decrease `ulimit -s`.\n", strerror(ret));
         ret = AVERROR(ret);
@@ -50,6 +50,7 @@
 #include "fftools_objpool.h"
 #include "fftools_sync_queue.h"
 #include "fftools_thread_queue.h"
+#include "ffmpegkit_profile.h"
 
 #include "libavutil/fifo.h"
 #include "libavutil/intreadwrite.h"
@@ -95,6 +96,7 @@ static int write_packet(Muxer *mux, OutputStream *ost, AVPacket *pkt)
     AVStream *st = ost->st;
     int64_t fs;
     uint64_t frame_num;
+    ProfileMark mark;
     int ret;
 
     fs = filesize(s->pb);
@@ -177,7 +179,9 @@ static int write_packet(Muxer *mux, OutputStream *ost, AVPacket *pkt)
     if (ms->stats.io)
         enc_stats_write(ost, &ms->stats, NULL, pkt, frame_num);
 
+    mark = profileStageStart();
     ret = av_interleaved_write_frame(s, pkt);
+    profileStageEnd(ProfileStageMux, mark);
     if (ret < 0) {
         print_error("av_interleaved_write_frame()", ret);
         goto fail;
@@ -240,6 +244,8 @@ static void *muxer_thread(void *arg)
 
     thread_set_name(of);
 
+    globalSessionId = mux->session_id;
+
     while (1) {
         OutputStream *ost;
         int stream_idx, stream_eof = 0;
@@ -447,6 +453,8 @@ static int thread_start(Muxer *mux)
         return AVERROR(ENOMEM);
     }
 
+    mux->session_id = globalSessionId;
+
     ret = pthread_create(&mux->thread, NULL, muxer_thread, (void*)mux);
     if (ret) {
         tq_free(&mux->tq);
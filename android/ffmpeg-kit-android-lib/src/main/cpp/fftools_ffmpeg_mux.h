@@ -150,6 +150,9 @@ typedef struct Muxer {
 
     SyncQueue *sq_mux;
     AVPacket *sq_pkt;
+
+    /* id of the session that opened this file, set on the muxer thread */
+    long session_id;
 } Muxer;
 
 typedef struct EncStatsFile {
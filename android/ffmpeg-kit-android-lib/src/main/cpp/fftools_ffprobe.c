@@ -313,6 +313,8 @@ __thread struct AVHashContext *hash;
 
 __thread int main_ffprobe_return_code = 0;
 extern __thread int longjmp_value;
+extern __thread long globalSessionId;
+extern int cancelRequested(long sessionId);
 
 static const struct {
     double bin_val;
@@ -3333,6 +3335,11 @@ static void show_error(WriterContext *w, int err)
     writer_print_section_footer(w);
 }
 
+static int ffprobe_interrupt_cb(void *ctx)
+{
+    return cancelRequested((long)(intptr_t)ctx);
+}
+
 static int open_input_file(InputFile *ifile, const char *filename,
                            const char *print_filename)
 {
@@ -3345,6 +3352,10 @@ static int open_input_file(InputFile *ifile, const char *filename,
     if (!fmt_ctx)
         report_and_exit(AVERROR(ENOMEM));
 
+    /* io of this session is interrupted when the session is cancelled */
+    fmt_ctx->interrupt_callback.callback = ffprobe_interrupt_cb;
+    fmt_ctx->interrupt_callback.opaque = (void *)(intptr_t)globalSessionId;
+
     if (!av_dict_get(format_opts, "scan_all_pmts", NULL, AV_DICT_MATCH_CASE)) {
         av_dict_set(&format_opts, "scan_all_pmts", "1", AV_DICT_DONT_OVERWRITE);
         scan_all_pmts_set = 1;
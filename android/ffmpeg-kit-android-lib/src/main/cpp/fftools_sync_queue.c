@@ -41,6 +41,7 @@
 
 #include "fftools_objpool.h"
 #include "fftools_sync_queue.h"
+#include "ffmpegkit_profile.h"
 
 typedef struct SyncQueueStream {
     AVFifo          *fifo;
@@ -245,6 +246,19 @@ static int overflow_heartbeat(SyncQueue *sq, int stream_idx)
     return 1;
 }
 
+static void profile_depth(const SyncQueue *sq)
+{
+    int depth = 0;
+
+    if (!profileIsEnabled())
+        return;
+
+    for (unsigned int i = 0; i < sq->nb_streams; i++)
+        depth += av_fifo_can_read(sq->streams[i].fifo);
+
+    profileQueueDepth(ProfileQueueSync, depth);
+}
+
 int sq_send(SyncQueue *sq, unsigned int stream_idx, SyncQueueFrame frame)
 {
     SyncQueueStream *st;
@@ -285,6 +299,8 @@ int sq_send(SyncQueue *sq, unsigned int stream_idx, SyncQueueFrame frame)
     if (st->frames_sent >= st->frames_max)
         finish_stream(sq, stream_idx);
 
+    profile_depth(sq);
+
     return 0;
 }
 
@@ -359,6 +375,9 @@ int sq_receive(SyncQueue *sq, int stream_idx, SyncQueueFrame frame)
     if (ret == AVERROR(EAGAIN) && overflow_heartbeat(sq, stream_idx))
         ret = receive_internal(sq, stream_idx, frame);
 
+    if (ret >= 0)
+        profile_depth(sq);
+
     return ret;
 }
 
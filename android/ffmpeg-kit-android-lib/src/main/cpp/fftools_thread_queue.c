@@ -42,6 +42,7 @@
 
 #include "fftools_objpool.h"
 #include "fftools_thread_queue.h"
+#include "ffmpegkit_profile.h"
 
 enum {
     FINISHED_SEND = (1 << 0),
@@ -163,6 +164,7 @@ int tq_send(ThreadQueue *tq, unsigned int stream_idx, void *data)
 
         ret = av_fifo_write(tq->fifo, &elem, 1);
         av_assert0(ret >= 0);
+        profileQueueDepth(ProfileQueueThread, av_fifo_can_read(tq->fifo));
         pthread_cond_broadcast(&tq->cond);
     }
 
@@ -220,8 +222,10 @@ int tq_receive(ThreadQueue *tq, int *stream_idx, void *data)
         break;
     }
 
-    if (ret == 0)
+    if (ret == 0) {
+        profileQueueDepth(ProfileQueueThread, av_fifo_can_read(tq->fifo));
         pthread_cond_broadcast(&tq->cond);
+    }
 
     pthread_mutex_unlock(&tq->lock);
 
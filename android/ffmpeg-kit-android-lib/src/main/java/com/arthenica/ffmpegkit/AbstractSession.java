@@ -24,7 +24,9 @@ import com.arthenica.smartexception.java.Exceptions;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -43,6 +45,11 @@ public abstract class AbstractSession implements Session {
      */
     public static final int DEFAULT_TIMEOUT_FOR_ASYNCHRONOUS_MESSAGES_IN_TRANSMIT = 5000;
 
+    /**
+     * Defines how often {@link #cancelAndAwait(long)} repeats the cancel request, in milliseconds.
+     */
+    static final int CANCEL_RETRY_INTERVAL = 100;
+
     /**
      * Session identifier.
      */
@@ -91,7 +98,7 @@ public abstract class AbstractSession implements Session {
     /**
      * State of the session.
      */
-    protected SessionState state;
+    protected volatile SessionState state;
 
     /**
      * Return code for the completed sessions.
@@ -108,6 +115,73 @@ public abstract class AbstractSession implements Session {
      */
     protected final LogRedirectionStrategy logRedirectionStrategy;
 
+    /**
+     * Session specific log level, null if the global log level is used.
+     */
+    protected volatile Level logLevel;
+
+    /**
+     * Whether {@link #cancelAndAwait(long)} is called for this session.
+     */
+    protected volatile boolean cancelRequested;
+
+    /**
+     * Released when the session is completed or failed.
+     */
+    protected final CountDownLatch endLatch;
+
+    /**
+     * Native memory limit in bytes.
+     */
+    protected volatile long nativeMemoryLimit;
+
+    /**
+     * Native memory at the end of the execution, in bytes.
+     */
+    protected volatile long nativeMemory;
+
+    /**
+     * Peak native memory, in bytes.
+     */
+    protected volatile long peakNativeMemory;
+
+    /**
+     * User cpu time at the end of the execution, in microseconds.
+     */
+    protected volatile long userCpuTime;
+
+    /**
+     * System cpu time at the end of the execution, in microseconds.
+     */
+    protected volatile long systemCpuTime;
+
+    /**
+     * Monotonic lifecycle marks.
+     */
+    protected final SessionTiming timing;
+
+    /**
+     * Whether native execution started while log redirection was enabled, so a callbacks drain
+     * notification follows it. Guarded by this session.
+     */
+    private boolean drainExpected;
+
+    /**
+     * Whether all logs and statistics of the session are delivered. Guarded by this session.
+     */
+    private boolean callbacksDrained;
+
+    /**
+     * Whether the session is running or still receiving logs. Guarded by this session.
+     */
+    private boolean active;
+
+    /**
+     * Whether this session is counted as an active session with its own log level. Guarded by
+     * this session.
+     */
+    private boolean logLevelCounted;
+
     /**
      * Creates a new abstract session.
      *
@@ -131,6 +205,16 @@ public abstract class AbstractSession implements Session {
         this.returnCode = null;
         this.failStackTrace = null;
         this.logRedirectionStrategy = logRedirectionStrategy;
+        this.logLevel = null;
+        this.cancelRequested = false;
+        this.endLatch = new CountDownLatch(1);
+        this.nativeMemoryLimit = 0;
+        this.nativeMemory = 0;
+        this.peakNativeMemory = 0;
+        this.userCpuTime = 0;
+        this.systemCpuTime = 0;
+        this.timing = new SessionTiming();
+        this.timing.mark(SessionMark.CREATED);
 
         FFmpegKitConfig.addSession(this);
     }
@@ -171,6 +255,11 @@ public abstract class AbstractSession implements Session {
         return 0;
     }
 
+    @Override
+    public SessionTiming getTiming() {
+        return timing;
+    }
+
     @Override
     public String[] getArguments() {
         return arguments;
@@ -272,6 +361,19 @@ public abstract class AbstractSession implements Session {
         return logRedirectionStrategy;
     }
 
+    @Override
+    public Level getLogLevel() {
+        return logLevel;
+    }
+
+    @Override
+    public void setLogLevel(final Level level) {
+        synchronized (this) {
+            this.logLevel = level;
+            updateLogLevelCount();
+        }
+    }
+
     @Override
     public boolean thereAreAsynchronousMessagesInTransmit() {
         return (FFmpegKitConfig.messagesInTransmit(sessionId) != 0);
@@ -296,6 +398,134 @@ public abstract class AbstractSession implements Session {
         }
     }
 
+    @Override
+    public boolean cancelAndAwait(final long timeout) {
+        cancelRequested = true;
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        try {
+            while (true) {
+                if (state == SessionState.RUNNING) {
+
+                    // CANCEL AGAIN IN CASE THE REQUEST WAS SENT BEFORE NATIVE EXECUTION HAS STARTED
+                    FFmpegKit.cancel(sessionId);
+                    FFmpegKitConfig.interruptFkioChannels(this);
+                }
+
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return endLatch.getCount() == 0;
+                }
+                if (endLatch.await(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(CANCEL_RETRY_INTERVAL)), TimeUnit.NANOSECONDS)) {
+                    return true;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return endLatch.getCount() == 0;
+        }
+    }
+
+    @Override
+    public long getNativeMemory() {
+        if (state == SessionState.RUNNING && FFmpegKitConfig.isMemoryAccountingEnabled()) {
+            final long[] memory = FFmpegKitConfig.getSessionMemory(sessionId);
+            if (memory != null && memory.length == 2) {
+                return memory[0];
+            }
+        }
+
+        return nativeMemory;
+    }
+
+    @Override
+    public long getPeakNativeMemory() {
+        if (state == SessionState.RUNNING && FFmpegKitConfig.isMemoryAccountingEnabled()) {
+            final long[] memory = FFmpegKitConfig.getSessionMemory(sessionId);
+            if (memory != null && memory.length == 2) {
+                return memory[1];
+            }
+        }
+
+        return peakNativeMemory;
+    }
+
+    @Override
+    public long getNativeMemoryLimit() {
+        return nativeMemoryLimit;
+    }
+
+    @Override
+    public void setNativeMemoryLimit(final long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException(String.format("Invalid native memory limit %d.", limit));
+        }
+        this.nativeMemoryLimit = limit;
+    }
+
+    @Override
+    public boolean isNativeMemoryLimitExceeded() {
+        return nativeMemoryLimit > 0 && peakNativeMemory > nativeMemoryLimit;
+    }
+
+    /**
+     * Sets native memory values measured at the end of the execution.
+     *
+     * @param nativeMemory     native memory not freed, in bytes
+     * @param peakNativeMemory peak native memory, in bytes
+     */
+    void setNativeMemory(final long nativeMemory, final long peakNativeMemory) {
+        this.nativeMemory = nativeMemory;
+        this.peakNativeMemory = peakNativeMemory;
+    }
+
+    @Override
+    public long getUserCpuTime() {
+        return readCpuTime()[0] / 1000;
+    }
+
+    @Override
+    public long getSystemCpuTime() {
+        return readCpuTime()[1] / 1000;
+    }
+
+    @Override
+    public long getCpuTime() {
+        final long[] cpuTime = readCpuTime();
+        return (cpuTime[0] + cpuTime[1]) / 1000;
+    }
+
+    /**
+     * Sets cpu time values measured at the end of the execution.
+     *
+     * @param userCpuTime   user cpu time in microseconds
+     * @param systemCpuTime system cpu time in microseconds
+     */
+    void setCpuTime(final long userCpuTime, final long systemCpuTime) {
+        this.userCpuTime = userCpuTime;
+        this.systemCpuTime = systemCpuTime;
+    }
+
+    private long[] readCpuTime() {
+        if (state == SessionState.RUNNING) {
+            final long[] cpuTime = FFmpegKitConfig.getSessionCpuTime(sessionId);
+            if (cpuTime != null && cpuTime.length == 2) {
+                return cpuTime;
+            }
+        }
+
+        return new long[]{userCpuTime, systemCpuTime};
+    }
+
+    /**
+     * Returns whether {@link #cancelAndAwait(long)} is called for this session.
+     *
+     * @return true if cancellation is requested, false otherwise
+     */
+    boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
     /**
      * Waits for all asynchronous messages to be transmitted until the given timeout.
      *
@@ -329,6 +559,61 @@ public abstract class AbstractSession implements Session {
     void startRunning() {
         this.state = SessionState.RUNNING;
         this.startTime = new Date();
+        this.timing.mark(SessionMark.STARTED);
+        FFmpegKitMetrics.sessionStarted(this);
+
+        synchronized (this) {
+            active = true;
+            updateLogLevelCount();
+        }
+    }
+
+    /**
+     * Records that native execution is starting.
+     *
+     * @param drainExpected whether a callbacks drain notification will follow native execution
+     */
+    synchronized void nativeStarted(final boolean drainExpected) {
+        this.drainExpected = drainExpected;
+    }
+
+    /**
+     * Records that all logs and statistics of the session are delivered.
+     */
+    synchronized void callbacksDrained() {
+        callbacksDrained = true;
+        endIfFinished();
+    }
+
+    /**
+     * Stops waiting for a callbacks drain notification, which does not arrive once log
+     * redirection is disabled.
+     */
+    synchronized void drainCancelled() {
+        drainExpected = false;
+        endIfFinished();
+    }
+
+    /**
+     * Ends the session once it is completed or failed and, if native execution ran with
+     * redirection enabled, its logs are delivered, since logs still in transit are filtered
+     * by the session log level. {@link SessionMark#COMPLETED} is recorded here, so it follows
+     * {@link SessionMark#CALLBACKS_DRAINED}.
+     */
+    private void endIfFinished() {
+        if (active && (state == SessionState.COMPLETED || state == SessionState.FAILED) && (callbacksDrained || !drainExpected)) {
+            active = false;
+            updateLogLevelCount();
+            this.timing.mark(SessionMark.COMPLETED);
+        }
+    }
+
+    private void updateLogLevelCount() {
+        final boolean counted = active && (logLevel != null);
+        if (counted != logLevelCounted) {
+            logLevelCounted = counted;
+            FFmpegKitConfig.updateSessionLogLevelCount(counted ? 1 : -1);
+        }
     }
 
     /**
@@ -337,9 +622,23 @@ public abstract class AbstractSession implements Session {
      * @param returnCode return code of the execution
      */
     void complete(final ReturnCode returnCode) {
+        final boolean running = (this.state == SessionState.RUNNING);
         this.returnCode = returnCode;
         this.state = SessionState.COMPLETED;
         this.endTime = new Date();
+        if (running) {
+            FFmpegKitMetrics.sessionEnded(this, false);
+        }
+        synchronized (this) {
+            if (active) {
+                endIfFinished();
+            } else {
+
+                // SESSION HAS NEVER STARTED
+                this.timing.mark(SessionMark.COMPLETED);
+            }
+        }
+        this.endLatch.countDown();
     }
 
     /**
@@ -348,9 +647,23 @@ public abstract class AbstractSession implements Session {
      * @param exception execution received
      */
     void fail(final Exception exception) {
+        final boolean running = (this.state == SessionState.RUNNING);
         this.failStackTrace = Exceptions.getStackTraceString(exception);
         this.state = SessionState.FAILED;
         this.endTime = new Date();
+        if (running) {
+            FFmpegKitMetrics.sessionEnded(this, true);
+        }
+        synchronized (this) {
+            if (active) {
+                endIfFinished();
+            } else {
+
+                // SESSION HAS NEVER STARTED
+                this.timing.mark(SessionMark.COMPLETED);
+            }
+        }
+        this.endLatch.countDown();
     }
 
 }
@@ -19,8 +19,6 @@
 
 package com.arthenica.ffmpegkit;
 
-import com.arthenica.smartexception.java.Exceptions;
-
 /**
  * <p>Executes an FFmpeg session asynchronously.
  */
@@ -38,22 +36,16 @@ public class AsyncFFmpegExecuteTask implements Runnable {
         FFmpegKitConfig.ffmpegExecute(ffmpegSession);
 
         if (completeCallback != null) {
-            try {
-                // NOTIFY SESSION CALLBACK DEFINED
-                completeCallback.apply(ffmpegSession);
-            } catch (final Exception e) {
-                android.util.Log.e(FFmpegKitConfig.TAG, String.format("Exception thrown inside session complete callback.%s", Exceptions.getStackTraceString(e)));
-            }
+
+            // NOTIFY SESSION CALLBACK DEFINED
+            CallbackWatchdog.invoke(CallbackType.SESSION_COMPLETE, completeCallback, ffmpegSession, FFmpegSessionCompleteCallback::apply);
         }
 
         final FFmpegSessionCompleteCallback globalFFmpegSessionCompleteCallback = FFmpegKitConfig.getFFmpegSessionCompleteCallback();
         if (globalFFmpegSessionCompleteCallback != null) {
-            try {
-                // NOTIFY GLOBAL CALLBACK DEFINED
-                globalFFmpegSessionCompleteCallback.apply(ffmpegSession);
-            } catch (final Exception e) {
-                android.util.Log.e(FFmpegKitConfig.TAG, String.format("Exception thrown inside global complete callback.%s", Exceptions.getStackTraceString(e)));
-            }
+
+            // NOTIFY GLOBAL CALLBACK DEFINED
+            CallbackWatchdog.invoke(CallbackType.GLOBAL_COMPLETE, globalFFmpegSessionCompleteCallback, ffmpegSession, FFmpegSessionCompleteCallback::apply);
         }
     }
 }
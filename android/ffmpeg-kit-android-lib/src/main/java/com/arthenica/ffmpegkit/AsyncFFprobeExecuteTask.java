@@ -19,8 +19,6 @@
 
 package com.arthenica.ffmpegkit;
 
-import com.arthenica.smartexception.java.Exceptions;
-
 /**
  * <p>Executes an FFprobe session asynchronously.
  */
@@ -38,22 +36,16 @@ public class AsyncFFprobeExecuteTask implements Runnable {
         FFmpegKitConfig.ffprobeExecute(ffprobeSession);
 
         if (completeCallback != null) {
-            try {
-                // NOTIFY SESSION CALLBACK DEFINED
-                completeCallback.apply(ffprobeSession);
-            } catch (final Exception e) {
-                android.util.Log.e(FFmpegKitConfig.TAG, String.format("Exception thrown inside session complete callback.%s", Exceptions.getStackTraceString(e)));
-            }
+
+            // NOTIFY SESSION CALLBACK DEFINED
+            CallbackWatchdog.invoke(CallbackType.SESSION_COMPLETE, completeCallback, ffprobeSession, FFprobeSessionCompleteCallback::apply);
         }
 
         final FFprobeSessionCompleteCallback globalFFprobeSessionCompleteCallback = FFmpegKitConfig.getFFprobeSessionCompleteCallback();
         if (globalFFprobeSessionCompleteCallback != null) {
-            try {
-                // NOTIFY GLOBAL CALLBACK DEFINED
-                globalFFprobeSessionCompleteCallback.apply(ffprobeSession);
-            } catch (final Exception e) {
-                android.util.Log.e(FFmpegKitConfig.TAG, String.format("Exception thrown inside global complete callback.%s", Exceptions.getStackTraceString(e)));
-            }
+
+            // NOTIFY GLOBAL CALLBACK DEFINED
+            CallbackWatchdog.invoke(CallbackType.GLOBAL_COMPLETE, globalFFprobeSessionCompleteCallback, ffprobeSession, FFprobeSessionCompleteCallback::apply);
         }
     }
 
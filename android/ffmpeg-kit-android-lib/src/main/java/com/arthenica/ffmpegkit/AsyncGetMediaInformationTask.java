@@ -19,8 +19,6 @@
 
 package com.arthenica.ffmpegkit;
 
-import com.arthenica.smartexception.java.Exceptions;
-
 /**
  * <p>Executes a MediaInformation session asynchronously.
  */
@@ -44,22 +42,16 @@ public class AsyncGetMediaInformationTask implements Runnable {
         FFmpegKitConfig.getMediaInformationExecute(mediaInformationSession, waitTimeout);
 
         if (completeCallback != null) {
-            try {
-                // NOTIFY SESSION CALLBACK DEFINED
-                completeCallback.apply(mediaInformationSession);
-            } catch (final Exception e) {
-                android.util.Log.e(FFmpegKitConfig.TAG, String.format("Exception thrown inside session complete callback.%s", Exceptions.getStackTraceString(e)));
-            }
+
+            // NOTIFY SESSION CALLBACK DEFINED
+            CallbackWatchdog.invoke(CallbackType.SESSION_COMPLETE, completeCallback, mediaInformationSession, MediaInformationSessionCompleteCallback::apply);
         }
 
         final MediaInformationSessionCompleteCallback globalMediaInformationSessionCompleteCallback = FFmpegKitConfig.getMediaInformationSessionCompleteCallback();
         if (globalMediaInformationSessionCompleteCallback != null) {
-            try {
-                // NOTIFY GLOBAL CALLBACK DEFINEDs
-                globalMediaInformationSessionCompleteCallback.apply(mediaInformationSession);
-            } catch (final Exception e) {
-                android.util.Log.e(FFmpegKitConfig.TAG, String.format("Exception thrown inside global complete callback.%s", Exceptions.getStackTraceString(e)));
-            }
+
+            // NOTIFY GLOBAL CALLBACK DEFINED
+            CallbackWatchdog.invoke(CallbackType.GLOBAL_COMPLETE, globalMediaInformationSessionCompleteCallback, mediaInformationSession, MediaInformationSessionCompleteCallback::apply);
         }
     }
 
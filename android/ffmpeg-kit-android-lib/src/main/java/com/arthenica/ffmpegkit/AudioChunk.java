@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>A chunk of interleaved PCM audio delivered by an {@link AudioSink}.
+ */
+public class AudioChunk {
+
+    private final ByteBuffer buffer;
+    private final long index;
+    private final long sampleOffset;
+    private final String sampleFormat;
+    private final int sampleRate;
+    private final int channels;
+    private final int bytesPerSample;
+
+    public AudioChunk(final ByteBuffer buffer, final long index, final long sampleOffset, final String sampleFormat, final int sampleRate, final int channels, final int bytesPerSample) {
+        this.buffer = buffer;
+        this.index = index;
+        this.sampleOffset = sampleOffset;
+        this.sampleFormat = sampleFormat;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.bytesPerSample = bytesPerSample;
+    }
+
+    /**
+     * Returns interleaved samples in a direct buffer.
+     *
+     * @return direct buffer holding chunk data
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the number of samples per channel before this chunk.
+     *
+     * @return offset of the first sample of this chunk
+     */
+    public long getSampleOffset() {
+        return sampleOffset;
+    }
+
+    /**
+     * Returns the number of samples per channel in this chunk.
+     *
+     * @return number of samples per channel
+     */
+    public int getSampleCount() {
+        return buffer.remaining() / (channels * bytesPerSample);
+    }
+
+    /**
+     * Returns the time of the first sample of this chunk.
+     *
+     * @return time in seconds
+     */
+    public double getTime() {
+        return sampleOffset / (double) sampleRate;
+    }
+
+    public String getSampleFormat() {
+        return sampleFormat;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder stringBuilder = new StringBuilder();
+
+        stringBuilder.append("AudioChunk{");
+        stringBuilder.append("index=");
+        stringBuilder.append(index);
+        stringBuilder.append(", sampleOffset=");
+        stringBuilder.append(sampleOffset);
+        stringBuilder.append(", sampleCount=");
+        stringBuilder.append(getSampleCount());
+        stringBuilder.append(", sampleFormat=");
+        stringBuilder.append(sampleFormat);
+        stringBuilder.append(", sampleRate=");
+        stringBuilder.append(sampleRate);
+        stringBuilder.append(", channels=");
+        stringBuilder.append(channels);
+        stringBuilder.append('}');
+
+        return stringBuilder.toString();
+    }
+
+}
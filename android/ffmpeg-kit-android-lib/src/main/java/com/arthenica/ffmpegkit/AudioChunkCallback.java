@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+/**
+ * <p>Callback function that receives PCM audio chunks delivered by an {@link AudioSink}.
+ */
+@FunctionalInterface
+public interface AudioChunkCallback {
+
+    /**
+     * <p>Called when a PCM audio chunk is received. Chunk buffer is reused after this method
+     * returns; copy the data if it is needed later.
+     *
+     * @param chunk PCM audio chunk
+     */
+    void apply(final AudioChunk chunk);
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Streams decoded PCM audio of an FFmpeg session to Java in fixed size chunks.
+ *
+ * <p>Audio is written by FFmpeg as raw PCM output into an fkio protocol url and stored in direct
+ * buffers taken from a fixed pool. Chunks are either pushed to a callback or pulled by the
+ * consumer using {@link #read(long)}. When the consumer is slower than the decoder, FFmpeg waits
+ * for a free buffer.
+ *
+ * <p>Sink arguments can be added next to other outputs of a command, so the same decoding pass
+ * produces both.
+ * <pre>
+ * AudioSink sink = AudioSink.create("f32le", 44100, 1, 4096);
+ * List&lt;String&gt; arguments = new ArrayList&lt;&gt;(Arrays.asList("-i", "input.mp3", "-c:a", "aac", "output.m4a"));
+ * arguments.addAll(Arrays.asList(sink.getOutputArguments()));
+ * FFmpegKit.executeWithArgumentsAsync(arguments.toArray(new String[0]), session -&gt; {});
+ * AudioChunk chunk;
+ * while ((chunk = sink.read(1000)) != null || !sink.isEndOfStream()) {
+ *     if (chunk != null) {
+ *         waveform.add(chunk.getBuffer());
+ *         sink.release(chunk);
+ *     }
+ * }
+ * </pre>
+ */
+public class AudioSink extends BufferSink {
+
+    private final String sampleFormat;
+    private final int sampleRate;
+    private final int channels;
+    private final int bytesPerSample;
+    private final AudioChunkCallback callback;
+    private long nextChunkIndex;
+
+    private AudioSink(final String sampleFormat, final int sampleRate, final int channels, final int samplesPerChunk, final AudioChunkCallback callback, final int poolSize) {
+        super(getChunkSize(sampleFormat, sampleRate, channels, samplesPerChunk), poolSize, "ffmpeg-kit-audio-sink", callback != null);
+
+        this.sampleFormat = sampleFormat;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.bytesPerSample = getBytesPerSample(sampleFormat);
+        this.callback = callback;
+    }
+
+    /**
+     * <p>Creates a new audio sink that pushes chunks to the given callback.
+     *
+     * @param sampleFormat    PCM sample format: <code>u8</code>, <code>s16le</code>,
+     *                        <code>s32le</code>, <code>f32le</code> or <code>f64le</code>
+     * @param sampleRate      output sample rate
+     * @param channels        number of output channels
+     * @param samplesPerChunk number of samples per channel in each chunk
+     * @param callback        callback that receives chunks
+     * @return created audio sink
+     * @throws IllegalArgumentException if the sample format is not supported or a value is
+     *                                  invalid
+     */
+    public static AudioSink create(final String sampleFormat, final int sampleRate, final int channels, final int samplesPerChunk, final AudioChunkCallback callback) {
+        return new AudioSink(sampleFormat, sampleRate, channels, samplesPerChunk, callback, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * <p>Creates a new audio sink. Chunks are pulled using {@link #read(long)}.
+     *
+     * @param sampleFormat    PCM sample format: <code>u8</code>, <code>s16le</code>,
+     *                        <code>s32le</code>, <code>f32le</code> or <code>f64le</code>
+     * @param sampleRate      output sample rate
+     * @param channels        number of output channels
+     * @param samplesPerChunk number of samples per channel in each chunk
+     * @return created audio sink
+     * @throws IllegalArgumentException if the sample format is not supported or a value is
+     *                                  invalid
+     */
+    public static AudioSink create(final String sampleFormat, final int sampleRate, final int channels, final int samplesPerChunk) {
+        return create(sampleFormat, sampleRate, channels, samplesPerChunk, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * <p>Creates a new audio sink. Chunks are pulled using {@link #read(long)}.
+     *
+     * @param sampleFormat    PCM sample format: <code>u8</code>, <code>s16le</code>,
+     *                        <code>s32le</code>, <code>f32le</code> or <code>f64le</code>
+     * @param sampleRate      output sample rate
+     * @param channels        number of output channels
+     * @param samplesPerChunk number of samples per channel in each chunk
+     * @param poolSize        number of chunk buffers
+     * @return created audio sink
+     * @throws IllegalArgumentException if the sample format is not supported or a value is
+     *                                  invalid
+     */
+    public static AudioSink create(final String sampleFormat, final int sampleRate, final int channels, final int samplesPerChunk, final int poolSize) {
+        return new AudioSink(sampleFormat, sampleRate, channels, samplesPerChunk, null, poolSize);
+    }
+
+    static int getBytesPerSample(final String sampleFormat) {
+        switch (sampleFormat) {
+            case "u8":
+                return 1;
+            case "s16le":
+                return 2;
+            case "s32le":
+            case "f32le":
+                return 4;
+            case "f64le":
+                return 8;
+            default:
+                throw new IllegalArgumentException(String.format("Sample format %s is not supported.", sampleFormat));
+        }
+    }
+
+    static int getChunkSize(final String sampleFormat, final int sampleRate, final int channels, final int samplesPerChunk) {
+        if (sampleRate <= 0 || channels <= 0 || samplesPerChunk <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid audio sink parameters: sample rate %d, channels %d, samples per chunk %d.", sampleRate, channels, samplesPerChunk));
+        }
+
+        return getBytesPerSample(sampleFormat) * channels * samplesPerChunk;
+    }
+
+    /**
+     * Returns output options that write audio into this sink. These arguments must be placed
+     * after the input options of the command; they can be combined with other outputs.
+     *
+     * @return output arguments
+     */
+    public String[] getOutputArguments() {
+        return new String[]{"-vn", "-sn", "-f", sampleFormat, "-ar", String.valueOf(sampleRate), "-ac", String.valueOf(channels), getUrl()};
+    }
+
+    /**
+     * <p>Waits for the next chunk. Chunk must be returned using {@link #release(AudioChunk)}
+     * after it is consumed, otherwise FFmpeg stops when the pool is exhausted.
+     *
+     * <p>Only available for sinks created without a callback.
+     *
+     * @param timeout maximum time to wait in milliseconds
+     * @return next chunk or null if no chunk is available within the timeout or all chunks are
+     * consumed; use {@link #isEndOfStream()} to tell these cases apart
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public AudioChunk read(final long timeout) throws InterruptedException {
+        if (callback != null) {
+            throw new IllegalStateException("Chunks of this sink are delivered to its callback.");
+        }
+
+        final ByteBuffer buffer = pollChunk(timeout);
+        if (buffer == null) {
+            return null;
+        }
+
+        return createChunk(buffer, nextChunkIndex++);
+    }
+
+    /**
+     * <p>Returns a chunk received from {@link #read(long)} to the pool.
+     *
+     * @param chunk consumed chunk
+     */
+    public void release(final AudioChunk chunk) {
+        recycleChunk(chunk.getBuffer());
+    }
+
+    private AudioChunk createChunk(final ByteBuffer buffer, final long index) {
+        final long samplesPerChunk = getChunkSize() / (channels * bytesPerSample);
+        return new AudioChunk(buffer, index, index * samplesPerChunk, sampleFormat, sampleRate, channels, bytesPerSample);
+    }
+
+    @Override
+    protected boolean deliversPartialChunks() {
+        return true;
+    }
+
+    @Override
+    protected void deliver(final ByteBuffer buffer, final long index) {
+        callback.apply(createChunk(buffer, index));
+    }
+
+    public String getSampleFormat() {
+        return sampleFormat;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+}
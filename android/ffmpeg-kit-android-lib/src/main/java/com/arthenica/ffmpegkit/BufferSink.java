@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import com.arthenica.smartexception.java.Exceptions;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Base class of sinks that receive an FFmpeg output through an fkio protocol url and split it
+ * into fixed size chunks.
+ *
+ * <p>Chunks are stored in a fixed pool of direct buffers. They are either pushed to the
+ * consumer on a separate thread or pulled by the consumer. When all buffers are waiting to be
+ * consumed, writes block; this slows down FFmpeg to the speed of the consumer instead of
+ * buffering the whole output in memory.
+ */
+public abstract class BufferSink implements WritableByteChannel, FkioChannel.Interruptible {
+
+    /**
+     * Default number of buffers in the pool.
+     */
+    public static final int DEFAULT_POOL_SIZE = 4;
+
+    private static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
+    private static final ByteBuffer INTERRUPTED = ByteBuffer.allocate(0);
+
+    private final int chunkSize;
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+    private final BlockingQueue<ByteBuffer> filledBuffers;
+    private final String threadName;
+    private final boolean push;
+    private ByteBuffer currentBuffer;
+    private Thread deliveryThread;
+    private String url;
+    private volatile boolean open;
+    private volatile boolean endOfStreamReached;
+    private volatile boolean interrupted;
+    private long chunkCount;
+
+    /**
+     * Creates a sink.
+     *
+     * @param chunkSize  size of each chunk in bytes
+     * @param poolSize   number of buffers in the pool
+     * @param threadName name of the delivery thread, used in push mode
+     * @param push       true if chunks are delivered using {@link #deliver}, false if the
+     *                   consumer pulls them using {@link #pollChunk}
+     */
+    protected BufferSink(final int chunkSize, final int poolSize, final String threadName, final boolean push) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid chunk size %d.", chunkSize));
+        }
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid pool size %d.", poolSize));
+        }
+
+        this.chunkSize = chunkSize;
+        this.freeBuffers = new ArrayBlockingQueue<>(poolSize + 1);
+        this.filledBuffers = new ArrayBlockingQueue<>(poolSize + 1);
+        this.threadName = threadName;
+        this.push = push;
+        this.open = true;
+
+        for (int i = 0; i < poolSize; i++) {
+            freeBuffers.add(ByteBuffer.allocateDirect(chunkSize));
+        }
+    }
+
+    /**
+     * Returns the output url that writes into this sink. Url is created on the first call.
+     *
+     * @return output url that can be passed to FFmpegKit
+     */
+    public synchronized String getUrl() {
+        if (url == null) {
+            url = FFmpegKitConfig.getFkioParameterForWrite(this, null);
+        }
+
+        return url;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    @Override
+    public int write(final ByteBuffer source) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+
+        startDelivery();
+
+        final int bytesWritten = source.remaining();
+        try {
+            while (source.hasRemaining()) {
+                if (interrupted) {
+                    throw new IOException("Sink is interrupted.");
+                }
+                if (currentBuffer == null) {
+                    final ByteBuffer buffer = freeBuffers.take();
+                    if (buffer == INTERRUPTED) {
+                        throw new IOException("Sink is interrupted.");
+                    }
+                    currentBuffer = buffer;
+                }
+
+                final int length = Math.min(source.remaining(), currentBuffer.remaining());
+                final int sourceLimit = source.limit();
+                source.limit(source.position() + length);
+                currentBuffer.put(source);
+                source.limit(sourceLimit);
+
+                if (!currentBuffer.hasRemaining()) {
+                    currentBuffer.flip();
+                    filledBuffers.put(currentBuffer);
+                    currentBuffer = null;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free buffer.");
+        }
+
+        return bytesWritten;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+
+        startDelivery();
+
+        try {
+            if (currentBuffer != null) {
+                if (interrupted) {
+                    freeBuffers.offer(currentBuffer);
+                } else if (currentBuffer.position() > 0 && deliversPartialChunks()) {
+                    currentBuffer.flip();
+                    filledBuffers.put(currentBuffer);
+                } else if (currentBuffer.position() > 0) {
+                    android.util.Log.w(FFmpegKitConfig.TAG, String.format("%s dropped an incomplete chunk of %d bytes.", getClass().getSimpleName(), currentBuffer.position()));
+                }
+                currentBuffer = null;
+            }
+
+            filledBuffers.put(END_OF_STREAM);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing sink.");
+        }
+    }
+
+    /**
+     * Makes pending and later writes fail. Chunks already filled are still delivered and an
+     * incomplete chunk is dropped when the sink is closed.
+     */
+    @Override
+    public synchronized void interrupt() {
+        if (interrupted) {
+            return;
+        }
+        interrupted = true;
+
+        // RELEASES A WRITER WAITING FOR A FREE BUFFER, THE POOL HAS ONE EXTRA SLOT FOR IT
+        freeBuffers.offer(INTERRUPTED);
+    }
+
+    /**
+     * Waits until all chunks are delivered.
+     *
+     * @param timeout maximum time to wait in milliseconds, zero to wait forever
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public void join(final long timeout) throws InterruptedException {
+        final Thread thread;
+        synchronized (this) {
+            thread = deliveryThread;
+        }
+
+        if (thread != null) {
+            thread.join(timeout);
+        }
+    }
+
+    private synchronized void startDelivery() {
+        if (push && deliveryThread == null) {
+            deliveryThread = new Thread(this::deliverChunks, threadName);
+            deliveryThread.start();
+        }
+    }
+
+    private void deliverChunks() {
+        try {
+            while (true) {
+                final ByteBuffer buffer = filledBuffers.take();
+                if (buffer == END_OF_STREAM) {
+                    break;
+                }
+
+                try {
+                    deliver(buffer, chunkCount++);
+                } catch (final Exception e) {
+                    android.util.Log.e(FFmpegKitConfig.TAG, String.format("Exception thrown inside %s callback.%s", getClass().getSimpleName(), Exceptions.getStackTraceString(e)));
+                }
+
+                buffer.clear();
+                freeBuffers.put(buffer);
+            }
+
+            endOfStreamReached = true;
+            onEndOfStream(chunkCount);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Takes the next chunk in pull mode. Chunk buffer must be returned using
+     * {@link #recycleChunk} after it is consumed.
+     *
+     * @param timeout maximum time to wait in milliseconds
+     * @return buffer holding chunk data between its position and limit or null if no chunk is
+     * available within the timeout or the end of the stream is reached
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    protected ByteBuffer pollChunk(final long timeout) throws InterruptedException {
+        if (endOfStreamReached) {
+            return null;
+        }
+
+        final ByteBuffer buffer = filledBuffers.poll(timeout, TimeUnit.MILLISECONDS);
+        if (buffer == END_OF_STREAM) {
+            endOfStreamReached = true;
+            return null;
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer taken using {@link #pollChunk} to the pool.
+     *
+     * @param buffer chunk buffer
+     */
+    protected void recycleChunk(final ByteBuffer buffer) {
+        buffer.clear();
+        freeBuffers.offer(buffer);
+    }
+
+    /**
+     * Returns whether all chunks are consumed.
+     *
+     * @return true if the end of the stream is reached
+     */
+    public boolean isEndOfStream() {
+        return endOfStreamReached;
+    }
+
+    /**
+     * Returns whether the last chunk is delivered when it is smaller than the chunk size.
+     *
+     * @return true if incomplete chunks are delivered, false if they are dropped
+     */
+    protected abstract boolean deliversPartialChunks();
+
+    /**
+     * Delivers a chunk in push mode. Buffer is reused after this method returns.
+     *
+     * @param buffer buffer holding chunk data between its position and limit
+     * @param index  index of the chunk
+     */
+    protected abstract void deliver(final ByteBuffer buffer, final long index);
+
+    /**
+     * Called on the delivery thread after the last chunk is delivered.
+     *
+     * @param chunkCount number of chunks delivered
+     */
+    protected void onEndOfStream(final long chunkCount) {
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+/**
+ * <p>User callbacks timed by FFmpegKit. Latencies of each type are aggregated in histograms
+ * returned by {@link FFmpegKitConfig#getCallbackLatencyHistogram(CallbackType)}.
+ */
+public enum CallbackType {
+
+    /**
+     * {@link LogCallback} defined for a session.
+     */
+    SESSION_LOG("session log"),
+
+    /**
+     * {@link LogCallback} enabled globally.
+     */
+    GLOBAL_LOG("global log"),
+
+    /**
+     * {@link StatisticsCallback} defined for a session.
+     */
+    SESSION_STATISTICS("session statistics"),
+
+    /**
+     * {@link StatisticsCallback} enabled globally.
+     */
+    GLOBAL_STATISTICS("global statistics"),
+
+    /**
+     * Complete callback defined for a session.
+     */
+    SESSION_COMPLETE("session complete"),
+
+    /**
+     * Complete callback enabled globally.
+     */
+    GLOBAL_COMPLETE("global complete");
+
+    private final String description;
+
+    CallbackType(final String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * <p>Returns whether callbacks of this type are invoked once per session, after execution
+     * ends.
+     *
+     * @return true for complete callbacks, false for log and statistics callbacks
+     */
+    public boolean isComplete() {
+        return this == SESSION_COMPLETE || this == GLOBAL_COMPLETE;
+    }
+
+}
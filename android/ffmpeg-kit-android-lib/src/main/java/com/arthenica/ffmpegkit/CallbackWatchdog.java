@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import com.arthenica.smartexception.java.Exceptions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Invokes user callbacks, measures how long each invocation takes and reacts to slow ones.
+ *
+ * <p>Latencies are recorded in one histogram for each {@link CallbackType}. An invocation that
+ * takes longer than the slow callback threshold is counted and the first one of each callback
+ * is logged. Optionally, a watchdog thread logs the stack of callbacks that are still running
+ * after the threshold, and callbacks that were slow once are moved to a bounded offload
+ * executor so they stop blocking the native callback thread and the async executor.
+ */
+final class CallbackWatchdog {
+
+    /**
+     * Default slow callback threshold, in milliseconds.
+     */
+    static final long DEFAULT_SLOW_CALLBACK_THRESHOLD = 100;
+
+    /**
+     * Number of invocations that can wait for the offload executor.
+     */
+    static final int OFFLOAD_QUEUE_CAPACITY = 256;
+
+    /**
+     * Calls a user callback with its argument, e.g. <code>LogCallback::apply</code>.
+     *
+     * @param <C> callback type
+     * @param <T> argument type
+     */
+    interface Invoker<C, T> {
+
+        void invoke(C callback, T argument);
+
+    }
+
+    private static final long WATCHDOG_PERIOD = 10;
+    private static final long IDLE = Long.MIN_VALUE;
+
+    private static final Histogram[] histograms;
+    private static final Set<Object> slowCallbacks;
+    private static final Map<Thread, Invocation> invocations;
+    private static final ThreadLocal<Invocation> currentInvocation;
+
+    private static volatile long slowCallbackThreshold;
+    private static volatile boolean stackDumpEnabled;
+    private static volatile boolean offloadEnabled;
+    private static ScheduledExecutorService watchdogExecutor;
+    private static ThreadPoolExecutor offloadExecutor;
+
+    static {
+        histograms = new Histogram[CallbackType.values().length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+        slowCallbacks = Collections.newSetFromMap(new WeakHashMap<>());
+        invocations = new WeakHashMap<>();
+        currentInvocation = new ThreadLocal<Invocation>() {
+
+            @Override
+            protected Invocation initialValue() {
+                final Invocation invocation = new Invocation();
+                synchronized (invocations) {
+                    invocations.put(Thread.currentThread(), invocation);
+                }
+                return invocation;
+            }
+        };
+
+        slowCallbackThreshold = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SLOW_CALLBACK_THRESHOLD);
+        stackDumpEnabled = false;
+        offloadEnabled = false;
+    }
+
+    private CallbackWatchdog() {
+    }
+
+    /**
+     * <p>Invokes the given callback. Exceptions thrown by the callback are logged.
+     *
+     * @param type     type of the callback
+     * @param callback callback to invoke
+     * @param argument argument passed to the callback
+     * @param invoker  method that calls the callback with the argument
+     * @param <C>      callback type
+     * @param <T>      argument type
+     */
+    static <C, T> void invoke(final CallbackType type, final C callback, final T argument, final Invoker<C, T> invoker) {
+        if (offloadEnabled && isSlow(callback)) {
+            offload(type, callback, argument, invoker);
+        } else {
+            run(type, callback, argument, invoker);
+        }
+    }
+
+    static Histogram getHistogram(final CallbackType type) {
+        return histograms[type.ordinal()];
+    }
+
+    static void resetHistograms() {
+        for (Histogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    static long getSlowCallbackThreshold() {
+        return TimeUnit.NANOSECONDS.toMillis(slowCallbackThreshold);
+    }
+
+    static void setSlowCallbackThreshold(final long threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException(String.format("Invalid slow callback threshold %d.", threshold));
+        }
+        slowCallbackThreshold = TimeUnit.MILLISECONDS.toNanos(threshold);
+    }
+
+    static boolean isStackDumpEnabled() {
+        return stackDumpEnabled;
+    }
+
+    static synchronized void setStackDumpEnabled(final boolean enabled) {
+        stackDumpEnabled = enabled;
+
+        if (enabled && watchdogExecutor == null) {
+            watchdogExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "ffmpeg-kit-callback-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            watchdogExecutor.scheduleWithFixedDelay(CallbackWatchdog::checkInvocations, WATCHDOG_PERIOD, WATCHDOG_PERIOD, TimeUnit.MILLISECONDS);
+        } else if (!enabled && watchdogExecutor != null) {
+            watchdogExecutor.shutdownNow();
+            watchdogExecutor = null;
+        }
+    }
+
+    static boolean isOffloadEnabled() {
+        return offloadEnabled;
+    }
+
+    static synchronized void setOffloadEnabled(final boolean enabled) {
+        offloadEnabled = enabled;
+
+        if (!enabled && offloadExecutor != null) {
+
+            // INVOCATIONS ALREADY QUEUED ARE STILL DELIVERED
+            offloadExecutor.shutdown();
+            offloadExecutor = null;
+        }
+    }
+
+    /**
+     * <p>Forgets callbacks that were slow, so they are invoked inline again and their next slow
+     * invocation is logged.
+     */
+    static void clearSlowCallbacks() {
+        synchronized (slowCallbacks) {
+            slowCallbacks.clear();
+        }
+    }
+
+    static boolean isSlow(final Object callback) {
+        synchronized (slowCallbacks) {
+            return slowCallbacks.contains(callback);
+        }
+    }
+
+    private static <C, T> void run(final CallbackType type, final C callback, final T argument, final Invoker<C, T> invoker) {
+        final Invocation invocation = stackDumpEnabled ? currentInvocation.get() : null;
+        final long start = System.nanoTime();
+        if (invocation != null) {
+            invocation.begin(type, start);
+        }
+
+        try {
+            invoker.invoke(callback, argument);
+        } catch (final Exception e) {
+            android.util.Log.e(FFmpegKitConfig.TAG, String.format("Exception thrown inside %s callback.%s", type.getDescription(), Exceptions.getStackTraceString(e)));
+        } finally {
+            if (invocation != null) {
+                invocation.end();
+            }
+        }
+
+        final long duration = System.nanoTime() - start;
+        histograms[type.ordinal()].record(duration);
+
+        final long threshold = slowCallbackThreshold;
+        if (threshold > 0 && duration >= threshold) {
+            slow(type, callback, duration);
+        }
+    }
+
+    private static void slow(final CallbackType type, final Object callback, final long duration) {
+        FFmpegKitMetrics.slowCallbacks[type.ordinal()].increment();
+
+        final boolean first;
+        synchronized (slowCallbacks) {
+            first = slowCallbacks.add(callback);
+        }
+
+        if (first) {
+            android.util.Log.w(FFmpegKitConfig.TAG, String.format("Slow %s callback took %d milliseconds.%s", type.getDescription(), TimeUnit.NANOSECONDS.toMillis(duration), offloadEnabled ? " Its next invocations will run on the callback offload executor." : ""));
+        }
+    }
+
+    private static <C, T> void offload(final CallbackType type, final C callback, final T argument, final Invoker<C, T> invoker) {
+        final ThreadPoolExecutor executor = getOffloadExecutor();
+        if (executor != null) {
+            try {
+                executor.execute(() -> run(type, callback, argument, invoker));
+                return;
+            } catch (final RejectedExecutionException e) {
+                if (!type.isComplete()) {
+
+                    // LOGS AND STATISTICS ARE ALREADY STORED IN THE SESSION, ONLY THE CALLBACK IS SKIPPED
+                    FFmpegKitMetrics.droppedCallbacks[type.ordinal()].increment();
+                    return;
+                }
+            }
+        }
+
+        // COMPLETE CALLBACKS ARE NEVER DROPPED
+        run(type, callback, argument, invoker);
+    }
+
+    private static synchronized ThreadPoolExecutor getOffloadExecutor() {
+        if (offloadEnabled && offloadExecutor == null) {
+
+            // A SINGLE THREAD KEEPS THE ORDER OF OFFLOADED INVOCATIONS
+            offloadExecutor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(OFFLOAD_QUEUE_CAPACITY), runnable -> {
+                final Thread thread = new Thread(runnable, "ffmpeg-kit-callback-offload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            offloadExecutor.allowCoreThreadTimeOut(true);
+        }
+
+        return offloadExecutor;
+    }
+
+    private static void checkInvocations() {
+        final long threshold = slowCallbackThreshold;
+        if (threshold <= 0) {
+            return;
+        }
+
+        final long now = System.nanoTime();
+        final List<Thread> stalledThreads = new ArrayList<>();
+        final List<Invocation> stalledInvocations = new ArrayList<>();
+        synchronized (invocations) {
+            for (Map.Entry<Thread, Invocation> entry : invocations.entrySet()) {
+                final Invocation invocation = entry.getValue();
+                final long start = invocation.start;
+                if (start != IDLE && start != invocation.reported && now - start >= threshold) {
+                    invocation.reported = start;
+                    stalledThreads.add(entry.getKey());
+                    stalledInvocations.add(invocation);
+                }
+            }
+        }
+
+        for (int i = 0; i < stalledThreads.size(); i++) {
+            final Thread thread = stalledThreads.get(i);
+            final Invocation invocation = stalledInvocations.get(i);
+            final CallbackType type = invocation.type;
+            final StackTraceElement[] stackTrace = thread.getStackTrace();
+
+            // INVOCATION MAY HAVE ENDED WHILE THE STACK WAS READ
+            if (invocation.start != invocation.reported) {
+                continue;
+            }
+
+            final StringBuilder stringBuilder = new StringBuilder();
+            for (StackTraceElement element : stackTrace) {
+                stringBuilder.append("\n\tat ");
+                stringBuilder.append(element);
+            }
+
+            android.util.Log.w(FFmpegKitConfig.TAG, String.format("Slow %s callback is running on thread %s for %d milliseconds.%s", type.getDescription(), thread.getName(), TimeUnit.NANOSECONDS.toMillis(now - invocation.reported), stringBuilder));
+        }
+    }
+
+    /**
+     * <p>Callback invocation running on a thread, read by the watchdog thread.
+     */
+    private static final class Invocation {
+        volatile CallbackType type;
+        volatile long start = IDLE;
+        long reported = IDLE;
+
+        void begin(final CallbackType type, final long start) {
+            this.type = type;
+            this.start = start;
+        }
+
+        void end() {
+            this.start = IDLE;
+        }
+    }
+
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * <p>A command that is parsed and validated once and then bound to different values many
+ * times, without parsing the command again.
+ *
+ * <p>Placeholders are written as <code>{name}</code> or <code>{name:type}</code>, where type is
+ * one of <code>string</code>, <code>path</code>, <code>saf</code> or <code>number</code>. A
+ * placeholder can be a whole argument or part of one. Use <code>{{</code> and <code>}}</code>
+ * to write literal braces.
+ * <pre>
+ * CommandTemplate template = CommandTemplate.compile("-i {input:path} -vf scale={width:number}:-1 -c:v mpeg4 {output:path}");
+ * FFmpegSession session = FFmpegKit.executeWithArguments(template.bind("file1.mp4", 640, "file1.avi"));
+ * </pre>
+ *
+ * <p>Templates are immutable and can be bound from multiple threads concurrently.
+ */
+public class CommandTemplate {
+
+    /**
+     * Decimal numbers accepted for number placeholders. Rejects what Double.parseDouble also
+     * accepts but FFmpeg options do not, e.g. NaN, Infinity, 1d, 1f and hexadecimal floats.
+     */
+    private static final Pattern DECIMAL_NUMBER = Pattern.compile("[+-]?(\\d+(\\.\\d*)?|\\.\\d+)([eE][+-]?\\d+)?");
+
+    /**
+     * <p>Lists value types accepted by placeholders.
+     */
+    public enum PlaceholderType {
+
+        /**
+         * Any non-null value. Its string representation is used.
+         */
+        STRING("string"),
+
+        /**
+         * A non-empty path or url.
+         */
+        PATH("path"),
+
+        /**
+         * An SAF protocol url created by {@link FFmpegKitConfig#getSafParameter}.
+         */
+        SAF("saf"),
+
+        /**
+         * A {@link Number} or a string written as a finite decimal number, optionally with an
+         * exponent, e.g. <code>-1.5</code> or <code>2e3</code>.
+         */
+        NUMBER("number");
+
+        private final String name;
+
+        PlaceholderType(final String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        static PlaceholderType from(final String name) {
+            for (PlaceholderType type : values()) {
+                if (type.name.equals(name)) {
+                    return type;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Argument segments. A segment is either a literal string or an index into placeholders.
+     * Arguments without placeholders are kept as a single literal and reused as is.
+     */
+    private final Object[][] segments;
+    private final List<String> placeholderNames;
+    private final PlaceholderType[] placeholderTypes;
+
+    private CommandTemplate(final Object[][] segments, final List<String> placeholderNames, final PlaceholderType[] placeholderTypes) {
+        this.segments = segments;
+        this.placeholderNames = placeholderNames;
+        this.placeholderTypes = placeholderTypes;
+    }
+
+    /**
+     * <p>Parses the given command into a template. Space character is used to split the command
+     * into arguments. You can use single or double quote characters to specify arguments inside
+     * your command.
+     *
+     * @param command command with placeholders
+     * @return template created
+     * @throws IllegalArgumentException if a placeholder is malformed, has an unknown type or is
+     *                                  used with different types
+     */
+    public static CommandTemplate compile(final String command) {
+        return compileArguments(FFmpegKitConfig.parseArguments(command));
+    }
+
+    /**
+     * <p>Creates a template from the given arguments.
+     *
+     * @param arguments command arguments with placeholders
+     * @return template created
+     * @throws IllegalArgumentException if a placeholder is malformed, has an unknown type or is
+     *                                  used with different types
+     */
+    public static CommandTemplate compileArguments(final String[] arguments) {
+        final Map<String, PlaceholderType> placeholders = new LinkedHashMap<>();
+        final List<String> names = new ArrayList<>();
+        final Object[][] segments = new Object[arguments.length][];
+
+        for (int i = 0; i < arguments.length; i++) {
+            segments[i] = parseArgument(arguments[i], placeholders, names);
+        }
+
+        return new CommandTemplate(segments, Collections.unmodifiableList(names), placeholders.values().toArray(new PlaceholderType[0]));
+    }
+
+    private static Object[] parseArgument(final String argument, final Map<String, PlaceholderType> placeholders, final List<String> names) {
+        final List<Object> argumentSegments = new ArrayList<>();
+        final StringBuilder literal = new StringBuilder();
+
+        int i = 0;
+        while (i < argument.length()) {
+            final char currentChar = argument.charAt(i);
+            final boolean doubled = (i + 1 < argument.length()) && argument.charAt(i + 1) == currentChar;
+
+            if ((currentChar == '{' || currentChar == '}') && doubled) {
+                literal.append(currentChar);
+                i += 2;
+            } else if (currentChar == '}') {
+                throw new IllegalArgumentException(String.format("Unexpected '}' in argument %s.", argument));
+            } else if (currentChar == '{') {
+                final int end = argument.indexOf('}', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException(String.format("Placeholder is not closed in argument %s.", argument));
+                }
+
+                final String placeholder = argument.substring(i + 1, end);
+                final int separator = placeholder.indexOf(':');
+                final String name = (separator < 0) ? placeholder : placeholder.substring(0, separator);
+                final PlaceholderType type = (separator < 0) ? PlaceholderType.STRING : PlaceholderType.from(placeholder.substring(separator + 1));
+
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException(String.format("Placeholder name is empty in argument %s.", argument));
+                }
+                if (type == null) {
+                    throw new IllegalArgumentException(String.format("Unknown placeholder type in %s.", placeholder));
+                }
+
+                final PlaceholderType existingType = placeholders.get(name);
+                if (existingType == null) {
+                    placeholders.put(name, type);
+                    names.add(name);
+                } else if (existingType != type) {
+                    throw new IllegalArgumentException(String.format("Placeholder %s is used as both %s and %s.", name, existingType.getName(), type.getName()));
+                }
+
+                if (literal.length() > 0) {
+                    argumentSegments.add(literal.toString());
+                    literal.setLength(0);
+                }
+                argumentSegments.add(names.indexOf(name));
+                i = end + 1;
+            } else {
+                literal.append(currentChar);
+                i++;
+            }
+        }
+
+        if (literal.length() > 0 || argumentSegments.isEmpty()) {
+            argumentSegments.add(literal.toString());
+        }
+
+        return argumentSegments.toArray();
+    }
+
+    /**
+     * Returns placeholder names in the order they first appear in the command. Values passed to
+     * {@link #bind(Object...)} must follow this order.
+     *
+     * @return placeholder names
+     */
+    public List<String> getPlaceholderNames() {
+        return placeholderNames;
+    }
+
+    /**
+     * Returns the type of the given placeholder.
+     *
+     * @param name placeholder name
+     * @return placeholder type or null if the template does not have a placeholder with this name
+     */
+    public PlaceholderType getPlaceholderType(final String name) {
+        final int index = placeholderNames.indexOf(name);
+        return (index < 0) ? null : placeholderTypes[index];
+    }
+
+    /**
+     * <p>Binds placeholders to the given values and creates command arguments.
+     *
+     * @param values placeholder values in the order defined by {@link #getPlaceholderNames()}
+     * @return command arguments
+     * @throws IllegalArgumentException if the number of values is wrong or a value is not valid
+     *                                  for its placeholder type
+     */
+    public String[] bind(final Object... values) {
+        if (values.length != placeholderTypes.length) {
+            throw new IllegalArgumentException(String.format("Template has %d placeholders but %d values are provided.", placeholderTypes.length, values.length));
+        }
+
+        final String[] valueStrings = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            valueStrings[i] = validate(placeholderNames.get(i), placeholderTypes[i], values[i]);
+        }
+
+        final String[] arguments = new String[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            final Object[] argumentSegments = segments[i];
+
+            if (argumentSegments.length == 1) {
+                final Object segment = argumentSegments[0];
+                arguments[i] = (segment instanceof String) ? (String) segment : valueStrings[(Integer) segment];
+            } else {
+                final StringBuilder argument = new StringBuilder();
+                for (Object segment : argumentSegments) {
+                    argument.append((segment instanceof String) ? (String) segment : valueStrings[(Integer) segment]);
+                }
+                arguments[i] = argument.toString();
+            }
+        }
+
+        return arguments;
+    }
+
+    /**
+     * <p>Binds placeholders to the values in the given map and creates command arguments.
+     *
+     * @param values placeholder values keyed by placeholder name
+     * @return command arguments
+     * @throws IllegalArgumentException if a value is missing or is not valid for its placeholder
+     *                                  type
+     */
+    public String[] bind(final Map<String, ?> values) {
+        final Object[] orderedValues = new Object[placeholderNames.size()];
+        for (int i = 0; i < orderedValues.length; i++) {
+            final String name = placeholderNames.get(i);
+            if (!values.containsKey(name)) {
+                throw new IllegalArgumentException(String.format("Value for placeholder %s is not provided.", name));
+            }
+            orderedValues[i] = values.get(name);
+        }
+
+        return bind(orderedValues);
+    }
+
+    private static String validate(final String name, final PlaceholderType type, final Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException(String.format("Value for placeholder %s is null.", name));
+        }
+
+        final String valueString = value.toString();
+        switch (type) {
+            case PATH: {
+                if (valueString.isEmpty()) {
+                    throw new IllegalArgumentException(String.format("Path for placeholder %s is empty.", name));
+                }
+            }
+            break;
+            case SAF: {
+                if (!valueString.startsWith("saf:")) {
+                    throw new IllegalArgumentException(String.format("Value for placeholder %s is not an SAF protocol url: %s.", name, valueString));
+                }
+            }
+            break;
+            case NUMBER: {
+                if (!DECIMAL_NUMBER.matcher(valueString).matches()) {
+                    throw new IllegalArgumentException(String.format("Value for placeholder %s is not a number: %s.", name, valueString));
+                }
+            }
+            break;
+            case STRING:
+            default: {
+            }
+            break;
+        }
+
+        return valueString;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder stringBuilder = new StringBuilder();
+
+        stringBuilder.append("CommandTemplate{");
+        stringBuilder.append("placeholders=");
+        stringBuilder.append(placeholderNames);
+        stringBuilder.append(", arguments=");
+        stringBuilder.append(segments.length);
+        stringBuilder.append('}');
+
+        return stringBuilder.toString();
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A monotonically increasing counter. Increments are lock-free and can be done from any
+ * thread.
+ */
+public class Counter {
+
+    private final AtomicLong value;
+
+    public Counter() {
+        this.value = new AtomicLong();
+    }
+
+    /**
+     * Increments the counter by one.
+     */
+    public void increment() {
+        value.incrementAndGet();
+    }
+
+    /**
+     * Increments the counter by the given amount.
+     *
+     * @param amount amount to add, must not be negative
+     */
+    public void add(final long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException(String.format("Invalid counter increment %d.", amount));
+        }
+        value.addAndGet(amount);
+    }
+
+    /**
+     * Returns the current value of the counter.
+     *
+     * @return counter value
+     */
+    public long get() {
+        return value.get();
+    }
+
+}
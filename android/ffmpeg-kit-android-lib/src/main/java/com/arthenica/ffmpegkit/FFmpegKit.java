@@ -285,6 +285,24 @@ public class FFmpegKit {
         FFmpegKitConfig.nativeFFmpegCancel(sessionId);
     }
 
+    /**
+     * <p>Cancels the session specified with <code>sessionId</code> and waits until its execution
+     * ends, releasing the thread running it.
+     *
+     * @param sessionId id of the session that will be cancelled
+     * @param timeout   maximum time to wait, in milliseconds
+     * @return true if the session has ended within the timeout, false if it is still running or
+     * it is not found in the session history
+     */
+    public static boolean cancelAndAwait(final long sessionId, final long timeout) {
+        final Session session = FFmpegKitConfig.getSession(sessionId);
+        if (session == null) {
+            return false;
+        }
+
+        return session.cancelAndAwait(timeout);
+    }
+
     /**
      * <p>Lists all FFmpeg sessions in the session history.
      *
@@ -20,79 +20,54 @@
 package com.arthenica.ffmpegkit;
 
 import android.content.ContentProvider;
-import android.content.ContentResolver;
 import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
 import android.os.ParcelFileDescriptor;
 import android.provider.DocumentsContract;
-import android.util.SparseArray;
 
 import com.arthenica.smartexception.java.Exceptions;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * <p>Configuration class of <code>FFmpegKit</code> library.
  */
 public class FFmpegKitConfig {
 
-    static class SAFProtocolUrl {
-        private final Integer safId;
-        private final Uri uri;
-        private final String openMode;
-        private final ContentResolver contentResolver;
-        private ParcelFileDescriptor parcelFileDescriptor;
-
-        public SAFProtocolUrl(final Integer safId, final Uri uri, final String openMode, final ContentResolver contentResolver) {
-            this.safId = safId;
-            this.uri = uri;
-            this.openMode = openMode;
-            this.contentResolver = contentResolver;
-        }
-
-        public Integer getSafId() {
-            return safId;
-        }
-
-        public Uri getUri() {
-            return uri;
-        }
-
-        public String getOpenMode() {
-            return openMode;
-        }
-
-        public ContentResolver getContentResolver() {
-            return contentResolver;
-        }
-
-        public void setParcelFileDescriptor(final ParcelFileDescriptor parcelFileDescriptor) {
-            this.parcelFileDescriptor = parcelFileDescriptor;
-        }
-
-        public ParcelFileDescriptor getParcelFileDescriptor() {
-            return parcelFileDescriptor;
-        }
-    }
-
     /**
      * The tag used for logging.
      */
@@ -104,11 +79,28 @@ public class FFmpegKitConfig {
     static final String FFMPEG_KIT_NAMED_PIPE_PREFIX = "fk_pipe_";
 
     /**
-     * Generates ids for named ffmpeg kit pipes and saf protocol urls.
+     * Matches fkio protocol urls inside command arguments.
+     */
+    private static final Pattern FKIO_URL_PATTERN = Pattern.compile("fkio:(\\d+)");
+
+    /**
+     * Matches saf protocol urls inside command arguments.
+     */
+    private static final Pattern SAF_URL_PATTERN = Pattern.compile("saf:(\\d+)");
+
+    /**
+     * Extensions of local inputs memory mapped when mmapfile inputs are enabled.
+     */
+    private static final Set<String> MMAP_FILE_EXTENSIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("3gp", "aac", "avi", "flac", "m4a", "m4v", "mkv", "mov", "mp3", "mp4", "mpg", "ogg", "opus", "ts", "wav", "webm")));
+
+    /**
+     * Generates ids for named ffmpeg kit pipes, saf and fkio protocol urls.
      */
     private static final AtomicInteger uniqueIdGenerator;
 
     private static Level activeLogLevel;
+    private static final AtomicInteger sessionLogLevelCount = new AtomicInteger();
+    private static volatile boolean redirectionEnabled = true;
 
     /* Session history variables */
     private static int sessionHistorySize;
@@ -125,9 +117,16 @@ public class FFmpegKitConfig {
     private static FFmpegSessionCompleteCallback globalFFmpegSessionCompleteCallback;
     private static FFprobeSessionCompleteCallback globalFFprobeSessionCompleteCallback;
     private static MediaInformationSessionCompleteCallback globalMediaInformationSessionCompleteCallback;
-    private static final SparseArray<SAFProtocolUrl> safIdMap;
-    private static final SparseArray<SAFProtocolUrl> safFileDescriptorMap;
+    private static final SafRegistry safRegistry;
+    private static PipePool pipePool;
+    private static int pipePoolSize;
+    private static final Map<Integer, FkioChannel> fkioChannelMap;
     private static LogRedirectionStrategy globalLogRedirectionStrategy;
+    private static volatile boolean mmapFileInputs;
+    private static volatile boolean packedArguments;
+    private static volatile boolean stageProfiling;
+    private static volatile boolean memoryAccounting;
+    private static final Map<SessionInterval, Histogram> sessionTimingHistograms;
 
     static {
 
@@ -169,9 +168,18 @@ public class FFmpegKitConfig {
         globalFFprobeSessionCompleteCallback = null;
         globalMediaInformationSessionCompleteCallback = null;
 
-        safIdMap = new SparseArray<>();
-        safFileDescriptorMap = new SparseArray<>();
+        safRegistry = new SafRegistry();
+        pipePool = null;
+        pipePoolSize = PipePool.DEFAULT_MAX_IDLE_PIPES;
+        fkioChannelMap = new ConcurrentHashMap<>();
         globalLogRedirectionStrategy = LogRedirectionStrategy.PRINT_LOGS_WHEN_NO_CALLBACKS_DEFINED;
+        mmapFileInputs = false;
+        packedArguments = false;
+
+        sessionTimingHistograms = new EnumMap<>(SessionInterval.class);
+        for (SessionInterval interval : SessionInterval.values()) {
+            sessionTimingHistograms.put(interval, new Histogram());
+        }
 
         android.util.Log.i(FFmpegKitConfig.TAG, String.format("Loaded ffmpeg-kit-%s-%s-%s-%s.", NativeLoader.loadPackageName(), NativeLoader.loadAbi(), NativeLoader.loadVersion(), NativeLoader.loadBuildDate()));
     }
@@ -194,6 +202,7 @@ public class FFmpegKitConfig {
      */
     public static void enableRedirection() {
         enableNativeRedirection();
+        redirectionEnabled = true;
     }
 
     /**
@@ -205,6 +214,57 @@ public class FFmpegKitConfig {
      */
     public static void disableRedirection() {
         disableNativeRedirection();
+        redirectionEnabled = false;
+
+        // DRAIN NOTIFICATIONS ARE NOT DELIVERED ANYMORE
+        for (Session session : getSessions()) {
+            ((AbstractSession) session).drainCancelled();
+        }
+    }
+
+    /**
+     * Returns whether a log is neither printed nor forwarded at the given log level.
+     * <code>AV_LOG_STDERR</code> logs are always redirected.
+     *
+     * @param levelValue log level of the log
+     * @param logLevel   active log level
+     * @return true if the log is filtered
+     */
+    static boolean isLogFiltered(final int levelValue, final Level logLevel) {
+        return (logLevel == Level.AV_LOG_QUIET && levelValue != Level.AV_LOG_STDERR.getValue()) || levelValue > logLevel.getValue();
+    }
+
+    /**
+     * Returns whether a log of the given session is neither printed nor forwarded. Logs filtered
+     * by the global log level are checked against the session log level only if an active
+     * session has its own log level.
+     *
+     * @param sessionId  id of the session that generated the log
+     * @param levelValue log level of the log
+     * @return true if the log is filtered
+     */
+    static boolean isLogFiltered(final long sessionId, final int levelValue) {
+        final boolean filteredGlobally = isLogFiltered(levelValue, activeLogLevel);
+        if (filteredGlobally && sessionLogLevelCount.get() == 0) {
+            return true;
+        }
+
+        final Session session = getSession(sessionId);
+        final Level sessionLogLevel = (session != null) ? session.getLogLevel() : null;
+        return (sessionLogLevel != null) ? isLogFiltered(levelValue, sessionLogLevel) : filteredGlobally;
+    }
+
+    /**
+     * Updates the number of active sessions that have their own log level.
+     *
+     * @param delta one when a session starts being counted, minus one when it ends
+     */
+    static void updateSessionLogLevelCount(final int delta) {
+        sessionLogLevelCount.addAndGet(delta);
+    }
+
+    static int getSessionLogLevelCount() {
+        return sessionLogLevelCount.get();
     }
 
     /**
@@ -216,33 +276,32 @@ public class FFmpegKitConfig {
      * @param logMessage redirected log message data
      */
     private static void log(final long sessionId, final int levelValue, final byte[] logMessage) {
-        final Level level = Level.from(levelValue);
-        final String text = new String(logMessage);
-        final Log log = new Log(sessionId, level, text);
+        FFmpegKitMetrics.logUpcalls.increment();
         boolean globalCallbackDefined = false;
         boolean sessionCallbackDefined = false;
         LogRedirectionStrategy activeLogRedirectionStrategy = globalLogRedirectionStrategy;
 
-        // AV_LOG_STDERR logs are always redirected
-        if ((activeLogLevel == Level.AV_LOG_QUIET && levelValue != Level.AV_LOG_STDERR.getValue()) || levelValue > activeLogLevel.getValue()) {
-            // LOG NEITHER PRINTED NOR FORWARDED
+        if (isLogFiltered(sessionId, levelValue)) {
+            FFmpegKitMetrics.filteredLogs.increment();
             return;
         }
 
         final Session session = getSession(sessionId);
+
+        final Level level = Level.from(levelValue);
+        final String text = new String(logMessage);
+        final Log log = new Log(sessionId, level, text);
+
         if (session != null) {
             activeLogRedirectionStrategy = session.getLogRedirectionStrategy();
             session.addLog(log);
 
-            if (session.getLogCallback() != null) {
+            final LogCallback sessionLogCallback = session.getLogCallback();
+            if (sessionLogCallback != null) {
                 sessionCallbackDefined = true;
 
-                try {
-                    // NOTIFY SESSION CALLBACK DEFINED
-                    session.getLogCallback().apply(log);
-                } catch (final Exception e) {
-                    android.util.Log.e(FFmpegKitConfig.TAG, String.format("Exception thrown inside session log callback.%s", Exceptions.getStackTraceString(e)));
-                }
+                // NOTIFY SESSION CALLBACK DEFINED
+                CallbackWatchdog.invoke(CallbackType.SESSION_LOG, sessionLogCallback, log, LogCallback::apply);
             }
         }
 
@@ -250,12 +309,8 @@ public class FFmpegKitConfig {
         if (globalLogCallbackFunction != null) {
             globalCallbackDefined = true;
 
-            try {
-                // NOTIFY GLOBAL CALLBACK DEFINED
-                globalLogCallbackFunction.apply(log);
-            } catch (final Exception e) {
-                android.util.Log.e(FFmpegKitConfig.TAG, String.format("Exception thrown inside global log callback.%s", Exceptions.getStackTraceString(e)));
-            }
+            // NOTIFY GLOBAL CALLBACK DEFINED
+            CallbackWatchdog.invoke(CallbackType.GLOBAL_LOG, globalLogCallbackFunction, log, LogCallback::apply);
         }
 
         // EXECUTE THE LOG STRATEGY
@@ -331,35 +386,57 @@ public class FFmpegKitConfig {
      * @param time             processed duration in milliseconds
      * @param bitrate          output bit rate in kbits/s
      * @param speed            processing speed = processed duration / operation duration
+     * @param outputStatistics statistics of output files and streams
      */
     private static void statistics(final long sessionId, final int videoFrameNumber,
                                    final float videoFps, final float videoQuality, final long size,
-                                   final double time, final double bitrate, final double speed) {
+                                   final double time, final double bitrate, final double speed,
+                                   final long[] outputStatistics) {
         final Statistics statistics = new Statistics(sessionId, videoFrameNumber, videoFps, videoQuality, size, time, bitrate, speed);
+        FFmpegKitMetrics.statisticsUpcalls.increment();
+        statistics.setOutputStatistics(OutputStatistics.from(outputStatistics));
+        if (stageProfiling) {
+            statistics.setStageProfile(getStageProfile(sessionId));
+        }
 
         final Session session = getSession(sessionId);
         if (session != null && session.isFFmpeg()) {
             FFmpegSession ffmpegSession = (FFmpegSession) session;
             ffmpegSession.addStatistics(statistics);
+            ffmpegSession.getTiming().mark(SessionMark.FIRST_STATISTICS);
 
-            if (ffmpegSession.getStatisticsCallback() != null) {
-                try {
-                    // NOTIFY SESSION CALLBACK IF DEFINED
-                    ffmpegSession.getStatisticsCallback().apply(statistics);
-                } catch (final Exception e) {
-                    android.util.Log.e(FFmpegKitConfig.TAG, String.format("Exception thrown inside session statistics callback.%s", Exceptions.getStackTraceString(e)));
-                }
+            final StatisticsCallback sessionStatisticsCallback = ffmpegSession.getStatisticsCallback();
+            if (sessionStatisticsCallback != null) {
+
+                // NOTIFY SESSION CALLBACK IF DEFINED
+                CallbackWatchdog.invoke(CallbackType.SESSION_STATISTICS, sessionStatisticsCallback, statistics, StatisticsCallback::apply);
             }
         }
 
         final StatisticsCallback globalStatisticsCallbackFunction = FFmpegKitConfig.globalStatisticsCallback;
         if (globalStatisticsCallbackFunction != null) {
-            try {
-                // NOTIFY GLOBAL CALLBACK IF DEFINED
-                globalStatisticsCallbackFunction.apply(statistics);
-            } catch (final Exception e) {
-                android.util.Log.e(FFmpegKitConfig.TAG, String.format("Exception thrown inside global statistics callback.%s", Exceptions.getStackTraceString(e)));
-            }
+            // NOTIFY GLOBAL CALLBACK IF DEFINED
+            CallbackWatchdog.invoke(CallbackType.GLOBAL_STATISTICS, globalStatisticsCallbackFunction, statistics, StatisticsCallback::apply);
+        }
+    }
+
+    /**
+     * <p>Drain notification method called by the native library. It is called after all logs
+     * and statistics of a session are delivered to callbacks.
+     *
+     * @param sessionId          id of the session
+     * @param nativeFinishedTime time native execution finished, in {@link System#nanoTime()}
+     *                           scale
+     */
+    private static void callbacksDrained(final long sessionId, final long nativeFinishedTime) {
+        FFmpegKitMetrics.drainUpcalls.increment();
+        final Session session = getSession(sessionId);
+        if (session != null) {
+
+            // DRAIN CAN BE NOTIFIED BEFORE THE EXECUTING THREAD RECORDS THE END OF NATIVE EXECUTION
+            session.getTiming().mark(SessionMark.NATIVE_FINISHED, nativeFinishedTime);
+            session.getTiming().mark(SessionMark.CALLBACKS_DRAINED);
+            ((AbstractSession) session).callbacksDrained();
         }
     }
 
@@ -532,6 +609,82 @@ public class FFmpegKitConfig {
         }
     }
 
+    /**
+     * <p>Leases a named pipe from the pipe pool. Unlike {@link #registerNewFFmpegPipe(Context)},
+     * pipes are not created and deleted for every use. Closing the lease returns the pipe to the
+     * pool.
+     *
+     * <p>Lease must be closed after both ends of the pipe are closed. Leases garbage collected
+     * without being closed are logged as leaks.
+     *
+     * <p>Below API Level 21 pipes are not reused; closing the lease deletes its pipe.
+     *
+     * @param context application context
+     * @return pipe lease or null if a pipe can not be created
+     */
+    public static PipeLease leaseFFmpegPipe(final Context context) {
+        return getPipePool(context).lease();
+    }
+
+    /**
+     * <p>Creates idle pipes in the pipe pool ahead of time, so later leases do not create pipes.
+     *
+     * @param context application context
+     * @param count   number of idle pipes to create, limited by the pipe pool size
+     * @return number of idle pipes in the pool
+     */
+    public static int prewarmFFmpegPipePool(final Context context, final int count) {
+        return getPipePool(context).prewarm(count);
+    }
+
+    /**
+     * <p>Sets the maximum number of idle pipes kept in the pipe pool. Default is 8. Extra idle
+     * pipes are deleted.
+     *
+     * @param poolSize maximum number of idle pipes, zero disables pooling
+     */
+    public static void setFFmpegPipePoolSize(final int poolSize) {
+        if (poolSize < 0) {
+            throw new IllegalArgumentException(String.format("Invalid pipe pool size %d.", poolSize));
+        }
+
+        final PipePool pool;
+        synchronized (FFmpegKitConfig.class) {
+            pipePoolSize = poolSize;
+            pool = pipePool;
+        }
+        if (pool != null) {
+            pool.setMaxIdlePipes(poolSize);
+        }
+    }
+
+    /**
+     * <p>Returns the number of leased pipes that were garbage collected without being closed.
+     *
+     * @return number of leaked pipes
+     */
+    public static long getLeakedFFmpegPipeCount() {
+        final PipePool pool;
+        synchronized (FFmpegKitConfig.class) {
+            pool = pipePool;
+        }
+        if (pool == null) {
+            return 0;
+        }
+
+        pool.expungeLeakedLeases();
+        return pool.getLeakedPipeCount();
+    }
+
+    private static synchronized PipePool getPipePool(final Context context) {
+        if (pipePool == null) {
+            pipePool = new PipePool(new File(context.getCacheDir(), "pipes"));
+            pipePool.setMaxIdlePipes(pipePoolSize);
+        }
+
+        return pipePool;
+    }
+
     /**
      * Returns the list of camera ids supported. These devices can be used in <code>FFmpeg</code>
      * commands.
@@ -655,11 +808,35 @@ public class FFmpegKitConfig {
         ffmpegSession.startRunning();
 
         try {
-            final int returnCode = nativeFFmpegExecute(ffmpegSession.getSessionId(), ffmpegSession.getArguments());
+            if (ffmpegSession.isCancelRequested()) {
+                ffmpegSession.complete(new ReturnCode(ReturnCode.CANCEL));
+                return;
+            }
+
+            final String[] arguments = nativeArguments(ffmpegSession.getArguments());
+            final byte[] packed = packedArguments ? packArguments(arguments) : null;
+            setSessionMemoryLimit(ffmpegSession);
+            setSessionLogLevel(ffmpegSession);
+            ffmpegSession.nativeStarted(redirectionEnabled);
+            final int returnCode;
+            if (packed != null) {
+                returnCode = nativeFFmpegExecutePacked(ffmpegSession.getSessionId(), packed, arguments.length);
+            } else {
+                returnCode = nativeFFmpegExecute(ffmpegSession.getSessionId(), arguments);
+            }
+            ffmpegSession.getTiming().mark(SessionMark.NATIVE_FINISHED);
+            if (stageProfiling) {
+                ffmpegSession.setStageProfile(getStageProfile(ffmpegSession.getSessionId()));
+            }
+            updateSessionMemory(ffmpegSession);
+            updateSessionCpuTime(ffmpegSession);
             ffmpegSession.complete(new ReturnCode(returnCode));
         } catch (final Exception e) {
             ffmpegSession.fail(e);
             android.util.Log.w(FFmpegKitConfig.TAG, String.format("FFmpeg execute failed: %s.%s", FFmpegKitConfig.argumentsToString(ffmpegSession.getArguments()), Exceptions.getStackTraceString(e)));
+        } finally {
+            releaseFkioChannels(ffmpegSession);
+            releaseSafUrls(ffmpegSession);
         }
     }
 
@@ -672,11 +849,25 @@ public class FFmpegKitConfig {
         ffprobeSession.startRunning();
 
         try {
-            final int returnCode = nativeFFprobeExecute(ffprobeSession.getSessionId(), ffprobeSession.getArguments());
+            if (ffprobeSession.isCancelRequested()) {
+                ffprobeSession.complete(new ReturnCode(ReturnCode.CANCEL));
+                return;
+            }
+
+            setSessionMemoryLimit(ffprobeSession);
+            setSessionLogLevel(ffprobeSession);
+            ffprobeSession.nativeStarted(redirectionEnabled);
+            final int returnCode = nativeFFprobeExecute(ffprobeSession.getSessionId(), nativeArguments(ffprobeSession.getArguments()));
+            ffprobeSession.getTiming().mark(SessionMark.NATIVE_FINISHED);
+            updateSessionMemory(ffprobeSession);
+            updateSessionCpuTime(ffprobeSession);
             ffprobeSession.complete(new ReturnCode(returnCode));
         } catch (final Exception e) {
             ffprobeSession.fail(e);
             android.util.Log.w(FFmpegKitConfig.TAG, String.format("FFprobe execute failed: %s.%s", FFmpegKitConfig.argumentsToString(ffprobeSession.getArguments()), Exceptions.getStackTraceString(e)));
+        } finally {
+            releaseFkioChannels(ffprobeSession);
+            releaseSafUrls(ffprobeSession);
         }
     }
 
@@ -690,7 +881,18 @@ public class FFmpegKitConfig {
         mediaInformationSession.startRunning();
 
         try {
-            final int returnCodeValue = nativeFFprobeExecute(mediaInformationSession.getSessionId(), mediaInformationSession.getArguments());
+            if (mediaInformationSession.isCancelRequested()) {
+                mediaInformationSession.complete(new ReturnCode(ReturnCode.CANCEL));
+                return;
+            }
+
+            setSessionMemoryLimit(mediaInformationSession);
+            setSessionLogLevel(mediaInformationSession);
+            mediaInformationSession.nativeStarted(redirectionEnabled);
+            final int returnCodeValue = nativeFFprobeExecute(mediaInformationSession.getSessionId(), nativeArguments(mediaInformationSession.getArguments()));
+            mediaInformationSession.getTiming().mark(SessionMark.NATIVE_FINISHED);
+            updateSessionMemory(mediaInformationSession);
+            updateSessionCpuTime(mediaInformationSession);
             final ReturnCode returnCode = new ReturnCode(returnCodeValue);
             mediaInformationSession.complete(returnCode);
             if (returnCode.isValueSuccess()) {
@@ -708,6 +910,9 @@ public class FFmpegKitConfig {
         } catch (final Exception e) {
             mediaInformationSession.fail(e);
             android.util.Log.w(FFmpegKitConfig.TAG, String.format("Get media information execute failed: %s.%s", FFmpegKitConfig.argumentsToString(mediaInformationSession.getArguments()), Exceptions.getStackTraceString(e)));
+        } finally {
+            releaseFkioChannels(mediaInformationSession);
+            releaseSafUrls(mediaInformationSession);
         }
     }
 
@@ -722,6 +927,7 @@ public class FFmpegKitConfig {
      */
     public static void asyncFFmpegExecute(final FFmpegSession ffmpegSession) {
         AsyncFFmpegExecuteTask asyncFFmpegExecuteTask = new AsyncFFmpegExecuteTask(ffmpegSession);
+        ffmpegSession.getTiming().mark(SessionMark.ENQUEUED);
         Future<?> future = asyncExecutorService.submit(asyncFFmpegExecuteTask);
         ffmpegSession.setFuture(future);
     }
@@ -738,6 +944,7 @@ public class FFmpegKitConfig {
      */
     public static void asyncFFmpegExecute(final FFmpegSession ffmpegSession, final ExecutorService executorService) {
         AsyncFFmpegExecuteTask asyncFFmpegExecuteTask = new AsyncFFmpegExecuteTask(ffmpegSession);
+        ffmpegSession.getTiming().mark(SessionMark.ENQUEUED);
         Future<?> future = executorService.submit(asyncFFmpegExecuteTask);
         ffmpegSession.setFuture(future);
     }
@@ -753,6 +960,7 @@ public class FFmpegKitConfig {
      */
     public static void asyncFFprobeExecute(final FFprobeSession ffprobeSession) {
         AsyncFFprobeExecuteTask asyncFFmpegExecuteTask = new AsyncFFprobeExecuteTask(ffprobeSession);
+        ffprobeSession.getTiming().mark(SessionMark.ENQUEUED);
         Future<?> future = asyncExecutorService.submit(asyncFFmpegExecuteTask);
         ffprobeSession.setFuture(future);
     }
@@ -769,6 +977,7 @@ public class FFmpegKitConfig {
      */
     public static void asyncFFprobeExecute(final FFprobeSession ffprobeSession, final ExecutorService executorService) {
         AsyncFFprobeExecuteTask asyncFFmpegExecuteTask = new AsyncFFprobeExecuteTask(ffprobeSession);
+        ffprobeSession.getTiming().mark(SessionMark.ENQUEUED);
         Future<?> future = executorService.submit(asyncFFmpegExecuteTask);
         ffprobeSession.setFuture(future);
     }
@@ -786,6 +995,7 @@ public class FFmpegKitConfig {
      */
     public static void asyncGetMediaInformationExecute(final MediaInformationSession mediaInformationSession, final int waitTimeout) {
         AsyncGetMediaInformationTask asyncGetMediaInformationTask = new AsyncGetMediaInformationTask(mediaInformationSession, waitTimeout);
+        mediaInformationSession.getTiming().mark(SessionMark.ENQUEUED);
         Future<?> future = asyncExecutorService.submit(asyncGetMediaInformationTask);
         mediaInformationSession.setFuture(future);
     }
@@ -805,6 +1015,7 @@ public class FFmpegKitConfig {
      */
     public static void asyncGetMediaInformationExecute(final MediaInformationSession mediaInformationSession, final ExecutorService executorService, final int waitTimeout) {
         AsyncGetMediaInformationTask asyncGetMediaInformationTask = new AsyncGetMediaInformationTask(mediaInformationSession, waitTimeout);
+        mediaInformationSession.getTiming().mark(SessionMark.ENQUEUED);
         Future<?> future = executorService.submit(asyncGetMediaInformationTask);
         mediaInformationSession.setFuture(future);
     }
@@ -929,7 +1140,7 @@ public class FFmpegKitConfig {
     }
 
     /**
-     * Sets the log level.
+     * Sets the log level. Sessions can override it with {@link Session#setLogLevel(Level)}.
      *
      * @param level new log level
      */
@@ -971,6 +1182,15 @@ public class FFmpegKitConfig {
             return "";
         }
 
+        final String displayName = getSafDisplayName(context, uri);
+
+        final int safId = uniqueIdGenerator.getAndIncrement();
+        safRegistry.register(new SafRegistry.SafUrl(safId, uri, openMode, context.getContentResolver()));
+
+        return "saf:" + safId + "." + FFmpegKitConfig.extractExtensionFromSafDisplayName(displayName);
+    }
+
+    private static String getSafDisplayName(final Context context, final Uri uri) {
         String displayName = "unknown";
         try (Cursor cursor = context.getContentResolver().query(uri, null, null, null, null)) {
             if (cursor != null && cursor.moveToFirst()) {
@@ -981,10 +1201,7 @@ public class FFmpegKitConfig {
             throw t;
         }
 
-        final int safId = uniqueIdGenerator.getAndIncrement();
-        safIdMap.put(safId, new SAFProtocolUrl(safId, uri, openMode, context.getContentResolver()));
-
-        return "saf:" + safId + "." + FFmpegKitConfig.extractExtensionFromSafDisplayName(displayName);
+        return displayName;
     }
 
     /**
@@ -1001,6 +1218,55 @@ public class FFmpegKitConfig {
         return getSafParameter(context, uri, "r");
     }
 
+    /**
+     * <p>Converts the given Structured Access Framework Uri (<code>"content:…"</code>) into an
+     * input url that reads the document ahead of FFmpeg on a background thread. Use it for
+     * documents served by slow content providers, e.g. cloud storage, where each read blocks.
+     *
+     * <p>Up to <code>readAheadSize</code> bytes are buffered. Seeks inside the buffered window
+     * reuse buffered data; other seeks discard the window and restart reading from the new
+     * position. Document is opened when this method is called and closed when a session having
+     * the url in its arguments completes.
+     *
+     * <p>Requires API Level &ge; 24, since read-ahead is implemented on
+     * {@link java.nio.channels.SeekableByteChannel}. On older API levels or if the document can
+     * not be opened it returns an empty url.
+     *
+     * @param context       application context
+     * @param uri           SAF uri
+     * @param readAheadSize maximum number of bytes read ahead
+     * @return input url that can be passed to FFmpegKit or FFprobeKit
+     */
+    public static String getSafParameterForRead(final Context context, final Uri uri, final int readAheadSize) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            android.util.Log.i(TAG, String.format("getSafParameterForRead is not supported on API Level %d", Build.VERSION.SDK_INT));
+            return "";
+        }
+        if (readAheadSize <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid read-ahead size %d.", readAheadSize));
+        }
+
+        final String displayName = getSafDisplayName(context, uri);
+
+        final FileChannel fileChannel;
+        try {
+            final ParcelFileDescriptor parcelFileDescriptor = context.getContentResolver().openFileDescriptor(uri, "r");
+            if (parcelFileDescriptor == null) {
+                android.util.Log.e(TAG, String.format("Failed to open %s for read-ahead.", uri.toString()));
+                return "";
+            }
+            fileChannel = new ParcelFileDescriptor.AutoCloseInputStream(parcelFileDescriptor).getChannel();
+        } catch (final IOException | SecurityException e) {
+            android.util.Log.e(TAG, String.format("Failed to open %s for read-ahead.%s", uri.toString(), Exceptions.getStackTraceString(e)));
+            return "";
+        }
+
+        final int chunkSize = Math.min(FkioChannel.getBufferSize(), readAheadSize);
+        final ReadAheadChannel readAheadChannel = new ReadAheadChannel(fileChannel, chunkSize, Math.max(1, readAheadSize / chunkSize));
+
+        return getFkioParameterForRead(readAheadChannel, FFmpegKitConfig.extractExtensionFromSafDisplayName(displayName));
+    }
+
     /**
      * <p>Converts the given Structured Access Framework Uri (<code>"content:…"</code>) into an
      * SAF protocol url that can be used in FFmpeg and FFprobe commands.
@@ -1022,22 +1288,7 @@ public class FFmpegKitConfig {
      * @return file descriptor created for this SAF id or 0 if an error occurs
      */
     private static int safOpen(final int safId) {
-        try {
-            SAFProtocolUrl safUrl = safIdMap.get(safId);
-            if (safUrl != null) {
-                final ParcelFileDescriptor parcelFileDescriptor = safUrl.getContentResolver().openFileDescriptor(safUrl.getUri(), safUrl.getOpenMode());
-                safUrl.setParcelFileDescriptor(parcelFileDescriptor);
-                final int fd = parcelFileDescriptor.getFd();
-                safFileDescriptorMap.put(fd, safUrl);
-                return fd;
-            } else {
-                android.util.Log.e(TAG, String.format("SAF id %d not found.", safId));
-            }
-        } catch (final Throwable t) {
-            android.util.Log.e(TAG, String.format("Failed to open SAF id: %d.%s", safId, Exceptions.getStackTraceString(t)));
-        }
-
-        return 0;
+        return safRegistry.open(safId);
     }
 
     /**
@@ -1047,123 +1298,445 @@ public class FFmpegKitConfig {
      * @return 1 if the given file descriptor is closed successfully, 0 if an error occurs
      */
     private static int safClose(final int fileDescriptor) {
-        try {
-            final SAFProtocolUrl safProtocolUrl = safFileDescriptorMap.get(fileDescriptor);
-            if (safProtocolUrl != null) {
-                ParcelFileDescriptor parcelFileDescriptor = safProtocolUrl.getParcelFileDescriptor();
-                if (parcelFileDescriptor != null) {
-                    safFileDescriptorMap.delete(fileDescriptor);
-                    safIdMap.delete(safProtocolUrl.getSafId());
-                    parcelFileDescriptor.close();
-                    return 1;
-                } else {
-                    android.util.Log.e(TAG, String.format("ParcelFileDescriptor for SAF fd %d not found.", fileDescriptor));
+        return safRegistry.close(fileDescriptor);
+    }
+
+    /**
+     * Releases saf protocol urls used in the arguments of a completed session. SAF urls stay
+     * registered until their session completes, so FFmpeg can open them more than once.
+     *
+     * @param session completed session
+     */
+    static void releaseSafUrls(final Session session) {
+        final String[] arguments = session.getArguments();
+        if (arguments == null) {
+            return;
+        }
+
+        for (String argument : arguments) {
+            if (argument != null && argument.contains("saf:")) {
+                final Matcher matcher = SAF_URL_PATTERN.matcher(argument);
+                while (matcher.find()) {
+                    try {
+                        safRegistry.release(Integer.parseInt(matcher.group(1)));
+                    } catch (final NumberFormatException e) {
+                        android.util.Log.w(TAG, String.format("Invalid saf url in argument %s.", argument));
+                    }
                 }
-            } else {
-                android.util.Log.e(TAG, String.format("SAF fd %d not found.", fileDescriptor));
             }
-        } catch (final Throwable t) {
-            android.util.Log.e(TAG, String.format("Failed to close SAF fd: %d.%s", fileDescriptor, Exceptions.getStackTraceString(t)));
         }
-
-        return 0;
     }
 
     /**
-     * Returns the session history size.
+     * <p>Returns open and close statistics of SAF protocol urls.
      *
-     * @return session history size
+     * @return SAF statistics
      */
-    public static int getSessionHistorySize() {
-        return sessionHistorySize;
+    public static SafStatistics getSafStatistics() {
+        return safRegistry.getStatistics();
     }
 
     /**
-     * Sets the session history size.
+     * <p>Sets how long file descriptors closed by FFmpeg are kept open for reuse. Opening the
+     * same SAF url again within this time reuses the descriptor instead of asking the content
+     * provider for a new one. Default is 2000 milliseconds.
      *
-     * @param sessionHistorySize session history size, should be smaller than 1000
+     * @param idleTimeout idle timeout in milliseconds, zero disables reuse
      */
-    public static void setSessionHistorySize(final int sessionHistorySize) {
-        if (sessionHistorySize >= 1000) {
-
-            /*
-             * THERE IS A HARD LIMIT ON THE NATIVE SIDE. HISTORY SIZE MUST BE SMALLER THAN 1000
-             */
-            throw new IllegalArgumentException("Session history size must not exceed the hard limit!");
-        } else if (sessionHistorySize > 0) {
-            FFmpegKitConfig.sessionHistorySize = sessionHistorySize;
-            deleteExpiredSessions();
-        }
+    public static void setSafDescriptorIdleTimeout(final long idleTimeout) {
+        safRegistry.setIdleTimeout(idleTimeout);
     }
 
     /**
-     * Deletes expired sessions.
+     * <p>Converts the given local file path into an <code>mmapfile:</code> url. FFmpeg reads the
+     * url from a memory mapping of the file instead of a read system call for each read, which
+     * speeds up seek heavy workloads like thumbnail extraction and scrubbing.
+     *
+     * <p>Use it for media files. Playlists and concat lists should be passed as plain paths, so
+     * the demuxer can open the files they reference. Requires ffmpeg-kit protocols to be enabled
+     * in the build, which is the default. {@link #setMmapFileInputsEnabled(boolean)} applies it
+     * to local media inputs automatically.
+     *
+     * @param path local file path
+     * @return input url that can be passed to FFmpegKit or FFprobeKit
      */
-    private static void deleteExpiredSessions() {
-        while (sessionHistoryList.size() > sessionHistorySize) {
-            try {
-                Session expiredSession = sessionHistoryList.remove(0);
-                if (expiredSession != null) {
-                    sessionHistoryMap.remove(expiredSession.getSessionId());
-                }
-            } catch (final IndexOutOfBoundsException ignored) {
-            }
-        }
+    public static String getMmapFileParameter(final String path) {
+        return "mmapfile:" + path;
     }
 
     /**
-     * Adds a session to the session history.
+     * <p>Creates an fkio protocol url that reads from the given channel. The url can be used as an
+     * input in FFmpeg and FFprobe commands. Data is transferred through reusable direct buffers,
+     * without using pipes or temporary files.
      *
-     * @param session new session
+     * <p>Url is seekable if the channel is a {@link java.nio.channels.SeekableByteChannel}.
+     * Channel is closed when a session having the url in its arguments completes, so FFmpeg can
+     * open the url more than once. Seekable channels are rewound each time the url is opened
+     * again.
+     *
+     * @param channel   channel to read from
+     * @param extension extension appended to the url, can be null
+     * @return input url that can be passed to FFmpegKit or FFprobeKit
      */
-    static void addSession(final Session session) {
-        synchronized (sessionHistoryLock) {
-
-            /*
-             * ASYNC SESSIONS CALL THIS METHOD TWICE
-             * THIS CHECK PREVENTS ADDING THE SAME SESSION AGAIN
-             */
-            final boolean sessionAlreadyAdded = sessionHistoryMap.containsKey(session.getSessionId());
-            if (!sessionAlreadyAdded) {
-                sessionHistoryMap.put(session.getSessionId(), session);
-                sessionHistoryList.add(session);
-                deleteExpiredSessions();
-            }
-        }
+    public static String getFkioParameterForRead(final ReadableByteChannel channel, final String extension) {
+        return registerFkioChannel(channel, null, extension);
     }
 
     /**
-     * Returns the session specified with <code>sessionId</code> from the session history.
+     * <p>Creates an fkio protocol url that reads from the given stream. The url can be used as an
+     * input in FFmpeg and FFprobe commands. Data is transferred through reusable direct buffers,
+     * without using pipes or temporary files.
      *
-     * @param sessionId session identifier
-     * @return session specified with sessionId or null if it is not found in the history
+     * <p>Url is not seekable. Stream is closed when a session having the url in its arguments
+     * completes.
+     *
+     * @param inputStream stream to read from
+     * @param extension   extension appended to the url, can be null
+     * @return input url that can be passed to FFmpegKit or FFprobeKit
      */
-    public static Session getSession(final long sessionId) {
-        synchronized (sessionHistoryLock) {
-            return sessionHistoryMap.get(sessionId);
-        }
+    public static String getFkioParameterForRead(final InputStream inputStream, final String extension) {
+        return registerFkioChannel(Channels.newChannel(inputStream), null, extension);
     }
 
     /**
-     * Returns the last session created from the session history.
+     * <p>Creates an fkio protocol url that writes to the given channel. The url can be used as an
+     * output in FFmpeg commands. Extension is used by FFmpeg to select the output format when the
+     * format is not specified with <code>-f</code>.
      *
-     * @return the last session created or null if session history is empty
+     * <p>Url is seekable if the channel is a {@link java.nio.channels.SeekableByteChannel}.
+     * Channel is closed when FFmpeg closes the url.
+     *
+     * @param channel   channel to write to
+     * @param extension extension appended to the url, can be null
+     * @return output url that can be passed to FFmpegKit
      */
-    public static Session getLastSession() {
-        synchronized (sessionHistoryLock) {
-            if (sessionHistoryList.size() > 0) {
-                return sessionHistoryList.get(sessionHistoryList.size() - 1);
-            }
-        }
+    public static String getFkioParameterForWrite(final WritableByteChannel channel, final String extension) {
+        return registerFkioChannel(null, channel, extension);
+    }
 
-        return null;
+    /**
+     * <p>Creates an fkio protocol url that writes to the given stream. The url can be used as an
+     * output in FFmpeg commands. Extension is used by FFmpeg to select the output format when the
+     * format is not specified with <code>-f</code>.
+     *
+     * <p>Url is not seekable, so the output format must support non-seekable outputs. Stream is
+     * closed when FFmpeg closes the url.
+     *
+     * @param outputStream stream to write to
+     * @param extension    extension appended to the url, can be null
+     * @return output url that can be passed to FFmpegKit
+     */
+    public static String getFkioParameterForWrite(final OutputStream outputStream, final String extension) {
+        return registerFkioChannel(null, Channels.newChannel(outputStream), extension);
     }
 
     /**
-     * Returns the last session completed from the session history.
+     * <p>Creates an fkio protocol url that reads from the given direct buffer, for example a
+     * {@link java.nio.MappedByteBuffer} created for a file region. Bytes between position and
+     * limit of the buffer are used. Url is seekable.
      *
-     * @return the last session completed. If there are no completed sessions in the history this
-     * method will return null
+     * <p>Native code reads the buffer memory directly; data is not copied into the Java heap or
+     * the filesystem. Buffer must not be modified until the session using the url completes.
+     * References to the buffer are released when a session having the url in its arguments
+     * completes.
+     *
+     * @param buffer    direct buffer holding the input
+     * @param extension extension appended to the url, can be null
+     * @return input url that can be passed to FFmpegKit or FFprobeKit
+     */
+    public static String getFkioParameterForRead(final ByteBuffer buffer, final String extension) {
+        return getFkioParameterForRead(new ByteBuffer[]{buffer}, extension);
+    }
+
+    /**
+     * <p>Creates an fkio protocol url that reads from the given direct buffers, concatenated in
+     * the order given. Bytes between position and limit of each buffer are used. Url is seekable.
+     *
+     * <p>Native code reads buffer memory directly; data is not copied into the Java heap or the
+     * filesystem. Buffers must not be modified until the session using the url completes.
+     * References to buffers are released when a session having the url in its arguments
+     * completes.
+     *
+     * @param buffers   direct buffers holding the input
+     * @param extension extension appended to the url, can be null
+     * @return input url that can be passed to FFmpegKit or FFprobeKit
+     * @throws IllegalArgumentException if a buffer is not direct
+     */
+    public static String getFkioParameterForRead(final ByteBuffer[] buffers, final String extension) {
+        final int fkioId = uniqueIdGenerator.getAndIncrement();
+        fkioChannelMap.put(fkioId, new FkioChannel(fkioId, buffers));
+
+        return fkioUrl(fkioId, extension);
+    }
+
+    private static String registerFkioChannel(final ReadableByteChannel readChannel, final WritableByteChannel writeChannel, final String extension) {
+        final int fkioId = uniqueIdGenerator.getAndIncrement();
+        fkioChannelMap.put(fkioId, new FkioChannel(fkioId, readChannel, writeChannel));
+
+        return fkioUrl(fkioId, extension);
+    }
+
+    private static String fkioUrl(final int fkioId, final String extension) {
+        if (extension == null || extension.isEmpty()) {
+            return "fkio:" + fkioId;
+        } else {
+            return "fkio:" + fkioId + "." + extension;
+        }
+    }
+
+    /**
+     * Releases fkio protocol urls used in the arguments of a completed session. Output urls are
+     * already released when FFmpeg closes them; input urls are kept until here, since FFmpeg may
+     * open an input more than once. Also releases urls that are never opened, e.g. because the
+     * session failed early.
+     *
+     * @param session completed session
+     */
+    static void releaseFkioChannels(final Session session) {
+        final String[] arguments = session.getArguments();
+        if (arguments == null || fkioChannelMap.isEmpty()) {
+            return;
+        }
+
+        for (String argument : arguments) {
+            if (argument != null && argument.contains("fkio:")) {
+                final Matcher matcher = FKIO_URL_PATTERN.matcher(argument);
+                while (matcher.find()) {
+                    try {
+                        final FkioChannel fkioChannel = fkioChannelMap.remove(Integer.parseInt(matcher.group(1)));
+                        if (fkioChannel != null) {
+                            fkioChannel.close();
+                        }
+                    } catch (final NumberFormatException e) {
+                        android.util.Log.w(TAG, String.format("Invalid fkio url in argument %s.", argument));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Interrupts pending and later reads and writes of fkio protocol urls used in the arguments of
+     * a session that is being cancelled. Urls are still released as usual.
+     *
+     * @param session session being cancelled
+     */
+    static void interruptFkioChannels(final Session session) {
+        final String[] arguments = session.getArguments();
+        if (arguments == null || fkioChannelMap.isEmpty()) {
+            return;
+        }
+
+        for (String argument : arguments) {
+            if (argument != null && argument.contains("fkio:")) {
+                final Matcher matcher = FKIO_URL_PATTERN.matcher(argument);
+                while (matcher.find()) {
+                    try {
+                        final FkioChannel fkioChannel = fkioChannelMap.get(Integer.parseInt(matcher.group(1)));
+                        if (fkioChannel != null) {
+                            fkioChannel.interrupt();
+                        }
+                    } catch (final NumberFormatException e) {
+                        android.util.Log.w(TAG, String.format("Invalid fkio url in argument %s.", argument));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Sets the size of direct buffers used to transfer fkio protocol data. Default size is
+     * 64 KB. Affects urls opened after this call.
+     *
+     * @param bufferSize buffer size in bytes
+     */
+    public static void setFkioBufferSize(final int bufferSize) {
+        FkioChannel.setBufferSize(bufferSize);
+    }
+
+    /**
+     * Called from native library to open an fkio protocol url.
+     *
+     * @param fkioId fkio id part of an fkio protocol url
+     * @param write  1 if the url is opened for writing, 0 otherwise
+     * @return direct buffer shared with native code or null if an error occurs
+     */
+    private static ByteBuffer fkioOpen(final int fkioId, final int write) {
+        final FkioChannel fkioChannel = fkioChannelMap.get(fkioId);
+        if (fkioChannel == null) {
+            android.util.Log.e(TAG, String.format("fkio id %d not found.", fkioId));
+            return null;
+        }
+
+        return fkioChannel.open(write == 1);
+    }
+
+    /**
+     * Called from native library to get buffers backing an fkio protocol url.
+     *
+     * @param fkioId fkio id part of an fkio protocol url
+     * @return direct buffers or null if the url is not backed by buffers
+     */
+    private static ByteBuffer[] fkioSegments(final int fkioId) {
+        final FkioChannel fkioChannel = fkioChannelMap.get(fkioId);
+        return (fkioChannel == null) ? null : fkioChannel.getSegments();
+    }
+
+    /**
+     * Called from native library to read from an fkio protocol url.
+     *
+     * @param fkioId fkio id part of an fkio protocol url
+     * @param size   maximum number of bytes to read into the shared buffer
+     * @return number of bytes read, -1 at the end of the stream or -2 on error
+     */
+    private static int fkioRead(final int fkioId, final int size) {
+        final FkioChannel fkioChannel = fkioChannelMap.get(fkioId);
+        return (fkioChannel == null) ? FkioChannel.ERROR : fkioChannel.read(size);
+    }
+
+    /**
+     * Called from native library to write to an fkio protocol url.
+     *
+     * @param fkioId fkio id part of an fkio protocol url
+     * @param size   number of bytes to write from the shared buffer
+     * @return number of bytes written or -2 on error
+     */
+    private static int fkioWrite(final int fkioId, final int size) {
+        final FkioChannel fkioChannel = fkioChannelMap.get(fkioId);
+        return (fkioChannel == null) ? FkioChannel.ERROR : fkioChannel.write(size);
+    }
+
+    /**
+     * Called from native library to seek an fkio protocol url.
+     *
+     * @param fkioId fkio id part of an fkio protocol url
+     * @param offset seek offset
+     * @param whence seek mode
+     * @return new position, url size if size is requested or -1 if url is not seekable
+     */
+    private static long fkioSeek(final int fkioId, final long offset, final int whence) {
+        final FkioChannel fkioChannel = fkioChannelMap.get(fkioId);
+        return (fkioChannel == null) ? -1 : fkioChannel.seek(offset, whence);
+    }
+
+    /**
+     * Called from native library to close an fkio protocol url. Outputs are closed and released.
+     * Inputs stay registered, so they can be opened again, until the session using them is
+     * completed.
+     *
+     * @param fkioId fkio id part of an fkio protocol url
+     * @return zero if the url is closed successfully, -2 if an error occurs
+     */
+    private static int fkioClose(final int fkioId) {
+        final FkioChannel fkioChannel = fkioChannelMap.get(fkioId);
+        if (fkioChannel == null) {
+            android.util.Log.e(TAG, String.format("fkio id %d not found.", fkioId));
+            return FkioChannel.ERROR;
+        }
+
+        if (fkioChannel.isWritable()) {
+            fkioChannelMap.remove(fkioId);
+            return fkioChannel.close();
+        }
+
+        return fkioChannel.closeUrl();
+    }
+
+    /**
+     * Returns the session history size.
+     *
+     * @return session history size
+     */
+    public static int getSessionHistorySize() {
+        return sessionHistorySize;
+    }
+
+    /**
+     * Sets the session history size.
+     *
+     * @param sessionHistorySize session history size, should be smaller than 1000
+     */
+    public static void setSessionHistorySize(final int sessionHistorySize) {
+        if (sessionHistorySize >= 1000) {
+
+            /*
+             * THERE IS A HARD LIMIT ON THE NATIVE SIDE. HISTORY SIZE MUST BE SMALLER THAN 1000
+             */
+            throw new IllegalArgumentException("Session history size must not exceed the hard limit!");
+        } else if (sessionHistorySize > 0) {
+            FFmpegKitConfig.sessionHistorySize = sessionHistorySize;
+            deleteExpiredSessions();
+        }
+    }
+
+    /**
+     * Deletes expired sessions.
+     */
+    private static void deleteExpiredSessions() {
+        while (sessionHistoryList.size() > sessionHistorySize) {
+            try {
+                Session expiredSession = sessionHistoryList.remove(0);
+                if (expiredSession != null) {
+                    sessionHistoryMap.remove(expiredSession.getSessionId());
+                }
+            } catch (final IndexOutOfBoundsException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Adds a session to the session history.
+     *
+     * @param session new session
+     */
+    static void addSession(final Session session) {
+        synchronized (sessionHistoryLock) {
+
+            /*
+             * ASYNC SESSIONS CALL THIS METHOD TWICE
+             * THIS CHECK PREVENTS ADDING THE SAME SESSION AGAIN
+             */
+            final boolean sessionAlreadyAdded = sessionHistoryMap.containsKey(session.getSessionId());
+            if (!sessionAlreadyAdded) {
+                sessionHistoryMap.put(session.getSessionId(), session);
+                sessionHistoryList.add(session);
+                deleteExpiredSessions();
+            }
+        }
+    }
+
+    /**
+     * Returns the session specified with <code>sessionId</code> from the session history.
+     *
+     * @param sessionId session identifier
+     * @return session specified with sessionId or null if it is not found in the history
+     */
+    public static Session getSession(final long sessionId) {
+        synchronized (sessionHistoryLock) {
+            return sessionHistoryMap.get(sessionId);
+        }
+    }
+
+    /**
+     * Returns the last session created from the session history.
+     *
+     * @return the last session created or null if session history is empty
+     */
+    public static Session getLastSession() {
+        synchronized (sessionHistoryLock) {
+            if (sessionHistoryList.size() > 0) {
+                return sessionHistoryList.get(sessionHistoryList.size() - 1);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the last session completed from the session history.
+     *
+     * @return the last session completed. If there are no completed sessions in the history this
+     * method will return null
      */
     public static Session getLastCompletedSession() {
         synchronized (sessionHistoryLock) {
@@ -1295,6 +1868,376 @@ public class FFmpegKitConfig {
         FFmpegKitConfig.globalLogRedirectionStrategy = logRedirectionStrategy;
     }
 
+    /**
+     * Returns whether local media file inputs are read through the <code>mmapfile:</code>
+     * protocol.
+     *
+     * @return true if local media file inputs are memory mapped, false otherwise
+     */
+    public static boolean isMmapFileInputsEnabled() {
+        return mmapFileInputs;
+    }
+
+    /**
+     * <p>Sets whether local media file inputs are read through the <code>mmapfile:</code>
+     * protocol, as if they were passed through {@link #getMmapFileParameter(String)}. Disabled
+     * by default.
+     *
+     * <p>When enabled, <code>-i</code> arguments pointing to existing local files with a media
+     * file extension, e.g. <code>mp4</code> or <code>mkv</code>, are rewritten before execution.
+     * Playlists, concat lists and other inputs are left unchanged, since their demuxers open the
+     * files they reference through <code>file:</code>. Session arguments are not modified.
+     *
+     * @param enabled true to memory map local media file inputs, false to read them through the
+     *                <code>file:</code> protocol
+     */
+    public static void setMmapFileInputsEnabled(final boolean enabled) {
+        FFmpegKitConfig.mmapFileInputs = enabled;
+    }
+
+    /**
+     * Returns whether FFmpeg arguments are passed to native code in a single packed buffer.
+     *
+     * @return true if packed arguments are enabled, false otherwise
+     */
+    public static boolean isPackedArgumentsEnabled() {
+        return packedArguments;
+    }
+
+    /**
+     * <p>Sets whether FFmpeg arguments are passed to native code in a single packed buffer
+     * instead of one string per argument. Disabled by default.
+     *
+     * <p>Packing saves a JNI string conversion per argument, which is noticeable only for
+     * short sessions executed in large numbers. Commands with an argument containing a NUL
+     * character are always passed one by one.
+     *
+     * @param enabled true to pack FFmpeg arguments, false to pass them one by one
+     */
+    public static void setPackedArgumentsEnabled(final boolean enabled) {
+        FFmpegKitConfig.packedArguments = enabled;
+    }
+
+    /**
+     * <p>Returns whether stage profiles are collected for FFmpeg sessions.
+     *
+     * @return true if stage profiling is enabled, false otherwise
+     */
+    public static boolean isStageProfilingEnabled() {
+        return stageProfiling;
+    }
+
+    /**
+     * <p>Sets whether stage profiles are collected for FFmpeg sessions. When enabled, time spent
+     * in demuxing, decoding, filtering, encoding and muxing and the occupancy of the muxer
+     * queues are measured natively for each session. The profile is attached to every
+     * {@link Statistics} entry and the final profile is kept on the {@link FFmpegSession}.
+     *
+     * <p>Profiling reads the thread cpu clock twice for each packet and frame in every stage,
+     * so it is disabled by default.
+     *
+     * @param enabled true to collect stage profiles, false otherwise
+     */
+    public static void setStageProfilingEnabled(final boolean enabled) {
+        FFmpegKitConfig.stageProfiling = enabled;
+        setNativeStageProfilingEnabled(enabled);
+    }
+
+    /**
+     * <p>Returns the stage profile collected natively for the given session so far.
+     *
+     * @param sessionId session id
+     * @return stage profile or null if it can not be read
+     */
+    static StageProfile getStageProfile(final long sessionId) {
+        return StageProfile.from(getNativeStageProfile(sessionId));
+    }
+
+    /**
+     * <p>Returns whether native memory allocated by sessions is accounted.
+     *
+     * @return true if native memory accounting is enabled, false otherwise
+     */
+    public static boolean isMemoryAccountingEnabled() {
+        return memoryAccounting;
+    }
+
+    /**
+     * <p>Sets whether native memory allocated by sessions is accounted. When enabled, blocks
+     * allocated through <code>av_malloc</code> and <code>av_realloc</code> on the thread running
+     * a session and on its demuxer and muxer threads are recorded for that session until they
+     * are freed, from any thread. Current and peak values are available on each session and
+     * {@link Session#setNativeMemoryLimit(long)} can be used to cancel a session that allocates
+     * too much.
+     *
+     * <p>Threads created inside codecs and filters are not associated with a session, so their
+     * allocations are not accounted. Each accounted allocation and free takes a striped lock,
+     * therefore accounting is disabled by default. While it is disabled frees are not looked up.
+     * Disabling it drops the records of blocks not freed yet, so sessions running at that time
+     * keep the values they reached.
+     *
+     * @param enabled true to account native memory, false otherwise
+     */
+    public static void setMemoryAccountingEnabled(final boolean enabled) {
+        FFmpegKitConfig.memoryAccounting = enabled;
+        setNativeMemoryAccountingEnabled(enabled);
+    }
+
+    /**
+     * <p>Returns current and peak native memory of the given session.
+     *
+     * @param sessionId session id
+     * @return current and peak memory in bytes or null if they can not be read
+     */
+    static long[] getSessionMemory(final long sessionId) {
+        return getNativeSessionMemory(sessionId);
+    }
+
+    private static void setSessionMemoryLimit(final AbstractSession session) {
+        final long limit = session.getNativeMemoryLimit();
+        if (limit > 0) {
+            if (!memoryAccounting) {
+                android.util.Log.w(TAG, String.format("Native memory limit of session %d is ignored because native memory accounting is not enabled.", session.getSessionId()));
+            }
+            setNativeSessionMemoryLimit(session.getSessionId(), limit);
+        }
+    }
+
+    private static void setSessionLogLevel(final AbstractSession session) {
+        final Level level = session.getLogLevel();
+        if (level != null) {
+            setNativeSessionLogLevel(session.getSessionId(), level.getValue());
+        }
+    }
+
+    private static void updateSessionMemory(final AbstractSession session) {
+        if (memoryAccounting) {
+            final long[] memory = getNativeSessionMemory(session.getSessionId());
+            if (memory != null && memory.length == 2) {
+                session.setNativeMemory(memory[0], memory[1]);
+            }
+            if (session.isNativeMemoryLimitExceeded()) {
+                android.util.Log.w(TAG, String.format("Session %d was cancelled because its peak native memory %d exceeded the limit of %d bytes.", session.getSessionId(), session.getPeakNativeMemory(), session.getNativeMemoryLimit()));
+            }
+        }
+    }
+
+    /**
+     * <p>Returns user and system cpu time used by the given session.
+     *
+     * @param sessionId session id
+     * @return user and system cpu time in microseconds or null if they can not be read
+     */
+    static long[] getSessionCpuTime(final long sessionId) {
+        return getNativeSessionCpuTime(sessionId);
+    }
+
+    private static void updateSessionCpuTime(final AbstractSession session) {
+        final long[] cpuTime = getNativeSessionCpuTime(session.getSessionId());
+        if (cpuTime != null && cpuTime.length == 2) {
+            session.setCpuTime(cpuTime[0], cpuTime[1]);
+        }
+    }
+
+    /**
+     * <p>Returns the histogram of the given session interval, aggregated over all sessions.
+     * Values are in nanoseconds.
+     *
+     * @param interval session interval
+     * @return histogram of the interval
+     */
+    public static Histogram getSessionTimingHistogram(final SessionInterval interval) {
+        return sessionTimingHistograms.get(interval);
+    }
+
+    /**
+     * <p>Clears histograms of all session intervals.
+     */
+    public static void resetSessionTimingHistograms() {
+        for (Histogram histogram : sessionTimingHistograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * <p>Returns the histogram of time spent inside callbacks of the given type. Values are in
+     * nanoseconds.
+     *
+     * @param type callback type
+     * @return latency histogram of the callback type
+     */
+    public static Histogram getCallbackLatencyHistogram(final CallbackType type) {
+        return CallbackWatchdog.getHistogram(type);
+    }
+
+    /**
+     * <p>Clears latency histograms of all callback types.
+     */
+    public static void resetCallbackLatencyHistograms() {
+        CallbackWatchdog.resetHistograms();
+    }
+
+    /**
+     * <p>Returns the slow callback threshold.
+     *
+     * @return slow callback threshold in milliseconds, zero if slow callbacks are not detected
+     */
+    public static long getSlowCallbackThreshold() {
+        return CallbackWatchdog.getSlowCallbackThreshold();
+    }
+
+    /**
+     * <p>Sets how long a log, statistics or complete callback can run before it is considered
+     * slow. Log and statistics callbacks run on the thread that delivers all native messages and
+     * complete callbacks run on async executor threads, so a slow callback delays every
+     * session. Slow invocations are counted in metrics and the first slow invocation of each
+     * callback is logged. Default is 100 milliseconds.
+     *
+     * @param threshold threshold in milliseconds, zero disables slow callback detection
+     */
+    public static void setSlowCallbackThreshold(final long threshold) {
+        CallbackWatchdog.setSlowCallbackThreshold(threshold);
+    }
+
+    /**
+     * <p>Returns whether stacks of slow callbacks are logged.
+     *
+     * @return true if stacks of slow callbacks are logged, false otherwise
+     */
+    public static boolean isSlowCallbackStackDumpEnabled() {
+        return CallbackWatchdog.isStackDumpEnabled();
+    }
+
+    /**
+     * <p>Sets whether stacks of slow callbacks are logged. When enabled, a watchdog thread logs
+     * the stack of every callback invocation still running after the slow callback threshold,
+     * showing where the callback is blocked. Disabled by default.
+     *
+     * @param enabled true to log stacks of slow callbacks, false otherwise
+     */
+    public static void setSlowCallbackStackDumpEnabled(final boolean enabled) {
+        CallbackWatchdog.setStackDumpEnabled(enabled);
+    }
+
+    /**
+     * <p>Returns whether slow callbacks are moved to the callback offload executor.
+     *
+     * @return true if slow callbacks are offloaded, false otherwise
+     */
+    public static boolean isSlowCallbackOffloadEnabled() {
+        return CallbackWatchdog.isOffloadEnabled();
+    }
+
+    /**
+     * <p>Sets whether slow callbacks are moved to the callback offload executor. When enabled,
+     * a callback that exceeded the slow callback threshold once is invoked on a single offload
+     * thread from then on, in the same order, while other callbacks keep running inline.
+     *
+     * <p>Offloaded log and statistics callbacks may be invoked after their session completes.
+     * The offload queue is bounded; when it is full log and statistics invocations are dropped,
+     * which is counted in metrics, and complete callbacks are invoked inline. Disabled by
+     * default.
+     *
+     * @param enabled true to offload slow callbacks, false otherwise
+     */
+    public static void setSlowCallbackOffloadEnabled(final boolean enabled) {
+        CallbackWatchdog.setOffloadEnabled(enabled);
+    }
+
+    /**
+     * <p>Returns the registry that holds FFmpegKit metrics. Sessions started, completed and
+     * failed by type, running sessions, async queue length, callback queue length, JNI upcalls,
+     * dropped log messages, session interval summaries, including total duration and time to
+     * first statistics, and callback latency summaries with slow and dropped callback counts are
+     * registered into it. Applications can register their own metrics
+     * as well and export all of them with a {@link PrometheusExporter}.
+     *
+     * @return metrics registry
+     */
+    public static MetricsRegistry getMetricsRegistry() {
+        return FFmpegKitMetrics.registry;
+    }
+
+    /**
+     * <p>Returns the number of sessions waiting for a thread of the default async executor.
+     * Sessions submitted to other executors are not included.
+     *
+     * @return number of sessions waiting
+     */
+    static int getAsyncQueueLength() {
+        final ExecutorService executorService = asyncExecutorService;
+        if (executorService instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executorService).getQueue().size();
+        }
+
+        return 0;
+    }
+
+    /**
+     * <p>Returns the number of native messages waiting for delivery and the number of native
+     * messages dropped.
+     *
+     * @return callback counters or null if they can not be read
+     */
+    static long[] getCallbackCounters() {
+        return NativeLoader.isTestModeDisabled() ? getNativeCallbackCounters() : null;
+    }
+
+    static void recordSessionInterval(final SessionInterval interval, final long duration) {
+        final Histogram histogram = sessionTimingHistograms.get(interval);
+        if (histogram != null) {
+            histogram.record(duration);
+        }
+    }
+
+    private static String[] nativeArguments(final String[] arguments) {
+        return mmapFileInputs ? mapLocalInputs(arguments) : arguments;
+    }
+
+    /**
+     * Replaces <code>-i</code> arguments pointing to existing local media files with
+     * <code>mmapfile:</code> urls.
+     *
+     * @param arguments command arguments
+     * @return arguments with local media inputs replaced, or the same array if there are none
+     */
+    static String[] mapLocalInputs(final String[] arguments) {
+        if (arguments == null) {
+            return null;
+        }
+
+        String[] mappedArguments = arguments;
+        for (int i = 0; i < arguments.length - 1; i++) {
+            if (!"-i".equals(arguments[i]) || arguments[i + 1] == null) {
+                continue;
+            }
+
+            String path = arguments[i + 1];
+            if (path.startsWith("file:")) {
+                path = path.substring("file:".length());
+            }
+            if (!path.startsWith("/") || !MMAP_FILE_EXTENSIONS.contains(extractExtension(path)) || !new File(path).isFile()) {
+                continue;
+            }
+
+            if (mappedArguments == arguments) {
+                mappedArguments = arguments.clone();
+            }
+            mappedArguments[i + 1] = getMmapFileParameter(path);
+        }
+
+        return mappedArguments;
+    }
+
+    private static String extractExtension(final String path) {
+        final int dotIndex = path.lastIndexOf('.');
+        if (dotIndex < path.lastIndexOf('/') + 1) {
+            return "";
+        }
+
+        return path.substring(dotIndex + 1).toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Converts session state to string.
      *
@@ -1385,6 +2328,32 @@ public class FFmpegKitConfig {
         return stringBuilder.toString();
     }
 
+    /**
+     * <p>Packs arguments into a single UTF-8 encoded buffer, terminating each argument with a NUL
+     * character. Packed arguments are passed to native code in one copy, without converting each
+     * argument separately. Used only when packed arguments are enabled.
+     *
+     * @param arguments arguments
+     * @return packed arguments or null if arguments are null or if an argument is null or
+     * contains a NUL character
+     */
+    static byte[] packArguments(final String[] arguments) {
+        if (arguments == null) {
+            return null;
+        }
+
+        final StringBuilder stringBuilder = new StringBuilder();
+        for (String argument : arguments) {
+            if (argument == null || argument.indexOf('\0') >= 0) {
+                return null;
+            }
+            stringBuilder.append(argument);
+            stringBuilder.append('\0');
+        }
+
+        return stringBuilder.toString().getBytes(Charset.forName("UTF-8"));
+    }
+
     /**
      * <p>Enables redirection natively.
      */
@@ -1434,6 +2403,19 @@ public class FFmpegKitConfig {
      */
     private native static int nativeFFmpegExecute(final long sessionId, final String[] arguments);
 
+    /**
+     * <p>Synchronously executes FFmpeg natively using packed arguments.
+     *
+     * @param sessionId       id of the session
+     * @param packedArguments NUL terminated, UTF-8 encoded FFmpeg command options/arguments
+     *                        created by {@link #packArguments(String[])}
+     * @param argumentCount   number of arguments packed
+     * @return {@link ReturnCode#SUCCESS} on successful execution and {@link ReturnCode#CANCEL} on
+     * user cancel. Other non-zero values are returned on error. Use {@link ReturnCode} class to
+     * handle the value
+     */
+    private native static int nativeFFmpegExecutePacked(final long sessionId, final byte[] packedArguments, final int argumentCount);
+
     /**
      * <p>Synchronously executes FFprobe natively.
      *
@@ -1471,7 +2453,7 @@ public class FFmpegKitConfig {
      * @param ffmpegPipePath full path of ffmpeg pipe
      * @return zero on successful creation, non-zero on error
      */
-    private native static int registerNewNativeFFmpegPipe(final String ffmpegPipePath);
+    native static int registerNewNativeFFmpegPipe(final String ffmpegPipePath);
 
     /**
      * <p>Returns FFmpegKit library build date natively.
@@ -1497,4 +2479,66 @@ public class FFmpegKitConfig {
      */
     private native static void ignoreNativeSignal(final int signum);
 
+    /**
+     * <p>Enables or disables collecting stage profiles natively.
+     *
+     * @param enabled true to collect stage profiles, false otherwise
+     */
+    private native static void setNativeStageProfilingEnabled(final boolean enabled);
+
+    /**
+     * <p>Returns stage profile values collected natively for the given session.
+     *
+     * @param sessionId session id
+     * @return stage profile values
+     */
+    private native static long[] getNativeStageProfile(final long sessionId);
+
+    /**
+     * <p>Enables or disables native memory accounting natively.
+     *
+     * @param enabled true to account native memory, false otherwise
+     */
+    private native static void setNativeMemoryAccountingEnabled(final boolean enabled);
+
+    /**
+     * <p>Sets the native memory limit of the given session natively.
+     *
+     * @param sessionId session id
+     * @param limit     memory limit in bytes, zero means no limit
+     */
+    private native static void setNativeSessionMemoryLimit(final long sessionId, final long limit);
+
+    /**
+     * <p>Returns current and peak native memory of the given session natively.
+     *
+     * @param sessionId session id
+     * @return current and peak memory in bytes
+     */
+    private native static long[] getNativeSessionMemory(final long sessionId);
+
+    /**
+     * <p>Sets the log level of the given session natively. It is cleared when the session
+     * ends.
+     *
+     * @param sessionId session id
+     * @param level     log level value
+     */
+    private native static void setNativeSessionLogLevel(final long sessionId, final int level);
+
+    /**
+     * <p>Returns user and system cpu time of the given session natively.
+     *
+     * @param sessionId session id
+     * @return user and system cpu time in microseconds
+     */
+    private native static long[] getNativeSessionCpuTime(final long sessionId);
+
+    /**
+     * <p>Returns native callback queue length and dropped message count natively.
+     *
+     * @return callback queue length and number of dropped messages
+     */
+    private native static long[] getNativeCallbackCounters();
+
 }
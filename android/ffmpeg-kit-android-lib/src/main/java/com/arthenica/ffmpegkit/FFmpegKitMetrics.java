@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Metrics FFmpegKit keeps about itself, registered into
+ * {@link FFmpegKitConfig#getMetricsRegistry()}.
+ */
+final class FFmpegKitMetrics {
+
+    static final MetricsRegistry registry;
+
+    private static final String[] SESSION_TYPES = {"ffmpeg", "ffprobe", "media_information"};
+
+    private static final Counter[] sessionsStarted;
+    private static final Counter[] sessionsCompleted;
+    private static final Counter[] sessionsFailed;
+    private static final AtomicInteger runningSessions;
+
+    static final Counter logUpcalls;
+    static final Counter statisticsUpcalls;
+    static final Counter drainUpcalls;
+    static final Counter filteredLogs;
+    static final Counter[] slowCallbacks;
+    static final Counter[] droppedCallbacks;
+
+    static {
+        registry = new MetricsRegistry();
+
+        sessionsStarted = new Counter[SESSION_TYPES.length];
+        sessionsCompleted = new Counter[SESSION_TYPES.length];
+        sessionsFailed = new Counter[SESSION_TYPES.length];
+        for (int i = 0; i < SESSION_TYPES.length; i++) {
+            sessionsStarted[i] = registry.counter("ffmpegkit_sessions_started_total", "Sessions started.", "type", SESSION_TYPES[i]);
+            sessionsCompleted[i] = registry.counter("ffmpegkit_sessions_completed_total", "Sessions completed, with any return code.", "type", SESSION_TYPES[i]);
+            sessionsFailed[i] = registry.counter("ffmpegkit_sessions_failed_total", "Sessions failed with an exception.", "type", SESSION_TYPES[i]);
+        }
+
+        runningSessions = new AtomicInteger(0);
+        registry.gauge("ffmpegkit_sessions_running", "Sessions running.", runningSessions::get);
+        registry.gauge("ffmpegkit_async_queue_length", "Sessions waiting for a thread of the default async executor.", FFmpegKitConfig::getAsyncQueueLength);
+
+        registry.gauge("ffmpegkit_callback_queue_length", "Native log and statistics messages waiting for delivery to callbacks.", () -> nativeCallbackCounter(0));
+
+        logUpcalls = registry.counter("ffmpegkit_jni_upcalls_total", "Calls from the native library into Java callbacks.", "method", "log");
+        statisticsUpcalls = registry.counter("ffmpegkit_jni_upcalls_total", "Calls from the native library into Java callbacks.", "method", "statistics");
+        drainUpcalls = registry.counter("ffmpegkit_jni_upcalls_total", "Calls from the native library into Java callbacks.", "method", "callbacks_drained");
+
+        filteredLogs = registry.counter("ffmpegkit_log_messages_dropped_total", "Log messages dropped before reaching a session or a callback.", "reason", "level");
+        registry.counter("ffmpegkit_log_messages_dropped_total", "Log messages dropped before reaching a session or a callback.", () -> nativeCallbackCounter(1), "reason", "allocation");
+
+        final CallbackType[] callbackTypes = CallbackType.values();
+        slowCallbacks = new Counter[callbackTypes.length];
+        droppedCallbacks = new Counter[callbackTypes.length];
+        for (CallbackType type : callbackTypes) {
+            final String label = type.name().toLowerCase(Locale.ROOT);
+            registry.histogram("ffmpegkit_callback_latency_seconds", "Time spent inside user callbacks.", CallbackWatchdog.getHistogram(type), 1e-9, "callback", label);
+            slowCallbacks[type.ordinal()] = registry.counter("ffmpegkit_slow_callbacks_total", "Callback invocations that exceeded the slow callback threshold.", "callback", label);
+            droppedCallbacks[type.ordinal()] = registry.counter("ffmpegkit_callbacks_dropped_total", "Offloaded callback invocations dropped because the offload queue was full.", "callback", label);
+        }
+
+        for (SessionInterval interval : SessionInterval.values()) {
+            registry.histogram("ffmpegkit_session_interval_seconds", "Time between session lifecycle marks.", FFmpegKitConfig.getSessionTimingHistogram(interval), 1e-9, "interval", interval.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private FFmpegKitMetrics() {
+    }
+
+    static void sessionStarted(final Session session) {
+        sessionsStarted[typeOf(session)].increment();
+        runningSessions.incrementAndGet();
+    }
+
+    static void sessionEnded(final Session session, final boolean failed) {
+        if (failed) {
+            sessionsFailed[typeOf(session)].increment();
+        } else {
+            sessionsCompleted[typeOf(session)].increment();
+        }
+        runningSessions.decrementAndGet();
+    }
+
+    private static int typeOf(final Session session) {
+        if (session.isFFmpeg()) {
+            return 0;
+        } else if (session.isFFprobe()) {
+            return 1;
+        } else {
+            return 2;
+        }
+    }
+
+    private static double nativeCallbackCounter(final int index) {
+        final long[] counters = FFmpegKitConfig.getCallbackCounters();
+        return (counters != null && counters.length == 2) ? counters[index] : Double.NaN;
+    }
+
+}
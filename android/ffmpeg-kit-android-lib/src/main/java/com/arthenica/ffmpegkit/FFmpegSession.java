@@ -47,6 +47,11 @@ public class FFmpegSession extends AbstractSession implements Session {
      */
     private final Object statisticsLock;
 
+    /**
+     * Final stage profile of this session.
+     */
+    private volatile StageProfile stageProfile;
+
     /**
      * Builds a new FFmpeg session.
      *
@@ -212,6 +217,31 @@ public class FFmpegSession extends AbstractSession implements Session {
         }
     }
 
+    /**
+     * Returns the stage profile of this session. While the session is running a live profile
+     * is read natively; after it ends the final profile is returned. Stage profiles are only
+     * collected when {@link FFmpegKitConfig#setStageProfilingEnabled(boolean)} is enabled.
+     *
+     * @return stage profile or null if it is not collected
+     */
+    public StageProfile getStageProfile() {
+        if (state == SessionState.RUNNING && FFmpegKitConfig.isStageProfilingEnabled()) {
+            return FFmpegKitConfig.getStageProfile(sessionId);
+        }
+
+        return stageProfile;
+    }
+
+    /**
+     * Sets the final stage profile of this session. It is invoked internally by
+     * <code>FFmpegKit</code> library methods. Must not be used by user applications.
+     *
+     * @param stageProfile final stage profile
+     */
+    public void setStageProfile(final StageProfile stageProfile) {
+        this.stageProfile = stageProfile;
+    }
+
     @Override
     public boolean isFFmpeg() {
         return true;
@@ -19,6 +19,10 @@
 
 package com.arthenica.ffmpegkit;
 
+import android.content.Context;
+
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 
@@ -38,6 +42,17 @@ import java.util.concurrent.ExecutorService;
  * <pre>
  * MediaInformationSession session = FFprobeKit.getMediaInformation("file1.mp4");
  * </pre>
+ * <p>When only a few fields are needed, {@link #getMediaInformationFast(String, Collection)} reads
+ * less of the file by requesting those fields only.
+ * <pre>
+ * MediaInformationSession session = FFprobeKit.getMediaInformationFast("file1.mp4", EnumSet.of(MediaInformationField.DURATION, MediaInformationField.STREAM_WIDTH));
+ * </pre>
+ * <p>Packets and frames of long files can be streamed as typed entries, without keeping them in
+ * session logs, using {@link #probePackets(Context, String, ProbeRecordCallback)} and
+ * {@link #probeFrames(Context, String, ProbeRecordCallback)}.
+ * <pre>
+ * FFprobeSession session = FFprobeKit.probePackets(context, "file1.mp4", record -&gt; index.add(record));
+ * </pre>
  */
 public class FFprobeKit {
 
@@ -62,6 +77,89 @@ public class FFprobeKit {
         return new String[]{"-v", "error", "-hide_banner", "-print_format", "json", "-show_format", "-show_streams", "-show_chapters", "-i", path};
     }
 
+    /**
+     * <p>Maximum number of bytes read to detect the input format in fast media information
+     * sessions.
+     */
+    static final int FAST_PROBE_SIZE = 65536;
+
+    /**
+     * <p>Maximum duration, in microseconds, analyzed to detect stream parameters in fast media
+     * information sessions.
+     */
+    static final int FAST_ANALYZE_DURATION = 500000;
+
+    /**
+     * <p>Builds the command used to get only the given media information fields for a file.
+     *
+     * <p>Only the requested entries are printed and reduced probe limits are used, so FFprobe
+     * stops reading the input as soon as the container headers are parsed. Stream index and type
+     * are always included when a stream field is requested, so streams can be told apart.
+     *
+     * @param path   file path to use in the command
+     * @param fields media information fields requested
+     * @return command arguments to get the given media information fields
+     * @throws IllegalArgumentException if no fields are requested
+     */
+    static String[] fastGetMediaInformationCommandArguments(final String path, final Collection<MediaInformationField> fields) {
+        if (fields == null || fields.isEmpty()) {
+            throw new IllegalArgumentException("At least one media information field must be requested!");
+        }
+
+        final EnumSet<MediaInformationField> fieldSet = EnumSet.noneOf(MediaInformationField.class);
+        fieldSet.addAll(fields);
+
+        final StringBuilder formatEntries = new StringBuilder();
+        final StringBuilder streamEntries = new StringBuilder();
+        boolean formatTags = false;
+        boolean streamTags = false;
+
+        for (MediaInformationField field : fieldSet) {
+            final boolean formatSection = (field.getSection() == MediaInformationField.Section.FORMAT);
+
+            if (MediaInformation.KEY_TAGS.equals(field.getKey())) {
+                if (formatSection) {
+                    formatTags = true;
+                } else {
+                    streamTags = true;
+                }
+            } else {
+                final StringBuilder entries = formatSection ? formatEntries : streamEntries;
+                if (entries.length() > 0) {
+                    entries.append(',');
+                }
+                entries.append(field.getKey());
+            }
+        }
+
+        final StringBuilder showEntries = new StringBuilder();
+        if (formatEntries.length() > 0) {
+            showEntries.append(MediaInformationField.Section.FORMAT.getName()).append('=').append(formatEntries);
+        }
+        if (formatTags) {
+            appendSection(showEntries, "format_tags");
+        }
+        if (streamEntries.length() > 0 || streamTags) {
+            appendSection(showEntries, MediaInformationField.Section.STREAM.getName());
+            showEntries.append('=').append(StreamInformation.KEY_INDEX).append(',').append(StreamInformation.KEY_TYPE);
+            if (streamEntries.length() > 0) {
+                showEntries.append(',').append(streamEntries);
+            }
+        }
+        if (streamTags) {
+            appendSection(showEntries, "stream_tags");
+        }
+
+        return new String[]{"-v", "error", "-hide_banner", "-probesize", String.valueOf(FAST_PROBE_SIZE), "-analyzeduration", String.valueOf(FAST_ANALYZE_DURATION), "-print_format", "json", "-show_entries", showEntries.toString(), "-i", path};
+    }
+
+    private static void appendSection(final StringBuilder showEntries, final String section) {
+        if (showEntries.length() > 0) {
+            showEntries.append(':');
+        }
+        showEntries.append(section);
+    }
+
     /**
      * <p>Synchronously executes FFprobe with arguments provided.
      *
@@ -390,6 +488,65 @@ public class FFprobeKit {
         return session;
     }
 
+    /**
+     * <p>Extracts only the given media information fields for the file specified with path.
+     *
+     * <p>Fields that are not requested are not available in the {@link MediaInformation} created.
+     * Chapters are never extracted by this method.
+     *
+     * @param path   path or uri of a media file
+     * @param fields media information fields requested
+     * @return media information session created for this execution
+     */
+    public static MediaInformationSession getMediaInformationFast(final String path,
+                                                                  final Collection<MediaInformationField> fields) {
+        return getMediaInformationFast(path, fields, AbstractSession.DEFAULT_TIMEOUT_FOR_ASYNCHRONOUS_MESSAGES_IN_TRANSMIT);
+    }
+
+    /**
+     * <p>Extracts only the given media information fields for the file specified with path.
+     *
+     * <p>Fields that are not requested are not available in the {@link MediaInformation} created.
+     * Chapters are never extracted by this method.
+     *
+     * @param path        path or uri of a media file
+     * @param fields      media information fields requested
+     * @param waitTimeout max time to wait until media information is transmitted
+     * @return media information session created for this execution
+     */
+    public static MediaInformationSession getMediaInformationFast(final String path,
+                                                                  final Collection<MediaInformationField> fields,
+                                                                  final int waitTimeout) {
+        final MediaInformationSession session = MediaInformationSession.create(fastGetMediaInformationCommandArguments(path, fields));
+
+        FFmpegKitConfig.getMediaInformationExecute(session, waitTimeout);
+
+        return session;
+    }
+
+    /**
+     * <p>Starts an asynchronous FFprobe execution to extract only the given media information
+     * fields for the specified file.
+     *
+     * <p>Note that this method returns immediately and does not wait the execution to complete.
+     * You must use a {@link MediaInformationSessionCompleteCallback} if you want to be notified
+     * about the result.
+     *
+     * @param path             path or uri of a media file
+     * @param fields           media information fields requested
+     * @param completeCallback callback that will be called when the execution has completed
+     * @return media information session created for this execution
+     */
+    public static MediaInformationSession getMediaInformationFastAsync(final String path,
+                                                                       final Collection<MediaInformationField> fields,
+                                                                       final MediaInformationSessionCompleteCallback completeCallback) {
+        final MediaInformationSession session = MediaInformationSession.create(fastGetMediaInformationCommandArguments(path, fields), completeCallback);
+
+        FFmpegKitConfig.asyncGetMediaInformationExecute(session, AbstractSession.DEFAULT_TIMEOUT_FOR_ASYNCHRONOUS_MESSAGES_IN_TRANSMIT);
+
+        return session;
+    }
+
     /**
      * <p>Extracts media information using the command provided.
      *
@@ -454,6 +611,82 @@ public class FFprobeKit {
         return session;
     }
 
+    /**
+     * <p>Synchronously reads all packets of the file specified with path and delivers them to
+     * the given callback one by one.
+     *
+     * <p>Packets are transferred through a named pipe and parsed incrementally. They are not
+     * stored in session logs and memory usage does not depend on the file size. Callback is
+     * invoked from a separate reader thread while this method blocks.
+     *
+     * @param context        application context
+     * @param path           path or uri of a media file
+     * @param recordCallback callback that will receive packet entries
+     * @return FFprobe session created for this execution or null if a named pipe can not be
+     * created
+     */
+    public static FFprobeSession probePackets(final Context context,
+                                              final String path,
+                                              final ProbeRecordCallback recordCallback) {
+        return probeRecords(context, path, null, ProbeRecord.Type.PACKET, recordCallback);
+    }
+
+    /**
+     * <p>Synchronously decodes all frames of the file specified with path and delivers them to
+     * the given callback one by one.
+     *
+     * <p>Frames are transferred through a named pipe and parsed incrementally. They are not
+     * stored in session logs and memory usage does not depend on the file size. Callback is
+     * invoked from a separate reader thread while this method blocks.
+     *
+     * @param context        application context
+     * @param path           path or uri of a media file
+     * @param recordCallback callback that will receive frame entries
+     * @return FFprobe session created for this execution or null if a named pipe can not be
+     * created
+     */
+    public static FFprobeSession probeFrames(final Context context,
+                                             final String path,
+                                             final ProbeRecordCallback recordCallback) {
+        return probeRecords(context, path, null, ProbeRecord.Type.FRAME, recordCallback);
+    }
+
+    /**
+     * <p>Synchronously reads packets or frames of the given streams and delivers them to the
+     * given callback one by one.
+     *
+     * @param context         application context
+     * @param path            path or uri of a media file
+     * @param streamSpecifier streams to read entries from or null to read all streams
+     * @param type            entry type
+     * @param recordCallback  callback that will receive entries
+     * @return FFprobe session created for this execution or null if a named pipe can not be
+     * created
+     */
+    static FFprobeSession probeRecords(final Context context,
+                                       final String path,
+                                       final String streamSpecifier,
+                                       final ProbeRecord.Type type,
+                                       final ProbeRecordCallback recordCallback) {
+        final PipeLease pipeLease = FFmpegKitConfig.leaseFFmpegPipe(context);
+        if (pipeLease == null) {
+            return null;
+        }
+
+        final FFprobeSession session = FFprobeSession.create(ProbeRecordReader.commandArguments(path, type, streamSpecifier, pipeLease.getPath()));
+        final ProbeRecordReader reader = new ProbeRecordReader(pipeLease.getPath(), type, recordCallback);
+
+        reader.start();
+        try {
+            FFmpegKitConfig.ffprobeExecute(session);
+        } finally {
+            reader.finish();
+            pipeLease.close();
+        }
+
+        return session;
+    }
+
     /**
      * <p>Lists all FFprobe sessions in the session history.
      *
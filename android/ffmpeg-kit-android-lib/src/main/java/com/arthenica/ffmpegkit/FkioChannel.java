@@ -0,0 +1,447 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import android.os.Build;
+
+import com.arthenica.smartexception.java.Exceptions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.InterruptibleChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Java side of an <code>fkio:</code> protocol url. Native code reads from and writes to the
+ * channel through a direct buffer that is shared with Java, so data is copied once between the
+ * channel and FFmpeg.
+ *
+ * <p>Direct buffers are pooled and reused by later urls.
+ *
+ * <p>A channel can also be backed by direct buffers holding the whole input. Native code reads
+ * and seeks those buffers directly, without calling back into Java.
+ */
+class FkioChannel {
+
+    /**
+     * Default size of direct buffers used to transfer data.
+     */
+    static final int DEFAULT_BUFFER_SIZE = 65536;
+
+    /**
+     * Maximum number of direct buffers kept in the pool.
+     */
+    static final int MAX_POOLED_BUFFERS = 8;
+
+    /**
+     * Value of <code>AVSEEK_SIZE</code>, used to query the size of a url.
+     */
+    static final int AVSEEK_SIZE = 0x10000;
+
+    static final int SEEK_SET = 0;
+    static final int SEEK_CUR = 1;
+    static final int SEEK_END = 2;
+
+    /**
+     * Returned from {@link #read(int)} at the end of the stream.
+     */
+    static final int END_OF_STREAM = -1;
+
+    /**
+     * Returned from {@link #read(int)}, {@link #write(int)} and {@link #close()} on error.
+     */
+    static final int ERROR = -2;
+
+    /**
+     * How long to wait before retrying when a non-blocking channel transfers no data, in
+     * milliseconds.
+     */
+    static final long RETRY_INTERVAL = 1;
+
+    /**
+     * Channels that handle interruption themselves, e.g. by failing both of their ends.
+     */
+    interface Interruptible {
+
+        /**
+         * Makes pending and later operations on this channel fail.
+         */
+        void interrupt();
+
+    }
+
+    private static final Queue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooledBufferCount = new AtomicInteger();
+    private static volatile int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    private final int id;
+    private final ReadableByteChannel readChannel;
+    private final WritableByteChannel writeChannel;
+    private ByteBuffer[] segments;
+    private ByteBuffer buffer;
+    private int openCount;
+    private boolean openedBefore;
+    private volatile boolean interrupted;
+
+    FkioChannel(final int id, final ReadableByteChannel readChannel, final WritableByteChannel writeChannel) {
+        this.id = id;
+        this.readChannel = readChannel;
+        this.writeChannel = writeChannel;
+        this.segments = null;
+    }
+
+    /**
+     * Creates a channel backed by the given direct buffers. Bytes between position and limit of
+     * each buffer are used, in the order given.
+     *
+     * @param id       fkio id
+     * @param segments direct buffers holding the input
+     */
+    FkioChannel(final int id, final ByteBuffer[] segments) {
+        this.id = id;
+        this.readChannel = null;
+        this.writeChannel = null;
+        this.segments = new ByteBuffer[segments.length];
+
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i] == null || !segments[i].isDirect()) {
+                throw new IllegalArgumentException(String.format("Segment %d of fkio id %d is not a direct buffer.", i, id));
+            }
+            this.segments[i] = segments[i].slice();
+        }
+    }
+
+    static int getBufferSize() {
+        return bufferSize;
+    }
+
+    static void setBufferSize(final int newBufferSize) {
+        if (newBufferSize <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid fkio buffer size %d.", newBufferSize));
+        }
+
+        bufferSize = newBufferSize;
+        bufferPool.clear();
+        pooledBufferCount.set(0);
+    }
+
+    private static ByteBuffer acquireBuffer() {
+        final ByteBuffer pooledBuffer = bufferPool.poll();
+        if (pooledBuffer != null) {
+            pooledBufferCount.decrementAndGet();
+            if (pooledBuffer.capacity() == bufferSize) {
+                return pooledBuffer;
+            }
+        }
+
+        return ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    private static void releaseBuffer(final ByteBuffer buffer) {
+        if (buffer.capacity() == bufferSize && pooledBufferCount.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+            bufferPool.offer(buffer);
+        } else {
+            pooledBufferCount.decrementAndGet();
+        }
+    }
+
+    int getId() {
+        return id;
+    }
+
+    boolean isWritable() {
+        return writeChannel != null;
+    }
+
+    /**
+     * Returns buffers backing this channel. Native code reads them directly.
+     *
+     * @return direct buffers or null if this channel is not backed by buffers
+     */
+    synchronized ByteBuffer[] getSegments() {
+        return segments;
+    }
+
+    /**
+     * Prepares this channel for native access. When a url is opened again after it is closed,
+     * seekable channels are rewound to the beginning.
+     *
+     * @param write whether native code opens the url for writing
+     * @return direct buffer shared with native code or null if the url can not be opened in
+     * the requested mode
+     */
+    synchronized ByteBuffer open(final boolean write) {
+        if (write != isWritable()) {
+            android.util.Log.e(FFmpegKitConfig.TAG, String.format("fkio id %d can not be opened for %s.", id, write ? "writing" : "reading"));
+            return null;
+        }
+        if (openCount == 0 && openedBefore) {
+            if (!isSeekable()) {
+                android.util.Log.w(FFmpegKitConfig.TAG, String.format("fkio id %d is not seekable, reopened at its current position.", id));
+            } else if (seek(0, SEEK_SET) != 0) {
+                return null;
+            }
+        }
+        if (buffer == null) {
+            buffer = acquireBuffer();
+        }
+
+        openCount++;
+        openedBefore = true;
+        return buffer;
+    }
+
+    /**
+     * Ends a native access started by {@link #open(boolean)}. Channel stays open, so the url can
+     * be opened again. Shared buffer is returned to the pool when no access is left.
+     *
+     * @return zero
+     */
+    synchronized int closeUrl() {
+        if (openCount > 0) {
+            openCount--;
+        }
+        if (openCount == 0 && buffer != null) {
+            releaseBuffer(buffer);
+            buffer = null;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Reads data from the channel into the shared buffer. Blocks until at least one byte is read.
+     *
+     * @param size maximum number of bytes to read
+     * @return number of bytes read, {@link #END_OF_STREAM} or {@link #ERROR}
+     */
+    synchronized int read(final int size) {
+        if (interrupted) {
+            return ERROR;
+        }
+
+        try {
+            buffer.clear();
+            buffer.limit(Math.min(size, buffer.capacity()));
+
+            int bytesRead;
+            while ((bytesRead = readChannel.read(buffer)) == 0) {
+                if (!waitToRetry()) {
+                    return ERROR;
+                }
+            }
+
+            return (bytesRead < 0) ? END_OF_STREAM : bytesRead;
+        } catch (final IOException e) {
+            if (!interrupted) {
+                android.util.Log.e(FFmpegKitConfig.TAG, String.format("Failed to read fkio id %d.%s", id, Exceptions.getStackTraceString(e)));
+            }
+            return ERROR;
+        }
+    }
+
+    /**
+     * Writes data in the shared buffer into the channel.
+     *
+     * @param size number of bytes to write
+     * @return number of bytes written or {@link #ERROR}
+     */
+    synchronized int write(final int size) {
+        if (interrupted) {
+            return ERROR;
+        }
+
+        try {
+            buffer.clear();
+            buffer.limit(Math.min(size, buffer.capacity()));
+
+            while (buffer.hasRemaining()) {
+                if (writeChannel.write(buffer) == 0 && !waitToRetry()) {
+                    return ERROR;
+                }
+            }
+
+            return buffer.limit();
+        } catch (final IOException e) {
+            if (!interrupted) {
+                android.util.Log.e(FFmpegKitConfig.TAG, String.format("Failed to write fkio id %d.%s", id, Exceptions.getStackTraceString(e)));
+            }
+            return ERROR;
+        }
+    }
+
+    /**
+     * Waits before retrying a transfer that moved no data, instead of spinning on a non-blocking
+     * channel.
+     *
+     * @return false if the channel is interrupted while waiting
+     */
+    private boolean waitToRetry() {
+        try {
+            Thread.sleep(RETRY_INTERVAL);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        return !interrupted;
+    }
+
+    /**
+     * Seeks the channel, if it is seekable. File channels are seekable on all API Levels, other
+     * {@link SeekableByteChannel}s from API Level 24.
+     *
+     * @param offset seek offset
+     * @param whence one of {@link #SEEK_SET}, {@link #SEEK_CUR}, {@link #SEEK_END} or
+     *               {@link #AVSEEK_SIZE}
+     * @return new position, size of the channel for {@link #AVSEEK_SIZE} or -1 if the channel is
+     * not seekable or seek fails
+     */
+    synchronized long seek(final long offset, final int whence) {
+        if (!isSeekable()) {
+            return -1;
+        }
+
+        final Object channel = (readChannel != null) ? readChannel : writeChannel;
+
+        try {
+            switch (whence) {
+                case AVSEEK_SIZE:
+                    return size(channel);
+                case SEEK_SET:
+                    position(channel, offset);
+                    break;
+                case SEEK_CUR:
+                    position(channel, position(channel) + offset);
+                    break;
+                case SEEK_END:
+                    position(channel, size(channel) + offset);
+                    break;
+                default:
+                    return -1;
+            }
+
+            return position(channel);
+        } catch (final IOException | IllegalArgumentException e) {
+            android.util.Log.e(FFmpegKitConfig.TAG, String.format("Failed to seek fkio id %d.%s", id, Exceptions.getStackTraceString(e)));
+            return -1;
+        }
+    }
+
+    private boolean isSeekable() {
+        final Object channel = (readChannel != null) ? readChannel : writeChannel;
+        return (channel instanceof FileChannel) || (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N && Seekable.isSeekable(channel));
+    }
+
+    private static long size(final Object channel) throws IOException {
+        return (channel instanceof FileChannel) ? ((FileChannel) channel).size() : Seekable.size(channel);
+    }
+
+    private static long position(final Object channel) throws IOException {
+        return (channel instanceof FileChannel) ? ((FileChannel) channel).position() : Seekable.position(channel);
+    }
+
+    private static void position(final Object channel, final long newPosition) throws IOException {
+        if (channel instanceof FileChannel) {
+            ((FileChannel) channel).position(newPosition);
+        } else {
+            Seekable.position(channel, newPosition);
+        }
+    }
+
+    /**
+     * Makes later reads and writes fail. Channels that are {@link Interruptible} are interrupted
+     * and {@link InterruptibleChannel}s are closed, without waiting for the lock held by a blocked
+     * read or write, which releases the blocked thread. Shared buffer is returned to the pool when
+     * the url is closed.
+     */
+    void interrupt() {
+        interrupted = true;
+
+        try {
+            for (Object channel : new Object[]{readChannel, writeChannel}) {
+                if (channel instanceof Interruptible) {
+                    ((Interruptible) channel).interrupt();
+                } else if (channel instanceof InterruptibleChannel) {
+                    ((InterruptibleChannel) channel).close();
+                }
+            }
+        } catch (final IOException e) {
+            android.util.Log.w(FFmpegKitConfig.TAG, String.format("Failed to interrupt fkio id %d.%s", id, Exceptions.getStackTraceString(e)));
+        }
+    }
+
+    /**
+     * Closes the channel and returns the shared buffer to the pool.
+     *
+     * @return zero on success or {@link #ERROR}
+     */
+    synchronized int close() {
+        segments = null;
+
+        if (buffer != null) {
+            releaseBuffer(buffer);
+            buffer = null;
+        }
+
+        try {
+            if (readChannel != null) {
+                readChannel.close();
+            }
+            if (writeChannel != null) {
+                writeChannel.close();
+            }
+            return 0;
+        } catch (final IOException e) {
+            android.util.Log.e(FFmpegKitConfig.TAG, String.format("Failed to close fkio id %d.%s", id, Exceptions.getStackTraceString(e)));
+            return ERROR;
+        }
+    }
+
+    /**
+     * Seeks {@link SeekableByteChannel}s. Only referenced behind an API Level 24 check, so older
+     * releases never resolve that interface.
+     */
+    private static final class Seekable {
+
+        static boolean isSeekable(final Object channel) {
+            return channel instanceof SeekableByteChannel;
+        }
+
+        static long size(final Object channel) throws IOException {
+            return ((SeekableByteChannel) channel).size();
+        }
+
+        static long position(final Object channel) throws IOException {
+            return ((SeekableByteChannel) channel).position();
+        }
+
+        static void position(final Object channel, final long newPosition) throws IOException {
+            ((SeekableByteChannel) channel).position(newPosition);
+        }
+    }
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Delivers decoded video frames of an FFmpeg session to a Java callback, without writing them
+ * to a file first.
+ *
+ * <p>Frames are written by FFmpeg as <code>rawvideo</code> output into an fkio protocol url and
+ * delivered in direct buffers taken from a fixed pool. When the callback is slower than the
+ * decoder, FFmpeg waits for a free buffer.
+ * <pre>
+ * FrameSink sink = FrameSink.create(224, 224, "rgb24", 10, frame -&gt; model.process(frame.getBuffer()));
+ * List&lt;String&gt; arguments = new ArrayList&lt;&gt;(Arrays.asList("-i", "input.mp4", "-map", "0:v:0"));
+ * arguments.addAll(Arrays.asList(sink.getOutputArguments()));
+ * FFmpegKit.executeWithArguments(arguments.toArray(new String[0]));
+ * sink.join(0);
+ * </pre>
+ */
+public class FrameSink extends BufferSink {
+
+    private final int width;
+    private final int height;
+    private final String pixelFormat;
+    private final double frameRate;
+    private final FrameCallback callback;
+
+    private FrameSink(final int width, final int height, final String pixelFormat, final double frameRate, final FrameCallback callback, final int poolSize) {
+        super(getFrameSize(pixelFormat, width, height), poolSize, "ffmpeg-kit-frame-sink", true);
+
+        this.width = width;
+        this.height = height;
+        this.pixelFormat = pixelFormat;
+        this.frameRate = frameRate;
+        this.callback = callback;
+    }
+
+    /**
+     * <p>Creates a new frame sink.
+     *
+     * @param width       frame width
+     * @param height      frame height
+     * @param pixelFormat pixel format of frames, e.g. <code>rgba</code>, <code>rgb24</code>,
+     *                    <code>gray</code>, <code>nv12</code> or <code>yuv420p</code>
+     * @param frameRate   constant output frame rate; if zero or negative, frames are delivered
+     *                    as decoded and pts values are not available
+     * @param callback    callback that receives frames
+     * @return created frame sink
+     * @throws IllegalArgumentException if the pixel format is not supported or the size is
+     *                                  invalid
+     */
+    public static FrameSink create(final int width, final int height, final String pixelFormat, final double frameRate, final FrameCallback callback) {
+        return create(width, height, pixelFormat, frameRate, callback, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * <p>Creates a new frame sink.
+     *
+     * @param width       frame width
+     * @param height      frame height
+     * @param pixelFormat pixel format of frames, e.g. <code>rgba</code>, <code>rgb24</code>,
+     *                    <code>gray</code>, <code>nv12</code> or <code>yuv420p</code>
+     * @param frameRate   constant output frame rate; if zero or negative, frames are delivered
+     *                    as decoded and pts values are not available
+     * @param callback    callback that receives frames
+     * @param poolSize    number of frame buffers
+     * @return created frame sink
+     * @throws IllegalArgumentException if the pixel format is not supported or the size is
+     *                                  invalid
+     */
+    public static FrameSink create(final int width, final int height, final String pixelFormat, final double frameRate, final FrameCallback callback, final int poolSize) {
+        return new FrameSink(width, height, pixelFormat, frameRate, callback, poolSize);
+    }
+
+    /**
+     * Returns the size of a <code>rawvideo</code> frame.
+     *
+     * @param pixelFormat pixel format
+     * @param width       frame width
+     * @param height      frame height
+     * @return frame size in bytes
+     * @throws IllegalArgumentException if the pixel format is not supported or the size is
+     *                                  invalid
+     */
+    static int getFrameSize(final String pixelFormat, final int width, final int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid frame size %dx%d.", width, height));
+        }
+
+        final int pixelCount = width * height;
+        final int chromaCount = ((width + 1) / 2) * ((height + 1) / 2);
+
+        switch (pixelFormat) {
+            case "rgba":
+            case "bgra":
+            case "argb":
+            case "abgr":
+            case "rgb0":
+            case "bgr0":
+                return pixelCount * 4;
+            case "rgb24":
+            case "bgr24":
+            case "yuv444p":
+                return pixelCount * 3;
+            case "gray16le":
+            case "gray16be":
+            case "rgb565le":
+                return pixelCount * 2;
+            case "gray":
+                return pixelCount;
+            case "yuv420p":
+            case "nv12":
+            case "nv21":
+                return pixelCount + 2 * chromaCount;
+            case "yuv422p":
+                return pixelCount + 2 * ((width + 1) / 2) * height;
+            default:
+                throw new IllegalArgumentException(String.format("Pixel format %s is not supported.", pixelFormat));
+        }
+    }
+
+    /**
+     * Returns output options that write frames into this sink. These arguments must be placed
+     * after the input and stream selection options of the command.
+     *
+     * @return output arguments
+     */
+    public String[] getOutputArguments() {
+        final List<String> arguments = new ArrayList<>();
+
+        arguments.add("-an");
+        arguments.add("-sn");
+        arguments.add("-f");
+        arguments.add("rawvideo");
+        arguments.add("-pix_fmt");
+        arguments.add(pixelFormat);
+        arguments.add("-s");
+        arguments.add(width + "x" + height);
+        arguments.add("-fps_mode");
+        if (frameRate > 0) {
+            arguments.add("cfr");
+            arguments.add("-r");
+            arguments.add(String.valueOf(frameRate));
+        } else {
+            arguments.add("passthrough");
+        }
+        arguments.add(getUrl());
+
+        return arguments.toArray(new String[0]);
+    }
+
+    @Override
+    protected boolean deliversPartialChunks() {
+        return false;
+    }
+
+    @Override
+    protected void deliver(final ByteBuffer buffer, final long index) {
+        final long pts = (frameRate > 0) ? index : VideoFrame.NO_PTS;
+        callback.apply(new VideoFrame(buffer, index, pts, frameRate, pixelFormat, width, height));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public String getPixelFormat() {
+        return pixelFormat;
+    }
+
+    public double getFrameRate() {
+        return frameRate;
+    }
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>A lock-free histogram of non-negative long values.
+ *
+ * <p>Buckets are log-linear: each power of two range is split into eight buckets, so a value
+ * read back from the histogram is within 12.5% of the values recorded into its bucket. Values
+ * below sixteen are recorded exactly. Recording does not allocate and can be done from any
+ * thread.
+ */
+public class Histogram {
+
+    static final int SUB_BUCKET_BITS = 3;
+
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Number of buckets needed to hold any non-negative long value.
+     */
+    static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong count;
+    private final AtomicLong sum;
+    private final AtomicLong min;
+    private final AtomicLong max;
+
+    public Histogram() {
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+        this.count = new AtomicLong(0);
+        this.sum = new AtomicLong(0);
+        this.min = new AtomicLong(Long.MAX_VALUE);
+        this.max = new AtomicLong(0);
+    }
+
+    /**
+     * Records a value. Negative values are recorded as zero.
+     *
+     * @param value value to record
+     */
+    public void record(final long value) {
+        final long recorded = Math.max(value, 0);
+
+        counts.incrementAndGet(indexOf(recorded));
+        count.incrementAndGet();
+        sum.addAndGet(recorded);
+
+        long current = min.get();
+        while (recorded < current && !min.compareAndSet(current, recorded)) {
+            current = min.get();
+        }
+        current = max.get();
+        while (recorded > current && !max.compareAndSet(current, recorded)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return number of values
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the sum of values recorded.
+     *
+     * @return sum of values
+     */
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * Returns the lowest value recorded.
+     *
+     * @return lowest value or zero if no values are recorded
+     */
+    public long getMin() {
+        final long value = min.get();
+        return (value == Long.MAX_VALUE) ? 0 : value;
+    }
+
+    /**
+     * Returns the highest value recorded.
+     *
+     * @return highest value or zero if no values are recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the average of values recorded.
+     *
+     * @return average value or zero if no values are recorded
+     */
+    public double getMean() {
+        final long valueCount = count.get();
+        return (valueCount == 0) ? 0 : (double) sum.get() / valueCount;
+    }
+
+    /**
+     * Returns the value below which the given percentage of recorded values fall. The highest
+     * value of the bucket found is returned, limited by the highest value recorded.
+     *
+     * @param percentile percentile between 0 and 100
+     * @return value at the percentile or zero if no values are recorded
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException(String.format("Invalid percentile %f.", percentile));
+        }
+
+        final long[] bucketCounts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            bucketCounts[i] = counts.get(i);
+            total += bucketCounts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        final long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += bucketCounts[i];
+            if (cumulative >= target) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+
+        return getMax();
+    }
+
+    /**
+     * Returns the number of values recorded into a bucket.
+     *
+     * @param index bucket index
+     * @return number of values in the bucket
+     */
+    long getBucketCount(final int index) {
+        return counts.get(index);
+    }
+
+    /**
+     * Clears all values recorded.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        min.set(Long.MAX_VALUE);
+        max.set(0);
+    }
+
+    static int indexOf(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        final int exponent = (Long.SIZE - 1) - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long lowestValueOf(final int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        final int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        final int subBucket = index % SUB_BUCKET_COUNT;
+
+        return (long) (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long highestValueOf(final int index) {
+        if (index == BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+
+        return lowestValueOf(index + 1) - 1;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder stringBuilder = new StringBuilder();
+
+        stringBuilder.append("Histogram{");
+        stringBuilder.append("count=");
+        stringBuilder.append(getCount());
+        stringBuilder.append(", min=");
+        stringBuilder.append(getMin());
+        stringBuilder.append(", mean=");
+        stringBuilder.append(getMean());
+        stringBuilder.append(", p50=");
+        stringBuilder.append(getValueAtPercentile(50));
+        stringBuilder.append(", p99=");
+        stringBuilder.append(getValueAtPercentile(99));
+        stringBuilder.append(", max=");
+        stringBuilder.append(getMax());
+        stringBuilder.append('}');
+
+        return stringBuilder.toString();
+    }
+
+}
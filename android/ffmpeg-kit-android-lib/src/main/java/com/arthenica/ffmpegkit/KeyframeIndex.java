@@ -0,0 +1,515 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import android.content.Context;
+
+import com.arthenica.smartexception.java.Exceptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+/**
+ * <p>Packet and keyframe index of the first video stream of a local media file.
+ *
+ * <p>An index is built once by reading packets with <code>FFprobe</code> and stored in a binary
+ * file under the <code>keyframes</code> directory of the application cache. Stored indexes are
+ * memory mapped when loaded and rebuilt automatically when size or modification time of the
+ * media file changes.
+ * <pre>
+ * KeyframeIndex index = KeyframeIndex.get(context, "/sdcard/video.mp4");
+ * int keyframe = index.findKeyframeBefore(index.toPts(12.5));
+ * long seekPosition = index.getKeyframe(keyframe).getPosition();
+ * </pre>
+ *
+ * <p>Index files are little endian and consist of a fixed size header, a packet table in
+ * decoding order and a keyframe table sorted by presentation timestamp. Each packet entry holds
+ * pts, dts, byte offset, size, stream index and flags; each keyframe entry holds pts and the
+ * position of its packet.
+ */
+public class KeyframeIndex {
+
+    /**
+     * "FKKI" in little endian.
+     */
+    static final int MAGIC = 0x494B4B46;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 48;
+    static final int PACKET_ENTRY_SIZE = 32;
+    static final int KEYFRAME_ENTRY_SIZE = 12;
+
+    private static final String INDEX_DIRECTORY = "keyframes";
+    private static final String INDEX_EXTENSION = ".kfi";
+    private static final int WRITE_BUFFER_SIZE = 65536;
+
+    private final ByteBuffer buffer;
+    private final long sourceSize;
+    private final long sourceLastModified;
+    private final int timeBaseNumerator;
+    private final int timeBaseDenominator;
+    private final int packetCount;
+    private final int keyframeCount;
+    private final int keyframeTableOffset;
+
+    private KeyframeIndex(final ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.sourceSize = buffer.getLong(8);
+        this.sourceLastModified = buffer.getLong(16);
+        this.timeBaseNumerator = buffer.getInt(24);
+        this.timeBaseDenominator = buffer.getInt(28);
+        this.packetCount = buffer.getInt(32);
+        this.keyframeCount = buffer.getInt(36);
+        this.keyframeTableOffset = HEADER_SIZE + packetCount * PACKET_ENTRY_SIZE;
+    }
+
+    /**
+     * <p>Returns the keyframe index of the given media file. A stored index is used if it is
+     * still valid, otherwise a new index is built and stored, which reads all packets of the
+     * file.
+     *
+     * @param context application context
+     * @param path    path of a local media file
+     * @return keyframe index or null if the file does not have a video stream or an error occurs
+     */
+    public static KeyframeIndex get(final Context context, final String path) {
+        final File source = new File(path);
+        if (!source.isFile()) {
+            android.util.Log.e(FFmpegKitConfig.TAG, String.format("Keyframe index can not be created for %s. Only local files are supported.", path));
+            return null;
+        }
+
+        final File indexDirectory = new File(context.getCacheDir(), INDEX_DIRECTORY);
+        if (!indexDirectory.exists() && !indexDirectory.mkdirs()) {
+            android.util.Log.e(FFmpegKitConfig.TAG, String.format("Failed to create keyframe index directory: %s.", indexDirectory.getAbsolutePath()));
+            return null;
+        }
+
+        final File indexFile = new File(indexDirectory, indexFileName(source));
+        try {
+            final KeyframeIndex storedIndex = load(indexFile, source.length(), source.lastModified());
+            if (storedIndex != null) {
+                return storedIndex;
+            }
+
+            if (build(context, source, indexFile)) {
+                return load(indexFile, source.length(), source.lastModified());
+            }
+        } catch (final IOException e) {
+            android.util.Log.e(FFmpegKitConfig.TAG, String.format("Failed to create keyframe index for %s.%s", path, Exceptions.getStackTraceString(e)));
+        }
+
+        return null;
+    }
+
+    /**
+     * <p>Deletes the stored keyframe index of the given media file.
+     *
+     * @param context application context
+     * @param path    path of a local media file
+     */
+    public static void delete(final Context context, final String path) {
+        final File indexFile = new File(new File(context.getCacheDir(), INDEX_DIRECTORY), indexFileName(new File(path)));
+        if (indexFile.exists()) {
+            indexFile.delete();
+        }
+    }
+
+    /**
+     * <p>Loads and maps a stored keyframe index.
+     *
+     * @param indexFile          stored keyframe index file
+     * @param sourceSize         current size of the media file
+     * @param sourceLastModified current modification time of the media file
+     * @return keyframe index or null if index file does not exist or belongs to a different
+     * version of the media file
+     * @throws IOException if index file can not be read
+     */
+    static KeyframeIndex load(final File indexFile, final long sourceSize, final long sourceLastModified) throws IOException {
+        if (!indexFile.isFile() || indexFile.length() < HEADER_SIZE) {
+            return null;
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(indexFile, "r"); FileChannel channel = file.getChannel()) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                return null;
+            }
+
+            final KeyframeIndex index = new KeyframeIndex(buffer);
+            final long expectedSize = (long) index.keyframeTableOffset + (long) index.keyframeCount * KEYFRAME_ENTRY_SIZE;
+            if (index.sourceSize != sourceSize || index.sourceLastModified != sourceLastModified || channel.size() != expectedSize) {
+                return null;
+            }
+
+            return index;
+        }
+    }
+
+    private static boolean build(final Context context, final File source, final File indexFile) throws IOException {
+        final String path = source.getAbsolutePath();
+        final long sourceSize = source.length();
+        final long sourceLastModified = source.lastModified();
+
+        final int[] timeBase = videoTimeBase(path);
+        if (timeBase == null) {
+            android.util.Log.e(FFmpegKitConfig.TAG, String.format("Keyframe index can not be created for %s. Video stream not found.", path));
+            return false;
+        }
+
+        final File temporaryFile = new File(indexFile.getParentFile(), indexFile.getName() + "." + Thread.currentThread().getId() + ".tmp");
+        boolean moved = false;
+        try {
+            try (Writer writer = new Writer(temporaryFile)) {
+                final FFprobeSession session = FFprobeKit.probeRecords(context, path, "v:0", ProbeRecord.Type.PACKET, writer);
+                if (session == null || !ReturnCode.isSuccess(session.getReturnCode()) || writer.failure != null) {
+                    android.util.Log.e(FFmpegKitConfig.TAG, String.format("Failed to read packets of %s.%s", path, writer.failure == null ? "" : Exceptions.getStackTraceString(writer.failure)));
+                    return false;
+                }
+
+                writer.finish(sourceSize, sourceLastModified, timeBase[0], timeBase[1]);
+            }
+
+            moved = temporaryFile.renameTo(indexFile);
+            if (!moved) {
+                throw new IOException(String.format("Failed to move keyframe index to %s.", indexFile.getAbsolutePath()));
+            }
+
+            return true;
+        } finally {
+
+            // TEMPORARY FILE IS LEFT ONLY WHEN IT BECAME THE INDEX
+            if (!moved) {
+                temporaryFile.delete();
+            }
+        }
+    }
+
+    private static int[] videoTimeBase(final String path) {
+        final MediaInformationSession session = FFprobeKit.getMediaInformationFast(path, EnumSet.of(MediaInformationField.STREAM_TIME_BASE));
+        final MediaInformation mediaInformation = session.getMediaInformation();
+        if (mediaInformation == null) {
+            return null;
+        }
+
+        for (StreamInformation stream : mediaInformation.getStreams()) {
+            if ("video".equals(stream.getType()) && stream.getTimeBase() != null) {
+                final String[] parts = stream.getTimeBase().split("/");
+                if (parts.length == 2) {
+                    try {
+                        return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+                    } catch (final NumberFormatException e) {
+                        return null;
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static String indexFileName(final File source) {
+        final String path = source.getAbsolutePath();
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(path.getBytes());
+            final StringBuilder name = new StringBuilder();
+            for (byte b : digest) {
+                name.append(String.format("%02x", b & 0xFF));
+            }
+            return name.append(INDEX_EXTENSION).toString();
+        } catch (final NoSuchAlgorithmException e) {
+            return Integer.toHexString(path.hashCode()) + INDEX_EXTENSION;
+        }
+    }
+
+    /**
+     * <p>Writes packets received into an index file. Packet entries are streamed into the file
+     * as they arrive, only keyframe entries are kept in memory until the end.
+     */
+    static class Writer implements ProbeRecordCallback, AutoCloseable {
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final ByteBuffer writeBuffer;
+        private long[] keyframePts;
+        private int[] keyframePackets;
+        private int packetCount;
+        private int keyframeCount;
+        private IOException failure;
+
+        Writer(final File indexFile) throws IOException {
+            this.file = new RandomAccessFile(indexFile, "rw");
+            this.file.setLength(0);
+            this.channel = file.getChannel();
+            this.channel.position(HEADER_SIZE);
+            this.writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            this.keyframePts = new long[64];
+            this.keyframePackets = new int[64];
+        }
+
+        @Override
+        public void apply(final ProbeRecord record) {
+            if (failure != null) {
+                return;
+            }
+
+            try {
+                if (writeBuffer.remaining() < PACKET_ENTRY_SIZE) {
+                    flush();
+                }
+                writeBuffer.putLong(record.getPts());
+                writeBuffer.putLong(record.getDts());
+                writeBuffer.putLong(record.getPosition());
+                writeBuffer.putInt(record.getSize());
+                writeBuffer.putInt((record.getStreamIndex() << 16) | (record.getFlags() & 0xFFFF));
+
+                final long pts = (record.getPts() != ProbeRecord.NO_VALUE) ? record.getPts() : record.getDts();
+                if (record.isKeyFrame() && pts != ProbeRecord.NO_VALUE) {
+                    addKeyframe(pts, packetCount);
+                }
+
+                packetCount++;
+            } catch (final IOException e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * Keyframes arrive in decoding order, which is almost always presentation order too. So
+         * insertion keeps the table sorted in linear time for typical inputs.
+         */
+        private void addKeyframe(final long pts, final int packetIndex) {
+            if (keyframeCount == keyframePts.length) {
+                keyframePts = Arrays.copyOf(keyframePts, keyframeCount * 2);
+                keyframePackets = Arrays.copyOf(keyframePackets, keyframeCount * 2);
+            }
+
+            int position = keyframeCount;
+            while (position > 0 && keyframePts[position - 1] > pts) {
+                keyframePts[position] = keyframePts[position - 1];
+                keyframePackets[position] = keyframePackets[position - 1];
+                position--;
+            }
+            keyframePts[position] = pts;
+            keyframePackets[position] = packetIndex;
+            keyframeCount++;
+        }
+
+        void finish(final long sourceSize, final long sourceLastModified, final int timeBaseNumerator, final int timeBaseDenominator) throws IOException {
+            for (int i = 0; i < keyframeCount; i++) {
+                if (writeBuffer.remaining() < KEYFRAME_ENTRY_SIZE) {
+                    flush();
+                }
+                writeBuffer.putLong(keyframePts[i]);
+                writeBuffer.putInt(keyframePackets[i]);
+            }
+            flush();
+
+            writeBuffer.putInt(MAGIC);
+            writeBuffer.putInt(VERSION);
+            writeBuffer.putLong(sourceSize);
+            writeBuffer.putLong(sourceLastModified);
+            writeBuffer.putInt(timeBaseNumerator);
+            writeBuffer.putInt(timeBaseDenominator);
+            writeBuffer.putInt(packetCount);
+            writeBuffer.putInt(keyframeCount);
+            while (writeBuffer.position() < HEADER_SIZE) {
+                writeBuffer.put((byte) 0);
+            }
+            writeBuffer.flip();
+            while (writeBuffer.hasRemaining()) {
+                channel.write(writeBuffer, HEADER_SIZE - writeBuffer.remaining());
+            }
+            writeBuffer.clear();
+
+            channel.force(false);
+        }
+
+        private void flush() throws IOException {
+            writeBuffer.flip();
+            while (writeBuffer.hasRemaining()) {
+                channel.write(writeBuffer);
+            }
+            writeBuffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+
+    public long getSourceSize() {
+        return sourceSize;
+    }
+
+    public long getSourceLastModified() {
+        return sourceLastModified;
+    }
+
+    public int getTimeBaseNumerator() {
+        return timeBaseNumerator;
+    }
+
+    public int getTimeBaseDenominator() {
+        return timeBaseDenominator;
+    }
+
+    public int getPacketCount() {
+        return packetCount;
+    }
+
+    public int getKeyframeCount() {
+        return keyframeCount;
+    }
+
+    /**
+     * Returns the packet at the given position in decoding order.
+     *
+     * @param packetIndex packet position, between 0 and {@link #getPacketCount()}
+     * @return packet entry
+     */
+    public ProbeRecord getPacket(final int packetIndex) {
+        if (packetIndex < 0 || packetIndex >= packetCount) {
+            throw new IndexOutOfBoundsException(String.format("Packet %d not found in %d packets.", packetIndex, packetCount));
+        }
+
+        final int offset = HEADER_SIZE + packetIndex * PACKET_ENTRY_SIZE;
+        final int streamIndexAndFlags = buffer.getInt(offset + 28);
+        return new ProbeRecord(ProbeRecord.Type.PACKET, streamIndexAndFlags >>> 16, buffer.getLong(offset), buffer.getLong(offset + 8), buffer.getInt(offset + 24), buffer.getLong(offset + 16), streamIndexAndFlags & 0xFFFF, '?');
+    }
+
+    /**
+     * Returns the keyframe at the given position in presentation order.
+     *
+     * @param keyframeIndex keyframe position, between 0 and {@link #getKeyframeCount()}
+     * @return packet entry of the keyframe
+     */
+    public ProbeRecord getKeyframe(final int keyframeIndex) {
+        return getPacket(keyframePacket(keyframeIndex));
+    }
+
+    /**
+     * Returns presentation timestamp of the keyframe at the given position.
+     *
+     * @param keyframeIndex keyframe position, between 0 and {@link #getKeyframeCount()}
+     * @return presentation timestamp in stream time base units
+     */
+    public long getKeyframePts(final int keyframeIndex) {
+        if (keyframeIndex < 0 || keyframeIndex >= keyframeCount) {
+            throw new IndexOutOfBoundsException(String.format("Keyframe %d not found in %d keyframes.", keyframeIndex, keyframeCount));
+        }
+
+        return buffer.getLong(keyframeTableOffset + keyframeIndex * KEYFRAME_ENTRY_SIZE);
+    }
+
+    private int keyframePacket(final int keyframeIndex) {
+        if (keyframeIndex < 0 || keyframeIndex >= keyframeCount) {
+            throw new IndexOutOfBoundsException(String.format("Keyframe %d not found in %d keyframes.", keyframeIndex, keyframeCount));
+        }
+
+        return buffer.getInt(keyframeTableOffset + keyframeIndex * KEYFRAME_ENTRY_SIZE + 8);
+    }
+
+    /**
+     * Finds the last keyframe presented at or before the given timestamp.
+     *
+     * @param pts presentation timestamp in stream time base units
+     * @return keyframe position or -1 if all keyframes are presented after the given timestamp
+     */
+    public int findKeyframeBefore(final long pts) {
+        int low = 0;
+        int high = keyframeCount - 1;
+        int found = -1;
+
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            if (getKeyframePts(middle) <= pts) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Finds the first keyframe presented at or after the given timestamp.
+     *
+     * @param pts presentation timestamp in stream time base units
+     * @return keyframe position or -1 if all keyframes are presented before the given timestamp
+     */
+    public int findKeyframeAfter(final long pts) {
+        final int before = findKeyframeBefore(pts);
+        if (before >= 0 && getKeyframePts(before) == pts) {
+            return before;
+        }
+
+        return (before + 1 < keyframeCount) ? before + 1 : -1;
+    }
+
+    /**
+     * Finds the keyframe presented closest to the given timestamp.
+     *
+     * @param pts presentation timestamp in stream time base units
+     * @return keyframe position or -1 if there are no keyframes
+     */
+    public int findNearestKeyframe(final long pts) {
+        final int before = findKeyframeBefore(pts);
+        final int after = findKeyframeAfter(pts);
+        if (before < 0) {
+            return after;
+        }
+        if (after < 0) {
+            return before;
+        }
+
+        return (pts - getKeyframePts(before) <= getKeyframePts(after) - pts) ? before : after;
+    }
+
+    /**
+     * Converts a time in seconds into stream time base units.
+     *
+     * @param seconds time in seconds
+     * @return timestamp in stream time base units
+     */
+    public long toPts(final double seconds) {
+        return Math.round(seconds * timeBaseDenominator / timeBaseNumerator);
+    }
+
+    /**
+     * Converts a timestamp in stream time base units into seconds.
+     *
+     * @param pts timestamp in stream time base units
+     * @return time in seconds
+     */
+    public double toSeconds(final long pts) {
+        return ((double) pts) * timeBaseNumerator / timeBaseDenominator;
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+/**
+ * <p>Lists media information fields that can be requested individually from
+ * {@link FFprobeKit#getMediaInformationFast(String, java.util.Collection)}.
+ */
+public enum MediaInformationField {
+
+    FORMAT_NAME(Section.FORMAT, MediaInformation.KEY_FORMAT),
+    FORMAT_LONG_NAME(Section.FORMAT, MediaInformation.KEY_FORMAT_LONG),
+    START_TIME(Section.FORMAT, MediaInformation.KEY_START_TIME),
+    DURATION(Section.FORMAT, MediaInformation.KEY_DURATION),
+    SIZE(Section.FORMAT, MediaInformation.KEY_SIZE),
+    BIT_RATE(Section.FORMAT, MediaInformation.KEY_BIT_RATE),
+    FORMAT_TAGS(Section.FORMAT, MediaInformation.KEY_TAGS),
+
+    STREAM_CODEC(Section.STREAM, StreamInformation.KEY_CODEC),
+    STREAM_CODEC_LONG(Section.STREAM, StreamInformation.KEY_CODEC_LONG),
+    STREAM_PIXEL_FORMAT(Section.STREAM, StreamInformation.KEY_FORMAT),
+    STREAM_WIDTH(Section.STREAM, StreamInformation.KEY_WIDTH),
+    STREAM_HEIGHT(Section.STREAM, StreamInformation.KEY_HEIGHT),
+    STREAM_BIT_RATE(Section.STREAM, StreamInformation.KEY_BIT_RATE),
+    STREAM_SAMPLE_RATE(Section.STREAM, StreamInformation.KEY_SAMPLE_RATE),
+    STREAM_SAMPLE_FORMAT(Section.STREAM, StreamInformation.KEY_SAMPLE_FORMAT),
+    STREAM_CHANNEL_LAYOUT(Section.STREAM, StreamInformation.KEY_CHANNEL_LAYOUT),
+    STREAM_SAMPLE_ASPECT_RATIO(Section.STREAM, StreamInformation.KEY_SAMPLE_ASPECT_RATIO),
+    STREAM_DISPLAY_ASPECT_RATIO(Section.STREAM, StreamInformation.KEY_DISPLAY_ASPECT_RATIO),
+    STREAM_AVERAGE_FRAME_RATE(Section.STREAM, StreamInformation.KEY_AVERAGE_FRAME_RATE),
+    STREAM_REAL_FRAME_RATE(Section.STREAM, StreamInformation.KEY_REAL_FRAME_RATE),
+    STREAM_TIME_BASE(Section.STREAM, StreamInformation.KEY_TIME_BASE),
+    STREAM_DURATION(Section.STREAM, MediaInformation.KEY_DURATION),
+    STREAM_TAGS(Section.STREAM, StreamInformation.KEY_TAGS);
+
+    /**
+     * <p>FFprobe sections that fields belong to.
+     */
+    public enum Section {
+        FORMAT("format"),
+        STREAM("stream");
+
+        private final String name;
+
+        Section(final String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final Section section;
+    private final String key;
+
+    MediaInformationField(final Section section, final String key) {
+        this.section = section;
+        this.key = key;
+    }
+
+    public Section getSection() {
+        return section;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Value of a single metric inside a {@link MetricsSnapshot}.
+ *
+ * <p>Counters and gauges have a single value. Summaries have a count, a sum and values at
+ * {@link #QUANTILES}, all scaled to the unit of the metric.
+ */
+public class MetricSample {
+
+    /**
+     * Quantiles reported for summaries.
+     */
+    public static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final String name;
+    private final String help;
+    private final MetricType type;
+    private final Map<String, String> labels;
+    private final double value;
+    private final long count;
+    private final double sum;
+    private final double[] quantileValues;
+
+    MetricSample(final String name, final String help, final MetricType type, final String[] labels, final double value, final long count, final double sum, final double[] quantileValues) {
+        this.name = name;
+        this.help = help;
+        this.type = type;
+
+        final Map<String, String> labelMap = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            labelMap.put(labels[i], labels[i + 1]);
+        }
+        this.labels = Collections.unmodifiableMap(labelMap);
+
+        this.value = value;
+        this.count = count;
+        this.sum = sum;
+        this.quantileValues = quantileValues;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getHelp() {
+        return help;
+    }
+
+    public MetricType getType() {
+        return type;
+    }
+
+    public Map<String, String> getLabels() {
+        return labels;
+    }
+
+    /**
+     * Returns the value of a counter or gauge. For summaries the number of observations is
+     * returned.
+     *
+     * @return metric value
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the number of observations of a summary.
+     *
+     * @return number of observations, zero for counters and gauges
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the sum of observations of a summary.
+     *
+     * @return sum of observations, zero for counters and gauges
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns the value of a summary at the quantile with the given index in
+     * {@link #QUANTILES}.
+     *
+     * @param index quantile index
+     * @return value at the quantile
+     */
+    public double getQuantileValue(final int index) {
+        return (quantileValues == null) ? 0 : quantileValues[index];
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder stringBuilder = new StringBuilder();
+
+        stringBuilder.append("MetricSample{");
+        stringBuilder.append("name=");
+        stringBuilder.append(name);
+        stringBuilder.append(", type=");
+        stringBuilder.append(type);
+        stringBuilder.append(", labels=");
+        stringBuilder.append(labels);
+        stringBuilder.append(", value=");
+        stringBuilder.append(value);
+        if (type == MetricType.SUMMARY) {
+            stringBuilder.append(", sum=");
+            stringBuilder.append(sum);
+        }
+        stringBuilder.append('}');
+
+        return stringBuilder.toString();
+    }
+
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import com.arthenica.smartexception.java.Exceptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Keeps named counters, gauges and histograms and takes snapshots of them.
+ *
+ * <p>A metric is identified by its name and labels. Labels are given as name and value pairs,
+ * for example <code>counter("requests_total", "Requests.", "type", "ffmpeg")</code>. All metrics
+ * sharing a name must have the same type. Updating a registered counter or histogram does not
+ * access the registry and does not take any locks.
+ *
+ * <p>{@link FFmpegKitConfig#getMetricsRegistry()} returns the registry that holds FFmpegKit's
+ * own metrics; applications can register their own metrics into it or create separate
+ * registries.
+ */
+public class MetricsRegistry {
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final Pattern LABEL_NAME_PATTERN = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+
+    private final ConcurrentMap<String, Metric> metrics;
+    private final ConcurrentMap<String, MetricType> types;
+
+    public MetricsRegistry() {
+        this.metrics = new ConcurrentHashMap<>();
+        this.types = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the counter with the given name and labels, registering it if it does not exist.
+     *
+     * @param name   metric name
+     * @param help   metric description
+     * @param labels label names and values
+     * @return counter registered
+     */
+    public Counter counter(final String name, final String help, final String... labels) {
+        final Counter counter = new Counter();
+        final Metric metric = register(new Metric(name, help, MetricType.COUNTER, labels, counter, null, null, 1), false);
+        if (metric.counter == null) {
+            throw new IllegalArgumentException(String.format("Counter %s is registered with a value function.", name));
+        }
+
+        return metric.counter;
+    }
+
+    /**
+     * Registers a counter whose value is kept elsewhere, replacing the counter registered with
+     * the same name and labels. The value read must never decrease.
+     *
+     * @param name   metric name
+     * @param help   metric description
+     * @param value  function returning the counter value
+     * @param labels label names and values
+     */
+    public void counter(final String name, final String help, final Gauge value, final String... labels) {
+        if (value == null) {
+            throw new IllegalArgumentException("Counter value function can not be null.");
+        }
+        register(new Metric(name, help, MetricType.COUNTER, labels, null, value, null, 1), true);
+    }
+
+    /**
+     * Registers a gauge, replacing the gauge registered with the same name and labels.
+     *
+     * @param name   metric name
+     * @param help   metric description
+     * @param gauge  gauge read when a snapshot is taken
+     * @param labels label names and values
+     */
+    public void gauge(final String name, final String help, final Gauge gauge, final String... labels) {
+        if (gauge == null) {
+            throw new IllegalArgumentException("Gauge can not be null.");
+        }
+        register(new Metric(name, help, MetricType.GAUGE, labels, null, gauge, null, 1), true);
+    }
+
+    /**
+     * Registers a histogram as a summary, replacing the histogram registered with the same name
+     * and labels. Recorded values are multiplied by scale when a snapshot is taken, which
+     * allows exporting nanosecond values in seconds.
+     *
+     * @param name      metric name
+     * @param help      metric description
+     * @param histogram histogram to export
+     * @param scale     factor applied to histogram values
+     * @param labels    label names and values
+     */
+    public void histogram(final String name, final String help, final Histogram histogram, final double scale, final String... labels) {
+        if (histogram == null) {
+            throw new IllegalArgumentException("Histogram can not be null.");
+        }
+        register(new Metric(name, help, MetricType.SUMMARY, labels, null, null, histogram, scale), true);
+    }
+
+    /**
+     * Removes the metric with the given name and labels.
+     *
+     * @param name   metric name
+     * @param labels label names and values
+     * @return true if a metric is removed, false if it was not registered
+     */
+    public boolean remove(final String name, final String... labels) {
+        return (metrics.remove(keyOf(name, labels)) != null);
+    }
+
+    /**
+     * Reads all metrics registered. Gauges that throw an exception are reported as NaN.
+     *
+     * @return snapshot of metrics
+     */
+    public MetricsSnapshot snapshot() {
+        final List<Metric> metricList = new ArrayList<>(metrics.values());
+        Collections.sort(metricList, METRIC_ORDER);
+
+        final List<MetricSample> samples = new ArrayList<>(metricList.size());
+        for (Metric metric : metricList) {
+            samples.add(metric.sample());
+        }
+
+        return new MetricsSnapshot(System.currentTimeMillis(), samples);
+    }
+
+    /**
+     * Orders metrics by name, then by labels.
+     */
+    private static final Comparator<Metric> METRIC_ORDER = new Comparator<Metric>() {
+
+        @Override
+        public int compare(final Metric first, final Metric second) {
+            final int nameOrder = first.name.compareTo(second.name);
+            return (nameOrder != 0) ? nameOrder : first.key.compareTo(second.key);
+        }
+    };
+
+    private Metric register(final Metric metric, final boolean replace) {
+        final MetricType registeredType = types.putIfAbsent(metric.name, metric.type);
+        if (registeredType != null && registeredType != metric.type) {
+            throw new IllegalArgumentException(String.format("Metric %s is already registered as %s.", metric.name, registeredType));
+        }
+
+        if (replace) {
+            metrics.put(metric.key, metric);
+            return metric;
+        }
+
+        final Metric registered = metrics.putIfAbsent(metric.key, metric);
+        return (registered != null) ? registered : metric;
+    }
+
+    private static String keyOf(final String name, final String[] labels) {
+        final StringBuilder key = new StringBuilder(name);
+        for (String label : labels) {
+            key.append('\0');
+            key.append(label);
+        }
+
+        return key.toString();
+    }
+
+    private static class Metric {
+        final String name;
+        final String help;
+        final MetricType type;
+        final String[] labels;
+        final String key;
+        final Counter counter;
+        final Gauge gauge;
+        final Histogram histogram;
+        final double scale;
+
+        Metric(final String name, final String help, final MetricType type, final String[] labels, final Counter counter, final Gauge gauge, final Histogram histogram, final double scale) {
+            if (name == null || !NAME_PATTERN.matcher(name).matches()) {
+                throw new IllegalArgumentException(String.format("Invalid metric name %s.", name));
+            }
+            if (labels == null || labels.length % 2 != 0) {
+                throw new IllegalArgumentException(String.format("Labels of metric %s must be name and value pairs.", name));
+            }
+            for (int i = 0; i < labels.length; i += 2) {
+                if (labels[i] == null || !LABEL_NAME_PATTERN.matcher(labels[i]).matches() || labels[i].startsWith("__") || labels[i].equals("quantile")) {
+                    throw new IllegalArgumentException(String.format("Invalid label name %s for metric %s.", labels[i], name));
+                }
+                if (labels[i + 1] == null) {
+                    throw new IllegalArgumentException(String.format("Label %s of metric %s has no value.", labels[i], name));
+                }
+            }
+
+            this.name = name;
+            this.help = (help == null) ? "" : help;
+            this.type = type;
+            this.labels = Arrays.copyOf(labels, labels.length);
+            this.key = keyOf(name, labels);
+            this.counter = counter;
+            this.gauge = gauge;
+            this.histogram = histogram;
+            this.scale = scale;
+        }
+
+        MetricSample sample() {
+            switch (type) {
+                case COUNTER:
+                    // COUNTERS KEPT ELSEWHERE ARE READ LIKE GAUGES
+                    return new MetricSample(name, help, type, labels, (counter != null) ? counter.get() : readGauge(), 0, 0, null);
+                case GAUGE:
+                    return new MetricSample(name, help, type, labels, readGauge(), 0, 0, null);
+                default:
+                    final long count = histogram.getCount();
+                    final double[] quantileValues = new double[MetricSample.QUANTILES.length];
+                    for (int i = 0; i < quantileValues.length; i++) {
+                        quantileValues[i] = histogram.getValueAtPercentile(MetricSample.QUANTILES[i] * 100) * scale;
+                    }
+                    return new MetricSample(name, help, type, labels, count, count, histogram.getSum() * scale, quantileValues);
+            }
+        }
+
+        private double readGauge() {
+            try {
+                return gauge.getValue();
+            } catch (final Exception e) {
+                android.util.Log.w(FFmpegKitConfig.TAG, String.format("Metric %s failed to read its value.%s", name, Exceptions.getStackTraceString(e)));
+                return Double.NaN;
+            }
+        }
+    }
+
+}
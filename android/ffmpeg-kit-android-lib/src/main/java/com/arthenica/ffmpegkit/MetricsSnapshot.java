@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Values of all metrics of a {@link MetricsRegistry} at a point in time. Samples are sorted
+ * by name, so samples of the same metric are adjacent.
+ */
+public class MetricsSnapshot {
+
+    private final long time;
+    private final List<MetricSample> samples;
+
+    MetricsSnapshot(final long time, final List<MetricSample> samples) {
+        this.time = time;
+        this.samples = Collections.unmodifiableList(samples);
+    }
+
+    /**
+     * Returns the time the snapshot was taken.
+     *
+     * @return time in milliseconds since epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public List<MetricSample> getSamples() {
+        return samples;
+    }
+
+    /**
+     * Returns samples of the metric with the given name.
+     *
+     * @param name metric name
+     * @return samples of the metric, an empty list if there is no such metric
+     */
+    public List<MetricSample> getSamples(final String name) {
+        final List<MetricSample> namedSamples = new ArrayList<>();
+        for (MetricSample sample : samples) {
+            if (sample.getName().equals(name)) {
+                namedSamples.add(sample);
+            }
+        }
+
+        return namedSamples;
+    }
+
+    /**
+     * Returns the sample of the metric with the given name and labels.
+     *
+     * @param name   metric name
+     * @param labels label names and values, in the order they are registered
+     * @return sample found or null if there is no such metric
+     */
+    public MetricSample getSample(final String name, final String... labels) {
+        for (MetricSample sample : samples) {
+            if (sample.getName().equals(name) && sample.getLabels().size() * 2 == labels.length) {
+                boolean matches = true;
+                for (int i = 0; i + 1 < labels.length; i += 2) {
+                    if (!labels[i + 1].equals(sample.getLabels().get(labels[i]))) {
+                        matches = false;
+                        break;
+                    }
+                }
+                if (matches) {
+                    return sample;
+                }
+            }
+        }
+
+        return null;
+    }
+
+}
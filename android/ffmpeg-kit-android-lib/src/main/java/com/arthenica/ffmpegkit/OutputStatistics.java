@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+/**
+ * <p>Progress of each output file and output stream of an FFmpeg session, delivered with every
+ * {@link Statistics} entry.
+ *
+ * <p>Values are kept in the primitive array received from the native library and read through
+ * index based accessors, so no objects are created for each stream. Streams are indexed from
+ * <code>0</code> to <code>getStreamCount() - 1</code> in the order outputs are defined.
+ */
+public class OutputStatistics {
+
+    /**
+     * Number of values reported for each stream.
+     */
+    static final int STREAM_FIELDS = 9;
+
+    private static final int FILE_INDEX = 0;
+    private static final int STREAM_INDEX = 1;
+    private static final int MEDIA_TYPE = 2;
+    private static final int FRAMES = 3;
+    private static final int BYTES = 4;
+    private static final int DTS = 5;
+    private static final int QUALITY = 6;
+    private static final int DUPLICATED_FRAMES = 7;
+    private static final int DROPPED_FRAMES = 8;
+
+    private final long[] values;
+    private final int streamOffset;
+
+    OutputStatistics(final long[] values, final int streamOffset) {
+        this.values = values;
+        this.streamOffset = streamOffset;
+    }
+
+    /**
+     * Creates output statistics from native values.
+     *
+     * @param values native values
+     * @return output statistics created or null if values are not valid
+     */
+    static OutputStatistics from(final long[] values) {
+        if (values == null || values.length == 0 || values[0] < 0) {
+            return null;
+        }
+
+        final long streamOffset = 1 + values[0];
+        if (streamOffset > values.length || (values.length - streamOffset) % STREAM_FIELDS != 0) {
+            return null;
+        }
+
+        return new OutputStatistics(values, (int) streamOffset);
+    }
+
+    public int getFileCount() {
+        return streamOffset - 1;
+    }
+
+    /**
+     * Returns the size of the output file.
+     *
+     * @param fileIndex output file index
+     * @return file size in bytes or a negative value if it is not known
+     */
+    public long getFileSize(final int fileIndex) {
+        return values[1 + fileIndex];
+    }
+
+    public int getStreamCount() {
+        return (values.length - streamOffset) / STREAM_FIELDS;
+    }
+
+    /**
+     * Returns the position of the given output stream.
+     *
+     * @param fileIndex   output file index
+     * @param streamIndex stream index inside the output file
+     * @return position of the stream or -1 if it is not found
+     */
+    public int indexOf(final int fileIndex, final int streamIndex) {
+        for (int i = 0; i < getStreamCount(); i++) {
+            if (getFileIndex(i) == fileIndex && getStreamIndex(i) == streamIndex) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    public int getFileIndex(final int i) {
+        return (int) value(i, FILE_INDEX);
+    }
+
+    public int getStreamIndex(final int i) {
+        return (int) value(i, STREAM_INDEX);
+    }
+
+    /**
+     * Returns the media type of the stream.
+     *
+     * @param i stream position
+     * @return media type; video, audio, data, subtitle, attachment or null if it is unknown
+     */
+    public String getType(final int i) {
+        switch ((int) value(i, MEDIA_TYPE)) {
+            case 0:
+                return "video";
+            case 1:
+                return "audio";
+            case 2:
+                return "data";
+            case 3:
+                return "subtitle";
+            case 4:
+                return "attachment";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns the number of packets written for the stream, which is the number of frames for
+     * video streams.
+     *
+     * @param i stream position
+     * @return number of packets written
+     */
+    public long getFrames(final int i) {
+        return value(i, FRAMES);
+    }
+
+    public long getBytes(final int i) {
+        return value(i, BYTES);
+    }
+
+    /**
+     * Returns the timestamp of the last packet written for the stream.
+     *
+     * @param i stream position
+     * @return time in milliseconds or NaN if no packets are written yet
+     */
+    public double getTime(final int i) {
+        final long dts = value(i, DTS);
+        return (dts == Long.MIN_VALUE) ? Double.NaN : dts / 1000.0;
+    }
+
+    /**
+     * Returns the quality of the last encoded packet.
+     *
+     * @param i stream position
+     * @return quality or -1 if the stream is not encoded
+     */
+    public float getQuality(final int i) {
+        return Float.intBitsToFloat((int) value(i, QUALITY));
+    }
+
+    public long getDuplicatedFrames(final int i) {
+        return value(i, DUPLICATED_FRAMES);
+    }
+
+    public long getDroppedFrames(final int i) {
+        return value(i, DROPPED_FRAMES);
+    }
+
+    private long value(final int i, final int field) {
+        if (i < 0 || i >= getStreamCount()) {
+            throw new IndexOutOfBoundsException(String.format("Stream %d is not in range [0, %d).", i, getStreamCount()));
+        }
+
+        return values[streamOffset + i * STREAM_FIELDS + field];
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder stringBuilder = new StringBuilder();
+
+        stringBuilder.append("OutputStatistics{");
+        stringBuilder.append("fileSizes=[");
+        for (int i = 0; i < getFileCount(); i++) {
+            if (i > 0) {
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append(getFileSize(i));
+        }
+        stringBuilder.append("], streams=[");
+        for (int i = 0; i < getStreamCount(); i++) {
+            if (i > 0) {
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append(getFileIndex(i));
+            stringBuilder.append(':');
+            stringBuilder.append(getStreamIndex(i));
+            stringBuilder.append("{type=");
+            stringBuilder.append(getType(i));
+            stringBuilder.append(", frames=");
+            stringBuilder.append(getFrames(i));
+            stringBuilder.append(", bytes=");
+            stringBuilder.append(getBytes(i));
+            stringBuilder.append(", time=");
+            stringBuilder.append(getTime(i));
+            stringBuilder.append(", quality=");
+            stringBuilder.append(getQuality(i));
+            stringBuilder.append(", dup=");
+            stringBuilder.append(getDuplicatedFrames(i));
+            stringBuilder.append(", drop=");
+            stringBuilder.append(getDroppedFrames(i));
+            stringBuilder.append('}');
+        }
+        stringBuilder.append("]}");
+
+        return stringBuilder.toString();
+    }
+
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import android.os.Build;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+
+import com.arthenica.smartexception.java.Exceptions;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Feeds a file into a pipe created by {@link FFmpegKitConfig#registerNewFFmpegPipe}.
+ *
+ * <p>Data is copied using {@link FileChannel#transferTo}, which lets the kernel move data from
+ * the file into the pipe without an additional process or a user space copy. Copy is done in
+ * chunks of the configured buffer size, so it can be cancelled between chunks.
+ * <pre>
+ * String pipe = FFmpegKitConfig.registerNewFFmpegPipe(context);
+ * FFmpegSession session = FFmpegSession.create(FFmpegKitConfig.parseArguments("-i " + pipe + " -c:v mpeg4 output.mp4"));
+ * PipeFeeder feeder = PipeFeeder.create("input.mp4", pipe, session);
+ * feeder.start();
+ * FFmpegKitConfig.asyncFFmpegExecute(session);
+ * </pre>
+ *
+ * <p>When a session is given, feeding stops as soon as the session completes or fails, including
+ * the case where the session ends before opening the pipe. Without a session, feeding fails if
+ * no reader opens the pipe within {@link #DEFAULT_OPEN_TIMEOUT} milliseconds.
+ *
+ * <p>Below API Level 21 the pipe is opened in blocking mode, so waiting for the reader can not
+ * be stopped or timed out. Once the pipe is open, {@link #cancel()} also releases a write that is
+ * blocked on a full pipe.
+ */
+public class PipeFeeder implements Runnable {
+
+    /**
+     * Default number of bytes transferred in one step.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * How long to wait between attempts to open the pipe, in milliseconds.
+     */
+    static final long OPEN_RETRY_INTERVAL = 10;
+
+    /**
+     * How long to wait for a reader when no session is given, in milliseconds.
+     */
+    public static final long DEFAULT_OPEN_TIMEOUT = 10000;
+
+    /**
+     * Opens the write end of a pipe.
+     */
+    interface PipeOpener {
+
+        /**
+         * Opens the pipe of the given feeder for writing. Closing the returned stream must close
+         * the write end of the pipe.
+         *
+         * @param pipeFeeder pipe feeder
+         * @return pipe output stream or null if feeding is stopped before a reader opens the pipe
+         * @throws IOException if the pipe can not be opened or no reader opens it in time
+         */
+        FileOutputStream open(PipeFeeder pipeFeeder) throws IOException;
+
+    }
+
+    /**
+     * Opens pipes in non-blocking mode from API Level 21 and in blocking mode below it.
+     */
+    static final PipeOpener DEFAULT_PIPE_OPENER = new PipeOpener() {
+
+        @Override
+        public FileOutputStream open(final PipeFeeder pipeFeeder) throws IOException {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+                return new FileOutputStream(pipeFeeder.pipePath);
+            }
+
+            return NonBlockingOpen.open(pipeFeeder);
+        }
+    };
+
+    private final String inputPath;
+    private final String pipePath;
+    private final int bufferSize;
+    private final Session session;
+    private final PipeOpener pipeOpener;
+    private final AtomicLong bytesTransferred;
+    private volatile FileChannel sourceChannel;
+    private volatile FileChannel pipeChannel;
+    private volatile boolean cancelled;
+    private volatile long startTime;
+    private volatile long endTime;
+    private volatile ReturnCode returnCode;
+    private Thread thread;
+
+    private PipeFeeder(final String inputPath, final String pipePath, final int bufferSize, final Session session, final PipeOpener pipeOpener) {
+        this.inputPath = inputPath;
+        this.pipePath = pipePath;
+        this.bufferSize = bufferSize;
+        this.session = session;
+        this.pipeOpener = pipeOpener;
+        this.bytesTransferred = new AtomicLong();
+    }
+
+    /**
+     * <p>Creates a new pipe feeder.
+     *
+     * @param inputPath path of the file to write into the pipe
+     * @param pipePath  full path of the FFmpeg pipe
+     * @return created pipe feeder
+     */
+    public static PipeFeeder create(final String inputPath, final String pipePath) {
+        return create(inputPath, pipePath, null);
+    }
+
+    /**
+     * <p>Creates a new pipe feeder that stops when the given session ends.
+     *
+     * @param inputPath path of the file to write into the pipe
+     * @param pipePath  full path of the FFmpeg pipe
+     * @param session   session reading from the pipe
+     * @return created pipe feeder
+     */
+    public static PipeFeeder create(final String inputPath, final String pipePath, final Session session) {
+        return create(inputPath, pipePath, session, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * <p>Creates a new pipe feeder that stops when the given session ends.
+     *
+     * @param inputPath  path of the file to write into the pipe
+     * @param pipePath   full path of the FFmpeg pipe
+     * @param session    session reading from the pipe, can be null
+     * @param bufferSize maximum number of bytes transferred in one step
+     * @return created pipe feeder
+     */
+    public static PipeFeeder create(final String inputPath, final String pipePath, final Session session, final int bufferSize) {
+        return create(inputPath, pipePath, session, bufferSize, DEFAULT_PIPE_OPENER);
+    }
+
+    static PipeFeeder create(final String inputPath, final String pipePath, final Session session, final int bufferSize, final PipeOpener pipeOpener) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid pipe buffer size %d.", bufferSize));
+        }
+
+        return new PipeFeeder(inputPath, pipePath, bufferSize, session, pipeOpener);
+    }
+
+    /**
+     * <p>Starts feeding the pipe on a new thread.
+     */
+    public synchronized void start() {
+        if (thread == null) {
+            thread = new Thread(this, "ffmpeg-kit-pipe-feeder");
+            thread.start();
+        }
+    }
+
+    /**
+     * <p>Waits until feeding started by {@link #start()} ends.
+     *
+     * @param timeout maximum time to wait in milliseconds, zero to wait forever
+     * @return return code or null if feeding has not ended within the timeout
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public ReturnCode join(final long timeout) throws InterruptedException {
+        final Thread feederThread;
+        synchronized (this) {
+            feederThread = thread;
+        }
+
+        if (feederThread != null) {
+            feederThread.join(timeout);
+        }
+
+        return returnCode;
+    }
+
+    /**
+     * <p>Requests feeding to stop. Returns immediately.
+     */
+    public void cancel() {
+        cancelled = true;
+
+        // A BLOCKED TRANSFER IS RELEASED ONLY WHEN BOTH OF ITS CHANNELS ARE CLOSED
+        closeChannel(sourceChannel);
+        closeChannel(pipeChannel);
+    }
+
+    private void closeChannel(final FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                android.util.Log.w(FFmpegKitConfig.TAG, String.format("Failed to close channel while feeding %s to pipe %s.%s", inputPath, pipePath, Exceptions.getStackTraceString(e)));
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        startTime = System.nanoTime();
+
+        int rc = ReturnCode.SUCCESS;
+
+        try (FileInputStream inputStream = new FileInputStream(inputPath); FileChannel inputChannel = inputStream.getChannel()) {
+            final FileOutputStream outputStream = pipeOpener.open(this);
+            if (outputStream == null) {
+                rc = ReturnCode.CANCEL;
+            } else {
+                try (FileChannel channel = outputStream.getChannel()) {
+                    sourceChannel = inputChannel;
+                    pipeChannel = channel;
+
+                    final long size = inputChannel.size();
+                    long position = 0;
+
+                    while (position < size) {
+                        if (isStopRequested()) {
+                            rc = ReturnCode.CANCEL;
+                            break;
+                        }
+
+                        final long transferred = inputChannel.transferTo(position, Math.min(bufferSize, size - position), channel);
+                        if (transferred <= 0) {
+                            break;
+                        }
+
+                        position += transferred;
+                        bytesTransferred.addAndGet(transferred);
+                    }
+                } finally {
+
+                    // CLOSING THE WRITE END IS WHAT LETS THE READER SEE END OF STREAM
+                    sourceChannel = null;
+                    pipeChannel = null;
+                    outputStream.close();
+                }
+            }
+        } catch (final IOException e) {
+            if (isStopRequested()) {
+                rc = ReturnCode.CANCEL;
+            } else {
+                rc = 1;
+                android.util.Log.e(FFmpegKitConfig.TAG, String.format("Feeding %s to pipe %s failed.%s", inputPath, pipePath, Exceptions.getStackTraceString(e)));
+            }
+        } finally {
+            endTime = System.nanoTime();
+            returnCode = new ReturnCode(rc);
+        }
+
+        android.util.Log.d(FFmpegKitConfig.TAG, String.format("Feeding %s to pipe %s completed with rc %d. %d bytes transferred in %d milliseconds.", inputPath, pipePath, rc, bytesTransferred.get(), getDuration()));
+    }
+
+    private boolean isStopRequested() {
+        if (cancelled) {
+            return true;
+        }
+
+        if (session != null) {
+            final SessionState state = session.getState();
+            return (state == SessionState.COMPLETED || state == SessionState.FAILED);
+        }
+
+        return false;
+    }
+
+    public String getInputPath() {
+        return inputPath;
+    }
+
+    public String getPipePath() {
+        return pipePath;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns the return code of the feeding operation.
+     *
+     * @return {@link ReturnCode#SUCCESS} when the whole file is written, {@link ReturnCode#CANCEL}
+     * when feeding is stopped, another value on error, or null if feeding has not ended yet
+     */
+    public ReturnCode getReturnCode() {
+        return returnCode;
+    }
+
+    /**
+     * Returns the number of bytes written into the pipe so far.
+     *
+     * @return number of bytes written
+     */
+    public long getBytesTransferred() {
+        return bytesTransferred.get();
+    }
+
+    /**
+     * Returns how long feeding has been running, in milliseconds.
+     *
+     * @return feeding duration or zero if feeding has not started
+     */
+    public long getDuration() {
+        if (startTime == 0) {
+            return 0;
+        }
+
+        final long end = (endTime != 0) ? endTime : System.nanoTime();
+        return (end - startTime) / 1000000;
+    }
+
+    /**
+     * Returns the average throughput of the feeding operation.
+     *
+     * @return bytes written per second
+     */
+    public double getThroughput() {
+        if (startTime == 0) {
+            return 0;
+        }
+
+        final long end = (endTime != 0) ? endTime : System.nanoTime();
+        final long elapsed = end - startTime;
+
+        return (elapsed > 0) ? (bytesTransferred.get() * 1000000000.0 / elapsed) : 0;
+    }
+
+    /**
+     * Opens the pipe without blocking until a reader arrives, so waiting can be stopped; uses
+     * {@link Os}, available from API Level 21.
+     */
+    private static final class NonBlockingOpen {
+
+        static FileOutputStream open(final PipeFeeder pipeFeeder) throws IOException {
+            final long deadline = System.nanoTime() + DEFAULT_OPEN_TIMEOUT * 1000000;
+
+            while (!pipeFeeder.isStopRequested()) {
+                FileDescriptor fileDescriptor = null;
+                try {
+                    fileDescriptor = Os.open(pipeFeeder.pipePath, OsConstants.O_WRONLY | OsConstants.O_NONBLOCK, 0);
+                    final int flags = Os.fcntlVoid(fileDescriptor, OsConstants.F_GETFL);
+                    Os.fcntlInt(fileDescriptor, OsConstants.F_SETFL, flags & ~OsConstants.O_NONBLOCK);
+                    return new DescriptorOutputStream(fileDescriptor);
+                } catch (final ErrnoException e) {
+                    if (fileDescriptor != null) {
+                        closeQuietly(fileDescriptor);
+                    }
+                    if (e.errno != OsConstants.ENXIO) {
+                        throw e.rethrowAsIOException();
+                    }
+                }
+
+                // NO READER YET, A SESSION ENDING STOPS WAITING; WITHOUT ONE WAIT IS LIMITED
+                if (pipeFeeder.session == null && System.nanoTime() - deadline > 0) {
+                    throw new IOException(String.format("No reader opened pipe %s in %d milliseconds.", pipeFeeder.pipePath, DEFAULT_OPEN_TIMEOUT));
+                }
+
+                try {
+                    Thread.sleep(OPEN_RETRY_INTERVAL);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+
+            return null;
+        }
+
+        private static void closeQuietly(final FileDescriptor fileDescriptor) {
+            try {
+                Os.close(fileDescriptor);
+            } catch (final ErrnoException e) {
+                android.util.Log.w(FFmpegKitConfig.TAG, String.format("Failed to close pipe.%s", Exceptions.getStackTraceString(e)));
+            }
+        }
+    }
+
+    /**
+     * An output stream that closes its descriptor. Streams created from a descriptor on Android
+     * do not own it and leave it open on close.
+     */
+    private static final class DescriptorOutputStream extends FileOutputStream {
+        private final FileDescriptor fileDescriptor;
+        private final AtomicBoolean closed;
+
+        DescriptorOutputStream(final FileDescriptor fileDescriptor) {
+            super(fileDescriptor);
+            this.fileDescriptor = fileDescriptor;
+            this.closed = new AtomicBoolean();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (closed.compareAndSet(false, true)) {
+                    try {
+                        Os.close(fileDescriptor);
+                    } catch (final ErrnoException e) {
+                        throw e.rethrowAsIOException();
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import java.io.Closeable;
+
+/**
+ * <p>Named pipe leased from the pipe pool with
+ * {@link FFmpegKitConfig#leaseFFmpegPipe(android.content.Context)}.
+ *
+ * <p>Lease must be closed when both ends of the pipe are closed, so the pipe can be reused by
+ * later leases. Leases that are garbage collected without being closed are reported as leaks
+ * and their pipes are deleted.
+ */
+public class PipeLease implements Closeable {
+
+    private final PipePool pool;
+    private final String path;
+    private volatile boolean closed;
+
+    PipeLease(final PipePool pool, final String path) {
+        this.pool = pool;
+        this.path = path;
+    }
+
+    /**
+     * Returns the full path of the leased pipe.
+     *
+     * @return full path of the named pipe
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns whether this lease is closed.
+     *
+     * @return true if the lease is closed, false otherwise
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns the pipe to the pool. Calling this method more than once has no effect.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+
+        pool.release(this);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder stringBuilder = new StringBuilder();
+
+        stringBuilder.append("PipeLease{");
+        stringBuilder.append("path=");
+        stringBuilder.append(path);
+        stringBuilder.append(", closed=");
+        stringBuilder.append(closed);
+        stringBuilder.append('}');
+
+        return stringBuilder.toString();
+    }
+
+}
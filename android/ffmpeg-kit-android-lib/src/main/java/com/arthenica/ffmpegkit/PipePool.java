@@ -0,0 +1,377 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import android.os.Build;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+
+import com.arthenica.smartexception.java.Exceptions;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Pool of named pipes created under a directory.
+ *
+ * <p>Creating and deleting a FIFO are filesystem metadata operations. The pool avoids them by
+ * keeping released pipes and handing them out again. A pipe is reused only if no reader or
+ * writer still has it open; otherwise it is deleted.
+ *
+ * <p>Below API Level 21 the pool can not tell whether a pipe is still open, so released pipes are
+ * always deleted and every lease creates a new pipe.
+ *
+ * <p>Leases are tracked through weak references. A lease that is garbage collected without being
+ * closed is logged together with the stack trace of the code that acquired it, and its pipe is
+ * deleted.
+ */
+class PipePool {
+
+    /**
+     * Default number of idle pipes kept in the pool.
+     */
+    static final int DEFAULT_MAX_IDLE_PIPES = 8;
+
+    /**
+     * Creates and inspects the FIFOs handed out by a pool.
+     */
+    interface FifoFactory {
+
+        /**
+         * Creates a FIFO.
+         *
+         * @param path FIFO path
+         * @throws IOException if the FIFO can not be created
+         */
+        void create(String path) throws IOException;
+
+        /**
+         * Checks that no reader or writer has the FIFO open and no data is left in it.
+         *
+         * @param path FIFO path
+         * @return true if the FIFO can be reused
+         */
+        boolean isUnused(String path);
+
+    }
+
+    /**
+     * Returns the FIFO factory supported on this API Level.
+     *
+     * @return FIFO factory
+     */
+    static FifoFactory getDefaultFifoFactory() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return new OsFifoFactory();
+        }
+
+        return new NativeFifoFactory();
+    }
+
+    private static class LeaseReference extends WeakReference<PipeLease> {
+        private final String path;
+        private final Throwable allocationSite;
+
+        LeaseReference(final PipeLease lease, final ReferenceQueue<PipeLease> queue) {
+            super(lease, queue);
+            this.path = lease.getPath();
+            this.allocationSite = new Throwable("Pipe lease acquired here.");
+        }
+    }
+
+    private final File directory;
+    private final FifoFactory fifoFactory;
+    private final Deque<String> idlePipes;
+    private final Map<String, LeaseReference> activeLeases;
+    private final ReferenceQueue<PipeLease> referenceQueue;
+    private final AtomicInteger pipeIdGenerator;
+    private volatile int maxIdlePipes;
+
+    private final AtomicLong createdPipeCount;
+    private final AtomicLong reusedPipeCount;
+    private final AtomicLong leakedPipeCount;
+
+    PipePool(final File directory) {
+        this(directory, getDefaultFifoFactory());
+    }
+
+    PipePool(final File directory, final FifoFactory fifoFactory) {
+        this.directory = directory;
+        this.fifoFactory = fifoFactory;
+        this.idlePipes = new ArrayDeque<>();
+        this.activeLeases = new ConcurrentHashMap<>();
+        this.referenceQueue = new ReferenceQueue<>();
+        this.pipeIdGenerator = new AtomicInteger(1);
+        this.maxIdlePipes = DEFAULT_MAX_IDLE_PIPES;
+
+        this.createdPipeCount = new AtomicLong();
+        this.reusedPipeCount = new AtomicLong();
+        this.leakedPipeCount = new AtomicLong();
+    }
+
+    File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Leases a pipe, reusing an idle pipe if there is one.
+     *
+     * @return pipe lease or null if a new pipe can not be created
+     */
+    PipeLease lease() {
+        expungeLeakedLeases();
+
+        String path;
+        synchronized (idlePipes) {
+            path = idlePipes.pollFirst();
+        }
+
+        if (path != null) {
+            reusedPipeCount.incrementAndGet();
+        } else {
+            path = createPipe();
+            if (path == null) {
+                return null;
+            }
+        }
+
+        final PipeLease lease = new PipeLease(this, path);
+        activeLeases.put(path, new LeaseReference(lease, referenceQueue));
+
+        return lease;
+    }
+
+    /**
+     * Creates idle pipes until the pool has the given number of idle pipes.
+     *
+     * @param count number of idle pipes
+     * @return number of idle pipes in the pool
+     */
+    int prewarm(final int count) {
+        final int target = Math.min(count, maxIdlePipes);
+
+        while (getIdlePipeCount() < target) {
+            final String path = createPipe();
+            if (path == null) {
+                break;
+            }
+            if (!offerIdlePipe(path)) {
+                deletePipe(path);
+                break;
+            }
+        }
+
+        return getIdlePipeCount();
+    }
+
+    void release(final PipeLease lease) {
+        final LeaseReference reference = activeLeases.remove(lease.getPath());
+        if (reference == null) {
+            return;
+        }
+        reference.clear();
+
+        if (!fifoFactory.isUnused(lease.getPath()) || !offerIdlePipe(lease.getPath())) {
+            deletePipe(lease.getPath());
+        }
+
+        expungeLeakedLeases();
+    }
+
+    int getMaxIdlePipes() {
+        return maxIdlePipes;
+    }
+
+    void setMaxIdlePipes(final int maxIdlePipes) {
+        if (maxIdlePipes < 0) {
+            throw new IllegalArgumentException(String.format("Invalid pipe pool size %d.", maxIdlePipes));
+        }
+        this.maxIdlePipes = maxIdlePipes;
+
+        while (true) {
+            final String path;
+            synchronized (idlePipes) {
+                if (idlePipes.size() <= maxIdlePipes) {
+                    break;
+                }
+                path = idlePipes.pollLast();
+            }
+            deletePipe(path);
+        }
+    }
+
+    int getIdlePipeCount() {
+        synchronized (idlePipes) {
+            return idlePipes.size();
+        }
+    }
+
+    int getActiveLeaseCount() {
+        return activeLeases.size();
+    }
+
+    long getCreatedPipeCount() {
+        return createdPipeCount.get();
+    }
+
+    long getReusedPipeCount() {
+        return reusedPipeCount.get();
+    }
+
+    long getLeakedPipeCount() {
+        return leakedPipeCount.get();
+    }
+
+    /**
+     * Detects leases that are garbage collected without being closed and deletes their pipes.
+     */
+    void expungeLeakedLeases() {
+        Reference<? extends PipeLease> reference;
+        while ((reference = referenceQueue.poll()) != null) {
+            final LeaseReference leaseReference = (LeaseReference) reference;
+            if (activeLeases.remove(leaseReference.path, leaseReference)) {
+                leakedPipeCount.incrementAndGet();
+                android.util.Log.w(FFmpegKitConfig.TAG, String.format("Pipe %s was leased but never closed.%s", leaseReference.path, Exceptions.getStackTraceString(leaseReference.allocationSite)));
+                deletePipe(leaseReference.path);
+            }
+        }
+    }
+
+    private boolean offerIdlePipe(final String path) {
+        synchronized (idlePipes) {
+            if (idlePipes.size() >= maxIdlePipes) {
+                return false;
+            }
+            idlePipes.addFirst(path);
+            return true;
+        }
+    }
+
+    private String createPipe() {
+        if (!directory.exists() && !directory.mkdirs()) {
+            android.util.Log.e(FFmpegKitConfig.TAG, String.format("Failed to create pipes directory: %s.", directory.getAbsolutePath()));
+            return null;
+        }
+
+        final String path = new File(directory, FFmpegKitConfig.FFMPEG_KIT_NAMED_PIPE_PREFIX + "pool_" + pipeIdGenerator.getAndIncrement()).getAbsolutePath();
+        try {
+            deletePipe(path);
+            fifoFactory.create(path);
+            createdPipeCount.incrementAndGet();
+            return path;
+        } catch (final IOException e) {
+            android.util.Log.e(FFmpegKitConfig.TAG, String.format("Failed to create pipe %s.%s", path, Exceptions.getStackTraceString(e)));
+            return null;
+        }
+    }
+
+    private static void deletePipe(final String path) {
+        final File file = new File(path);
+        if (file.exists()) {
+            file.delete();
+        }
+    }
+
+    /**
+     * Creates FIFOs with {@link Os#mkfifo} and inspects them with non-blocking opens. Requires
+     * API Level 21.
+     */
+    private static final class OsFifoFactory implements FifoFactory {
+
+        @Override
+        public void create(final String path) throws IOException {
+            try {
+                Os.mkfifo(path, OsConstants.S_IRUSR | OsConstants.S_IWUSR);
+            } catch (final ErrnoException e) {
+                throw e.rethrowAsIOException();
+            }
+        }
+
+        @Override
+        public boolean isUnused(final String path) {
+
+            // A NON-BLOCKING OPEN FOR WRITING FAILS WITH ENXIO IF THERE IS NO READER
+            try {
+                final FileDescriptor writeFd = Os.open(path, OsConstants.O_WRONLY | OsConstants.O_NONBLOCK, 0);
+                closeQuietly(writeFd);
+                return false;
+            } catch (final ErrnoException e) {
+                if (e.errno != OsConstants.ENXIO) {
+                    return false;
+                }
+            }
+
+            // A NON-BLOCKING READ RETURNS END OF STREAM IF THERE IS NO WRITER AND NO DATA
+            FileDescriptor readFd = null;
+            try {
+                readFd = Os.open(path, OsConstants.O_RDONLY | OsConstants.O_NONBLOCK, 0);
+                return Os.read(readFd, ByteBuffer.allocate(1)) == 0;
+            } catch (final ErrnoException | InterruptedIOException e) {
+                return false;
+            } finally {
+                if (readFd != null) {
+                    closeQuietly(readFd);
+                }
+            }
+        }
+
+        private static void closeQuietly(final FileDescriptor fileDescriptor) {
+            try {
+                Os.close(fileDescriptor);
+            } catch (final ErrnoException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Creates FIFOs natively, the same way {@link FFmpegKitConfig#registerNewFFmpegPipe} does.
+     * Used below API Level 21, where an open pipe can not be detected, so no pipe is reported as
+     * unused and released pipes are deleted.
+     */
+    private static final class NativeFifoFactory implements FifoFactory {
+
+        @Override
+        public void create(final String path) throws IOException {
+            final int rc = FFmpegKitConfig.registerNewNativeFFmpegPipe(path);
+            if (rc != 0) {
+                throw new IOException(String.format("Failed to create pipe %s. Operation failed with rc=%d.", path, rc));
+            }
+        }
+
+        @Override
+        public boolean isUnused(final String path) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+/**
+ * <p>A single packet or frame entry generated by a streaming <code>FFprobe</code> execution.
+ */
+public class ProbeRecord {
+
+    /**
+     * Value used for timestamps and positions that are not available.
+     */
+    public static final long NO_VALUE = Long.MIN_VALUE;
+
+    /**
+     * Set for keyframe packets and frames.
+     */
+    public static final int FLAG_KEY = 0x0001;
+
+    /**
+     * Set for packets that contain corrupted data.
+     */
+    public static final int FLAG_CORRUPT = 0x0002;
+
+    /**
+     * Set for packets that are decoded but must be discarded.
+     */
+    public static final int FLAG_DISCARD = 0x0004;
+
+    /**
+     * <p>Lists entry types that can be probed.
+     */
+    public enum Type {
+        PACKET,
+        FRAME
+    }
+
+    private final Type type;
+    private final int streamIndex;
+    private final long pts;
+    private final long dts;
+    private final int size;
+    private final long position;
+    private final int flags;
+    private final char pictureType;
+
+    public ProbeRecord(final Type type, final int streamIndex, final long pts, final long dts, final int size, final long position, final int flags, final char pictureType) {
+        this.type = type;
+        this.streamIndex = streamIndex;
+        this.pts = pts;
+        this.dts = dts;
+        this.size = size;
+        this.position = position;
+        this.flags = flags;
+        this.pictureType = pictureType;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getStreamIndex() {
+        return streamIndex;
+    }
+
+    /**
+     * Returns presentation timestamp in stream time base units.
+     *
+     * @return presentation timestamp or {@link #NO_VALUE} if it is not available
+     */
+    public long getPts() {
+        return pts;
+    }
+
+    /**
+     * Returns decoding timestamp in stream time base units. For frames, this is the decoding
+     * timestamp of the packet that the frame is decoded from.
+     *
+     * @return decoding timestamp or {@link #NO_VALUE} if it is not available
+     */
+    public long getDts() {
+        return dts;
+    }
+
+    /**
+     * Returns the size of the packet in bytes.
+     *
+     * @return packet size or -1 if it is not available
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the byte offset of the packet in the input.
+     *
+     * @return byte offset or {@link #NO_VALUE} if it is not available
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public boolean isKeyFrame() {
+        return (flags & FLAG_KEY) != 0;
+    }
+
+    /**
+     * Returns picture type of video frames, <code>'I'</code>, <code>'P'</code>,
+     * <code>'B'</code>, etc.
+     *
+     * @return picture type or <code>'?'</code> if it is not available
+     */
+    public char getPictureType() {
+        return pictureType;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder stringBuilder = new StringBuilder();
+
+        stringBuilder.append("ProbeRecord{");
+        stringBuilder.append("type=");
+        stringBuilder.append(type);
+        stringBuilder.append(", streamIndex=");
+        stringBuilder.append(streamIndex);
+        stringBuilder.append(", pts=");
+        stringBuilder.append(pts);
+        stringBuilder.append(", dts=");
+        stringBuilder.append(dts);
+        stringBuilder.append(", size=");
+        stringBuilder.append(size);
+        stringBuilder.append(", position=");
+        stringBuilder.append(position);
+        stringBuilder.append(", flags=");
+        stringBuilder.append(flags);
+        stringBuilder.append(", pictureType=");
+        stringBuilder.append(pictureType);
+        stringBuilder.append('}');
+
+        return stringBuilder.toString();
+    }
+
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import com.arthenica.smartexception.java.Exceptions;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Reads packet and frame entries written by <code>FFprobe</code> into a named pipe in
+ * <code>compact</code> format and forwards them to a {@link ProbeRecordCallback}.
+ *
+ * <p>Entries are parsed one line at a time, so memory usage does not depend on the input size.
+ * <code>FFprobe</code> blocks while the callback is busy, since nothing is buffered beyond the
+ * pipe capacity.
+ */
+class ProbeRecordReader implements Runnable {
+
+    private static final int READ_BUFFER_SIZE = 65536;
+
+    private final String pipePath;
+    private final ProbeRecord.Type type;
+    private final ProbeRecordCallback callback;
+    private final Thread thread;
+    private volatile boolean pipeOpened;
+    private long recordCount;
+
+    ProbeRecordReader(final String pipePath, final ProbeRecord.Type type, final ProbeRecordCallback callback) {
+        this.pipePath = pipePath;
+        this.type = type;
+        this.callback = callback;
+        this.thread = new Thread(this, "ffmpeg-kit-probe-reader");
+        this.pipeOpened = false;
+        this.recordCount = 0;
+    }
+
+    /**
+     * Builds the arguments that make <code>FFprobe</code> write entries of the given type into
+     * the given pipe.
+     *
+     * @param path            path or uri of a media file
+     * @param type            entry type
+     * @param streamSpecifier streams to read entries from, e.g. <code>v:0</code>, or null to read
+     *                        entries of all streams
+     * @param pipePath        full path of the pipe to write into
+     * @return command arguments
+     */
+    static String[] commandArguments(final String path, final ProbeRecord.Type type, final String streamSpecifier, final String pipePath) {
+        final List<String> arguments = new ArrayList<>(Arrays.asList("-v", "error", "-hide_banner", "-print_format", "compact=print_section=0", "-show_entries"));
+        if (type == ProbeRecord.Type.PACKET) {
+            arguments.add("packet=stream_index,pts,dts,size,pos,flags");
+        } else {
+            arguments.add("frame=stream_index,key_frame,pts,pkt_dts,pkt_pos,pkt_size,pict_type");
+        }
+        if (streamSpecifier != null) {
+            arguments.add("-select_streams");
+            arguments.add(streamSpecifier);
+        }
+        arguments.addAll(Arrays.asList("-o", pipePath, "-i", path));
+
+        return arguments.toArray(new String[0]);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Waits until all entries written into the pipe are forwarded. Must be called after
+     * <code>FFprobe</code> execution ends.
+     *
+     * @return number of entries forwarded
+     */
+    long finish() {
+        if (!pipeOpened) {
+
+            /*
+             * FFPROBE MAY FAIL BEFORE OPENING THE PIPE, WHICH LEAVES THE READER BLOCKED ON OPEN.
+             * OPENING A FIFO IN READ/WRITE MODE NEVER BLOCKS, CLOSING IT RIGHT AWAY DELIVERS EOF
+             */
+            try {
+                new RandomAccessFile(pipePath, "rw").close();
+            } catch (final IOException e) {
+                android.util.Log.w(FFmpegKitConfig.TAG, String.format("Failed to release probe pipe %s.%s", pipePath, Exceptions.getStackTraceString(e)));
+            }
+        }
+
+        try {
+            thread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return recordCount;
+    }
+
+    @Override
+    public void run() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(pipePath), Charset.forName("UTF-8")), READ_BUFFER_SIZE)) {
+            pipeOpened = true;
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final ProbeRecord record = parse(type, line);
+                if (record != null) {
+                    recordCount++;
+
+                    try {
+                        callback.apply(record);
+                    } catch (final Exception e) {
+                        android.util.Log.e(FFmpegKitConfig.TAG, String.format("Exception thrown inside probe record callback.%s", Exceptions.getStackTraceString(e)));
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            android.util.Log.e(FFmpegKitConfig.TAG, String.format("Failed to read probe records from %s.%s", pipePath, Exceptions.getStackTraceString(e)));
+        } finally {
+            pipeOpened = true;
+        }
+    }
+
+    /**
+     * Parses a single line printed by <code>FFprobe</code> in <code>compact</code> format.
+     *
+     * @param type entry type
+     * @param line line printed, e.g. <code>stream_index=0|pts=0|dts=-512|size=1340|pos=48|flags=K__</code>
+     * @return entry parsed or null if the line does not contain an entry
+     */
+    static ProbeRecord parse(final ProbeRecord.Type type, final String line) {
+        int streamIndex = -1;
+        long pts = ProbeRecord.NO_VALUE;
+        long dts = ProbeRecord.NO_VALUE;
+        int size = -1;
+        long position = ProbeRecord.NO_VALUE;
+        int flags = 0;
+        char pictureType = '?';
+        boolean found = false;
+
+        int start = 0;
+        final int length = line.length();
+        while (start < length) {
+            int end = line.indexOf('|', start);
+            if (end < 0) {
+                end = length;
+            }
+
+            final int separator = line.indexOf('=', start);
+            if (separator > start && separator < end) {
+                final String key = line.substring(start, separator);
+                final String value = line.substring(separator + 1, end);
+                found = true;
+
+                switch (key) {
+                    case "stream_index":
+                        streamIndex = (int) parseLong(value, -1);
+                        break;
+                    case "pts":
+                        pts = parseLong(value, ProbeRecord.NO_VALUE);
+                        break;
+                    case "dts":
+                    case "pkt_dts":
+                        dts = parseLong(value, ProbeRecord.NO_VALUE);
+                        break;
+                    case "size":
+                    case "pkt_size":
+                        size = (int) parseLong(value, -1);
+                        break;
+                    case "pos":
+                    case "pkt_pos":
+                        position = parseLong(value, ProbeRecord.NO_VALUE);
+                        break;
+                    case "flags":
+                        if (value.indexOf('K') >= 0) {
+                            flags |= ProbeRecord.FLAG_KEY;
+                        }
+                        if (value.indexOf('C') >= 0) {
+                            flags |= ProbeRecord.FLAG_CORRUPT;
+                        }
+                        if (value.indexOf('D') >= 0) {
+                            flags |= ProbeRecord.FLAG_DISCARD;
+                        }
+                        break;
+                    case "key_frame":
+                        if ("1".equals(value)) {
+                            flags |= ProbeRecord.FLAG_KEY;
+                        }
+                        break;
+                    case "pict_type":
+                        if (value.length() == 1) {
+                            pictureType = value.charAt(0);
+                        }
+                        break;
+                }
+            }
+
+            start = end + 1;
+        }
+
+        if (!found) {
+            return null;
+        }
+
+        return new ProbeRecord(type, streamIndex, pts, dts, size, position, flags, pictureType);
+    }
+
+    private static long parseLong(final String value, final long defaultValue) {
+        try {
+            return Long.parseLong(value);
+        } catch (final NumberFormatException e) {
+
+            // N/A IS PRINTED FOR MISSING VALUES
+            return defaultValue;
+        }
+    }
+
+}
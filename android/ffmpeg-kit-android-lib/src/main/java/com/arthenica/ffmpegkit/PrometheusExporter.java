@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import com.arthenica.smartexception.java.Exceptions;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+/**
+ * <p>Exports metrics of a {@link MetricsRegistry} in Prometheus text format, version 0.0.4.
+ *
+ * <p>Metrics can be written to a file, for a node exporter textfile collector or to be pulled
+ * with <code>adb</code>, or served over HTTP on the loopback interface. A served endpoint is
+ * only reachable from the device itself, <code>adb forward</code> can be used to scrape it.
+ */
+public class PrometheusExporter {
+
+    /**
+     * Content type of the Prometheus text format.
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final int SOCKET_TIMEOUT = 5000;
+    private static final int MAX_REQUEST_SIZE = 8192;
+
+    private final MetricsRegistry registry;
+    private ServerSocket serverSocket;
+    private Thread serverThread;
+
+    public PrometheusExporter(final MetricsRegistry registry) {
+        if (registry == null) {
+            throw new IllegalArgumentException("Registry can not be null.");
+        }
+        this.registry = registry;
+    }
+
+    /**
+     * Formats the given snapshot in Prometheus text format.
+     *
+     * @param snapshot metrics snapshot
+     * @return metrics in text format
+     */
+    public static String format(final MetricsSnapshot snapshot) {
+        final StringBuilder text = new StringBuilder();
+        String currentName = null;
+
+        for (MetricSample sample : snapshot.getSamples()) {
+            if (!sample.getName().equals(currentName)) {
+                currentName = sample.getName();
+                text.append("# HELP ").append(currentName).append(' ').append(escapeHelp(sample.getHelp())).append('\n');
+                text.append("# TYPE ").append(currentName).append(' ').append(typeOf(sample.getType())).append('\n');
+            }
+
+            if (sample.getType() == MetricType.SUMMARY) {
+                for (int i = 0; i < MetricSample.QUANTILES.length; i++) {
+                    appendLine(text, sample.getName(), sample.getLabels(), Double.toString(MetricSample.QUANTILES[i]), sample.getQuantileValue(i));
+                }
+                appendLine(text, sample.getName() + "_sum", sample.getLabels(), null, sample.getSum());
+                appendLine(text, sample.getName() + "_count", sample.getLabels(), null, sample.getCount());
+            } else {
+                appendLine(text, sample.getName(), sample.getLabels(), null, sample.getValue());
+            }
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Takes a snapshot of the registry and formats it.
+     *
+     * @return metrics in text format
+     */
+    public String scrape() {
+        return format(registry.snapshot());
+    }
+
+    /**
+     * Writes metrics to the given file. Metrics are written to a temporary file first and then
+     * renamed, so readers never see a partially written file.
+     *
+     * @param file file to write
+     * @throws IOException if the file can not be written
+     */
+    public void writeTo(final File file) throws IOException {
+        final File temporaryFile = new File(file.getAbsolutePath() + ".tmp");
+
+        try (FileOutputStream outputStream = new FileOutputStream(temporaryFile)) {
+            outputStream.write(scrape().getBytes(Charset.forName("UTF-8")));
+            outputStream.getFD().sync();
+        }
+
+        if (!temporaryFile.renameTo(file)) {
+            temporaryFile.delete();
+            throw new IOException(String.format("Failed to rename %s to %s.", temporaryFile, file));
+        }
+    }
+
+    /**
+     * Starts serving metrics over HTTP on the loopback interface. Every request receives the
+     * current metrics.
+     *
+     * @param port port to listen on, zero selects a free port
+     * @return port the exporter listens on
+     * @throws IOException if the port can not be opened
+     */
+    public synchronized int start(final int port) throws IOException {
+        if (serverSocket != null) {
+            throw new IllegalStateException("Exporter is already started.");
+        }
+
+        final ServerSocket socket = new ServerSocket(port, 4, InetAddress.getLoopbackAddress());
+        serverSocket = socket;
+        serverThread = new Thread(() -> serve(socket), "ffmpeg-kit-metrics");
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        return socket.getLocalPort();
+    }
+
+    /**
+     * Stops serving metrics.
+     */
+    public synchronized void stop() {
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (final IOException e) {
+                android.util.Log.w(FFmpegKitConfig.TAG, String.format("Failed to close metrics socket.%s", Exceptions.getStackTraceString(e)));
+            }
+            serverSocket = null;
+            serverThread = null;
+        }
+    }
+
+    /**
+     * Returns whether metrics are served.
+     *
+     * @return true if the exporter is started, false otherwise
+     */
+    public synchronized boolean isStarted() {
+        return serverSocket != null;
+    }
+
+    private void serve(final ServerSocket socket) {
+        while (!socket.isClosed()) {
+            try (Socket client = socket.accept()) {
+                client.setSoTimeout(SOCKET_TIMEOUT);
+                respond(client);
+            } catch (final SocketException e) {
+
+                // SOCKET IS CLOSED BY stop()
+                if (!socket.isClosed()) {
+                    android.util.Log.w(FFmpegKitConfig.TAG, String.format("Metrics request failed.%s", Exceptions.getStackTraceString(e)));
+                }
+            } catch (final Exception e) {
+                android.util.Log.w(FFmpegKitConfig.TAG, String.format("Metrics request failed.%s", Exceptions.getStackTraceString(e)));
+            }
+        }
+    }
+
+    private void respond(final Socket client) throws IOException {
+        final String requestLine = readRequestLine(client.getInputStream());
+        final OutputStream outputStream = client.getOutputStream();
+
+        final String[] parts = requestLine.split(" ");
+        final String path = (parts.length > 1) ? parts[1] : "";
+        final byte[] body;
+        final String status;
+        final String contentType;
+        if (!"GET".equals(parts[0])) {
+            status = "405 Method Not Allowed";
+            contentType = "text/plain; charset=utf-8";
+            body = new byte[0];
+        } else if ("/".equals(path) || "/metrics".equals(path)) {
+            status = "200 OK";
+            contentType = CONTENT_TYPE;
+            body = scrape().getBytes(Charset.forName("UTF-8"));
+        } else {
+            status = "404 Not Found";
+            contentType = "text/plain; charset=utf-8";
+            body = new byte[0];
+        }
+
+        final String headers = "HTTP/1.0 " + status + "\r\n" +
+                "Content-Type: " + contentType + "\r\n" +
+                "Content-Length: " + body.length + "\r\n" +
+                "Connection: close\r\n\r\n";
+        outputStream.write(headers.getBytes(Charset.forName("US-ASCII")));
+        outputStream.write(body);
+        outputStream.flush();
+    }
+
+    /**
+     * Reads request headers and returns the request line.
+     */
+    private static String readRequestLine(final InputStream inputStream) throws IOException {
+        final StringBuilder request = new StringBuilder();
+        int size = 0;
+        int character;
+
+        while ((character = inputStream.read()) != -1 && size++ < MAX_REQUEST_SIZE) {
+            request.append((char) character);
+            if (character == '\n' && request.length() >= 4 && request.substring(request.length() - 4).equals("\r\n\r\n")) {
+                break;
+            }
+        }
+
+        final int lineEnd = request.indexOf("\r\n");
+        return (lineEnd >= 0) ? request.substring(0, lineEnd) : request.toString();
+    }
+
+    private static void appendLine(final StringBuilder text, final String name, final Map<String, String> labels, final String quantile, final double value) {
+        text.append(name);
+        if (!labels.isEmpty() || quantile != null) {
+            text.append('{');
+            boolean first = true;
+            for (Map.Entry<String, String> label : labels.entrySet()) {
+                if (!first) {
+                    text.append(',');
+                }
+                first = false;
+                text.append(label.getKey()).append("=\"").append(escapeLabelValue(label.getValue())).append('"');
+            }
+            if (quantile != null) {
+                if (!first) {
+                    text.append(',');
+                }
+                text.append("quantile=\"").append(quantile).append('"');
+            }
+            text.append('}');
+        }
+        text.append(' ').append(formatValue(value)).append('\n');
+    }
+
+    static String formatValue(final double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        } else if (Double.isInfinite(value)) {
+            return (value > 0) ? "+Inf" : "-Inf";
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        } else {
+            return Double.toString(value);
+        }
+    }
+
+    private static String typeOf(final MetricType type) {
+        switch (type) {
+            case COUNTER:
+                return "counter";
+            case GAUGE:
+                return "gauge";
+            default:
+                return "summary";
+        }
+    }
+
+    private static String escapeHelp(final String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static String escapeLabelValue(final String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+}
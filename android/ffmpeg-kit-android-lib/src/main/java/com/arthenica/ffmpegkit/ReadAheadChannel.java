@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import com.arthenica.smartexception.java.Exceptions;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.InterruptibleChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * <p>Read-only channel that reads its source ahead of the reader on a background thread.
+ *
+ * <p>Source is read in chunks into a window of at most <code>chunkCount</code> chunks. Reads are
+ * served from the window and only block when the prefetch thread has not caught up yet. Seeks
+ * inside the window keep buffered data; other seeks discard the window and restart prefetching
+ * from the new position.
+ *
+ * <p>Prefetch thread is started by the first read or seek and stops when the channel is closed.
+ * Channel can be closed from another thread, which makes a blocked read fail.
+ */
+class ReadAheadChannel implements SeekableByteChannel, InterruptibleChannel {
+
+    private static class Chunk {
+        private final long position;
+        private final ByteBuffer data;
+
+        Chunk(final long position, final ByteBuffer data) {
+            this.position = position;
+            this.data = data;
+        }
+
+        long end() {
+            return position + data.limit();
+        }
+    }
+
+    private final SeekableByteChannel source;
+    private final int chunkSize;
+    private final int chunkCount;
+    private final Deque<Chunk> chunks;
+    private final Deque<ByteBuffer> freeBuffers;
+    private Thread prefetchThread;
+
+    private long position;
+    private long fetchPosition;
+    private int generation;
+    private boolean endOfStream;
+    private IOException failure;
+    private boolean closed;
+
+    private long stallCount;
+
+    /**
+     * Creates a read-ahead channel.
+     *
+     * @param source     source channel, positioned at its start
+     * @param chunkSize  number of bytes read from the source at once
+     * @param chunkCount maximum number of chunks read ahead
+     */
+    ReadAheadChannel(final SeekableByteChannel source, final int chunkSize, final int chunkCount) {
+        if (chunkSize <= 0 || chunkCount <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid read-ahead window %d x %d.", chunkCount, chunkSize));
+        }
+
+        this.source = source;
+        this.chunkSize = chunkSize;
+        this.chunkCount = chunkCount;
+        this.chunks = new ArrayDeque<>(chunkCount);
+        this.freeBuffers = new ArrayDeque<>(chunkCount);
+    }
+
+    @Override
+    public synchronized int read(final ByteBuffer dst) throws IOException {
+        startPrefetch();
+
+        boolean stalled = false;
+        while (true) {
+            if (closed) {
+                throw new ClosedChannelException();
+            }
+
+            final Chunk chunk = chunks.peekFirst();
+            if (chunk != null) {
+                final int offset = (int) (position - chunk.position);
+                final int length = Math.min(dst.remaining(), chunk.data.limit() - offset);
+
+                final ByteBuffer source = chunk.data.duplicate();
+                source.position(offset).limit(offset + length);
+                dst.put(source);
+                position += length;
+
+                if (position == chunk.end()) {
+                    recycle(chunks.pollFirst());
+                    notifyAll();
+                }
+
+                return length;
+            }
+
+            if (failure != null) {
+                throw failure;
+            }
+            if (endOfStream) {
+                return -1;
+            }
+
+            if (!stalled) {
+                stalled = true;
+                stallCount++;
+            }
+            try {
+                wait();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for read-ahead data.");
+            }
+        }
+    }
+
+    @Override
+    public int write(final ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized long position() throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+
+        return position;
+    }
+
+    @Override
+    public synchronized SeekableByteChannel position(final long newPosition) throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+        if (newPosition < 0) {
+            throw new IllegalArgumentException(String.format("Invalid position %d.", newPosition));
+        }
+
+        startPrefetch();
+
+        final Chunk first = chunks.peekFirst();
+        final long windowStart = (first != null) ? first.position : fetchPosition;
+        if (newPosition >= windowStart && newPosition <= fetchPosition) {
+
+            // INSIDE THE WINDOW, DROP CHUNKS BEFORE THE NEW POSITION
+            while (!chunks.isEmpty() && chunks.peekFirst().end() <= newPosition) {
+                recycle(chunks.pollFirst());
+            }
+        } else {
+
+            // OUTSIDE THE WINDOW, RESTART PREFETCHING
+            while (!chunks.isEmpty()) {
+                recycle(chunks.pollFirst());
+            }
+            generation++;
+            fetchPosition = newPosition;
+            endOfStream = false;
+            failure = null;
+        }
+
+        position = newPosition;
+        notifyAll();
+
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        return source.size();
+    }
+
+    @Override
+    public SeekableByteChannel truncate(final long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return !closed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            chunks.clear();
+            freeBuffers.clear();
+            notifyAll();
+        }
+
+        source.close();
+    }
+
+    /**
+     * Returns the number of reads that had to wait for the prefetch thread.
+     *
+     * @return number of stalled reads
+     */
+    synchronized long getStallCount() {
+        return stallCount;
+    }
+
+    private void startPrefetch() {
+        if (prefetchThread == null) {
+            prefetchThread = new Thread(this::prefetch, "ffmpeg-kit-read-ahead");
+            prefetchThread.setDaemon(true);
+            prefetchThread.start();
+        }
+    }
+
+    private void prefetch() {
+        long sourcePosition = 0;
+
+        while (true) {
+            final int fetchGeneration;
+            final long chunkPosition;
+            ByteBuffer buffer;
+
+            synchronized (this) {
+                while (!closed && (chunks.size() >= chunkCount || endOfStream || failure != null)) {
+                    try {
+                        wait();
+                    } catch (final InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+
+                fetchGeneration = generation;
+                chunkPosition = fetchPosition;
+                buffer = freeBuffers.pollFirst();
+            }
+
+            if (buffer == null) {
+                buffer = ByteBuffer.allocate(chunkSize);
+            }
+            buffer.clear();
+
+            IOException readFailure = null;
+            boolean readEndOfStream = false;
+            try {
+                if (sourcePosition != chunkPosition) {
+                    source.position(chunkPosition);
+                    sourcePosition = chunkPosition;
+                }
+
+                while (buffer.hasRemaining()) {
+                    final int bytesRead = source.read(buffer);
+                    if (bytesRead < 0) {
+                        readEndOfStream = true;
+                        break;
+                    }
+                    sourcePosition += bytesRead;
+                }
+            } catch (final IOException e) {
+                readFailure = e;
+            }
+            buffer.flip();
+
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (fetchGeneration != generation) {
+
+                    // A SEEK INVALIDATED THIS CHUNK
+                    recycle(buffer);
+                    continue;
+                }
+
+                if (buffer.hasRemaining()) {
+                    chunks.addLast(new Chunk(chunkPosition, buffer));
+                    fetchPosition += buffer.limit();
+                } else {
+                    recycle(buffer);
+                }
+
+                if (readFailure != null) {
+                    android.util.Log.e(FFmpegKitConfig.TAG, String.format("Read-ahead failed at position %d.%s", fetchPosition, Exceptions.getStackTraceString(readFailure)));
+                    failure = readFailure;
+                }
+                endOfStream = readEndOfStream;
+                notifyAll();
+            }
+        }
+    }
+
+    private void recycle(final ByteBuffer buffer) {
+        if (freeBuffers.size() < chunkCount) {
+            freeBuffers.addLast(buffer);
+        }
+    }
+
+    private void recycle(final Chunk chunk) {
+        recycle(chunk.data);
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * <p>Bounded in-memory byte pipe between a writer and a reader thread.
+ *
+ * <p>Writes block while the buffer is full and reads block while it is empty. Closing the sink
+ * delivers end of stream to the reader after buffered data is read. Closing the source makes
+ * later writes fail, like a broken pipe. {@link #abort(IOException)} and interrupting either
+ * channel fail both sides.
+ */
+class RingBuffer {
+
+    private final byte[] data;
+    private int readIndex;
+    private int size;
+    private boolean sinkClosed;
+    private boolean sourceClosed;
+    private IOException failure;
+    private long bytesTransferred;
+
+    private class Sink implements WritableByteChannel, FkioChannel.Interruptible {
+
+        @Override
+        public int write(final ByteBuffer src) throws IOException {
+            return RingBuffer.this.write(src);
+        }
+
+        @Override
+        public boolean isOpen() {
+            synchronized (RingBuffer.this) {
+                return !sinkClosed;
+            }
+        }
+
+        @Override
+        public void close() {
+            closeSink();
+        }
+
+        @Override
+        public void interrupt() {
+            abort(new IOException("Ring buffer is interrupted."));
+        }
+    }
+
+    private class Source implements ReadableByteChannel, FkioChannel.Interruptible {
+
+        @Override
+        public int read(final ByteBuffer dst) throws IOException {
+            return RingBuffer.this.read(dst);
+        }
+
+        @Override
+        public boolean isOpen() {
+            synchronized (RingBuffer.this) {
+                return !sourceClosed;
+            }
+        }
+
+        @Override
+        public void close() {
+            closeSource();
+        }
+
+        @Override
+        public void interrupt() {
+            abort(new IOException("Ring buffer is interrupted."));
+        }
+    }
+
+    private final WritableByteChannel sink = new Sink();
+    private final ReadableByteChannel source = new Source();
+
+    RingBuffer(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid ring buffer capacity %d.", capacity));
+        }
+
+        this.data = new byte[capacity];
+    }
+
+    WritableByteChannel getSink() {
+        return sink;
+    }
+
+    ReadableByteChannel getSource() {
+        return source;
+    }
+
+    int getCapacity() {
+        return data.length;
+    }
+
+    synchronized long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    synchronized int write(final ByteBuffer src) throws IOException {
+        while (true) {
+            if (failure != null) {
+                throw failure;
+            }
+            if (sinkClosed) {
+                throw new ClosedChannelException();
+            }
+            if (sourceClosed) {
+                throw new IOException("Ring buffer reader is closed.");
+            }
+            if (size < data.length || !src.hasRemaining()) {
+                break;
+            }
+            await();
+        }
+
+        final int length = Math.min(src.remaining(), data.length - size);
+        final int writeIndex = (readIndex + size) % data.length;
+        final int firstPart = Math.min(length, data.length - writeIndex);
+        src.get(data, writeIndex, firstPart);
+        src.get(data, 0, length - firstPart);
+        size += length;
+
+        notifyAll();
+        return length;
+    }
+
+    synchronized int read(final ByteBuffer dst) throws IOException {
+        while (true) {
+            if (failure != null) {
+                throw failure;
+            }
+            if (sourceClosed) {
+                throw new ClosedChannelException();
+            }
+            if (size > 0 || !dst.hasRemaining()) {
+                break;
+            }
+            if (sinkClosed) {
+                return -1;
+            }
+            await();
+        }
+
+        final int length = Math.min(dst.remaining(), size);
+        final int firstPart = Math.min(length, data.length - readIndex);
+        dst.put(data, readIndex, firstPart);
+        dst.put(data, 0, length - firstPart);
+        readIndex = (readIndex + length) % data.length;
+        size -= length;
+        bytesTransferred += length;
+
+        notifyAll();
+        return length;
+    }
+
+    synchronized void closeSink() {
+        sinkClosed = true;
+        notifyAll();
+    }
+
+    synchronized void closeSource() {
+        sourceClosed = true;
+        size = 0;
+        notifyAll();
+    }
+
+    /**
+     * Fails pending and later reads and writes with the given exception.
+     *
+     * @param exception failure reported to both sides
+     */
+    synchronized void abort(final IOException exception) {
+        if (failure == null) {
+            failure = exception;
+        }
+        notifyAll();
+    }
+
+    private void await() throws InterruptedIOException {
+        try {
+            wait();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the ring buffer.");
+        }
+    }
+
+}
@@ -0,0 +1,488 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Build;
+import android.os.ParcelFileDescriptor;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+
+import com.arthenica.smartexception.java.Exceptions;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Keeps SAF protocol urls and the file descriptors opened for them. Safe to use from
+ * concurrent sessions.
+ *
+ * <p>When FFmpeg closes a descriptor, it is kept open for a short idle timeout. If the same uri
+ * is opened again with the same mode in the meantime, the idle descriptor is rewound and reused
+ * instead of asking the content provider for a new one. Descriptors opened with a truncating mode,
+ * <code>"w"</code>, <code>"wt"</code> or <code>"rwt"</code>, are also truncated before reuse;
+ * read-write and append modes keep their content. Reuse requires API Level 21.
+ */
+class SafRegistry {
+
+    /**
+     * Default time an idle descriptor is kept open, in milliseconds.
+     */
+    static final long DEFAULT_IDLE_TIMEOUT = 2000;
+
+    /**
+     * Maximum number of idle descriptors kept open.
+     */
+    static final int MAX_IDLE_DESCRIPTORS = 16;
+
+    static class SafUrl {
+        private final int safId;
+        private final Uri uri;
+        private final String document;
+        private final String openMode;
+        private final ContentResolver contentResolver;
+
+        SafUrl(final int safId, final Uri uri, final String openMode, final ContentResolver contentResolver) {
+            this(safId, uri, uri.toString(), openMode, contentResolver);
+        }
+
+        SafUrl(final int safId, final String document, final String openMode) {
+            this(safId, null, document, openMode, null);
+        }
+
+        private SafUrl(final int safId, final Uri uri, final String document, final String openMode, final ContentResolver contentResolver) {
+            this.safId = safId;
+            this.uri = uri;
+            this.document = document;
+            this.openMode = openMode;
+            this.contentResolver = contentResolver;
+        }
+
+        int getSafId() {
+            return safId;
+        }
+
+        Uri getUri() {
+            return uri;
+        }
+
+        String getOpenMode() {
+            return openMode;
+        }
+
+        ContentResolver getContentResolver() {
+            return contentResolver;
+        }
+
+        boolean isWritable() {
+            return openMode.contains("w");
+        }
+
+        /**
+         * Returns whether opening this url truncates the document. Only these modes are truncated
+         * when an idle descriptor is reused; "rw" and append modes must keep the content.
+         *
+         * @return true for "w", "wt" and "rwt" modes
+         */
+        boolean isTruncating() {
+            return "w".equals(openMode) || "wt".equals(openMode) || "rwt".equals(openMode);
+        }
+
+        String getKey() {
+            return openMode + ":" + document;
+        }
+    }
+
+    /**
+     * A descriptor opened for a SAF url.
+     */
+    interface SafDescriptor {
+
+        int getFd();
+
+        /**
+         * Moves an idle descriptor back to the start of the document, so it can be used again.
+         *
+         * @param truncate whether to truncate the document as well
+         * @return false if the descriptor can not be rewound, e.g. it is a pipe
+         */
+        boolean rewind(boolean truncate);
+
+        void close() throws IOException;
+
+    }
+
+    /**
+     * Opens descriptors for SAF urls.
+     */
+    interface DescriptorOpener {
+
+        SafDescriptor open(SafUrl safUrl) throws IOException;
+
+        /**
+         * Returns whether descriptors created by this opener can be kept open and rewound.
+         *
+         * @return true if idle descriptors can be reused
+         */
+        boolean isReuseSupported();
+
+    }
+
+    /**
+     * Opens descriptors through the content resolver of each url.
+     */
+    static final DescriptorOpener CONTENT_RESOLVER_OPENER = new DescriptorOpener() {
+
+        @Override
+        public SafDescriptor open(final SafUrl safUrl) throws IOException {
+            final ParcelFileDescriptor parcelFileDescriptor = safUrl.getContentResolver().openFileDescriptor(safUrl.getUri(), safUrl.getOpenMode());
+            if (parcelFileDescriptor == null) {
+                throw new FileNotFoundException(String.format("No descriptor provided for %s.", safUrl.getUri()));
+            }
+
+            return new ParcelDescriptor(parcelFileDescriptor);
+        }
+
+        @Override
+        public boolean isReuseSupported() {
+            return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP;
+        }
+    };
+
+    private static class ParcelDescriptor implements SafDescriptor {
+        private final ParcelFileDescriptor parcelFileDescriptor;
+
+        ParcelDescriptor(final ParcelFileDescriptor parcelFileDescriptor) {
+            this.parcelFileDescriptor = parcelFileDescriptor;
+        }
+
+        @Override
+        public int getFd() {
+            return parcelFileDescriptor.getFd();
+        }
+
+        @Override
+        public boolean rewind(final boolean truncate) {
+            return OsRewind.rewind(parcelFileDescriptor, truncate);
+        }
+
+        @Override
+        public void close() throws IOException {
+            parcelFileDescriptor.close();
+        }
+    }
+
+    /**
+     * Rewinds descriptors with {@link Os} calls. Reached only through openers that report reuse
+     * support, which the content resolver opener does from API Level 21.
+     */
+    private static final class OsRewind {
+
+        static boolean rewind(final ParcelFileDescriptor parcelFileDescriptor, final boolean truncate) {
+            try {
+                Os.lseek(parcelFileDescriptor.getFileDescriptor(), 0, OsConstants.SEEK_SET);
+                if (truncate) {
+                    Os.ftruncate(parcelFileDescriptor.getFileDescriptor(), 0);
+                }
+                return true;
+            } catch (final ErrnoException e) {
+                return false;
+            }
+        }
+    }
+
+    private static class IdleDescriptor {
+        private final String key;
+        private final SafDescriptor descriptor;
+        private final boolean truncating;
+
+        IdleDescriptor(final String key, final SafDescriptor descriptor, final boolean truncating) {
+            this.key = key;
+            this.descriptor = descriptor;
+            this.truncating = truncating;
+        }
+    }
+
+    private final Map<Integer, SafUrl> urlMap;
+    private final Map<Integer, SafUrl> descriptorUrlMap;
+    private final Map<Integer, SafDescriptor> descriptorMap;
+    private final Map<String, IdleDescriptor> idleDescriptorMap;
+    private final DescriptorOpener descriptorOpener;
+    private ScheduledExecutorService evictionExecutor;
+    private volatile long idleTimeout;
+
+    private final AtomicLong openCount;
+    private final AtomicLong reusedOpenCount;
+    private final AtomicLong failedOpenCount;
+    private final AtomicLong closeCount;
+    private final AtomicLong totalOpenTime;
+    private final AtomicLong maxOpenTime;
+    private final AtomicLong totalCloseTime;
+    private final AtomicLong maxCloseTime;
+
+    SafRegistry() {
+        this(CONTENT_RESOLVER_OPENER);
+    }
+
+    SafRegistry(final DescriptorOpener descriptorOpener) {
+        this.descriptorOpener = descriptorOpener;
+        urlMap = new ConcurrentHashMap<>();
+        descriptorUrlMap = new ConcurrentHashMap<>();
+        descriptorMap = new ConcurrentHashMap<>();
+        idleDescriptorMap = new HashMap<>();
+        idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+        openCount = new AtomicLong();
+        reusedOpenCount = new AtomicLong();
+        failedOpenCount = new AtomicLong();
+        closeCount = new AtomicLong();
+        totalOpenTime = new AtomicLong();
+        maxOpenTime = new AtomicLong();
+        totalCloseTime = new AtomicLong();
+        maxCloseTime = new AtomicLong();
+    }
+
+    void register(final SafUrl safUrl) {
+        urlMap.put(safUrl.getSafId(), safUrl);
+    }
+
+    /**
+     * Opens a file descriptor for the given SAF id.
+     *
+     * @param safId SAF id
+     * @return file descriptor or 0 if an error occurs
+     */
+    int open(final int safId) {
+        final long startTime = System.nanoTime();
+
+        final SafUrl safUrl = urlMap.get(safId);
+        if (safUrl == null) {
+            failedOpenCount.incrementAndGet();
+            android.util.Log.e(FFmpegKitConfig.TAG, String.format("SAF id %d not found.", safId));
+            return 0;
+        }
+
+        try {
+            SafDescriptor descriptor = takeIdleDescriptor(safUrl);
+            if (descriptor != null) {
+                reusedOpenCount.incrementAndGet();
+            } else {
+                descriptor = descriptorOpener.open(safUrl);
+            }
+
+            final int fd = descriptor.getFd();
+            descriptorMap.put(fd, descriptor);
+            descriptorUrlMap.put(fd, safUrl);
+
+            openCount.incrementAndGet();
+            record(totalOpenTime, maxOpenTime, System.nanoTime() - startTime);
+
+            return fd;
+        } catch (final Throwable t) {
+            failedOpenCount.incrementAndGet();
+            record(totalOpenTime, maxOpenTime, System.nanoTime() - startTime);
+            android.util.Log.e(FFmpegKitConfig.TAG, String.format("Failed to open SAF id: %d.%s", safId, Exceptions.getStackTraceString(t)));
+            return 0;
+        }
+    }
+
+    /**
+     * Closes a file descriptor opened by {@link #open(int)}. Descriptor is kept open for reuse if
+     * reuse is enabled.
+     *
+     * @param fileDescriptor file descriptor
+     * @return 1 if the file descriptor is closed successfully, 0 if an error occurs
+     */
+    int close(final int fileDescriptor) {
+        final long startTime = System.nanoTime();
+
+        final SafUrl safUrl = descriptorUrlMap.remove(fileDescriptor);
+        final SafDescriptor descriptor = descriptorMap.remove(fileDescriptor);
+        if (safUrl == null || descriptor == null) {
+            android.util.Log.e(FFmpegKitConfig.TAG, String.format("SAF fd %d not found.", fileDescriptor));
+            return 0;
+        }
+
+        try {
+            if (!putIdleDescriptor(safUrl, descriptor)) {
+                descriptor.close();
+            }
+
+            closeCount.incrementAndGet();
+            record(totalCloseTime, maxCloseTime, System.nanoTime() - startTime);
+
+            return 1;
+        } catch (final Throwable t) {
+            android.util.Log.e(FFmpegKitConfig.TAG, String.format("Failed to close SAF fd: %d.%s", fileDescriptor, Exceptions.getStackTraceString(t)));
+            return 0;
+        }
+    }
+
+    /**
+     * Removes the given SAF id. Idle descriptors opened for writing this url are closed, so
+     * the document is complete when the session using it completes.
+     *
+     * @param safId SAF id
+     */
+    void release(final int safId) {
+        final SafUrl safUrl = urlMap.remove(safId);
+        if (safUrl != null && safUrl.isWritable()) {
+            final IdleDescriptor idleDescriptor;
+            synchronized (idleDescriptorMap) {
+                idleDescriptor = idleDescriptorMap.remove(safUrl.getKey());
+            }
+            if (idleDescriptor != null) {
+                closeQuietly(idleDescriptor.descriptor);
+            }
+        }
+    }
+
+    /**
+     * Closes all idle descriptors.
+     */
+    void closeIdleDescriptors() {
+        final IdleDescriptor[] idleDescriptors;
+        synchronized (idleDescriptorMap) {
+            idleDescriptors = idleDescriptorMap.values().toArray(new IdleDescriptor[0]);
+            idleDescriptorMap.clear();
+        }
+
+        for (IdleDescriptor idleDescriptor : idleDescriptors) {
+            closeQuietly(idleDescriptor.descriptor);
+        }
+    }
+
+    long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Sets how long closed descriptors are kept for reuse.
+     *
+     * @param idleTimeout idle timeout in milliseconds, zero disables reuse
+     */
+    void setIdleTimeout(final long idleTimeout) {
+        if (idleTimeout < 0) {
+            throw new IllegalArgumentException(String.format("Invalid SAF idle timeout %d.", idleTimeout));
+        }
+
+        this.idleTimeout = idleTimeout;
+        if (idleTimeout == 0) {
+            closeIdleDescriptors();
+        }
+    }
+
+    SafStatistics getStatistics() {
+        final int idleDescriptorCount;
+        synchronized (idleDescriptorMap) {
+            idleDescriptorCount = idleDescriptorMap.size();
+        }
+
+        return new SafStatistics(openCount.get(), reusedOpenCount.get(), failedOpenCount.get(), closeCount.get(), totalOpenTime.get(), maxOpenTime.get(), totalCloseTime.get(), maxCloseTime.get(), idleDescriptorCount);
+    }
+
+    private SafDescriptor takeIdleDescriptor(final SafUrl safUrl) {
+        final IdleDescriptor idleDescriptor;
+        synchronized (idleDescriptorMap) {
+            idleDescriptor = idleDescriptorMap.remove(safUrl.getKey());
+        }
+        if (idleDescriptor == null) {
+            return null;
+        }
+
+        if (!idleDescriptor.descriptor.rewind(idleDescriptor.truncating)) {
+
+            // NOT SEEKABLE, E.G. A PIPE; USE A NEW DESCRIPTOR
+            closeQuietly(idleDescriptor.descriptor);
+            return null;
+        }
+
+        return idleDescriptor.descriptor;
+    }
+
+    private boolean putIdleDescriptor(final SafUrl safUrl, final SafDescriptor descriptor) {
+        final long timeout = idleTimeout;
+        if (timeout == 0 || !descriptorOpener.isReuseSupported() || !urlMap.containsKey(safUrl.getSafId())) {
+            return false;
+        }
+
+        final IdleDescriptor idleDescriptor = new IdleDescriptor(safUrl.getKey(), descriptor, safUrl.isTruncating());
+        final IdleDescriptor replacedDescriptor;
+        synchronized (idleDescriptorMap) {
+            if (idleDescriptorMap.size() >= MAX_IDLE_DESCRIPTORS && !idleDescriptorMap.containsKey(idleDescriptor.key)) {
+                return false;
+            }
+            replacedDescriptor = idleDescriptorMap.put(idleDescriptor.key, idleDescriptor);
+
+            if (evictionExecutor == null) {
+                evictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    final Thread thread = new Thread(runnable, "ffmpeg-kit-saf-evictor");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            evictionExecutor.schedule(() -> evict(idleDescriptor), timeout, TimeUnit.MILLISECONDS);
+        }
+
+        if (replacedDescriptor != null) {
+            closeQuietly(replacedDescriptor.descriptor);
+        }
+
+        return true;
+    }
+
+    private void evict(final IdleDescriptor idleDescriptor) {
+        synchronized (idleDescriptorMap) {
+            if (idleDescriptorMap.get(idleDescriptor.key) != idleDescriptor) {
+                return;
+            }
+            idleDescriptorMap.remove(idleDescriptor.key);
+        }
+
+        closeQuietly(idleDescriptor.descriptor);
+    }
+
+    private static void closeQuietly(final SafDescriptor descriptor) {
+        try {
+            descriptor.close();
+        } catch (final IOException e) {
+            android.util.Log.w(FFmpegKitConfig.TAG, String.format("Failed to close SAF descriptor.%s", Exceptions.getStackTraceString(e)));
+        }
+    }
+
+    private static void record(final AtomicLong total, final AtomicLong max, final long duration) {
+        total.addAndGet(duration);
+
+        long currentMax = max.get();
+        while (duration > currentMax && !max.compareAndSet(currentMax, duration)) {
+            currentMax = max.get();
+        }
+    }
+
+}
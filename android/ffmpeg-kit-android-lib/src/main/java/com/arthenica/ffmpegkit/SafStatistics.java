@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+/**
+ * <p>Snapshot of SAF protocol url open and close statistics.
+ */
+public class SafStatistics {
+
+    private final long openCount;
+    private final long reusedOpenCount;
+    private final long failedOpenCount;
+    private final long closeCount;
+    private final long totalOpenTime;
+    private final long maxOpenTime;
+    private final long totalCloseTime;
+    private final long maxCloseTime;
+    private final int idleDescriptorCount;
+
+    public SafStatistics(final long openCount, final long reusedOpenCount, final long failedOpenCount, final long closeCount, final long totalOpenTime, final long maxOpenTime, final long totalCloseTime, final long maxCloseTime, final int idleDescriptorCount) {
+        this.openCount = openCount;
+        this.reusedOpenCount = reusedOpenCount;
+        this.failedOpenCount = failedOpenCount;
+        this.closeCount = closeCount;
+        this.totalOpenTime = totalOpenTime;
+        this.maxOpenTime = maxOpenTime;
+        this.totalCloseTime = totalCloseTime;
+        this.maxCloseTime = maxCloseTime;
+        this.idleDescriptorCount = idleDescriptorCount;
+    }
+
+    /**
+     * Returns the number of successful opens, including reused descriptors.
+     *
+     * @return number of successful opens
+     */
+    public long getOpenCount() {
+        return openCount;
+    }
+
+    /**
+     * Returns the number of opens served by reusing an idle descriptor.
+     *
+     * @return number of reused descriptors
+     */
+    public long getReusedOpenCount() {
+        return reusedOpenCount;
+    }
+
+    public long getFailedOpenCount() {
+        return failedOpenCount;
+    }
+
+    public long getCloseCount() {
+        return closeCount;
+    }
+
+    /**
+     * Returns the total time spent in opens, in nanoseconds.
+     *
+     * @return total open time
+     */
+    public long getTotalOpenTime() {
+        return totalOpenTime;
+    }
+
+    /**
+     * Returns the longest open, in nanoseconds.
+     *
+     * @return maximum open time
+     */
+    public long getMaxOpenTime() {
+        return maxOpenTime;
+    }
+
+    /**
+     * Returns the average open time, in nanoseconds.
+     *
+     * @return average open time
+     */
+    public double getAverageOpenTime() {
+        final long count = openCount + failedOpenCount;
+        return (count == 0) ? 0 : totalOpenTime / (double) count;
+    }
+
+    /**
+     * Returns the total time spent in closes, in nanoseconds.
+     *
+     * @return total close time
+     */
+    public long getTotalCloseTime() {
+        return totalCloseTime;
+    }
+
+    /**
+     * Returns the longest close, in nanoseconds.
+     *
+     * @return maximum close time
+     */
+    public long getMaxCloseTime() {
+        return maxCloseTime;
+    }
+
+    /**
+     * Returns the average close time, in nanoseconds.
+     *
+     * @return average close time
+     */
+    public double getAverageCloseTime() {
+        return (closeCount == 0) ? 0 : totalCloseTime / (double) closeCount;
+    }
+
+    /**
+     * Returns the number of closed descriptors kept open for reuse.
+     *
+     * @return number of idle descriptors
+     */
+    public int getIdleDescriptorCount() {
+        return idleDescriptorCount;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder stringBuilder = new StringBuilder();
+
+        stringBuilder.append("SafStatistics{");
+        stringBuilder.append("openCount=");
+        stringBuilder.append(openCount);
+        stringBuilder.append(", reusedOpenCount=");
+        stringBuilder.append(reusedOpenCount);
+        stringBuilder.append(", failedOpenCount=");
+        stringBuilder.append(failedOpenCount);
+        stringBuilder.append(", closeCount=");
+        stringBuilder.append(closeCount);
+        stringBuilder.append(", averageOpenTime=");
+        stringBuilder.append(getAverageOpenTime());
+        stringBuilder.append(", maxOpenTime=");
+        stringBuilder.append(maxOpenTime);
+        stringBuilder.append(", averageCloseTime=");
+        stringBuilder.append(getAverageCloseTime());
+        stringBuilder.append(", maxCloseTime=");
+        stringBuilder.append(maxCloseTime);
+        stringBuilder.append(", idleDescriptorCount=");
+        stringBuilder.append(idleDescriptorCount);
+        stringBuilder.append('}');
+
+        return stringBuilder.toString();
+    }
+
+}
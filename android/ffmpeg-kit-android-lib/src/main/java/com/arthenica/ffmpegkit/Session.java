@@ -71,6 +71,14 @@ public interface Session {
      */
     long getDuration();
 
+    /**
+     * Returns monotonic lifecycle marks of this session, which separate time spent waiting for
+     * an executor from time spent executing and delivering callbacks.
+     *
+     * @return session timing
+     */
+    SessionTiming getTiming();
+
     /**
      * Returns command arguments as an array.
      *
@@ -180,6 +188,26 @@ public interface Session {
      */
     LogRedirectionStrategy getLogRedirectionStrategy();
 
+    /**
+     * Returns session specific log level.
+     *
+     * @return session specific log level or null if the global log level is used
+     */
+    Level getLogLevel();
+
+    /**
+     * Sets a session specific log level, used instead of {@link FFmpegKitConfig#getLogLevel()}
+     * for the logs of this session. Logs above this level are dropped natively, before they are
+     * formatted, so a single session can be debugged without raising the verbosity of others.
+     * Must be set before the session is executed.
+     *
+     * <p>Logs printed by codec and filter threads created inside FFmpeg are not associated with
+     * a session and are always filtered with the global log level.
+     *
+     * @param level session specific log level or null to use the global log level
+     */
+    void setLogLevel(final Level level);
+
     /**
      * Returns whether there are still asynchronous messages being transmitted for this
      * session or not.
@@ -232,4 +260,86 @@ public interface Session {
      */
     void cancel();
 
+    /**
+     * Cancels the session and waits until its execution ends, i.e. until the thread running it
+     * is released. Blocking reads and writes of fkio, saf and network urls are interrupted.
+     *
+     * <p>A session that is waiting in an executor queue is completed with
+     * {@link ReturnCode#CANCEL} when it is picked up, without running.
+     *
+     * @param timeout maximum time to wait, in milliseconds
+     * @return true if the session has ended within the timeout, false otherwise
+     */
+    boolean cancelAndAwait(final long timeout);
+
+    /**
+     * Returns the native memory allocated by this session through <code>av_malloc</code> and
+     * not freed yet. While the session is running the value is read natively, after it ends the
+     * value at the end of the execution is returned. Requires
+     * {@link FFmpegKitConfig#setMemoryAccountingEnabled(boolean)}.
+     *
+     * @return native memory in bytes
+     */
+    long getNativeMemory();
+
+    /**
+     * Returns the highest native memory allocated by this session at any time.
+     *
+     * @return peak native memory in bytes
+     */
+    long getPeakNativeMemory();
+
+    /**
+     * Returns the native memory limit of this session.
+     *
+     * @return native memory limit in bytes, zero if there is no limit
+     */
+    long getNativeMemoryLimit();
+
+    /**
+     * Sets a soft native memory limit for this session. The session is cancelled when the
+     * native memory it allocates exceeds the limit. Must be set before the session is executed
+     * and requires {@link FFmpegKitConfig#setMemoryAccountingEnabled(boolean)}.
+     *
+     * @param limit native memory limit in bytes, zero removes the limit
+     */
+    void setNativeMemoryLimit(final long limit);
+
+    /**
+     * Returns whether the session was cancelled because it exceeded its native memory limit.
+     *
+     * @return true if the native memory limit was exceeded, false otherwise
+     */
+    boolean isNativeMemoryLimitExceeded();
+
+    /**
+     * Returns the cpu time this session spent in user mode. Time used by the thread running the
+     * session and by the threads created under it, such as demuxer, muxer, codec and filter
+     * threads, is included. While the session is running the value is sampled natively, after
+     * it ends the value at the end of the execution is returned.
+     *
+     * <p>Threads created by external libraries, like encoder threads of x264 or x265, are not
+     * included.
+     *
+     * @return user cpu time in milliseconds
+     */
+    long getUserCpuTime();
+
+    /**
+     * Returns the cpu time this session spent in kernel mode.
+     *
+     * @return system cpu time in milliseconds
+     * @see #getUserCpuTime()
+     */
+    long getSystemCpuTime();
+
+    /**
+     * Returns the total cpu time this session used, which is the sum of user and system cpu
+     * time. Unlike {@link #getDuration()}, this value does not depend on how many sessions
+     * share the cpu cores.
+     *
+     * @return cpu time in milliseconds
+     */
+    long getCpuTime();
+
 }
@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import com.arthenica.smartexception.java.Exceptions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Runs FFmpeg sessions concurrently, connecting the output of one session to the input of
+ * another in memory, without intermediate files.
+ *
+ * <pre>
+ * SessionChain chain = SessionChain.create();
+ * SessionLink link = chain.createLink("nut");
+ * chain.addSession(FFmpegKitConfig.parseArguments("-i input.mp3 -af loudnorm -f nut " + link.getOutputUrl()));
+ * chain.addSession(FFmpegKitConfig.parseArguments("-i " + link.getInputUrl() + " -c:a aac output.m4a"));
+ * chain.executeAsync(completedChain -&gt; { ... });
+ * </pre>
+ *
+ * <p>When a session fails or is cancelled, the other sessions of the chain are cancelled and
+ * pending reads and writes on links fail, so blocked sessions end promptly. A session that
+ * stops reading a link before its end, e.g. because of <code>-t</code>, makes the producing
+ * session fail.
+ *
+ * <p>All sessions of a chain must run at the same time. The executor used must be able to run
+ * them concurrently, i.e. its concurrency limit must not be less than the number of sessions.
+ */
+public class SessionChain {
+
+    /**
+     * Default ring buffer size of links, in bytes.
+     */
+    public static final int DEFAULT_LINK_CAPACITY = 1024 * 1024;
+
+    /**
+     * Defines how long aborting a chain keeps repeating cancel requests for running sessions, in
+     * milliseconds.
+     */
+    static final int ABORT_CANCEL_TIMEOUT = 1000;
+
+    private final List<FFmpegSession> sessions;
+    private final List<SessionLink> links;
+    private final AtomicInteger activeSessionCount;
+    private SessionChainCompleteCallback completeCallback;
+    private FFmpegSession failedSession;
+    private boolean started;
+    private boolean aborted;
+
+    private SessionChain() {
+        this.sessions = new ArrayList<>();
+        this.links = new ArrayList<>();
+        this.activeSessionCount = new AtomicInteger();
+    }
+
+    /**
+     * <p>Creates an empty session chain.
+     *
+     * @return a new session chain
+     */
+    public static SessionChain create() {
+        return new SessionChain();
+    }
+
+    /**
+     * <p>Creates a link with the default ring buffer size.
+     *
+     * @param extension extension appended to link urls, can be null
+     * @return a new link
+     */
+    public SessionLink createLink(final String extension) {
+        return createLink(extension, DEFAULT_LINK_CAPACITY);
+    }
+
+    /**
+     * <p>Creates a link between two sessions of this chain.
+     *
+     * @param extension extension appended to link urls, can be null
+     * @param capacity  ring buffer size in bytes
+     * @return a new link
+     */
+    public synchronized SessionLink createLink(final String extension, final int capacity) {
+        final SessionLink link = new SessionLink(capacity, extension);
+        links.add(link);
+        return link;
+    }
+
+    /**
+     * <p>Adds a new session to this chain.
+     *
+     * @param arguments FFmpeg command arguments
+     * @return FFmpeg session created
+     */
+    public FFmpegSession addSession(final String[] arguments) {
+        return addSession(arguments, null, null);
+    }
+
+    /**
+     * <p>Adds a new session to this chain.
+     *
+     * @param arguments          FFmpeg command arguments
+     * @param logCallback        callback that will receive logs of the session, can be null
+     * @param statisticsCallback callback that will receive statistics of the session, can be null
+     * @return FFmpeg session created
+     */
+    public synchronized FFmpegSession addSession(final String[] arguments, final LogCallback logCallback, final StatisticsCallback statisticsCallback) {
+        if (started) {
+            throw new IllegalStateException("Sessions can not be added to a started chain.");
+        }
+
+        final FFmpegSession session = FFmpegSession.create(arguments, this::onSessionComplete, logCallback, statisticsCallback);
+        sessions.add(session);
+        return session;
+    }
+
+    /**
+     * <p>Starts all sessions on the async executor of {@link FFmpegKitConfig}.
+     *
+     * @param completeCallback callback that will be notified when all sessions have ended, can
+     *                         be null
+     */
+    public void executeAsync(final SessionChainCompleteCallback completeCallback) {
+        if (prepareExecution(completeCallback) > FFmpegKitConfig.getAsyncConcurrencyLimit()) {
+            android.util.Log.w(FFmpegKitConfig.TAG, String.format("Session chain has more sessions than the async concurrency limit %d.", FFmpegKitConfig.getAsyncConcurrencyLimit()));
+        }
+
+        for (FFmpegSession session : getSessions()) {
+            FFmpegKitConfig.asyncFFmpegExecute(session);
+        }
+    }
+
+    /**
+     * <p>Starts all sessions on the given executor.
+     *
+     * @param completeCallback callback that will be notified when all sessions have ended, can
+     *                         be null
+     * @param executorService  executor service that will be used to run sessions
+     */
+    public void executeAsync(final SessionChainCompleteCallback completeCallback, final ExecutorService executorService) {
+        prepareExecution(completeCallback);
+
+        for (FFmpegSession session : getSessions()) {
+            FFmpegKitConfig.asyncFFmpegExecute(session, executorService);
+        }
+    }
+
+    /**
+     * <p>Cancels all sessions of this chain. Waits up to {@link #ABORT_CANCEL_TIMEOUT}
+     * milliseconds for running sessions to end.
+     */
+    public void cancel() {
+        abort(null);
+    }
+
+    /**
+     * <p>Returns sessions of this chain in the order they are added.
+     *
+     * @return sessions
+     */
+    public synchronized List<FFmpegSession> getSessions() {
+        return Collections.unmodifiableList(new ArrayList<>(sessions));
+    }
+
+    /**
+     * <p>Returns links of this chain in the order they are created.
+     *
+     * @return links
+     */
+    public synchronized List<SessionLink> getLinks() {
+        return Collections.unmodifiableList(new ArrayList<>(links));
+    }
+
+    /**
+     * <p>Returns the first session that failed or was cancelled, which caused the other sessions
+     * to be cancelled.
+     *
+     * @return failed session or null if no session has failed
+     */
+    public synchronized FFmpegSession getFailedSession() {
+        return failedSession;
+    }
+
+    /**
+     * <p>Returns whether all sessions of this chain have completed successfully.
+     *
+     * @return true if all sessions completed successfully, false otherwise
+     */
+    public synchronized boolean isSuccess() {
+        if (!started || aborted || activeSessionCount.get() > 0) {
+            return false;
+        }
+
+        for (FFmpegSession session : sessions) {
+            if (!ReturnCode.isSuccess(session.getReturnCode())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private synchronized int prepareExecution(final SessionChainCompleteCallback completeCallback) {
+        if (started) {
+            throw new IllegalStateException("Session chain is already started.");
+        }
+        if (sessions.isEmpty()) {
+            throw new IllegalStateException("Session chain has no sessions.");
+        }
+
+        this.started = true;
+        this.completeCallback = completeCallback;
+        activeSessionCount.set(sessions.size());
+
+        return sessions.size();
+    }
+
+    private void onSessionComplete(final FFmpegSession session) {
+        if (!ReturnCode.isSuccess(session.getReturnCode())) {
+            abort(session);
+        }
+
+        if (activeSessionCount.decrementAndGet() == 0) {
+            final SessionChainCompleteCallback callback;
+            synchronized (this) {
+                callback = completeCallback;
+            }
+
+            if (callback != null) {
+                try {
+                    callback.apply(this);
+                } catch (final Exception e) {
+                    android.util.Log.e(FFmpegKitConfig.TAG, String.format("Exception thrown inside session chain complete callback.%s", Exceptions.getStackTraceString(e)));
+                }
+            }
+        }
+    }
+
+    private void abort(final FFmpegSession cause) {
+        final List<FFmpegSession> sessionsToCancel;
+        final List<SessionLink> linksToAbort;
+        synchronized (this) {
+            if (aborted) {
+                return;
+            }
+            aborted = true;
+            failedSession = cause;
+            sessionsToCancel = new ArrayList<>(sessions);
+            linksToAbort = new ArrayList<>(links);
+        }
+
+        final IOException exception = new IOException((cause != null) ? String.format("Session %d of the chain failed.", cause.getSessionId()) : "Session chain is cancelled.");
+        for (SessionLink link : linksToAbort) {
+            link.getRingBuffer().abort(exception);
+        }
+
+        for (FFmpegSession session : sessionsToCancel) {
+            if (session != cause && session.getState() != SessionState.COMPLETED && session.getState() != SessionState.FAILED) {
+
+                // ALSO SKIPS SESSIONS THAT ARE STILL WAITING IN THE EXECUTOR QUEUE
+                session.cancelAndAwait(0);
+            }
+        }
+
+        // A SINGLE CANCEL REQUEST IS LOST IF IT ARRIVES BEFORE NATIVE EXECUTION HAS STARTED, SO
+        // REPEAT IT FOR RUNNING SESSIONS. QUEUED SESSIONS ARE NOT AWAITED, THEY MAY BE WAITING
+        // FOR THE THREAD THAT CALLS THIS METHOD
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ABORT_CANCEL_TIMEOUT);
+        for (FFmpegSession session : sessionsToCancel) {
+            final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                break;
+            }
+            if (session != cause && session.getState() == SessionState.RUNNING) {
+                session.cancelAndAwait(remaining);
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        final StringBuilder stringBuilder = new StringBuilder();
+
+        stringBuilder.append("SessionChain{");
+        stringBuilder.append("sessions=");
+        stringBuilder.append(sessions.size());
+        stringBuilder.append(", links=");
+        stringBuilder.append(links.size());
+        stringBuilder.append(", started=");
+        stringBuilder.append(started);
+        stringBuilder.append(", aborted=");
+        stringBuilder.append(aborted);
+        stringBuilder.append('}');
+
+        return stringBuilder.toString();
+    }
+
+}
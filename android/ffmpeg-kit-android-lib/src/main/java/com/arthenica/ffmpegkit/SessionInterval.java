@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+/**
+ * <p>Intervals between two {@link SessionMark}s, measured for each session and aggregated in
+ * histograms by {@link FFmpegKitConfig#getSessionTimingHistogram(SessionInterval)}.
+ */
+public enum SessionInterval {
+
+    /**
+     * Time spent waiting for an executor thread after an asynchronous execution is requested.
+     */
+    QUEUE_WAIT(SessionMark.ENQUEUED, SessionMark.STARTED),
+
+    /**
+     * Time from start until the first statistics entry is delivered.
+     */
+    TIME_TO_FIRST_STATISTICS(SessionMark.STARTED, SessionMark.FIRST_STATISTICS),
+
+    /**
+     * Time from start until the native execution returns.
+     */
+    NATIVE_EXECUTION(SessionMark.STARTED, SessionMark.NATIVE_FINISHED),
+
+    /**
+     * Time from the end of the native execution until all of its logs and statistics are
+     * delivered to callbacks.
+     */
+    CALLBACK_DRAIN(SessionMark.NATIVE_FINISHED, SessionMark.CALLBACKS_DRAINED),
+
+    /**
+     * Time from creation until the session has ended. When log redirection is enabled, a
+     * session ends after its logs and statistics are delivered, so this includes
+     * {@link #CALLBACK_DRAIN}.
+     */
+    TOTAL(SessionMark.CREATED, SessionMark.COMPLETED);
+
+    private final SessionMark start;
+    private final SessionMark end;
+
+    SessionInterval(final SessionMark start, final SessionMark end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    public SessionMark getStart() {
+        return start;
+    }
+
+    public SessionMark getEnd() {
+        return end;
+    }
+
+}
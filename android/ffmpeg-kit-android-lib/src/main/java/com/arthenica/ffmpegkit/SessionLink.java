@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+/**
+ * <p>In-memory connection between two sessions of a {@link SessionChain}. The session producing
+ * data uses {@link #getOutputUrl()} as its output, the session consuming it uses
+ * {@link #getInputUrl()} as its input.
+ *
+ * <p>Data passes through a bounded ring buffer, so the producer blocks when the consumer falls
+ * behind. Neither url is seekable; the output format must support non-seekable outputs, e.g.
+ * <code>nut</code>, <code>matroska</code>, <code>wav</code> or raw formats.
+ */
+public class SessionLink {
+
+    private final RingBuffer ringBuffer;
+    private final String outputUrl;
+    private final String inputUrl;
+
+    SessionLink(final int capacity, final String extension) {
+        this.ringBuffer = new RingBuffer(capacity);
+        this.outputUrl = FFmpegKitConfig.getFkioParameterForWrite(ringBuffer.getSink(), extension);
+        this.inputUrl = FFmpegKitConfig.getFkioParameterForRead(ringBuffer.getSource(), extension);
+    }
+
+    /**
+     * Returns the url the producing session writes to.
+     *
+     * @return output url
+     */
+    public String getOutputUrl() {
+        return outputUrl;
+    }
+
+    /**
+     * Returns the url the consuming session reads from.
+     *
+     * @return input url
+     */
+    public String getInputUrl() {
+        return inputUrl;
+    }
+
+    /**
+     * Returns the size of the ring buffer.
+     *
+     * @return capacity in bytes
+     */
+    public int getCapacity() {
+        return ringBuffer.getCapacity();
+    }
+
+    /**
+     * Returns the number of bytes read by the consuming session.
+     *
+     * @return number of bytes transferred
+     */
+    public long getBytesTransferred() {
+        return ringBuffer.getBytesTransferred();
+    }
+
+    RingBuffer getRingBuffer() {
+        return ringBuffer;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder stringBuilder = new StringBuilder();
+
+        stringBuilder.append("SessionLink{");
+        stringBuilder.append("outputUrl=");
+        stringBuilder.append(outputUrl);
+        stringBuilder.append(", inputUrl=");
+        stringBuilder.append(inputUrl);
+        stringBuilder.append(", capacity=");
+        stringBuilder.append(getCapacity());
+        stringBuilder.append(", bytesTransferred=");
+        stringBuilder.append(getBytesTransferred());
+        stringBuilder.append('}');
+
+        return stringBuilder.toString();
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Lifecycle marks of a session, recorded with {@link System#nanoTime()}. Marks are
+ * monotonic and can only be compared with each other, they do not represent a date.
+ *
+ * <p>Each mark is recorded once. Intervals between marks are also added to the histograms
+ * returned by {@link FFmpegKitConfig#getSessionTimingHistogram(SessionInterval)} as soon as both
+ * of their marks are recorded.
+ */
+public class SessionTiming {
+
+    private final AtomicLongArray marks;
+
+    SessionTiming() {
+        this.marks = new AtomicLongArray(SessionMark.values().length);
+    }
+
+    /**
+     * Records the given mark with the current time.
+     *
+     * @param mark lifecycle mark
+     * @return true if the mark is recorded, false if it was recorded before
+     */
+    boolean mark(final SessionMark mark) {
+        return mark(mark, System.nanoTime());
+    }
+
+    /**
+     * Records the given mark with the time provided.
+     *
+     * @param mark lifecycle mark
+     * @param time time in {@link System#nanoTime()} scale
+     * @return true if the mark is recorded, false if it was recorded before
+     */
+    boolean mark(final SessionMark mark, final long time) {
+        if (marks.get(mark.ordinal()) != 0 || !marks.compareAndSet(mark.ordinal(), 0, time)) {
+            return false;
+        }
+
+        // AN INTERVAL IS RECORDED BY WHICHEVER OF ITS MARKS COMES LAST
+        for (SessionInterval interval : SessionInterval.values()) {
+            if (interval.getStart() == mark || interval.getEnd() == mark) {
+                final long duration = get(interval);
+                if (duration >= 0) {
+                    FFmpegKitConfig.recordSessionInterval(interval, duration);
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the time the given mark was recorded.
+     *
+     * @param mark lifecycle mark
+     * @return time in {@link System#nanoTime()} scale or zero if the mark is not recorded
+     */
+    public long getMark(final SessionMark mark) {
+        return marks.get(mark.ordinal());
+    }
+
+    /**
+     * Returns whether the given mark is recorded.
+     *
+     * @param mark lifecycle mark
+     * @return true if the mark is recorded, false otherwise
+     */
+    public boolean hasMark(final SessionMark mark) {
+        return marks.get(mark.ordinal()) != 0;
+    }
+
+    /**
+     * Returns the length of the given interval.
+     *
+     * @param interval session interval
+     * @return interval length in nanoseconds or -1 if one of its marks is not recorded
+     */
+    public long get(final SessionInterval interval) {
+        final long start = marks.get(interval.getStart().ordinal());
+        final long end = marks.get(interval.getEnd().ordinal());
+        if (start == 0 || end == 0) {
+            return -1;
+        }
+
+        return Math.max(end - start, 0);
+    }
+
+    /**
+     * Returns the time spent waiting for an executor thread.
+     *
+     * @return queue wait time in nanoseconds or -1 if the session was not executed
+     * asynchronously or has not started yet
+     */
+    public long getQueueWaitTime() {
+        return get(SessionInterval.QUEUE_WAIT);
+    }
+
+    /**
+     * Returns the time from start until the first statistics entry is delivered.
+     *
+     * @return time to first statistics in nanoseconds or -1 if no statistics are delivered
+     */
+    public long getTimeToFirstStatistics() {
+        return get(SessionInterval.TIME_TO_FIRST_STATISTICS);
+    }
+
+    /**
+     * Returns the time spent in the native execution.
+     *
+     * @return native execution time in nanoseconds or -1 if the native execution has not
+     * finished
+     */
+    public long getNativeExecutionTime() {
+        return get(SessionInterval.NATIVE_EXECUTION);
+    }
+
+    /**
+     * Returns the time from the end of the native execution until all of its logs and
+     * statistics are delivered to callbacks. Not available when redirection is disabled.
+     *
+     * @return callback drain time in nanoseconds or -1 if callbacks are not drained yet
+     */
+    public long getCallbackDrainTime() {
+        return get(SessionInterval.CALLBACK_DRAIN);
+    }
+
+    /**
+     * Returns the time from creation until the session has ended, including the delivery of
+     * its logs and statistics when log redirection is enabled.
+     *
+     * @return total time in nanoseconds or -1 if the session has not ended
+     */
+    public long getTotalTime() {
+        return get(SessionInterval.TOTAL);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder stringBuilder = new StringBuilder();
+
+        stringBuilder.append("SessionTiming{");
+        final SessionInterval[] intervals = SessionInterval.values();
+        for (int i = 0; i < intervals.length; i++) {
+            if (i > 0) {
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append(intervals[i].name().toLowerCase(Locale.ROOT));
+            stringBuilder.append('=');
+            stringBuilder.append(get(intervals[i]));
+        }
+        stringBuilder.append('}');
+
+        return stringBuilder.toString();
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import java.util.Locale;
+
+/**
+ * <p>Cumulative time spent in each stage of an FFmpeg session and the occupancy of its
+ * queues. Wall and cpu times are in nanoseconds. Cpu time is measured on the thread running
+ * the stage, so work done by codec or filter worker threads is only included in wall time.
+ *
+ * <p>Thread queue depth is the number of packets waiting for the muxer thread. Sync queue
+ * depth is the number of frames or packets held to interleave output streams.
+ */
+public class StageProfile {
+
+    /**
+     * Number of values in a native profile array.
+     */
+    static final int VALUE_COUNT = TranscodeStage.values().length * 3 + 4;
+
+    private final long[] values;
+
+    StageProfile(final long[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Creates a profile from native profile values.
+     *
+     * @param values native profile values
+     * @return profile created or null if values are not valid
+     */
+    static StageProfile from(final long[] values) {
+        if (values == null || values.length != VALUE_COUNT) {
+            return null;
+        }
+
+        return new StageProfile(values);
+    }
+
+    /**
+     * Returns how many times the stage was entered.
+     *
+     * @param stage transcode stage
+     * @return number of stage invocations
+     */
+    public long getCount(final TranscodeStage stage) {
+        return values[stage.ordinal() * 3];
+    }
+
+    /**
+     * Returns the wall clock time spent in the stage, in nanoseconds.
+     *
+     * @param stage transcode stage
+     * @return wall time
+     */
+    public long getWallTime(final TranscodeStage stage) {
+        return values[stage.ordinal() * 3 + 1];
+    }
+
+    /**
+     * Returns the cpu time spent in the stage, in nanoseconds.
+     *
+     * @param stage transcode stage
+     * @return cpu time
+     */
+    public long getCpuTime(final TranscodeStage stage) {
+        return values[stage.ordinal() * 3 + 2];
+    }
+
+    /**
+     * Returns the stage with the highest wall time.
+     *
+     * @return slowest stage or null if no stage was measured
+     */
+    public TranscodeStage getSlowestStage() {
+        TranscodeStage slowest = null;
+        for (TranscodeStage stage : TranscodeStage.values()) {
+            if (getWallTime(stage) > 0 && (slowest == null || getWallTime(stage) > getWallTime(slowest))) {
+                slowest = stage;
+            }
+        }
+
+        return slowest;
+    }
+
+    public int getThreadQueueDepth() {
+        return (int) values[VALUE_COUNT - 4];
+    }
+
+    public int getMaxThreadQueueDepth() {
+        return (int) values[VALUE_COUNT - 3];
+    }
+
+    public int getSyncQueueDepth() {
+        return (int) values[VALUE_COUNT - 2];
+    }
+
+    public int getMaxSyncQueueDepth() {
+        return (int) values[VALUE_COUNT - 1];
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder stringBuilder = new StringBuilder();
+
+        stringBuilder.append("StageProfile{");
+        for (TranscodeStage stage : TranscodeStage.values()) {
+            final String name = stage.name().toLowerCase(Locale.ROOT);
+            stringBuilder.append(name);
+            stringBuilder.append("Count=");
+            stringBuilder.append(getCount(stage));
+            stringBuilder.append(", ");
+            stringBuilder.append(name);
+            stringBuilder.append("WallTime=");
+            stringBuilder.append(getWallTime(stage));
+            stringBuilder.append(", ");
+            stringBuilder.append(name);
+            stringBuilder.append("CpuTime=");
+            stringBuilder.append(getCpuTime(stage));
+            stringBuilder.append(", ");
+        }
+        stringBuilder.append("threadQueueDepth=");
+        stringBuilder.append(getThreadQueueDepth());
+        stringBuilder.append(", maxThreadQueueDepth=");
+        stringBuilder.append(getMaxThreadQueueDepth());
+        stringBuilder.append(", syncQueueDepth=");
+        stringBuilder.append(getSyncQueueDepth());
+        stringBuilder.append(", maxSyncQueueDepth=");
+        stringBuilder.append(getMaxSyncQueueDepth());
+        stringBuilder.append('}');
+
+        return stringBuilder.toString();
+    }
+
+}
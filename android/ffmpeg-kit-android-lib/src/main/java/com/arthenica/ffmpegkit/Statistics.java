@@ -31,6 +31,8 @@ public class Statistics {
     private double time;
     private double bitrate;
     private double speed;
+    private StageProfile stageProfile;
+    private OutputStatistics outputStatistics;
 
     public Statistics(final long sessionId, final int videoFrameNumber, final float videoFps, final float videoQuality, final long size, final double time, final double bitrate, final double speed) {
         this.sessionId = sessionId;
@@ -107,6 +109,33 @@ public class Statistics {
         this.speed = speed;
     }
 
+    /**
+     * Returns the stage profile of the session at the time this entry was created.
+     *
+     * @return stage profile or null if stage profiling is not enabled
+     */
+    public StageProfile getStageProfile() {
+        return stageProfile;
+    }
+
+    public void setStageProfile(StageProfile stageProfile) {
+        this.stageProfile = stageProfile;
+    }
+
+    /**
+     * Returns progress of each output file and output stream. Aggregated values of this entry
+     * are based on the first video stream and the first output file only.
+     *
+     * @return output statistics or null if they are not reported
+     */
+    public OutputStatistics getOutputStatistics() {
+        return outputStatistics;
+    }
+
+    public void setOutputStatistics(OutputStatistics outputStatistics) {
+        this.outputStatistics = outputStatistics;
+    }
+
     @Override
     public String toString() {
         final StringBuilder stringBuilder = new StringBuilder();
@@ -128,6 +157,10 @@ public class Statistics {
         stringBuilder.append(bitrate);
         stringBuilder.append(", speed=");
         stringBuilder.append(speed);
+        stringBuilder.append(", stageProfile=");
+        stringBuilder.append(stageProfile);
+        stringBuilder.append(", outputStatistics=");
+        stringBuilder.append(outputStatistics);
         stringBuilder.append('}');
 
         return stringBuilder.toString();
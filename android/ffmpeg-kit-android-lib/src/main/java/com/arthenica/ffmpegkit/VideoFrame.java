@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>A decoded video frame delivered by a {@link FrameSink}.
+ */
+public class VideoFrame {
+
+    /**
+     * Used as pts when frame timestamps are not known.
+     */
+    public static final long NO_PTS = Long.MIN_VALUE;
+
+    private final ByteBuffer buffer;
+    private final long index;
+    private final long pts;
+    private final double frameRate;
+    private final String pixelFormat;
+    private final int width;
+    private final int height;
+
+    public VideoFrame(final ByteBuffer buffer, final long index, final long pts, final double frameRate, final String pixelFormat, final int width, final int height) {
+        this.buffer = buffer;
+        this.index = index;
+        this.pts = pts;
+        this.frameRate = frameRate;
+        this.pixelFormat = pixelFormat;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Returns frame data in a direct buffer. Data is packed as FFmpeg <code>rawvideo</code>
+     * output of the pixel format.
+     *
+     * @return direct buffer holding frame data
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the presentation timestamp of this frame in 1 / frame rate units.
+     *
+     * @return pts or {@link #NO_PTS} if the sink does not use a constant frame rate
+     */
+    public long getPts() {
+        return pts;
+    }
+
+    /**
+     * Returns the presentation time of this frame.
+     *
+     * @return presentation time in seconds or NaN if the sink does not use a constant frame rate
+     */
+    public double getPtsTime() {
+        return (pts == NO_PTS) ? Double.NaN : pts / frameRate;
+    }
+
+    public String getPixelFormat() {
+        return pixelFormat;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder stringBuilder = new StringBuilder();
+
+        stringBuilder.append("VideoFrame{");
+        stringBuilder.append("index=");
+        stringBuilder.append(index);
+        stringBuilder.append(", pts=");
+        stringBuilder.append(pts);
+        stringBuilder.append(", pixelFormat=");
+        stringBuilder.append(pixelFormat);
+        stringBuilder.append(", width=");
+        stringBuilder.append(width);
+        stringBuilder.append(", height=");
+        stringBuilder.append(height);
+        stringBuilder.append(", size=");
+        stringBuilder.append(buffer.remaining());
+        stringBuilder.append('}');
+
+        return stringBuilder.toString();
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Measures how many debug level log lines per second ffmpeg-kit formats and copies into callback
+ * data blocks, on one or more threads. Lines are logged with av_log, the way FFmpeg logs them.
+ *
+ * "reuse" mode uses logLineFormat with the thread-local buffer and a single copy; "bprint" mode
+ * repeats the previous AVBPrint based implementation for comparison. Lines are released right
+ * after they are copied, the cost of delivering them to Java is not included.
+ *
+ * Built as ffmpegkit_log_benchmark when android.sh is run with --native-benchmarks, then run on a
+ * device:
+ *
+ *   adb push ffmpegkit_log_benchmark libavutil.so /data/local/tmp
+ *   adb shell LD_LIBRARY_PATH=/data/local/tmp /data/local/tmp/ffmpegkit_log_benchmark reuse 4 1000000
+ */
+
+#include <inttypes.h>
+#include <pthread.h>
+#include <stdint.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <time.h>
+
+#include "libavutil/bprint.h"
+#include "libavutil/log.h"
+#include "ffmpegkit_log.h"
+
+typedef struct BenchmarkContext {
+    const AVClass *avClass;
+} BenchmarkContext;
+
+static const AVClass benchmarkClass = {
+    .class_name = "h264",
+    .item_name  = av_default_item_name,
+    .version    = LIBAVUTIL_VERSION_INT,
+};
+
+/** Callback data of the previous implementation, with its embedded AVBPrint */
+typedef struct BprintLine {
+    int level;
+    AVBPrint data;
+} BprintLine;
+
+/** Callback data of the current implementation, line follows the struct */
+typedef struct ReuseLine {
+    int level;
+    char *data;
+    int length;
+} ReuseLine;
+
+static long linesPerThread;
+static __thread int64_t checksum;
+
+static int64_t benchmarkNow(void) {
+    struct timespec now;
+    clock_gettime(CLOCK_MONOTONIC, &now);
+    return (int64_t) now.tv_sec * 1000000000 + now.tv_nsec;
+}
+
+static void bprintFormatLine(void *avcl, int level, const char *fmt, va_list vl, AVBPrint part[4]) {
+    AVClass* avc = avcl ? *(AVClass **) avcl : NULL;
+    av_bprint_init(part+0, 0, 1);
+    av_bprint_init(part+1, 0, 1);
+    av_bprint_init(part+2, 0, 1);
+    av_bprint_init(part+3, 0, 65536);
+
+    if (avc) {
+        av_bprintf(part+1, "[%s @ %p] ", avc->item_name(avcl), avcl);
+    }
+
+    av_vbprintf(part+3, fmt, vl);
+}
+
+static void bprintLogCallback(void *ptr, int level, const char *format, va_list vargs) {
+    AVBPrint fullLine;
+    AVBPrint part[4];
+
+    if (level > av_log_get_level()) {
+        return;
+    }
+
+    av_bprint_init(&fullLine, 0, AV_BPRINT_SIZE_UNLIMITED);
+    bprintFormatLine(ptr, level, format, vargs, part);
+    av_bprintf(&fullLine, "%s%s%s%s", part[0].str, part[1].str, part[2].str, part[3].str);
+
+    if (fullLine.len > 0) {
+        BprintLine *line = (BprintLine *) av_malloc(sizeof(BprintLine));
+        if (line != NULL) {
+            line->level = level;
+            av_bprint_init(&line->data, 0, AV_BPRINT_SIZE_UNLIMITED);
+            av_bprintf(&line->data, "%s", fullLine.str);
+            checksum += line->data.len;
+            av_bprint_finalize(&line->data, NULL);
+            av_free(line);
+        }
+    }
+
+    av_bprint_finalize(part, NULL);
+    av_bprint_finalize(part+1, NULL);
+    av_bprint_finalize(part+2, NULL);
+    av_bprint_finalize(part+3, NULL);
+    av_bprint_finalize(&fullLine, NULL);
+}
+
+static void reuseLogCallback(void *ptr, int level, const char *format, va_list vargs) {
+    const char *data;
+
+    if (level > av_log_get_level()) {
+        return;
+    }
+
+    int length = logLineFormat(ptr, level, format, vargs, &data);
+    if (length > 0) {
+        ReuseLine *line = (ReuseLine *) av_malloc(sizeof(ReuseLine) + length + 1);
+        if (line != NULL) {
+            line->level = level;
+            line->data = (char *) (line + 1);
+            memcpy(line->data, data, length);
+            line->data[length] = '\0';
+            line->length = length;
+            checksum += line->length;
+            av_free(line);
+        }
+    }
+}
+
+static void *benchmarkThread(void *argument) {
+    BenchmarkContext context = { &benchmarkClass };
+    int64_t *result = (int64_t *) argument;
+
+    for (long i = 0; i < linesPerThread; i++) {
+        av_log(&context, AV_LOG_DEBUG, "nal_unit_type: %d(%s), nal_ref_idc: %d, pts: %" PRId64 "\n", (int) (i % 32), "Coded slice of a non-IDR picture", (int) (i % 4), (int64_t) i * 3003);
+    }
+
+    *result = checksum;
+    return NULL;
+}
+
+int main(int argc, char **argv) {
+    const char *mode = argc > 1 ? argv[1] : "reuse";
+    int threadCount = argc > 2 ? atoi(argv[2]) : 1;
+    linesPerThread = argc > 3 ? atol(argv[3]) : 1000000;
+
+    if (threadCount < 1 || linesPerThread < 1 || (strcmp(mode, "reuse") != 0 && strcmp(mode, "bprint") != 0)) {
+        fprintf(stderr, "Usage: %s [reuse|bprint] [threads] [lines per thread]\n", argv[0]);
+        return 1;
+    }
+
+    av_log_set_level(AV_LOG_DEBUG);
+    av_log_set_callback(strcmp(mode, "reuse") == 0 ? reuseLogCallback : bprintLogCallback);
+
+    pthread_t *threads = (pthread_t *) calloc(threadCount, sizeof(pthread_t));
+    int64_t *results = (int64_t *) calloc(threadCount, sizeof(int64_t));
+    if (threads == NULL || results == NULL) {
+        return 1;
+    }
+
+    int64_t start = benchmarkNow();
+    for (int i = 0; i < threadCount; i++) {
+        pthread_create(&threads[i], NULL, benchmarkThread, &results[i]);
+    }
+    int64_t bytes = 0;
+    for (int i = 0; i < threadCount; i++) {
+        pthread_join(threads[i], NULL);
+        bytes += results[i];
+    }
+    int64_t elapsed = benchmarkNow() - start;
+
+    double lines = (double) threadCount * linesPerThread;
+    printf("mode=%s threads=%d lines=%.0f bytes=%" PRId64 " seconds=%.3f lines/s=%.0f\n", mode, threadCount, lines, bytes, elapsed / 1e9, lines * 1e9 / elapsed);
+
+    free(threads);
+    free(results);
+    return 0;
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Checks native memory accounting of sessions, i.e. the allocation and free hooks installed with
+ * av_set_mem_hooks. Hooks are called directly with fake pointers, no memory is allocated for them.
+ *
+ * Built as ffmpegkit_memory_test when android.sh is run with --native-benchmarks, then run on a
+ * device:
+ *
+ *   adb push ffmpegkit_memory_test /data/local/tmp
+ *   adb shell /data/local/tmp/ffmpegkit_memory_test
+ */
+
+#include <stdint.h>
+#include <stdio.h>
+
+#include "ffmpegkit_memory.h"
+
+/** Session id of the current thread, defined in ffmpegkit.c for the library */
+__thread long globalSessionId;
+
+static long cancelledSessionId;
+
+/** Records the cancelled session instead of cancelling it */
+void cancelSession(long id) {
+    cancelledSessionId = id;
+}
+
+static int failures;
+
+static void expect(const char *name, int64_t expected, int64_t actual) {
+    if (expected != actual) {
+        fprintf(stderr, "FAILED %s: expected %lld, found %lld\n", name, (long long) expected, (long long) actual);
+        failures++;
+    }
+}
+
+static void expectMemory(const char *name, long sessionId, int64_t expectedCurrent, int64_t expectedPeak) {
+    int64_t current;
+    int64_t peak;
+
+    memoryGet(sessionId, &current, &peak);
+    expect(name, expectedCurrent, current);
+    expect(name, expectedPeak, peak);
+}
+
+static void testAccountingDisabled(void) {
+    memorySetAccountingEnabled(0);
+    memoryReset(1);
+    globalSessionId = 1;
+
+    memoryAllocHook((void *) 0x1000, 100);
+    expectMemory("disabled alloc", 1, 0, 0);
+    expect("disabled free", 0, (int64_t) memoryFreeHook((void *) 0x1000));
+}
+
+static void testAllocAndFree(void) {
+    memorySetAccountingEnabled(1);
+    memoryReset(2);
+    globalSessionId = 2;
+
+    memoryAllocHook((void *) 0x2000, 100);
+    memoryAllocHook((void *) 0x3000, 200);
+    expectMemory("alloc", 2, 300, 300);
+
+    expect("free size", 100, (int64_t) memoryFreeHook((void *) 0x2000));
+    expectMemory("free", 2, 200, 300);
+
+    expect("unknown free", 0, (int64_t) memoryFreeHook((void *) 0x4000));
+    expectMemory("unknown free", 2, 200, 300);
+
+    expect("last free", 200, (int64_t) memoryFreeHook((void *) 0x3000));
+    expectMemory("last free", 2, 0, 300);
+}
+
+static void testThreadWithoutSession(void) {
+    memorySetAccountingEnabled(1);
+    memoryReset(3);
+    globalSessionId = 0;
+
+    memoryAllocHook((void *) 0x5000, 100);
+    expect("no session free", 0, (int64_t) memoryFreeHook((void *) 0x5000));
+    expectMemory("no session", 3, 0, 0);
+}
+
+static void testLateFreeOnReusedSlot(void) {
+    memorySetAccountingEnabled(1);
+    memoryReset(4);
+    globalSessionId = 4;
+    memoryAllocHook((void *) 0x6000, 100);
+
+    // SESSION 1004 USES THE SAME SLOT AS SESSION 4
+    memoryReset(1004);
+    globalSessionId = 1004;
+    memoryAllocHook((void *) 0x7000, 50);
+
+    expect("late free size", 100, (int64_t) memoryFreeHook((void *) 0x6000));
+    expectMemory("late free", 1004, 50, 50);
+    expectMemory("previous session", 4, 0, 0);
+
+    memoryFreeHook((void *) 0x7000);
+}
+
+static void testLimit(void) {
+    memorySetAccountingEnabled(1);
+    memoryReset(5);
+    memorySetLimit(5, 1000);
+    globalSessionId = 5;
+    cancelledSessionId = 0;
+
+    memoryAllocHook((void *) 0x8000, 800);
+    expect("under limit", 0, cancelledSessionId);
+
+    memoryAllocHook((void *) 0x9000, 800);
+    expect("over limit", 5, cancelledSessionId);
+
+    memoryFreeHook((void *) 0x8000);
+    memoryFreeHook((void *) 0x9000);
+    memorySetLimit(5, 0);
+}
+
+static void testDisablingDropsRecords(void) {
+    memorySetAccountingEnabled(1);
+    memoryReset(6);
+    globalSessionId = 6;
+    memoryAllocHook((void *) 0xA000, 100);
+
+    memorySetAccountingEnabled(0);
+    expect("free while disabled", 0, (int64_t) memoryFreeHook((void *) 0xA000));
+
+    // ADDRESS IS REUSED BY AN ALLOCATION NOT ACCOUNTED
+    memorySetAccountingEnabled(1);
+    expect("free after enabling", 0, (int64_t) memoryFreeHook((void *) 0xA000));
+    expectMemory("disabled records", 6, 100, 100);
+}
+
+int main(void) {
+    testAccountingDisabled();
+    testAllocAndFree();
+    testThreadWithoutSession();
+    testLateFreeOnReusedSlot();
+    testLimit();
+    testDisablingDropsRecords();
+
+    printf("%s\n", (failures == 0) ? "ffmpegkit memory accounting tests passed" : "ffmpegkit memory accounting tests failed");
+
+    return (failures == 0) ? 0 : 1;
+}
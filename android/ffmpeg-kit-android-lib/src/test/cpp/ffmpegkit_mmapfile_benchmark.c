@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Compares the file and mmapfile protocols on a seek heavy read pattern, the way thumbnail
+ * extraction and scrubbing read a local media file: every read seeks to a pseudo random position
+ * first. Both protocols are opened through avio with the same buffer size and seek to the same
+ * positions, so the difference is the cost of a read system call against a copy from the mapping.
+ *
+ * Built as ffmpegkit_mmapfile_benchmark when android.sh is run with --native-benchmarks. Run it
+ * twice on the same file, the first run warms the page cache for both protocols:
+ *
+ *   adb push ffmpegkit_mmapfile_benchmark libavformat.so libavcodec.so libavutil.so libswresample.so /data/local/tmp
+ *   adb shell LD_LIBRARY_PATH=/data/local/tmp /data/local/tmp/ffmpegkit_mmapfile_benchmark /sdcard/video.mp4 100000 4096
+ */
+
+#include <errno.h>
+#include <inttypes.h>
+#include <stdint.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <time.h>
+
+#include "libavformat/avio.h"
+#include "libavutil/error.h"
+
+static int64_t benchmarkNow(void) {
+    struct timespec now;
+    clock_gettime(CLOCK_MONOTONIC, &now);
+    return (int64_t) now.tv_sec * 1000000000 + now.tv_nsec;
+}
+
+static int benchmarkProtocol(const char *protocol, const char *path, long readCount, int readSize) {
+    char url[4096];
+    AVIOContext *pb = NULL;
+    unsigned char *buffer;
+    uint64_t position = 88172645463325252ULL;
+    int64_t checksum = 0;
+    int ret;
+
+    snprintf(url, sizeof(url), "%s:%s", protocol, path);
+
+    ret = avio_open2(&pb, url, AVIO_FLAG_READ, NULL, NULL);
+    if (ret < 0) {
+        fprintf(stderr, "Failed to open %s: %s\n", url, av_err2str(ret));
+        return ret;
+    }
+
+    int64_t size = avio_size(pb);
+    if (size <= readSize) {
+        fprintf(stderr, "%s is smaller than the read size\n", path);
+        avio_closep(&pb);
+        return AVERROR(EINVAL);
+    }
+
+    buffer = (unsigned char *) malloc(readSize);
+    if (buffer == NULL) {
+        avio_closep(&pb);
+        return AVERROR(ENOMEM);
+    }
+
+    int64_t start = benchmarkNow();
+    for (long i = 0; i < readCount; i++) {
+
+        /* xorshift, so both protocols seek to the same positions */
+        position ^= position << 13;
+        position ^= position >> 7;
+        position ^= position << 17;
+
+        avio_seek(pb, (int64_t) (position % (uint64_t) (size - readSize)), SEEK_SET);
+        ret = avio_read(pb, buffer, readSize);
+        if (ret < 0) {
+            break;
+        }
+        checksum += buffer[0] + ret;
+    }
+    int64_t elapsed = benchmarkNow() - start;
+
+    printf("protocol=%s size=%" PRId64 " reads=%ld read_size=%d seconds=%.3f ns/read=%.0f checksum=%" PRId64 "\n", protocol, size, readCount, readSize, elapsed / 1e9, (double) elapsed / readCount, checksum);
+
+    free(buffer);
+    avio_closep(&pb);
+    return ret < 0 ? ret : 0;
+}
+
+int main(int argc, char **argv) {
+    const char *path = argc > 1 ? argv[1] : NULL;
+    long readCount = argc > 2 ? atol(argv[2]) : 100000;
+    int readSize = argc > 3 ? atoi(argv[3]) : 4096;
+
+    if (path == NULL || readCount < 1 || readSize < 1) {
+        fprintf(stderr, "Usage: %s <file> [reads] [read size]\n", argv[0]);
+        return 1;
+    }
+
+    if (benchmarkProtocol("file", path, readCount, readSize) < 0 || benchmarkProtocol("mmapfile", path, readCount, readSize) < 0) {
+        return 1;
+    }
+
+    return 0;
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Tests for {@link AudioSink} class.
+ */
+public class AudioSinkTest {
+
+    @Test
+    public void pullChunks() throws IOException, InterruptedException {
+        final AudioSink sink = AudioSink.create("s16le", 8000, 2, 4, 2);
+        Assert.assertEquals(16, sink.getChunkSize());
+
+        final byte[] data = new byte[40];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        Assert.assertEquals(10, sink.write(ByteBuffer.wrap(data, 0, 10)));
+        Assert.assertNull(sink.read(10));
+        Assert.assertEquals(22, sink.write(ByteBuffer.wrap(data, 10, 22)));
+
+        final AudioChunk first = sink.read(1000);
+        Assert.assertEquals(0, first.getIndex());
+        Assert.assertEquals(4, first.getSampleCount());
+        Assert.assertEquals(0, first.getBuffer().get(0));
+        sink.release(first);
+        Assert.assertEquals(8, sink.write(ByteBuffer.wrap(data, 32, 8)));
+
+        // LAST CHUNK IS DELIVERED ALTHOUGH IT IS INCOMPLETE
+        sink.close();
+
+        final AudioChunk second = sink.read(1000);
+        Assert.assertEquals(4, second.getSampleOffset());
+        Assert.assertEquals(16, second.getBuffer().get(0));
+        sink.release(second);
+
+        final AudioChunk third = sink.read(1000);
+        Assert.assertEquals(2, third.getSampleCount());
+        Assert.assertEquals(0.001, third.getTime(), 0.0000001);
+        sink.release(third);
+
+        Assert.assertNull(sink.read(1000));
+        Assert.assertTrue(sink.isEndOfStream());
+    }
+
+    @Test
+    public void pushChunks() throws IOException, InterruptedException {
+        final List<Long> offsets = new ArrayList<>();
+        final AudioSink sink = AudioSink.create("f32le", 48000, 1, 256, chunk -> offsets.add(chunk.getSampleOffset()));
+
+        sink.write(ByteBuffer.allocate(256 * 4 * 3));
+        sink.close();
+        sink.join(5000);
+
+        Assert.assertTrue(sink.isEndOfStream());
+        Assert.assertEquals(3, offsets.size());
+        Assert.assertEquals(Long.valueOf(512), offsets.get(2));
+
+        try {
+            sink.read(0);
+            Assert.fail("Push mode sink allowed read.");
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+    }
+
+}
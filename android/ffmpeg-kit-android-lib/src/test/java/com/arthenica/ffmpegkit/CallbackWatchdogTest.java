@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2018-2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>Tests for {@link CallbackWatchdog} class.
+ */
+public class CallbackWatchdogTest {
+
+    @Test
+    public void latency() {
+        FFmpegKitConfig.resetCallbackLatencyHistograms();
+        final AtomicInteger invocations = new AtomicInteger();
+        final Log log = new Log(1, Level.AV_LOG_INFO, "message");
+
+        CallbackWatchdog.invoke(CallbackType.GLOBAL_LOG, (LogCallback) l -> invocations.incrementAndGet(), log, LogCallback::apply);
+        CallbackWatchdog.invoke(CallbackType.GLOBAL_LOG, (LogCallback) l -> {
+            throw new IllegalStateException();
+        }, log, LogCallback::apply);
+
+        Assert.assertEquals(1, invocations.get());
+        Assert.assertEquals(2, FFmpegKitConfig.getCallbackLatencyHistogram(CallbackType.GLOBAL_LOG).getCount());
+        Assert.assertEquals(0, FFmpegKitConfig.getCallbackLatencyHistogram(CallbackType.SESSION_LOG).getCount());
+    }
+
+    @Test
+    public void slowCallbackOffload() throws InterruptedException {
+        final long threshold = FFmpegKitConfig.getSlowCallbackThreshold();
+        FFmpegKitConfig.setSlowCallbackThreshold(20);
+        FFmpegKitConfig.setSlowCallbackStackDumpEnabled(true);
+        FFmpegKitConfig.setSlowCallbackOffloadEnabled(true);
+
+        try {
+            final Thread callerThread = Thread.currentThread();
+            final AtomicReference<Thread> lastThread = new AtomicReference<>();
+            final CountDownLatch latch = new CountDownLatch(1);
+            final LogCallback slowCallback = log -> {
+                lastThread.set(Thread.currentThread());
+                if (log.getMessage().equals("slow")) {
+                    sleep(40);
+                } else {
+                    latch.countDown();
+                }
+            };
+            final LogCallback fastCallback = log -> lastThread.set(Thread.currentThread());
+
+            final MetricSample before = FFmpegKitConfig.getMetricsRegistry().snapshot().getSample("ffmpegkit_slow_callbacks_total", "callback", "session_log");
+
+            CallbackWatchdog.invoke(CallbackType.SESSION_LOG, slowCallback, new Log(1, Level.AV_LOG_INFO, "slow"), LogCallback::apply);
+            Assert.assertSame(callerThread, lastThread.get());
+            Assert.assertTrue(CallbackWatchdog.isSlow(slowCallback));
+
+            final MetricSample after = FFmpegKitConfig.getMetricsRegistry().snapshot().getSample("ffmpegkit_slow_callbacks_total", "callback", "session_log");
+            Assert.assertEquals(1, after.getValue() - before.getValue(), 0);
+
+            CallbackWatchdog.invoke(CallbackType.SESSION_LOG, slowCallback, new Log(1, Level.AV_LOG_INFO, "fast"), LogCallback::apply);
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertNotSame(callerThread, lastThread.get());
+
+            CallbackWatchdog.invoke(CallbackType.SESSION_LOG, fastCallback, new Log(1, Level.AV_LOG_INFO, "fast"), LogCallback::apply);
+            Assert.assertSame(callerThread, lastThread.get());
+            Assert.assertFalse(CallbackWatchdog.isSlow(fastCallback));
+        } finally {
+            FFmpegKitConfig.setSlowCallbackOffloadEnabled(false);
+            FFmpegKitConfig.setSlowCallbackStackDumpEnabled(false);
+            FFmpegKitConfig.setSlowCallbackThreshold(threshold);
+            CallbackWatchdog.clearSlowCallbacks();
+        }
+    }
+
+    @Test
+    public void invalidThreshold() {
+        try {
+            FFmpegKitConfig.setSlowCallbackThreshold(-1);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static void sleep(final long milliseconds) {
+        try {
+            Thread.sleep(milliseconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Tests for {@link CommandTemplate} class.
+ */
+public class CommandTemplateTest {
+
+    @Test
+    public void bindPositional() {
+        final CommandTemplate template = CommandTemplate.compile("-i {input:path} -vf \"scale={width:number}:-1,fps={fps}\" -c:v mpeg4 {output:path}");
+
+        Assert.assertEquals(Arrays.asList("input", "width", "fps", "output"), template.getPlaceholderNames());
+        Assert.assertEquals(CommandTemplate.PlaceholderType.NUMBER, template.getPlaceholderType("width"));
+        Assert.assertNull(template.getPlaceholderType("height"));
+
+        final String[] arguments = template.bind("/sdcard/in put.mp4", 640, "30", "/sdcard/out.avi");
+        Assert.assertArrayEquals(new String[]{"-i", "/sdcard/in put.mp4", "-vf", "scale=640:-1,fps=30", "-c:v", "mpeg4", "/sdcard/out.avi"}, arguments);
+    }
+
+    @Test
+    public void bindMapAndRepeatedPlaceholder() {
+        final CommandTemplate template = CommandTemplate.compile("-i {input:saf} -map 0:{stream:number} -metadata title={{{stream:number}}} {input:saf}.copy");
+
+        final Map<String, Object> values = new HashMap<>();
+        values.put("input", "saf:1.mp4");
+        values.put("stream", 2L);
+
+        Assert.assertArrayEquals(new String[]{"-i", "saf:1.mp4", "-map", "0:2", "-metadata", "title={2}", "saf:1.mp4.copy"}, template.bind(values));
+    }
+
+    @Test
+    public void bindMatchesParsedCommand() {
+        final CommandTemplate template = CommandTemplate.compile("-y -ss {start:number} -i {input:path} -frames:v 1 -q:v 2 {output:path}");
+
+        for (int i = 0; i < 100000; i++) {
+            final String[] arguments = template.bind(i, "/data/video.mp4", "/data/thumb" + i + ".jpg");
+            if (i % 10000 == 0) {
+                Assert.assertArrayEquals(FFmpegKitConfig.parseArguments("-y -ss " + i + " -i /data/video.mp4 -frames:v 1 -q:v 2 /data/thumb" + i + ".jpg"), arguments);
+            }
+        }
+    }
+
+    @Test
+    public void bindBenchmark() {
+        final CommandTemplate template = CommandTemplate.compile("-y -ss {start:number} -i {input:path} -frames:v 1 -q:v 2 {output:path}");
+        final int bindings = 100000;
+
+        // WARM UP BOTH PATHS BEFORE MEASURING
+        long checksum = bindAll(template, bindings) + parseAll(bindings);
+
+        final long bindStart = System.nanoTime();
+        final long bindChecksum = bindAll(template, bindings);
+        final long bindTime = System.nanoTime() - bindStart;
+
+        final long parseStart = System.nanoTime();
+        final long parseChecksum = parseAll(bindings);
+        final long parseTime = System.nanoTime() - parseStart;
+
+        System.out.printf("CommandTemplate.bind: %d bindings in %d ms, parseArguments: %d commands in %d ms%n",
+                bindings, bindTime / 1000000, bindings, parseTime / 1000000);
+
+        Assert.assertEquals(parseChecksum, bindChecksum);
+        Assert.assertTrue(checksum > 0);
+    }
+
+    @Test
+    public void invalidTemplates() {
+        assertInvalidTemplate("-i {input");
+        assertInvalidTemplate("-i input}");
+        assertInvalidTemplate("-i {:path}");
+        assertInvalidTemplate("-i {input:file}");
+        assertInvalidTemplate("-i {input:path} {input:saf}");
+    }
+
+    @Test
+    public void invalidValues() {
+        final CommandTemplate template = CommandTemplate.compile("-i {input:saf} -t {duration:number} {output:path}");
+
+        assertInvalidValues(template, "saf:1.mp4", 10);
+        assertInvalidValues(template, "/sdcard/in.mp4", 10, "out.mp4");
+        assertInvalidValues(template, "saf:1.mp4", "ten", "out.mp4");
+        assertInvalidValues(template, "saf:1.mp4", "NaN", "out.mp4");
+        assertInvalidValues(template, "saf:1.mp4", "Infinity", "out.mp4");
+        assertInvalidValues(template, "saf:1.mp4", Double.POSITIVE_INFINITY, "out.mp4");
+        assertInvalidValues(template, "saf:1.mp4", "1d", "out.mp4");
+        assertInvalidValues(template, "saf:1.mp4", "1f", "out.mp4");
+        assertInvalidValues(template, "saf:1.mp4", "0x1p3", "out.mp4");
+        assertInvalidValues(template, "saf:1.mp4", " 1", "out.mp4");
+        assertInvalidValues(template, "saf:1.mp4", 10, "");
+        assertInvalidValues(template, "saf:1.mp4", 10, null);
+    }
+
+    @Test
+    public void numberValues() {
+        final CommandTemplate template = CommandTemplate.compile("-t {duration:number}");
+
+        Assert.assertArrayEquals(new String[]{"-t", "10"}, template.bind(10));
+        Assert.assertArrayEquals(new String[]{"-t", "1.5"}, template.bind(1.5));
+        Assert.assertArrayEquals(new String[]{"-t", "-.5"}, template.bind("-.5"));
+        Assert.assertArrayEquals(new String[]{"-t", "2e3"}, template.bind("2e3"));
+        Assert.assertArrayEquals(new String[]{"-t", "1.0E10"}, template.bind(1e10));
+    }
+
+    private long bindAll(final CommandTemplate template, final int bindings) {
+        long checksum = 0;
+        for (int i = 0; i < bindings; i++) {
+            checksum += template.bind(i, "/data/video.mp4", "/data/thumb" + i + ".jpg")[2].length();
+        }
+        return checksum;
+    }
+
+    private long parseAll(final int bindings) {
+        long checksum = 0;
+        for (int i = 0; i < bindings; i++) {
+            checksum += FFmpegKitConfig.parseArguments("-y -ss " + i + " -i /data/video.mp4 -frames:v 1 -q:v 2 /data/thumb" + i + ".jpg")[2].length();
+        }
+        return checksum;
+    }
+
+    private void assertInvalidTemplate(final String command) {
+        try {
+            CommandTemplate.compile(command);
+            Assert.fail("Template accepted: " + command);
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private void assertInvalidValues(final CommandTemplate template, final Object... values) {
+        try {
+            template.bind(values);
+            Assert.fail("Values accepted: " + Arrays.toString(values));
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+}
@@ -24,6 +24,7 @@ import static com.arthenica.ffmpegkit.FFmpegSessionTest.TEST_ARGUMENTS;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -187,6 +188,128 @@ public class FFmpegKitConfigTest {
         }
     }
 
+    @Test
+    public void packArguments() {
+        final byte[] packedArguments = FFmpegKitConfig.packArguments(new String[]{"-i", "gül.mp4", "", "-y"});
+        Assert.assertArrayEquals(new byte[]{'-', 'i', 0, 'g', (byte) 0xC3, (byte) 0xBC, 'l', '.', 'm', 'p', '4', 0, 0, '-', 'y', 0}, packedArguments);
+
+        Assert.assertArrayEquals(new byte[0], FFmpegKitConfig.packArguments(new String[0]));
+        Assert.assertNull(FFmpegKitConfig.packArguments(null));
+        Assert.assertNull(FFmpegKitConfig.packArguments(new String[]{"-i", null}));
+        Assert.assertNull(FFmpegKitConfig.packArguments(new String[]{"-metadata", "title=a\0b"}));
+    }
+
+    @Test
+    public void setPackedArgumentsEnabled() {
+        Assert.assertFalse(FFmpegKitConfig.isPackedArgumentsEnabled());
+
+        FFmpegKitConfig.setPackedArgumentsEnabled(true);
+        try {
+            Assert.assertTrue(FFmpegKitConfig.isPackedArgumentsEnabled());
+        } finally {
+            FFmpegKitConfig.setPackedArgumentsEnabled(false);
+        }
+    }
+
+    @Test
+    public void getMmapFileParameter() {
+        Assert.assertEquals("mmapfile:/data/video.mp4", FFmpegKitConfig.getMmapFileParameter("/data/video.mp4"));
+    }
+
+    @Test
+    public void mapLocalInputs() throws Exception {
+        final File file = File.createTempFile("input", ".MP4");
+        file.deleteOnExit();
+        final String path = file.getAbsolutePath();
+        final File playlist = File.createTempFile("input", ".m3u8");
+        playlist.deleteOnExit();
+
+        final String[] arguments = new String[]{"-i", path, "-i", "file:" + path, "-i", playlist.getAbsolutePath(), "-i", "/missing/file.mp4", "-i", file.getParent(), "-y", path};
+        final String[] mappedArguments = FFmpegKitConfig.mapLocalInputs(arguments);
+
+        Assert.assertArrayEquals(new String[]{"-i", "mmapfile:" + path, "-i", "mmapfile:" + path, "-i", playlist.getAbsolutePath(), "-i", "/missing/file.mp4", "-i", file.getParent(), "-y", path}, mappedArguments);
+        Assert.assertEquals(path, arguments[1]);
+
+        final String[] remoteArguments = new String[]{"-i", "https://host/video.mp4", "-i", "saf:1.mp4", "out.mp4"};
+        Assert.assertSame(remoteArguments, FFmpegKitConfig.mapLocalInputs(remoteArguments));
+        Assert.assertNull(FFmpegKitConfig.mapLocalInputs(null));
+    }
+
+    @Test
+    public void logFiltering() {
+        Assert.assertEquals(Level.AV_LOG_DEBUG, FFmpegKitConfig.getLogLevel());
+        final int sessionHistorySize = FFmpegKitConfig.getSessionHistorySize();
+        FFmpegKitConfig.setSessionHistorySize(10);
+
+        try {
+            final FFmpegSession globalLevelSession = FFmpegSession.create(TEST_ARGUMENTS);
+            final FFmpegSession traceSession = FFmpegSession.create(TEST_ARGUMENTS);
+            traceSession.setLogLevel(Level.AV_LOG_TRACE);
+            final FFmpegSession infoSession = FFmpegSession.create(TEST_ARGUMENTS);
+            infoSession.setLogLevel(Level.AV_LOG_INFO);
+            final FFmpegSession quietSession = FFmpegSession.create(TEST_ARGUMENTS);
+            quietSession.setLogLevel(Level.AV_LOG_QUIET);
+
+            // SESSION LEVELS ARE COUNTED ONLY WHILE SESSIONS ARE ACTIVE
+            Assert.assertEquals(0, FFmpegKitConfig.getSessionLogLevelCount());
+            Assert.assertTrue(FFmpegKitConfig.isLogFiltered(traceSession.getSessionId(), Level.AV_LOG_TRACE.getValue()));
+
+            final FFmpegSession[] sessions = new FFmpegSession[]{globalLevelSession, traceSession, infoSession, quietSession};
+            for (FFmpegSession session : sessions) {
+                session.startRunning();
+                session.nativeStarted(true);
+            }
+            Assert.assertEquals(3, FFmpegKitConfig.getSessionLogLevelCount());
+
+            Assert.assertEquals("AV_LOG_STDERRAV_LOG_INFOAV_LOG_DEBUG", unfilteredLevels(globalLevelSession));
+            Assert.assertEquals("AV_LOG_STDERRAV_LOG_INFOAV_LOG_DEBUGAV_LOG_TRACE", unfilteredLevels(traceSession));
+            Assert.assertEquals("AV_LOG_STDERRAV_LOG_INFO", unfilteredLevels(infoSession));
+            Assert.assertEquals("AV_LOG_STDERR", unfilteredLevels(quietSession));
+
+            // LOGS IN TRANSIT AFTER COMPLETION STILL USE THE SESSION LEVEL UNTIL THEY ARE DRAINED
+            traceSession.complete(new ReturnCode(ReturnCode.SUCCESS));
+            Assert.assertEquals(3, FFmpegKitConfig.getSessionLogLevelCount());
+            traceSession.callbacksDrained();
+            Assert.assertEquals(2, FFmpegKitConfig.getSessionLogLevelCount());
+
+            infoSession.setLogLevel(null);
+            Assert.assertEquals(1, FFmpegKitConfig.getSessionLogLevelCount());
+
+            quietSession.callbacksDrained();
+            quietSession.fail(new Exception("test"));
+            globalLevelSession.complete(new ReturnCode(ReturnCode.SUCCESS));
+            infoSession.complete(new ReturnCode(ReturnCode.SUCCESS));
+            infoSession.drainCancelled();
+            Assert.assertEquals(0, FFmpegKitConfig.getSessionLogLevelCount());
+            Assert.assertTrue(FFmpegKitConfig.isLogFiltered(traceSession.getSessionId(), Level.AV_LOG_TRACE.getValue()));
+
+            // A SESSION THAT NEVER REACHES NATIVE EXECUTION ENDS ON COMPLETION
+            final FFmpegSession cancelledSession = FFmpegSession.create(TEST_ARGUMENTS);
+            cancelledSession.setLogLevel(Level.AV_LOG_TRACE);
+            cancelledSession.startRunning();
+            Assert.assertEquals(1, FFmpegKitConfig.getSessionLogLevelCount());
+            cancelledSession.complete(new ReturnCode(ReturnCode.CANCEL));
+            Assert.assertEquals(0, FFmpegKitConfig.getSessionLogLevelCount());
+        } finally {
+            FFmpegKitConfig.setSessionHistorySize(sessionHistorySize);
+        }
+
+        Assert.assertTrue(FFmpegKitConfig.isLogFiltered(Level.AV_LOG_VERBOSE.getValue(), Level.AV_LOG_INFO));
+        Assert.assertFalse(FFmpegKitConfig.isLogFiltered(Level.AV_LOG_WARNING.getValue(), Level.AV_LOG_INFO));
+        Assert.assertFalse(FFmpegKitConfig.isLogFiltered(Level.AV_LOG_STDERR.getValue(), Level.AV_LOG_QUIET));
+        Assert.assertTrue(FFmpegKitConfig.isLogFiltered(Level.AV_LOG_PANIC.getValue(), Level.AV_LOG_QUIET));
+    }
+
+    private String unfilteredLevels(final Session session) {
+        final StringBuilder stringBuilder = new StringBuilder();
+        for (Level level : new Level[]{Level.AV_LOG_STDERR, Level.AV_LOG_INFO, Level.AV_LOG_DEBUG, Level.AV_LOG_TRACE}) {
+            if (!FFmpegKitConfig.isLogFiltered(session.getSessionId(), level.getValue())) {
+                stringBuilder.append(level.name());
+            }
+        }
+        return stringBuilder.toString();
+    }
+
     private String listToPackageName(final List<String> externalLibraryList) {
         boolean speex = externalLibraryList.contains("speex");
         boolean fribidi = externalLibraryList.contains("fribidi");
@@ -24,6 +24,9 @@ import org.json.JSONObject;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.EnumSet;
+
 /**
  * <p>Tests for {@link FFmpegKit} class.
  */
@@ -735,6 +738,52 @@ public class FFmpegKitTest {
         Assert.assertEquals("video.mp4", argumentArray[12]);
     }
 
+    @Test
+    public void fastMediaInformationArguments() {
+        String[] argumentArray = FFprobeKit.fastGetMediaInformationCommandArguments("video.mp4", EnumSet.of(MediaInformationField.STREAM_WIDTH, MediaInformationField.DURATION, MediaInformationField.STREAM_CODEC, MediaInformationField.STREAM_HEIGHT));
+
+        Assert.assertEquals("-v error -hide_banner -probesize 65536 -analyzeduration 500000 -print_format json -show_entries format=duration:stream=index,codec_type,codec_name,width,height -i video.mp4", argumentsToString(argumentArray));
+
+        argumentArray = FFprobeKit.fastGetMediaInformationCommandArguments("video.mp4", EnumSet.of(MediaInformationField.FORMAT_TAGS, MediaInformationField.STREAM_TAGS));
+
+        Assert.assertEquals("format_tags:stream=index,codec_type:stream_tags", argumentArray[10]);
+
+        argumentArray = FFprobeKit.fastGetMediaInformationCommandArguments("video.mp4", Collections.singletonList(MediaInformationField.SIZE));
+
+        Assert.assertEquals("format=size", argumentArray[10]);
+
+        try {
+            FFprobeKit.fastGetMediaInformationCommandArguments("video.mp4", Collections.<MediaInformationField>emptyList());
+            Assert.fail("Empty field list accepted");
+        } catch (final IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void parseProbeRecords() {
+        ProbeRecord record = ProbeRecordReader.parse(ProbeRecord.Type.PACKET, "stream_index=1|pts=1024|dts=N/A|size=1340|pos=48|flags=K_C");
+
+        Assert.assertNotNull(record);
+        Assert.assertEquals(1, record.getStreamIndex());
+        Assert.assertEquals(1024, record.getPts());
+        Assert.assertEquals(ProbeRecord.NO_VALUE, record.getDts());
+        Assert.assertEquals(1340, record.getSize());
+        Assert.assertEquals(48, record.getPosition());
+        Assert.assertTrue(record.isKeyFrame());
+        Assert.assertEquals(ProbeRecord.FLAG_KEY | ProbeRecord.FLAG_CORRUPT, record.getFlags());
+
+        record = ProbeRecordReader.parse(ProbeRecord.Type.FRAME, "stream_index=0|key_frame=0|pts=3003|pkt_dts=N/A|pkt_pos=N/A|pkt_size=512|pict_type=B");
+
+        Assert.assertNotNull(record);
+        Assert.assertFalse(record.isKeyFrame());
+        Assert.assertEquals(3003, record.getPts());
+        Assert.assertEquals(ProbeRecord.NO_VALUE, record.getPosition());
+        Assert.assertEquals(512, record.getSize());
+        Assert.assertEquals('B', record.getPictureType());
+
+        Assert.assertNull(ProbeRecordReader.parse(ProbeRecord.Type.PACKET, ""));
+    }
+
     @Test
     public void argumentsToString() {
         Assert.assertEquals("null", argumentsToString(null));
@@ -343,4 +343,69 @@ public class FFmpegSessionTest {
         Assert.assertNotNull(ffmpegSession.getFailStackTrace());
     }
 
+    @Test
+    public void cancelQueuedSession() {
+        FFmpegSession ffmpegSession = FFmpegSession.create(TEST_ARGUMENTS);
+
+        // SESSION IS NOT STARTED YET
+        Assert.assertFalse(ffmpegSession.cancelAndAwait(0));
+
+        FFmpegKitConfig.ffmpegExecute(ffmpegSession);
+
+        Assert.assertEquals(SessionState.COMPLETED, ffmpegSession.getState());
+        Assert.assertTrue(ReturnCode.isCancel(ffmpegSession.getReturnCode()));
+        Assert.assertTrue(ffmpegSession.cancelAndAwait(0));
+    }
+
+    @Test
+    public void nativeMemoryLimit() {
+        FFmpegSession ffmpegSession = FFmpegSession.create(TEST_ARGUMENTS);
+
+        Assert.assertEquals(0, ffmpegSession.getNativeMemoryLimit());
+        Assert.assertFalse(ffmpegSession.isNativeMemoryLimitExceeded());
+
+        ffmpegSession.setNativeMemoryLimit(1024);
+        ffmpegSession.setNativeMemory(256, 2048);
+
+        Assert.assertEquals(256, ffmpegSession.getNativeMemory());
+        Assert.assertEquals(2048, ffmpegSession.getPeakNativeMemory());
+        Assert.assertTrue(ffmpegSession.isNativeMemoryLimitExceeded());
+
+        ffmpegSession.setNativeMemoryLimit(0);
+        Assert.assertFalse(ffmpegSession.isNativeMemoryLimitExceeded());
+
+        try {
+            ffmpegSession.setNativeMemoryLimit(-1);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void cpuTime() {
+        FFmpegSession ffmpegSession = FFmpegSession.create(TEST_ARGUMENTS);
+
+        Assert.assertEquals(0, ffmpegSession.getCpuTime());
+
+        ffmpegSession.setCpuTime(1500999, 250000);
+
+        Assert.assertEquals(1500, ffmpegSession.getUserCpuTime());
+        Assert.assertEquals(250, ffmpegSession.getSystemCpuTime());
+        Assert.assertEquals(1750, ffmpegSession.getCpuTime());
+    }
+
+    @Test
+    public void logLevel() {
+        FFmpegSession ffmpegSession = FFmpegSession.create(TEST_ARGUMENTS);
+
+        Assert.assertNull(ffmpegSession.getLogLevel());
+
+        ffmpegSession.setLogLevel(Level.AV_LOG_DEBUG);
+        Assert.assertEquals(Level.AV_LOG_DEBUG, ffmpegSession.getLogLevel());
+
+        ffmpegSession.setLogLevel(null);
+        Assert.assertNull(ffmpegSession.getLogLevel());
+    }
+
 }
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+/**
+ * <p>Tests for {@link FkioChannel} class.
+ */
+public class FkioChannelTest {
+
+    @Test
+    public void readStream() {
+        final byte[] data = createData(150000);
+        final FkioChannel channel = new FkioChannel(1, Channels.newChannel(new ByteArrayInputStream(data)), null);
+
+        Assert.assertNull(channel.open(true));
+        final ByteBuffer buffer = channel.open(false);
+        Assert.assertTrue(buffer.isDirect());
+
+        final ByteArrayOutputStream readData = new ByteArrayOutputStream();
+        int bytesRead;
+        while ((bytesRead = channel.read(100000)) != FkioChannel.END_OF_STREAM) {
+            Assert.assertTrue(bytesRead > 0 && bytesRead <= buffer.capacity());
+            for (int i = 0; i < bytesRead; i++) {
+                readData.write(buffer.get(i));
+            }
+        }
+
+        Assert.assertArrayEquals(data, readData.toByteArray());
+        Assert.assertEquals(-1, channel.seek(0, FkioChannel.AVSEEK_SIZE));
+        Assert.assertEquals(0, channel.close());
+    }
+
+    @Test
+    public void interruptBlockedRead() throws Exception {
+        final RingBuffer ringBuffer = new RingBuffer(1024);
+        final FkioChannel channel = new FkioChannel(3, ringBuffer.getSource(), null);
+        channel.open(false);
+
+        final int[] result = new int[1];
+        final Thread reader = new Thread(() -> result[0] = channel.read(100));
+        reader.start();
+
+        // READ BLOCKS UNTIL THE CHANNEL IS INTERRUPTED
+        Thread.sleep(100);
+        Assert.assertTrue(reader.isAlive());
+
+        final long start = System.nanoTime();
+        channel.interrupt();
+        reader.join(5000);
+        final long latency = System.nanoTime() - start;
+
+        Assert.assertFalse(reader.isAlive());
+        Assert.assertEquals(FkioChannel.ERROR, result[0]);
+        Assert.assertTrue(latency < 1000000000L);
+        Assert.assertEquals(FkioChannel.ERROR, channel.read(100));
+        Assert.assertEquals(0, channel.close());
+    }
+
+    @Test
+    public void writeStream() {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final FkioChannel channel = new FkioChannel(2, null, Channels.newChannel(outputStream));
+
+        final ByteBuffer buffer = channel.open(true);
+        for (int i = 0; i < 10; i++) {
+            buffer.put(i, (byte) i);
+        }
+
+        Assert.assertEquals(10, channel.write(10));
+        Assert.assertEquals(0, channel.close());
+        Assert.assertArrayEquals(createData(10), outputStream.toByteArray());
+    }
+
+    @Test
+    public void seekFile() throws IOException {
+        final File file = File.createTempFile("fkio", ".raw");
+
+        try {
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+                randomAccessFile.write(createData(1000));
+            }
+
+            final FkioChannel channel = new FkioChannel(3, new RandomAccessFile(file, "r").getChannel(), null);
+            final ByteBuffer buffer = channel.open(false);
+
+            Assert.assertEquals(1000, channel.seek(0, FkioChannel.AVSEEK_SIZE));
+            Assert.assertEquals(100, channel.seek(100, FkioChannel.SEEK_SET));
+            Assert.assertEquals(150, channel.seek(50, FkioChannel.SEEK_CUR));
+            Assert.assertEquals(990, channel.seek(-10, FkioChannel.SEEK_END));
+
+            Assert.assertEquals(10, channel.read(100));
+            Assert.assertEquals((byte) 990, buffer.get(0));
+            Assert.assertEquals(FkioChannel.END_OF_STREAM, channel.read(100));
+
+            Assert.assertEquals(0, channel.close());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void reopenFile() throws IOException {
+        final File file = File.createTempFile("fkio", ".raw");
+
+        try {
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+                randomAccessFile.write(createData(1000));
+            }
+
+            final FkioChannel channel = new FkioChannel(6, new RandomAccessFile(file, "r").getChannel(), null);
+            ByteBuffer buffer = channel.open(false);
+            Assert.assertEquals(500, channel.seek(500, FkioChannel.SEEK_SET));
+            Assert.assertEquals(100, channel.read(100));
+            Assert.assertEquals(0, channel.closeUrl());
+
+            // SECOND OPEN STARTS FROM THE BEGINNING, E.G. WHEN AN INPUT IS PROBED FIRST
+            buffer = channel.open(false);
+            Assert.assertNotNull(buffer);
+            Assert.assertEquals(100, channel.read(100));
+            Assert.assertEquals((byte) 0, buffer.get(0));
+            Assert.assertEquals((byte) 99, buffer.get(99));
+            Assert.assertEquals(0, channel.closeUrl());
+
+            Assert.assertEquals(0, channel.close());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void segments() {
+        final ByteBuffer first = ByteBuffer.allocateDirect(100);
+        first.position(10);
+        final ByteBuffer second = ByteBuffer.allocateDirect(50);
+
+        final FkioChannel channel = new FkioChannel(4, new ByteBuffer[]{first, second});
+        final ByteBuffer[] segments = channel.getSegments();
+
+        Assert.assertEquals(2, segments.length);
+        Assert.assertEquals(90, segments[0].capacity());
+        Assert.assertEquals(50, segments[1].capacity());
+        Assert.assertEquals(10, first.position());
+
+        Assert.assertEquals(0, channel.close());
+        Assert.assertNull(channel.getSegments());
+
+        try {
+            new FkioChannel(5, new ByteBuffer[]{first, ByteBuffer.allocate(10)});
+            Assert.fail("Heap buffer accepted.");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static byte[] createData(final int size) {
+        final byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+}
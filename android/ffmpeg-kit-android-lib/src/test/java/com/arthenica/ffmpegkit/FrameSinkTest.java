@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Tests for {@link FrameSink} class.
+ */
+public class FrameSinkTest {
+
+    @Test
+    public void frameSize() {
+        Assert.assertEquals(640 * 480 * 4, FrameSink.getFrameSize("rgba", 640, 480));
+        Assert.assertEquals(640 * 480 * 3, FrameSink.getFrameSize("rgb24", 640, 480));
+        Assert.assertEquals(640 * 480 * 3 / 2, FrameSink.getFrameSize("yuv420p", 640, 480));
+        Assert.assertEquals(9 + 2 * 4, FrameSink.getFrameSize("nv12", 3, 3));
+
+        try {
+            FrameSink.getFrameSize("p010le", 640, 480);
+            Assert.fail("Unsupported pixel format accepted.");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void deliverFrames() throws IOException, InterruptedException {
+        final List<byte[]> frames = new ArrayList<>();
+        final List<Long> ptsList = new ArrayList<>();
+
+        final FrameSink sink = FrameSink.create(2, 2, "gray", 25, frame -> {
+            final ByteBuffer buffer = frame.getBuffer();
+            Assert.assertTrue(buffer.isDirect());
+
+            final byte[] data = new byte[buffer.remaining()];
+            buffer.get(data);
+            frames.add(data);
+            ptsList.add(frame.getPts());
+        }, 1);
+
+        // 3 FRAMES AND AN INCOMPLETE ONE, WRITTEN IN UNEVEN PARTS
+        final byte[] data = new byte[14];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        Assert.assertEquals(3, sink.write(ByteBuffer.wrap(data, 0, 3)));
+        Assert.assertEquals(9, sink.write(ByteBuffer.wrap(data, 3, 9)));
+        Assert.assertEquals(2, sink.write(ByteBuffer.wrap(data, 12, 2)));
+        sink.close();
+        sink.join(5000);
+
+        Assert.assertFalse(sink.isOpen());
+        Assert.assertEquals(3, frames.size());
+        Assert.assertArrayEquals(new byte[]{0, 1, 2, 3}, frames.get(0));
+        Assert.assertArrayEquals(new byte[]{8, 9, 10, 11}, frames.get(2));
+        Assert.assertEquals(Long.valueOf(2), ptsList.get(2));
+    }
+
+    @Test
+    public void interruptReleasesBlockedWrite() throws IOException, InterruptedException {
+        final CountDownLatch deliveryStarted = new CountDownLatch(1);
+        final CountDownLatch releaseDelivery = new CountDownLatch(1);
+        final List<Long> ptsList = new ArrayList<>();
+
+        final FrameSink sink = FrameSink.create(2, 2, "gray", 25, frame -> {
+            deliveryStarted.countDown();
+            try {
+                releaseDelivery.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ptsList.add(frame.getPts());
+        }, 1);
+
+        // FIRST FRAME HOLDS THE ONLY BUFFER, SO THE SECOND WRITE WAITS FOR A FREE BUFFER
+        Assert.assertEquals(4, sink.write(ByteBuffer.wrap(new byte[4])));
+        Assert.assertTrue(deliveryStarted.await(5000, TimeUnit.MILLISECONDS));
+
+        final Exception[] writeError = new Exception[1];
+        final Thread writer = new Thread(() -> {
+            try {
+                sink.write(ByteBuffer.wrap(new byte[4]));
+            } catch (final Exception e) {
+                writeError[0] = e;
+            }
+        });
+        writer.start();
+        Thread.sleep(100);
+        Assert.assertTrue(writer.isAlive());
+
+        sink.interrupt();
+        writer.join(5000);
+        Assert.assertFalse(writer.isAlive());
+        Assert.assertTrue(writeError[0] instanceof IOException);
+
+        try {
+            sink.write(ByteBuffer.wrap(new byte[4]));
+            Assert.fail("Write accepted after interrupt.");
+        } catch (final IOException e) {
+            // expected
+        }
+
+        releaseDelivery.countDown();
+        sink.close();
+        sink.join(5000);
+
+        Assert.assertTrue(sink.isEndOfStream());
+        Assert.assertEquals(1, ptsList.size());
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018-2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>Tests for {@link Histogram} class.
+ */
+public class HistogramTest {
+
+    @Test
+    public void bucketBoundaries() {
+        for (long value = 0; value < 16; value++) {
+            Assert.assertEquals(value, Histogram.indexOf(value));
+            Assert.assertEquals(value, Histogram.lowestValueOf((int) value));
+        }
+
+        for (int index = 0; index < Histogram.BUCKET_COUNT; index++) {
+            Assert.assertEquals(index, Histogram.indexOf(Histogram.lowestValueOf(index)));
+            Assert.assertEquals(index, Histogram.indexOf(Histogram.highestValueOf(index)));
+        }
+
+        Assert.assertEquals(Histogram.BUCKET_COUNT - 1, Histogram.indexOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void record() {
+        final Histogram histogram = new Histogram();
+
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMin());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-5);
+
+        Assert.assertEquals(1001, histogram.getCount());
+        Assert.assertEquals(500500, histogram.getSum());
+        Assert.assertEquals(0, histogram.getMin());
+        Assert.assertEquals(1000, histogram.getMax());
+
+        final long median = histogram.getValueAtPercentile(50);
+        Assert.assertTrue(median >= 500 && median <= 500 * 1.125);
+        Assert.assertEquals(1000, histogram.getValueAtPercentile(100));
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMax());
+    }
+
+}
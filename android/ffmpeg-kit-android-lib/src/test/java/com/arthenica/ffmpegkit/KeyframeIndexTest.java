@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * <p>Tests for {@link KeyframeIndex} class.
+ */
+public class KeyframeIndexTest {
+
+    @Test
+    public void writeAndLoad() throws IOException {
+        final File indexFile = File.createTempFile("keyframe-index", ".kfi");
+
+        try {
+            try (KeyframeIndex.Writer writer = new KeyframeIndex.Writer(indexFile)) {
+                for (int i = 0; i < 10000; i++) {
+                    final int flags = (i % 250 == 0) ? ProbeRecord.FLAG_KEY : 0;
+                    writer.apply(new ProbeRecord(ProbeRecord.Type.PACKET, 1, i * 512L, i * 512L - 1024, 100 + i, 48L + i * 1000L, flags, '?'));
+                }
+                writer.finish(123456789L, 1600000000000L, 1, 12800);
+            }
+
+            Assert.assertEquals(KeyframeIndex.HEADER_SIZE + 10000 * KeyframeIndex.PACKET_ENTRY_SIZE + 40 * KeyframeIndex.KEYFRAME_ENTRY_SIZE, indexFile.length());
+
+            Assert.assertNull(KeyframeIndex.load(indexFile, 123456780L, 1600000000000L));
+            Assert.assertNull(KeyframeIndex.load(indexFile, 123456789L, 1600000000001L));
+
+            final KeyframeIndex index = KeyframeIndex.load(indexFile, 123456789L, 1600000000000L);
+            Assert.assertNotNull(index);
+            Assert.assertEquals(10000, index.getPacketCount());
+            Assert.assertEquals(40, index.getKeyframeCount());
+            Assert.assertEquals(12800, index.getTimeBaseDenominator());
+
+            final ProbeRecord packet = index.getPacket(251);
+            Assert.assertEquals(1, packet.getStreamIndex());
+            Assert.assertEquals(251 * 512L, packet.getPts());
+            Assert.assertEquals(251 * 512L - 1024, packet.getDts());
+            Assert.assertEquals(351, packet.getSize());
+            Assert.assertEquals(48L + 251000L, packet.getPosition());
+            Assert.assertFalse(packet.isKeyFrame());
+
+            Assert.assertEquals(-1, index.findKeyframeBefore(-1));
+            Assert.assertEquals(0, index.findKeyframeBefore(0));
+            Assert.assertEquals(1, index.findKeyframeBefore(250 * 512L + 1));
+            Assert.assertEquals(2, index.findKeyframeAfter(250 * 512L + 1));
+            Assert.assertEquals(1, index.findKeyframeAfter(250 * 512L));
+            Assert.assertEquals(-1, index.findKeyframeAfter(9750 * 512L + 1));
+            Assert.assertEquals(39, index.findKeyframeBefore(Long.MAX_VALUE));
+            Assert.assertEquals(2, index.findNearestKeyframe(400 * 512L));
+            Assert.assertEquals(1, index.findNearestKeyframe(300 * 512L));
+
+            final ProbeRecord keyframe = index.getKeyframe(2);
+            Assert.assertTrue(keyframe.isKeyFrame());
+            Assert.assertEquals(48L + 500000L, keyframe.getPosition());
+
+            Assert.assertEquals(12800, index.toPts(1.0));
+            Assert.assertEquals(2.0, index.toSeconds(25600), 0.0001);
+        } finally {
+            indexFile.delete();
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018-2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import static com.arthenica.ffmpegkit.FFmpegSessionTest.TEST_ARGUMENTS;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>Tests for {@link MetricsRegistry} class.
+ */
+public class MetricsRegistryTest {
+
+    @Test
+    public void counters() {
+        final MetricsRegistry registry = new MetricsRegistry();
+
+        final Counter ffmpeg = registry.counter("sessions_total", "Sessions.", "type", "ffmpeg");
+        final Counter ffprobe = registry.counter("sessions_total", "Sessions.", "type", "ffprobe");
+        Assert.assertSame(ffmpeg, registry.counter("sessions_total", "Sessions.", "type", "ffmpeg"));
+
+        ffmpeg.increment();
+        ffmpeg.add(2);
+        ffprobe.increment();
+
+        final MetricsSnapshot snapshot = registry.snapshot();
+        Assert.assertEquals(2, snapshot.getSamples("sessions_total").size());
+        Assert.assertEquals(3, snapshot.getSample("sessions_total", "type", "ffmpeg").getValue(), 0);
+        Assert.assertEquals(1, snapshot.getSample("sessions_total", "type", "ffprobe").getValue(), 0);
+        Assert.assertNull(snapshot.getSample("sessions_total", "type", "other"));
+
+        try {
+            ffmpeg.add(-1);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void gaugesAndHistograms() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        final Histogram histogram = new Histogram();
+        histogram.record(1000000000L);
+        histogram.record(3000000000L);
+
+        registry.gauge("queue_length", "Queue length.", () -> 7);
+        registry.gauge("broken", "Broken gauge.", () -> {
+            throw new IllegalStateException();
+        });
+        registry.histogram("duration_seconds", "Duration.", histogram, 1e-9);
+
+        final MetricsSnapshot snapshot = registry.snapshot();
+        Assert.assertEquals(7, snapshot.getSample("queue_length").getValue(), 0);
+        Assert.assertTrue(Double.isNaN(snapshot.getSample("broken").getValue()));
+
+        final MetricSample duration = snapshot.getSample("duration_seconds");
+        Assert.assertEquals(MetricType.SUMMARY, duration.getType());
+        Assert.assertEquals(2, duration.getCount());
+        Assert.assertEquals(4, duration.getSum(), 1e-9);
+        Assert.assertEquals(3, duration.getQuantileValue(2), 1e-9);
+
+        Assert.assertTrue(registry.remove("queue_length"));
+        Assert.assertNull(registry.snapshot().getSample("queue_length"));
+    }
+
+    @Test
+    public void invalidMetrics() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("requests_total", "Requests.");
+
+        try {
+            registry.gauge("requests_total", "Requests.", () -> 0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            registry.counter("invalid-name", "Invalid.");
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            registry.counter("labels_total", "Labels.", "type");
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void sessionMetrics() {
+        final MetricsSnapshot before = FFmpegKitConfig.getMetricsRegistry().snapshot();
+
+        final FFmpegSession session = FFmpegSession.create(TEST_ARGUMENTS);
+        session.startRunning();
+        session.complete(new ReturnCode(ReturnCode.SUCCESS));
+        session.fail(new Exception());
+
+        final MetricsSnapshot after = FFmpegKitConfig.getMetricsRegistry().snapshot();
+        Assert.assertEquals(1, after.getSample("ffmpegkit_sessions_started_total", "type", "ffmpeg").getValue() - before.getSample("ffmpegkit_sessions_started_total", "type", "ffmpeg").getValue(), 0);
+        Assert.assertEquals(1, after.getSample("ffmpegkit_sessions_completed_total", "type", "ffmpeg").getValue() - before.getSample("ffmpegkit_sessions_completed_total", "type", "ffmpeg").getValue(), 0);
+        Assert.assertEquals(0, after.getSample("ffmpegkit_sessions_failed_total", "type", "ffmpeg").getValue() - before.getSample("ffmpegkit_sessions_failed_total", "type", "ffmpeg").getValue(), 0);
+        Assert.assertEquals(before.getSample("ffmpegkit_sessions_running").getValue(), after.getSample("ffmpegkit_sessions_running").getValue(), 0);
+        Assert.assertNotNull(after.getSample("ffmpegkit_session_interval_seconds", "interval", "total"));
+    }
+
+}
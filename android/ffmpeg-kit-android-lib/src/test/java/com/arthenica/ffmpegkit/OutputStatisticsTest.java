@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2018-2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>Tests for {@link OutputStatistics} class.
+ */
+public class OutputStatisticsTest {
+
+    @Test
+    public void from() {
+        final long[] values = new long[]{
+                2, 1048576, 4096,
+                0, 0, 0, 250, 1000000, 10000000, Float.floatToIntBits(28.5f), 3, 1,
+                0, 1, 1, 470, 160000, 10010000, Float.floatToIntBits(-1), 0, 0,
+                1, 0, 0, 1, 4096, Long.MIN_VALUE, Float.floatToIntBits(2), 0, 0};
+
+        final OutputStatistics statistics = OutputStatistics.from(values);
+        Assert.assertNotNull(statistics);
+
+        Assert.assertEquals(2, statistics.getFileCount());
+        Assert.assertEquals(1048576, statistics.getFileSize(0));
+        Assert.assertEquals(4096, statistics.getFileSize(1));
+        Assert.assertEquals(3, statistics.getStreamCount());
+
+        Assert.assertEquals("video", statistics.getType(0));
+        Assert.assertEquals(250, statistics.getFrames(0));
+        Assert.assertEquals(1000000, statistics.getBytes(0));
+        Assert.assertEquals(10000.0, statistics.getTime(0), 0.001);
+        Assert.assertEquals(28.5f, statistics.getQuality(0), 0.001);
+        Assert.assertEquals(3, statistics.getDuplicatedFrames(0));
+        Assert.assertEquals(1, statistics.getDroppedFrames(0));
+
+        Assert.assertEquals("audio", statistics.getType(1));
+        Assert.assertEquals(-1f, statistics.getQuality(1), 0.001);
+
+        Assert.assertEquals(2, statistics.indexOf(1, 0));
+        Assert.assertEquals(-1, statistics.indexOf(1, 1));
+        Assert.assertTrue(Double.isNaN(statistics.getTime(2)));
+
+        try {
+            statistics.getFrames(3);
+            Assert.fail();
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void fromInvalidValues() {
+        Assert.assertNull(OutputStatistics.from(null));
+        Assert.assertNull(OutputStatistics.from(new long[0]));
+        Assert.assertNull(OutputStatistics.from(new long[]{3, 10}));
+        Assert.assertNull(OutputStatistics.from(new long[]{1, 10, 0, 0}));
+        Assert.assertEquals(0, OutputStatistics.from(new long[]{0}).getStreamCount());
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>Tests for {@link PipeFeeder} class.
+ */
+public class PipeFeederTest {
+
+    /**
+     * Opens pipes with a blocking open, which owns its descriptor on every platform.
+     */
+    private static final PipeFeeder.PipeOpener BLOCKING_OPENER = new PipeFeeder.PipeOpener() {
+
+        @Override
+        public FileOutputStream open(final PipeFeeder pipeFeeder) throws IOException {
+            return new FileOutputStream(pipeFeeder.getPipePath());
+        }
+    };
+
+    @Test
+    public void readerReachesEndOfStream() throws Exception {
+        final File directory = Files.createTempDirectory("feeder").toFile();
+        final File pipe = createFifo(directory);
+        final byte[] content = createContent(300 * 1024);
+        final File input = createInput(directory, content);
+
+        final PipeFeeder pipeFeeder = PipeFeeder.create(input.getAbsolutePath(), pipe.getAbsolutePath(), null, 64 * 1024, BLOCKING_OPENER);
+        pipeFeeder.start();
+
+        // READ UNTIL END OF STREAM, WHICH IS REACHED ONLY IF THE WRITE END IS CLOSED
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        try (InputStream inputStream = new FileInputStream(pipe)) {
+            final byte[] buffer = new byte[8192];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                received.write(buffer, 0, count);
+            }
+        }
+
+        Assert.assertTrue(ReturnCode.isSuccess(pipeFeeder.join(5000)));
+        Assert.assertEquals(content.length, pipeFeeder.getBytesTransferred());
+        Assert.assertTrue(Arrays.equals(content, received.toByteArray()));
+    }
+
+    @Test
+    public void cancelReleasesBlockedWrite() throws Exception {
+        final File directory = Files.createTempDirectory("feeder").toFile();
+        final File pipe = createFifo(directory);
+        final File input = createInput(directory, createContent(4 * 1024 * 1024));
+
+        final CountDownLatch readerOpened = new CountDownLatch(1);
+        final CountDownLatch readerDone = new CountDownLatch(1);
+        final AtomicReference<InputStream> reader = new AtomicReference<>();
+        final Thread readerThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    reader.set(new FileInputStream(pipe));
+                    readerOpened.countDown();
+                    readerDone.await();
+                } catch (final Exception e) {
+                    readerOpened.countDown();
+                }
+            }
+        });
+        readerThread.start();
+
+        final PipeFeeder pipeFeeder = PipeFeeder.create(input.getAbsolutePath(), pipe.getAbsolutePath(), null, 1024 * 1024, BLOCKING_OPENER);
+        pipeFeeder.start();
+
+        Assert.assertTrue(readerOpened.await(5, TimeUnit.SECONDS));
+
+        // THE READER NEVER READS, SO THE FEEDER BLOCKS ON A FULL PIPE
+        Assert.assertNull(pipeFeeder.join(200));
+
+        pipeFeeder.cancel();
+
+        try {
+            Assert.assertTrue(ReturnCode.isCancel(pipeFeeder.join(5000)));
+        } finally {
+            readerDone.countDown();
+            readerThread.join();
+            if (reader.get() != null) {
+                reader.get().close();
+            }
+        }
+    }
+
+    private static File createFifo(final File directory) throws Exception {
+        final File pipe = new File(directory, "fifo");
+        int exitCode;
+        try {
+            exitCode = new ProcessBuilder("mkfifo", pipe.getAbsolutePath()).start().waitFor();
+        } catch (final IOException e) {
+            exitCode = -1;
+        }
+        Assume.assumeTrue("mkfifo is not available", exitCode == 0);
+        return pipe;
+    }
+
+    private static byte[] createContent(final int size) {
+        final byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        return content;
+    }
+
+    private static File createInput(final File directory, final byte[] content) throws IOException {
+        final File input = new File(directory, "input");
+        Files.write(input.toPath(), content);
+        return input;
+    }
+
+}
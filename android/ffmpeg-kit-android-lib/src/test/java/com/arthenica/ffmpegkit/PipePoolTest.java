@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * <p>Tests for {@link PipePool} class.
+ */
+public class PipePoolTest {
+
+    /**
+     * Creates regular files instead of FIFOs, so the pool can be tested without a device.
+     */
+    private static class FileFifoFactory implements PipePool.FifoFactory {
+        final Set<String> openPaths = Collections.synchronizedSet(new HashSet<String>());
+
+        @Override
+        public void create(final String path) throws IOException {
+            if (!new File(path).createNewFile()) {
+                throw new IOException("Failed to create " + path);
+            }
+        }
+
+        @Override
+        public boolean isUnused(final String path) {
+            return !openPaths.contains(path);
+        }
+    }
+
+    @Test
+    public void leaseAndReuse() throws Exception {
+        final File directory = Files.createTempDirectory("pipes").toFile();
+        final PipePool pool = new PipePool(directory, new FileFifoFactory());
+
+        final PipeLease first = pool.lease();
+        Assert.assertNotNull(first);
+        Assert.assertTrue(new File(first.getPath()).exists());
+        Assert.assertTrue(first.getPath().startsWith(directory.getAbsolutePath()));
+        Assert.assertEquals(1, pool.getActiveLeaseCount());
+
+        final PipeLease second = pool.lease();
+        Assert.assertNotEquals(first.getPath(), second.getPath());
+
+        first.close();
+        first.close();
+        Assert.assertTrue(first.isClosed());
+        Assert.assertEquals(1, pool.getIdlePipeCount());
+        Assert.assertEquals(1, pool.getActiveLeaseCount());
+
+        final PipeLease third = pool.lease();
+        Assert.assertEquals(first.getPath(), third.getPath());
+        Assert.assertEquals(2, pool.getCreatedPipeCount());
+        Assert.assertEquals(1, pool.getReusedPipeCount());
+
+        second.close();
+        third.close();
+        Assert.assertEquals(0, pool.getActiveLeaseCount());
+        Assert.assertEquals(2, pool.getIdlePipeCount());
+
+        pool.setMaxIdlePipes(1);
+        Assert.assertEquals(1, pool.getIdlePipeCount());
+        Assert.assertFalse(new File(second.getPath()).exists() && new File(third.getPath()).exists());
+    }
+
+    @Test
+    public void deletePipesStillInUse() throws Exception {
+        final FileFifoFactory fifoFactory = new FileFifoFactory();
+        final PipePool pool = new PipePool(Files.createTempDirectory("pipes").toFile(), fifoFactory);
+
+        final PipeLease lease = pool.lease();
+        fifoFactory.openPaths.add(lease.getPath());
+        lease.close();
+
+        Assert.assertEquals(0, pool.getIdlePipeCount());
+        Assert.assertFalse(new File(lease.getPath()).exists());
+
+        final PipeLease next = pool.lease();
+        Assert.assertNotEquals(lease.getPath(), next.getPath());
+        next.close();
+    }
+
+    @Test
+    public void prewarm() throws Exception {
+        final PipePool pool = new PipePool(Files.createTempDirectory("pipes").toFile(), new FileFifoFactory());
+
+        Assert.assertEquals(PipePool.DEFAULT_MAX_IDLE_PIPES, pool.prewarm(100));
+        Assert.assertEquals(PipePool.DEFAULT_MAX_IDLE_PIPES, pool.getCreatedPipeCount());
+
+        pool.lease().close();
+        Assert.assertEquals(PipePool.DEFAULT_MAX_IDLE_PIPES, pool.getCreatedPipeCount());
+        Assert.assertEquals(1, pool.getReusedPipeCount());
+    }
+
+    @Test
+    public void detectLeaks() throws Exception {
+        final PipePool pool = new PipePool(Files.createTempDirectory("pipes").toFile(), new FileFifoFactory());
+
+        final String path = pool.lease().getPath();
+
+        for (int i = 0; i < 50 && pool.getLeakedPipeCount() == 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+            pool.expungeLeakedLeases();
+        }
+
+        Assert.assertEquals(1, pool.getLeakedPipeCount());
+        Assert.assertEquals(0, pool.getActiveLeaseCount());
+        Assert.assertFalse(new File(path).exists());
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2018-2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * <p>Tests for {@link PrometheusExporter} class.
+ */
+public class PrometheusExporterTest {
+
+    private static MetricsRegistry createRegistry() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("sessions_total", "Sessions\nstarted.", "type", "ff\"mpeg").add(5);
+        registry.gauge("queue_length", "Queue length.", () -> 2.5);
+
+        final Histogram histogram = new Histogram();
+        histogram.record(2000000000L);
+        registry.histogram("duration_seconds", "Duration.", histogram, 1e-9);
+
+        return registry;
+    }
+
+    @Test
+    public void format() {
+        final String text = new PrometheusExporter(createRegistry()).scrape();
+
+        Assert.assertEquals("# HELP duration_seconds Duration.\n" +
+                "# TYPE duration_seconds summary\n" +
+                "duration_seconds{quantile=\"0.5\"} 2\n" +
+                "duration_seconds{quantile=\"0.9\"} 2\n" +
+                "duration_seconds{quantile=\"0.99\"} 2\n" +
+                "duration_seconds_sum 2\n" +
+                "duration_seconds_count 1\n" +
+                "# HELP queue_length Queue length.\n" +
+                "# TYPE queue_length gauge\n" +
+                "queue_length 2.5\n" +
+                "# HELP sessions_total Sessions\\nstarted.\n" +
+                "# TYPE sessions_total counter\n" +
+                "sessions_total{type=\"ff\\\"mpeg\"} 5\n", text);
+
+        Assert.assertEquals("NaN", PrometheusExporter.formatValue(Double.NaN));
+        Assert.assertEquals("+Inf", PrometheusExporter.formatValue(Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    public void writeTo() throws Exception {
+        final File file = File.createTempFile("metrics", ".prom");
+        file.deleteOnExit();
+
+        new PrometheusExporter(createRegistry()).writeTo(file);
+
+        final String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        Assert.assertTrue(text.contains("queue_length 2.5\n"));
+        Assert.assertFalse(new File(file.getAbsolutePath() + ".tmp").exists());
+    }
+
+    @Test
+    public void serve() throws Exception {
+        final PrometheusExporter exporter = new PrometheusExporter(createRegistry());
+        final int port = exporter.start(0);
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            final OutputStream outputStream = socket.getOutputStream();
+            outputStream.write("GET /metrics HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            outputStream.flush();
+
+            final InputStream inputStream = socket.getInputStream();
+            final ByteArrayOutputStream response = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[1024];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                response.write(buffer, 0, read);
+            }
+
+            final String text = new String(response.toByteArray(), StandardCharsets.UTF_8);
+            Assert.assertTrue(text.startsWith("HTTP/1.0 200 OK\r\n"));
+            Assert.assertTrue(text.contains(PrometheusExporter.CONTENT_TYPE));
+            Assert.assertTrue(text.endsWith("sessions_total{type=\"ff\\\"mpeg\"} 5\n"));
+        } finally {
+            exporter.stop();
+        }
+
+        Assert.assertFalse(exporter.isStarted());
+    }
+
+}
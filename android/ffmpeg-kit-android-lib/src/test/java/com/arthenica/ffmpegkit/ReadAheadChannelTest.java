@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * <p>Tests for {@link ReadAheadChannel} class.
+ */
+public class ReadAheadChannelTest {
+
+    /**
+     * Stands in for a slow content provider, every read sleeps before returning data.
+     */
+    static class SlowChannel implements SeekableByteChannel {
+        private final byte[] data;
+        private final long latency;
+        private int position;
+        private long bytesRead;
+        private boolean open = true;
+
+        SlowChannel(final byte[] data, final long latency) {
+            this.data = data;
+            this.latency = latency;
+        }
+
+        @Override
+        public synchronized int read(final ByteBuffer dst) throws IOException {
+            try {
+                Thread.sleep(latency);
+            } catch (final InterruptedException e) {
+                throw new IOException(e);
+            }
+            if (position >= data.length) {
+                return -1;
+            }
+
+            final int length = Math.min(Math.min(dst.remaining(), 1000), data.length - position);
+            dst.put(data, position, length);
+            position += length;
+            bytesRead += length;
+            return length;
+        }
+
+        synchronized long getBytesRead() {
+            return bytesRead;
+        }
+
+        @Override
+        public int write(final ByteBuffer src) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public synchronized long position() {
+            return position;
+        }
+
+        @Override
+        public synchronized SeekableByteChannel position(final long newPosition) {
+            position = (int) newPosition;
+            return this;
+        }
+
+        @Override
+        public long size() {
+            return data.length;
+        }
+
+        @Override
+        public SeekableByteChannel truncate(final long size) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public synchronized boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public synchronized void close() {
+            open = false;
+        }
+    }
+
+    private static byte[] createData(final int size) {
+        final byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 31 + i / 256);
+        }
+        return data;
+    }
+
+    @Test
+    public void readSequentially() throws Exception {
+        final byte[] data = createData(50000);
+        final SlowChannel source = new SlowChannel(data, 1);
+        final ReadAheadChannel channel = new ReadAheadChannel(source, 4096, 4);
+
+        final ByteBuffer result = ByteBuffer.allocate(data.length);
+        final ByteBuffer buffer = ByteBuffer.allocate(3000);
+        int bytesRead;
+        while ((bytesRead = channel.read(buffer)) >= 0) {
+            Assert.assertTrue(bytesRead > 0);
+            buffer.flip();
+            result.put(buffer);
+            buffer.clear();
+        }
+
+        Assert.assertArrayEquals(data, result.array());
+        Assert.assertEquals(data.length, channel.position());
+        Assert.assertEquals(data.length, channel.size());
+
+        channel.close();
+        Assert.assertFalse(channel.isOpen());
+        Assert.assertFalse(source.isOpen());
+    }
+
+    @Test
+    public void readAheadWindow() throws Exception {
+        final byte[] data = createData(100000);
+        final SlowChannel source = new SlowChannel(data, 1);
+        final ReadAheadChannel channel = new ReadAheadChannel(source, 4096, 4);
+
+        final ByteBuffer buffer = ByteBuffer.allocate(1);
+        channel.read(buffer);
+
+        // PREFETCHING STOPS WHEN THE WINDOW IS FULL
+        long deadline = System.currentTimeMillis() + 5000;
+        while (source.getBytesRead() < 4 * 4096 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        Assert.assertEquals(4 * 4096, source.getBytesRead());
+
+        // READS INSIDE THE WINDOW DO NOT WAIT
+        final long stallCount = channel.getStallCount();
+        final ByteBuffer window = ByteBuffer.allocate(3 * 4096);
+        while (window.hasRemaining()) {
+            channel.read(window);
+        }
+        Assert.assertEquals(stallCount, channel.getStallCount());
+        Assert.assertEquals(data[1], window.get(0));
+        Assert.assertEquals(data[3 * 4096], window.get(3 * 4096 - 1));
+
+        channel.close();
+    }
+
+    @Test
+    public void seek() throws Exception {
+        final byte[] data = createData(100000);
+        final ReadAheadChannel channel = new ReadAheadChannel(new SlowChannel(data, 0), 4096, 4);
+        final ByteBuffer buffer = ByteBuffer.allocate(100);
+
+        // SEEK OUTSIDE THE WINDOW
+        channel.position(70000);
+        channel.read(buffer);
+        Assert.assertEquals(data[70000], buffer.get(0));
+        Assert.assertEquals(70000 + buffer.position(), channel.position());
+
+        // SEEK INSIDE THE WINDOW
+        channel.position(72000);
+        buffer.clear();
+        channel.read(buffer);
+        Assert.assertEquals(data[72000], buffer.get(0));
+
+        // SEEK BACKWARDS
+        channel.position(10);
+        buffer.clear();
+        channel.read(buffer);
+        Assert.assertEquals(data[10], buffer.get(0));
+
+        // SEEK TO THE END
+        channel.position(data.length);
+        buffer.clear();
+        Assert.assertEquals(-1, channel.read(buffer));
+
+        channel.close();
+    }
+
+}
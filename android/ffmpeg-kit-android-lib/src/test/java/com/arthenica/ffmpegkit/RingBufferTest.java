@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>Tests for {@link RingBuffer} class.
+ */
+public class RingBufferTest {
+
+    @Test
+    public void transfer() throws Exception {
+        final RingBuffer ringBuffer = new RingBuffer(1000);
+        final byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 251);
+        }
+
+        final Thread writer = new Thread(() -> {
+            try (WritableByteChannel sink = ringBuffer.getSink()) {
+                final ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    final int position = buffer.position();
+                    buffer.limit(Math.min(data.length, position + 777));
+                    sink.write(buffer);
+                    buffer.limit(data.length);
+                }
+            } catch (final IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        writer.start();
+
+        final ByteBuffer result = ByteBuffer.allocate(data.length);
+        final ByteBuffer buffer = ByteBuffer.allocate(333);
+        final ReadableByteChannel source = ringBuffer.getSource();
+        while (source.read(buffer) >= 0) {
+            buffer.flip();
+            result.put(buffer);
+            buffer.clear();
+        }
+        writer.join();
+
+        Assert.assertArrayEquals(data, result.array());
+        Assert.assertEquals(data.length, ringBuffer.getBytesTransferred());
+    }
+
+    @Test
+    public void closeSource() throws Exception {
+        final RingBuffer ringBuffer = new RingBuffer(10);
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        final Thread writer = new Thread(() -> {
+            try {
+                while (true) {
+                    ringBuffer.getSink().write(ByteBuffer.allocate(4));
+                }
+            } catch (final Exception e) {
+                failure.set(e);
+            }
+        });
+        writer.start();
+
+        // WRITER BLOCKS WHEN THE BUFFER IS FULL, CLOSING THE READER RELEASES IT
+        Thread.sleep(100);
+        Assert.assertTrue(writer.isAlive());
+        ringBuffer.getSource().close();
+        writer.join(5000);
+
+        Assert.assertFalse(writer.isAlive());
+        Assert.assertTrue(failure.get() instanceof IOException);
+    }
+
+    @Test
+    public void abort() throws Exception {
+        final RingBuffer ringBuffer = new RingBuffer(10);
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        final Thread reader = new Thread(() -> {
+            try {
+                ringBuffer.getSource().read(ByteBuffer.allocate(4));
+            } catch (final Exception e) {
+                failure.set(e);
+            }
+        });
+        reader.start();
+
+        Thread.sleep(100);
+        Assert.assertTrue(reader.isAlive());
+        final IOException exception = new IOException("aborted");
+        ringBuffer.abort(exception);
+        reader.join(5000);
+
+        Assert.assertSame(exception, failure.get());
+        try {
+            ringBuffer.getSink().write(ByteBuffer.allocate(1));
+            Assert.fail("Write succeeded after abort.");
+        } catch (final IOException e) {
+            Assert.assertSame(exception, e);
+        }
+    }
+
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2023 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>Tests for {@link SafRegistry} class.
+ */
+public class SafRegistryTest {
+
+    /**
+     * Records how descriptors are used instead of opening documents.
+     */
+    private static class TestDescriptor implements SafRegistry.SafDescriptor {
+        final int fd;
+        final AtomicInteger rewindCount = new AtomicInteger();
+        final AtomicInteger truncateCount = new AtomicInteger();
+        final AtomicInteger closeCount = new AtomicInteger();
+        volatile boolean seekable = true;
+
+        TestDescriptor(final int fd) {
+            this.fd = fd;
+        }
+
+        @Override
+        public int getFd() {
+            return fd;
+        }
+
+        @Override
+        public boolean rewind(final boolean truncate) {
+            rewindCount.incrementAndGet();
+            if (truncate) {
+                truncateCount.incrementAndGet();
+            }
+            return seekable;
+        }
+
+        @Override
+        public void close() {
+            closeCount.incrementAndGet();
+        }
+    }
+
+    private static class TestOpener implements SafRegistry.DescriptorOpener {
+        final AtomicInteger nextFd = new AtomicInteger(100);
+        final List<TestDescriptor> descriptors = Collections.synchronizedList(new ArrayList<TestDescriptor>());
+        volatile boolean reuseSupported = true;
+
+        @Override
+        public SafRegistry.SafDescriptor open(final SafRegistry.SafUrl safUrl) throws IOException {
+            final TestDescriptor descriptor = new TestDescriptor(nextFd.getAndIncrement());
+            descriptors.add(descriptor);
+            return descriptor;
+        }
+
+        @Override
+        public boolean isReuseSupported() {
+            return reuseSupported;
+        }
+    }
+
+    @Test
+    public void openUnknownId() {
+        final SafRegistry safRegistry = new SafRegistry();
+
+        Assert.assertEquals(0, safRegistry.open(1234));
+        Assert.assertEquals(0, safRegistry.close(56));
+
+        final SafStatistics statistics = safRegistry.getStatistics();
+        Assert.assertEquals(0, statistics.getOpenCount());
+        Assert.assertEquals(1, statistics.getFailedOpenCount());
+        Assert.assertEquals(0, statistics.getCloseCount());
+        Assert.assertEquals(0, statistics.getIdleDescriptorCount());
+    }
+
+    @Test
+    public void setIdleTimeout() {
+        final SafRegistry safRegistry = new SafRegistry();
+        Assert.assertEquals(SafRegistry.DEFAULT_IDLE_TIMEOUT, safRegistry.getIdleTimeout());
+
+        safRegistry.setIdleTimeout(0);
+        Assert.assertEquals(0, safRegistry.getIdleTimeout());
+
+        try {
+            safRegistry.setIdleTimeout(-1);
+            Assert.fail("Negative idle timeout accepted.");
+        } catch (final IllegalArgumentException e) {
+            Assert.assertEquals(0, safRegistry.getIdleTimeout());
+        }
+    }
+
+    @Test
+    public void reuseIdleDescriptor() {
+        final TestOpener opener = new TestOpener();
+        final SafRegistry safRegistry = new SafRegistry(opener);
+        safRegistry.register(new SafRegistry.SafUrl(1, "document", "r"));
+        safRegistry.register(new SafRegistry.SafUrl(2, "document", "r"));
+
+        final int fd = safRegistry.open(1);
+        Assert.assertEquals(1, safRegistry.close(fd));
+        Assert.assertEquals(1, safRegistry.getStatistics().getIdleDescriptorCount());
+
+        // A DIFFERENT SAF ID FOR THE SAME DOCUMENT AND MODE REUSES THE DESCRIPTOR
+        Assert.assertEquals(fd, safRegistry.open(2));
+        Assert.assertEquals(1, opener.descriptors.size());
+        Assert.assertEquals(1, opener.descriptors.get(0).rewindCount.get());
+        Assert.assertEquals(0, opener.descriptors.get(0).truncateCount.get());
+        Assert.assertEquals(0, opener.descriptors.get(0).closeCount.get());
+
+        final SafStatistics statistics = safRegistry.getStatistics();
+        Assert.assertEquals(2, statistics.getOpenCount());
+        Assert.assertEquals(1, statistics.getReusedOpenCount());
+        Assert.assertEquals(1, statistics.getCloseCount());
+        Assert.assertEquals(0, statistics.getIdleDescriptorCount());
+    }
+
+    @Test
+    public void reuseTruncatesOnlyTruncatingModes() {
+        final String[] modes = {"w", "wt", "rwt", "rw", "wa", "r"};
+        final boolean[] truncated = {true, true, true, false, false, false};
+
+        for (int i = 0; i < modes.length; i++) {
+            final TestOpener opener = new TestOpener();
+            final SafRegistry safRegistry = new SafRegistry(opener);
+            safRegistry.register(new SafRegistry.SafUrl(1, "document", modes[i]));
+
+            safRegistry.close(safRegistry.open(1));
+            safRegistry.open(1);
+
+            Assert.assertEquals(modes[i], 1, opener.descriptors.size());
+            Assert.assertEquals(modes[i], truncated[i] ? 1 : 0, opener.descriptors.get(0).truncateCount.get());
+        }
+    }
+
+    @Test
+    public void reuseDisabledWithoutSupport() {
+        final TestOpener opener = new TestOpener();
+        opener.reuseSupported = false;
+        final SafRegistry safRegistry = new SafRegistry(opener);
+        safRegistry.register(new SafRegistry.SafUrl(1, "document", "r"));
+
+        safRegistry.close(safRegistry.open(1));
+        Assert.assertEquals(0, safRegistry.getStatistics().getIdleDescriptorCount());
+        Assert.assertEquals(1, opener.descriptors.get(0).closeCount.get());
+
+        safRegistry.open(1);
+        Assert.assertEquals(2, opener.descriptors.size());
+        Assert.assertEquals(0, opener.descriptors.get(0).rewindCount.get());
+    }
+
+    @Test
+    public void unseekableDescriptorIsNotReused() {
+        final TestOpener opener = new TestOpener();
+        final SafRegistry safRegistry = new SafRegistry(opener);
+        safRegistry.register(new SafRegistry.SafUrl(1, "document", "r"));
+
+        safRegistry.close(safRegistry.open(1));
+        opener.descriptors.get(0).seekable = false;
+
+        final int fd = safRegistry.open(1);
+        Assert.assertEquals(2, opener.descriptors.size());
+        Assert.assertEquals(opener.descriptors.get(1).fd, fd);
+        Assert.assertEquals(1, opener.descriptors.get(0).closeCount.get());
+        Assert.assertEquals(0, safRegistry.getStatistics().getReusedOpenCount());
+    }
+
+    @Test
+    public void evictIdleDescriptor() throws InterruptedException {
+        final TestOpener opener = new TestOpener();
+        final SafRegistry safRegistry = new SafRegistry(opener);
+        safRegistry.setIdleTimeout(50);
+        safRegistry.register(new SafRegistry.SafUrl(1, "document", "r"));
+
+        safRegistry.close(safRegistry.open(1));
+        Assert.assertEquals(1, safRegistry.getStatistics().getIdleDescriptorCount());
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (safRegistry.getStatistics().getIdleDescriptorCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals(0, safRegistry.getStatistics().getIdleDescriptorCount());
+        Assert.assertEquals(1, opener.descriptors.get(0).closeCount.get());
+
+        safRegistry.open(1);
+        Assert.assertEquals(2, opener.descriptors.size());
+    }
+
+    @Test
+    public void releaseClosesWriteDescriptors() {
+        final TestOpener opener = new TestOpener();
+        final SafRegistry safRegistry = new SafRegistry(opener);
+        safRegistry.register(new SafRegistry.SafUrl(1, "output", "w"));
+        safRegistry.register(new SafRegistry.SafUrl(2, "input", "r"));
+
+        safRegistry.close(safRegistry.open(1));
+        safRegistry.close(safRegistry.open(2));
+        Assert.assertEquals(2, safRegistry.getStatistics().getIdleDescriptorCount());
+
+        // THE WRITTEN DOCUMENT MUST BE COMPLETE WHEN ITS SESSION COMPLETES
+        safRegistry.release(1);
+        Assert.assertEquals(1, opener.descriptors.get(0).closeCount.get());
+
+        // READ DESCRIPTORS STAY IDLE UNTIL THEY ARE EVICTED
+        safRegistry.release(2);
+        Assert.assertEquals(0, opener.descriptors.get(1).closeCount.get());
+        Assert.assertEquals(1, safRegistry.getStatistics().getIdleDescriptorCount());
+
+        // RELEASED IDS CAN NOT BE OPENED
+        Assert.assertEquals(0, safRegistry.open(1));
+
+        safRegistry.closeIdleDescriptors();
+        Assert.assertEquals(1, opener.descriptors.get(1).closeCount.get());
+    }
+
+    @Test
+    public void limitIdleDescriptors() {
+        final TestOpener opener = new TestOpener();
+        final SafRegistry safRegistry = new SafRegistry(opener);
+
+        final int count = SafRegistry.MAX_IDLE_DESCRIPTORS + 1;
+        final int[] fds = new int[count];
+        for (int i = 0; i < count; i++) {
+            safRegistry.register(new SafRegistry.SafUrl(i, "document" + i, "r"));
+            fds[i] = safRegistry.open(i);
+        }
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(1, safRegistry.close(fds[i]));
+        }
+
+        Assert.assertEquals(SafRegistry.MAX_IDLE_DESCRIPTORS, safRegistry.getStatistics().getIdleDescriptorCount());
+        for (int i = 0; i < SafRegistry.MAX_IDLE_DESCRIPTORS; i++) {
+            Assert.assertEquals(0, opener.descriptors.get(i).closeCount.get());
+        }
+        Assert.assertEquals(1, opener.descriptors.get(SafRegistry.MAX_IDLE_DESCRIPTORS).closeCount.get());
+
+        safRegistry.setIdleTimeout(0);
+        Assert.assertEquals(0, safRegistry.getStatistics().getIdleDescriptorCount());
+        for (TestDescriptor descriptor : opener.descriptors) {
+            Assert.assertEquals(1, descriptor.closeCount.get());
+        }
+    }
+
+    @Test
+    public void concurrentOpenAndClose() throws InterruptedException {
+        final TestOpener opener = new TestOpener();
+        final SafRegistry safRegistry = new SafRegistry(opener);
+        final int threadCount = 8;
+        final int iterations = 2000;
+
+        for (int i = 0; i < threadCount; i++) {
+            safRegistry.register(new SafRegistry.SafUrl(i, "document" + (i % 2), "r"));
+        }
+
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final AtomicReference<String> failure = new AtomicReference<>();
+        final Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            final int safId = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    startLatch.await();
+                    for (int j = 0; j < iterations; j++) {
+                        final int fd = safRegistry.open(safId);
+                        if (fd == 0) {
+                            failure.compareAndSet(null, "Open failed for SAF id " + safId);
+                            return;
+                        }
+                        if (safRegistry.close(fd) != 1) {
+                            failure.compareAndSet(null, "Close failed for fd " + fd);
+                            return;
+                        }
+                    }
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads[i].start();
+        }
+
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertNull(failure.get());
+
+        final SafStatistics statistics = safRegistry.getStatistics();
+        Assert.assertEquals(threadCount * iterations, statistics.getOpenCount());
+        Assert.assertEquals(threadCount * iterations, statistics.getCloseCount());
+        Assert.assertEquals(opener.descriptors.size() + statistics.getReusedOpenCount(), statistics.getOpenCount());
+
+        // EVERY DESCRIPTOR IS EITHER IDLE OR CLOSED EXACTLY ONCE
+        safRegistry.closeIdleDescriptors();
+        for (TestDescriptor descriptor : opener.descriptors) {
+            Assert.assertEquals(1, descriptor.closeCount.get());
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2018-2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import static com.arthenica.ffmpegkit.FFmpegSessionTest.TEST_ARGUMENTS;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>Tests for {@link SessionTiming} class.
+ */
+public class SessionTimingTest {
+
+    @Test
+    public void marks() {
+        final FFmpegSession session = FFmpegSession.create(TEST_ARGUMENTS);
+        final SessionTiming timing = session.getTiming();
+
+        Assert.assertTrue(timing.hasMark(SessionMark.CREATED));
+        Assert.assertFalse(timing.hasMark(SessionMark.STARTED));
+        Assert.assertEquals(-1, timing.getTotalTime());
+
+        final long created = timing.getMark(SessionMark.CREATED);
+        Assert.assertTrue(timing.mark(SessionMark.ENQUEUED, created + 100));
+        Assert.assertTrue(timing.mark(SessionMark.STARTED, created + 1100));
+        Assert.assertFalse(timing.mark(SessionMark.STARTED, created + 5000));
+        Assert.assertTrue(timing.mark(SessionMark.CALLBACKS_DRAINED, created + 9000));
+        Assert.assertTrue(timing.mark(SessionMark.NATIVE_FINISHED, created + 8000));
+        Assert.assertTrue(timing.mark(SessionMark.COMPLETED, created + 10000));
+
+        Assert.assertEquals(1000, timing.getQueueWaitTime());
+        Assert.assertEquals(-1, timing.getTimeToFirstStatistics());
+        Assert.assertEquals(6900, timing.getNativeExecutionTime());
+        Assert.assertEquals(1000, timing.getCallbackDrainTime());
+        Assert.assertEquals(10000, timing.getTotalTime());
+    }
+
+    @Test
+    public void histograms() {
+        FFmpegKitConfig.resetSessionTimingHistograms();
+
+        final FFmpegSession session = FFmpegSession.create(TEST_ARGUMENTS);
+        final SessionTiming timing = session.getTiming();
+        final long created = timing.getMark(SessionMark.CREATED);
+
+        timing.mark(SessionMark.STARTED, created + 10);
+        timing.mark(SessionMark.NATIVE_FINISHED, created + 20);
+        timing.mark(SessionMark.COMPLETED, created + 30);
+
+        Assert.assertEquals(0, FFmpegKitConfig.getSessionTimingHistogram(SessionInterval.QUEUE_WAIT).getCount());
+        Assert.assertEquals(1, FFmpegKitConfig.getSessionTimingHistogram(SessionInterval.NATIVE_EXECUTION).getCount());
+        Assert.assertEquals(10, FFmpegKitConfig.getSessionTimingHistogram(SessionInterval.NATIVE_EXECUTION).getMax());
+        Assert.assertEquals(30, FFmpegKitConfig.getSessionTimingHistogram(SessionInterval.TOTAL).getMax());
+    }
+
+    @Test
+    public void completedFollowsCallbacksDrained() {
+        final FFmpegSession session = FFmpegSession.create(TEST_ARGUMENTS);
+        final SessionTiming timing = session.getTiming();
+
+        session.startRunning();
+        session.nativeStarted(true);
+        timing.mark(SessionMark.NATIVE_FINISHED);
+        session.complete(new ReturnCode(ReturnCode.SUCCESS));
+        Assert.assertFalse(timing.hasMark(SessionMark.COMPLETED));
+
+        timing.mark(SessionMark.CALLBACKS_DRAINED);
+        session.callbacksDrained();
+        Assert.assertTrue(timing.hasMark(SessionMark.COMPLETED));
+        Assert.assertTrue(timing.getMark(SessionMark.COMPLETED) >= timing.getMark(SessionMark.CALLBACKS_DRAINED));
+
+        final FFmpegSession notDrained = FFmpegSession.create(TEST_ARGUMENTS);
+        notDrained.startRunning();
+        notDrained.nativeStarted(false);
+        notDrained.complete(new ReturnCode(ReturnCode.SUCCESS));
+        Assert.assertTrue(notDrained.getTiming().hasMark(SessionMark.COMPLETED));
+
+        final FFmpegSession notStarted = FFmpegSession.create(TEST_ARGUMENTS);
+        notStarted.complete(new ReturnCode(ReturnCode.CANCEL));
+        Assert.assertTrue(notStarted.getTiming().hasMark(SessionMark.COMPLETED));
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2018-2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.arthenica.ffmpegkit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>Tests for {@link StageProfile} class.
+ */
+public class StageProfileTest {
+
+    @Test
+    public void from() {
+        final long[] values = new long[]{
+                10, 1000, 900,
+                20, 5000, 4800,
+                30, 2000, 1500,
+                40, 9000, 8700,
+                50, 700, 300,
+                2, 8, 1, 12};
+
+        final StageProfile profile = StageProfile.from(values);
+        Assert.assertNotNull(profile);
+
+        Assert.assertEquals(10, profile.getCount(TranscodeStage.DEMUX));
+        Assert.assertEquals(5000, profile.getWallTime(TranscodeStage.DECODE));
+        Assert.assertEquals(1500, profile.getCpuTime(TranscodeStage.FILTER));
+        Assert.assertEquals(40, profile.getCount(TranscodeStage.ENCODE));
+        Assert.assertEquals(300, profile.getCpuTime(TranscodeStage.MUX));
+        Assert.assertEquals(2, profile.getThreadQueueDepth());
+        Assert.assertEquals(8, profile.getMaxThreadQueueDepth());
+        Assert.assertEquals(1, profile.getSyncQueueDepth());
+        Assert.assertEquals(12, profile.getMaxSyncQueueDepth());
+        Assert.assertEquals(TranscodeStage.ENCODE, profile.getSlowestStage());
+
+        Assert.assertNull(StageProfile.from(null));
+        Assert.assertNull(StageProfile.from(new long[3]));
+        Assert.assertNull(StageProfile.from(new long[StageProfile.VALUE_COUNT]).getSlowestStage());
+    }
+
+}
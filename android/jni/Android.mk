@@ -69,7 +69,7 @@ include $(BUILD_SHARED_LIBRARY)
 
 $(call import-module, cpu-features)
 
-MY_SRC_FILES := ffmpegkit.c ffprobekit.c ffmpegkit_exception.c fftools_cmdutils.c fftools_ffmpeg.c fftools_ffprobe.c fftools_ffmpeg_mux.c fftools_ffmpeg_mux_init.c fftools_ffmpeg_demux.c fftools_ffmpeg_opt.c fftools_opt_common.c fftools_ffmpeg_hw.c fftools_ffmpeg_filter.c fftools_objpool.c fftools_sync_queue.c fftools_thread_queue.c
+MY_SRC_FILES := ffmpegkit.c ffprobekit.c ffmpegkit_exception.c ffmpegkit_profile.c ffmpegkit_memory.c ffmpegkit_cpu.c ffmpegkit_log.c fftools_cmdutils.c fftools_ffmpeg.c fftools_ffprobe.c fftools_ffmpeg_mux.c fftools_ffmpeg_mux_init.c fftools_ffmpeg_demux.c fftools_ffmpeg_opt.c fftools_opt_common.c fftools_ffmpeg_hw.c fftools_ffmpeg_filter.c fftools_objpool.c fftools_sync_queue.c fftools_thread_queue.c
 
 ifeq ($(TARGET_PLATFORM),android-16)
     MY_SRC_FILES += android_lts_support.c
@@ -121,3 +121,49 @@ ifeq ($(MY_BUILD_GENERIC_FFMPEG_KIT), true)
 
     $(call import-module, ffmpeg)
 endif
+
+# NATIVE LOG FORMATTING AND MMAPFILE BENCHMARKS AND MEMORY ACCOUNTING TEST, BUILT ONLY WITH --native-benchmarks
+ifeq ("$(shell test -e $(MY_LOCAL_PATH)/../build/.benchmark && echo benchmark)","benchmark")
+
+    # LINKED WITH NEON LIBRARIES WHEN ONLY THEY ARE BUILT
+    ifeq ($(MY_BUILD_GENERIC_FFMPEG_KIT), true)
+        MY_BENCHMARK_LIB_SUFFIX :=
+        MY_BENCHMARK_ARM_NEON := ${MY_ARM_NEON}
+    else
+        MY_BENCHMARK_LIB_SUFFIX := _neon
+        MY_BENCHMARK_ARM_NEON := true
+    endif
+
+    include $(CLEAR_VARS)
+    LOCAL_PATH := $(MY_LOCAL_PATH)/../ffmpeg-kit-android-lib/src
+    LOCAL_ARM_MODE := $(MY_ARM_MODE)
+    LOCAL_MODULE := ffmpegkit_log_benchmark
+    LOCAL_SRC_FILES := test/cpp/ffmpegkit_log_benchmark.c main/cpp/ffmpegkit_log.c
+    LOCAL_C_INCLUDES := $(LOCAL_PATH)/main/cpp
+    LOCAL_CFLAGS := $(MY_CFLAGS)
+    LOCAL_SHARED_LIBRARIES := libavutil$(MY_BENCHMARK_LIB_SUFFIX)
+    LOCAL_ARM_NEON := ${MY_BENCHMARK_ARM_NEON}
+    include $(BUILD_EXECUTABLE)
+
+    include $(CLEAR_VARS)
+    LOCAL_PATH := $(MY_LOCAL_PATH)/../ffmpeg-kit-android-lib/src
+    LOCAL_ARM_MODE := $(MY_ARM_MODE)
+    LOCAL_MODULE := ffmpegkit_memory_test
+    LOCAL_SRC_FILES := test/cpp/ffmpegkit_memory_test.c main/cpp/ffmpegkit_memory.c
+    LOCAL_C_INCLUDES := $(LOCAL_PATH)/main/cpp
+    LOCAL_CFLAGS := $(MY_CFLAGS)
+    LOCAL_LDLIBS := -llog
+    LOCAL_SHARED_LIBRARIES := libavutil$(MY_BENCHMARK_LIB_SUFFIX)
+    LOCAL_ARM_NEON := ${MY_BENCHMARK_ARM_NEON}
+    include $(BUILD_EXECUTABLE)
+
+    include $(CLEAR_VARS)
+    LOCAL_PATH := $(MY_LOCAL_PATH)/../ffmpeg-kit-android-lib/src
+    LOCAL_ARM_MODE := $(MY_ARM_MODE)
+    LOCAL_MODULE := ffmpegkit_mmapfile_benchmark
+    LOCAL_SRC_FILES := test/cpp/ffmpegkit_mmapfile_benchmark.c
+    LOCAL_CFLAGS := $(MY_CFLAGS)
+    LOCAL_SHARED_LIBRARIES := libavformat$(MY_BENCHMARK_LIB_SUFFIX) libavutil$(MY_BENCHMARK_LIB_SUFFIX)
+    LOCAL_ARM_NEON := ${MY_BENCHMARK_ARM_NEON}
+    include $(BUILD_EXECUTABLE)
+endif
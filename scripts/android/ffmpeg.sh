@@ -402,16 +402,29 @@ ${SED_INLINE} 's/static int av_log_level/__thread int av_log_level/g' "${BASEDIR
 # 2. Enable ffmpeg-kit protocols
 if [[ ${NO_FFMPEG_KIT_PROTOCOLS} == "1" ]]; then
   ${SED_INLINE} "s| av_set_saf|//av_set_saf|g" "${BASEDIR}"/android/ffmpeg-kit-android-lib/src/main/cpp/ffmpegkit.c 1>>"${BASEDIR}"/build.log 2>&1
+  ${SED_INLINE} "s| av_set_fkio|//av_set_fkio|g" "${BASEDIR}"/android/ffmpeg-kit-android-lib/src/main/cpp/ffmpegkit.c 1>>"${BASEDIR}"/build.log 2>&1
   echo -e "\nINFO: Disabled custom ffmpeg-kit protocols\n" 1>>"${BASEDIR}"/build.log 2>&1
 else
   cat ../../tools/protocols/libavformat_file.c >> libavformat/file.c
   cat ../../tools/protocols/libavutil_file.h >> libavutil/file.h
   cat ../../tools/protocols/libavutil_file.c >> libavutil/file.c
-  awk '{gsub(/ff_file_protocol;/,"ff_file_protocol;\nextern const URLProtocol ff_saf_protocol;")}1' libavformat/protocols.c > libavformat/protocols.c.tmp
+  awk '{gsub(/ff_file_protocol;/,"ff_file_protocol;\nextern const URLProtocol ff_saf_protocol;\nextern const URLProtocol ff_fkio_protocol;\nextern const URLProtocol ff_mmapfile_protocol;")}1' libavformat/protocols.c > libavformat/protocols.c.tmp
   cat libavformat/protocols.c.tmp > libavformat/protocols.c
   echo -e "\nINFO: Enabled custom ffmpeg-kit protocols\n" 1>>"${BASEDIR}"/build.log 2>&1
 fi
 
+# 3. Enable memory hooks used for native memory accounting
+${SED_INLINE} 's/^void \*av_malloc(size_t size)$/static void *av_malloc_unhooked(size_t size)/g' libavutil/mem.c 1>>"${BASEDIR}"/build.log 2>&1 || return 1
+${SED_INLINE} 's/ptr= av_malloc(1);/ptr= av_malloc_unhooked(1);/g' libavutil/mem.c 1>>"${BASEDIR}"/build.log 2>&1 || return 1
+${SED_INLINE} 's/^void \*av_realloc(void \*ptr, size_t size)$/static void *av_realloc_unhooked(void *ptr, size_t size)/g' libavutil/mem.c 1>>"${BASEDIR}"/build.log 2>&1 || return 1
+${SED_INLINE} 's/^void av_free(void \*ptr)$/static void av_free_unhooked(void *ptr)/g' libavutil/mem.c 1>>"${BASEDIR}"/build.log 2>&1 || return 1
+cat ../../tools/memory/libavutil_mem.h >> libavutil/mem.h
+cat ../../tools/memory/libavutil_mem.c >> libavutil/mem.c
+
+# 4. Enable thread hooks used for native cpu time accounting
+cat ../../tools/thread/libavutil_thread.h >> libavutil/thread.h
+cat ../../tools/thread/libavutil_thread.c >> libavutil/slicethread.c
+
 ###################################################################
 
 ./configure \
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Appended to libavutil/mem.c after av_malloc, av_realloc and av_free are renamed to
+ * av_malloc_unhooked, av_realloc_unhooked and av_free_unhooked.
+ */
+
+static mem_alloc_hook_function _mem_alloc_hook_function = NULL;
+static mem_free_hook_function _mem_free_hook_function = NULL;
+
+void av_set_mem_hooks(mem_alloc_hook_function alloc_function, mem_free_hook_function free_function) {
+    _mem_alloc_hook_function = alloc_function;
+    _mem_free_hook_function = free_function;
+}
+
+void *av_malloc(size_t size) {
+    void *ptr = av_malloc_unhooked(size);
+    mem_alloc_hook_function alloc_function = _mem_alloc_hook_function;
+
+    if (ptr && alloc_function) {
+        alloc_function(ptr, size);
+    }
+
+    return ptr;
+}
+
+void *av_realloc(void *ptr, size_t size) {
+    mem_alloc_hook_function alloc_function = _mem_alloc_hook_function;
+    mem_free_hook_function free_function = _mem_free_hook_function;
+    size_t old_size = 0;
+    void *ret;
+
+    // RELEASE THE OLD BLOCK FIRST, ITS ADDRESS CAN BE REUSED BY ANOTHER THREAD AFTER realloc
+    if (ptr && free_function) {
+        old_size = free_function(ptr);
+    }
+
+    ret = av_realloc_unhooked(ptr, size);
+
+    if (alloc_function) {
+        if (ret) {
+            alloc_function(ret, size);
+        } else if (old_size) {
+            alloc_function(ptr, old_size);
+        }
+    }
+
+    return ret;
+}
+
+void av_free(void *ptr) {
+    mem_free_hook_function free_function = _mem_free_hook_function;
+
+    if (ptr && free_function) {
+        free_function(ptr);
+    }
+
+    av_free_unhooked(ptr);
+}
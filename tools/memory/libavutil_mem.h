@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef AVUTIL_MEM_FFMPEG_KIT_HOOKS_H
+#define AVUTIL_MEM_FFMPEG_KIT_HOOKS_H
+
+/** Called after a block is allocated by av_malloc or av_realloc. */
+typedef void (*mem_alloc_hook_function)(void *, size_t);
+
+/** Called before a block is released by av_free or av_realloc, returns the size recorded for it. */
+typedef size_t (*mem_free_hook_function)(void *);
+
+void av_set_mem_hooks(mem_alloc_hook_function, mem_free_hook_function);
+
+#endif /* AVUTIL_MEM_FFMPEG_KIT_HOOKS_H */
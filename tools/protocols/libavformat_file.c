@@ -19,6 +19,56 @@
 
 #include "libavutil/file.h"
 
+#include <poll.h>
+#include <sys/mman.h>
+
+/* how often the interrupt callback is checked while waiting on a saf pipe, in milliseconds */
+#define SAF_POLL_INTERVAL 100
+
+/* waits until a pipe is ready, so a cancelled session does not stay blocked in read or write */
+static int saf_wait(URLContext *h, int fd, int write)
+{
+    struct pollfd p = { .fd = fd, .events = write ? POLLOUT : POLLIN };
+    int ret;
+
+    while (1) {
+        if (ff_check_interrupt(&h->interrupt_callback))
+            return AVERROR_EXIT;
+
+        ret = poll(&p, 1, SAF_POLL_INTERVAL);
+        if (ret > 0)
+            return 0;
+        if (ret < 0 && errno != EINTR)
+            return AVERROR(errno);
+    }
+}
+
+static int saf_read(URLContext *h, unsigned char *buf, int size)
+{
+    FileContext *c = h->priv_data;
+
+    if (h->is_streamed) {
+        int ret = saf_wait(h, c->fd, 0);
+        if (ret < 0)
+            return ret;
+    }
+
+    return file_read(h, buf, size);
+}
+
+static int saf_write(URLContext *h, const unsigned char *buf, int size)
+{
+    FileContext *c = h->priv_data;
+
+    if (h->is_streamed) {
+        int ret = saf_wait(h, c->fd, 1);
+        if (ret < 0)
+            return ret;
+    }
+
+    return file_write(h, buf, size);
+}
+
 static int64_t saf_seek(URLContext *h, int64_t pos, int whence)
 {
     FileContext *c = h->priv_data;
@@ -66,7 +116,7 @@ static int saf_open(URLContext *h, const char *filename, int flags)
         c->fd = saf_id;
     }
 
-    h->is_streamed = !fstat(saf_id, &st) && S_ISFIFO(st.st_mode);
+    h->is_streamed = !fstat(c->fd, &st) && S_ISFIFO(st.st_mode);
 
     /* Buffer writes more than the default 32k to improve throughput especially
      * with networked file systems */
@@ -170,8 +220,8 @@ static const AVClass saf_class = {
 const URLProtocol ff_saf_protocol = {
     .name                = "saf",
     .url_open            = saf_open,
-    .url_read            = file_read,
-    .url_write           = file_write,
+    .url_read            = saf_read,
+    .url_write           = saf_write,
     .url_seek            = saf_seek,
     .url_close           = saf_close,
     .url_get_file_handle = file_get_handle,
@@ -182,3 +232,333 @@ const URLProtocol ff_saf_protocol = {
     .priv_data_class     = &saf_class,
     .default_whitelist   = "saf,crypto,data"
 };
+
+typedef struct FkioContext {
+    void *opaque;
+} FkioContext;
+
+static int fkio_open(URLContext *h, const char *filename, int flags)
+{
+    FkioContext *c = h->priv_data;
+    char *final;
+    int fkio_id;
+
+    av_strstart(filename, "fkio:", &filename);
+
+    /* fkio:<id> or fkio:<id>.<extension> */
+    fkio_id = strtol(filename, &final, 10);
+    if ((filename == final) || (*final && *final != '.')) {
+        return AVERROR(EINVAL);
+    }
+
+    fkio_open_function custom_fkio_open = av_get_fkio_open();
+    if (custom_fkio_open == NULL) {
+        return AVERROR(ENOSYS);
+    }
+
+    c->opaque = custom_fkio_open(fkio_id, (flags & AVIO_FLAG_WRITE) ? 1 : 0);
+    if (c->opaque == NULL) {
+        return AVERROR(EIO);
+    }
+
+    fkio_seek_function custom_fkio_seek = av_get_fkio_seek();
+    h->is_streamed = (custom_fkio_seek == NULL) || (custom_fkio_seek(c->opaque, 0, AVSEEK_SIZE) < 0);
+
+    return 0;
+}
+
+static int fkio_read(URLContext *h, unsigned char *buf, int size)
+{
+    FkioContext *c = h->priv_data;
+
+    if (ff_check_interrupt(&h->interrupt_callback))
+        return AVERROR_EXIT;
+
+    return av_get_fkio_read()(c->opaque, buf, size);
+}
+
+static int fkio_write(URLContext *h, const unsigned char *buf, int size)
+{
+    FkioContext *c = h->priv_data;
+
+    if (ff_check_interrupt(&h->interrupt_callback))
+        return AVERROR_EXIT;
+
+    return av_get_fkio_write()(c->opaque, buf, size);
+}
+
+static int64_t fkio_seek(URLContext *h, int64_t pos, int whence)
+{
+    FkioContext *c = h->priv_data;
+
+    fkio_seek_function custom_fkio_seek = av_get_fkio_seek();
+    if (h->is_streamed || custom_fkio_seek == NULL) {
+        return AVERROR(ENOSYS);
+    }
+
+    return custom_fkio_seek(c->opaque, pos, whence & ~AVSEEK_FORCE);
+}
+
+static int fkio_close(URLContext *h)
+{
+    FkioContext *c = h->priv_data;
+
+    fkio_close_function custom_fkio_close = av_get_fkio_close();
+    if (custom_fkio_close != NULL) {
+        return custom_fkio_close(c->opaque);
+    } else {
+        return 0;
+    }
+}
+
+const URLProtocol ff_fkio_protocol = {
+    .name                = "fkio",
+    .url_open            = fkio_open,
+    .url_read            = fkio_read,
+    .url_write           = fkio_write,
+    .url_seek            = fkio_seek,
+    .url_close           = fkio_close,
+    .priv_data_size      = sizeof(FkioContext),
+    .default_whitelist   = "fkio,crypto,data"
+};
+
+typedef struct MmapFileContext {
+    const AVClass *class;
+    int fd;
+    uint8_t *data;
+    int64_t mapped_size;
+    int64_t size;
+    int64_t pos;
+    int advice;
+    int willneed_size;
+} MmapFileContext;
+
+static const AVOption mmapfile_options[] = {
+    { "advice", "madvise hint for the whole mapping", offsetof(MmapFileContext, advice), AV_OPT_TYPE_INT, { .i64 = MADV_NORMAL }, 0, INT_MAX, AV_OPT_FLAG_DECODING_PARAM, "advice" },
+        { "normal",     NULL, 0, AV_OPT_TYPE_CONST, { .i64 = MADV_NORMAL },     0, 0, AV_OPT_FLAG_DECODING_PARAM, "advice" },
+        { "sequential", NULL, 0, AV_OPT_TYPE_CONST, { .i64 = MADV_SEQUENTIAL }, 0, 0, AV_OPT_FLAG_DECODING_PARAM, "advice" },
+        { "random",     NULL, 0, AV_OPT_TYPE_CONST, { .i64 = MADV_RANDOM },     0, 0, AV_OPT_FLAG_DECODING_PARAM, "advice" },
+    { "willneed_size", "bytes prefetched with MADV_WILLNEED after a seek, for cold files on slow storage", offsetof(MmapFileContext, willneed_size), AV_OPT_TYPE_INT, { .i64 = 0 }, 0, INT_MAX, AV_OPT_FLAG_DECODING_PARAM },
+    { NULL }
+};
+
+static void mmapfile_willneed(MmapFileContext *c)
+{
+    int64_t page_size, start, length;
+
+    if (c->data == NULL || c->willneed_size <= 0 || c->pos >= c->mapped_size) {
+        return;
+    }
+
+    /* madvise requires a page aligned address */
+    page_size = sysconf(_SC_PAGESIZE);
+    start = c->pos - (c->pos % page_size);
+    length = FFMIN((int64_t)c->willneed_size + (c->pos - start), c->mapped_size - start);
+
+    madvise(c->data + start, length, MADV_WILLNEED);
+}
+
+/*
+ * reads the file size again, so data appended while the file is open can be read. called only
+ * for size queries, end relative seeks and reads at the cached end of file, so reads inside the
+ * file do not make a system call. truncating a file while it is open is not supported: a read
+ * from the mapping beyond the new end of the file raises SIGBUS.
+ */
+static int mmapfile_update_size(MmapFileContext *c)
+{
+    struct stat st;
+
+    if (fstat(c->fd, &st) < 0) {
+        return AVERROR(errno);
+    }
+
+    c->size = st.st_size;
+
+    /* touching mapped pages beyond the end of a truncated file raises SIGBUS */
+    if (c->data != NULL && c->size < c->mapped_size) {
+        munmap(c->data, (size_t)c->mapped_size);
+        c->data = NULL;
+        c->mapped_size = 0;
+    }
+
+    return 0;
+}
+
+static int mmapfile_open(URLContext *h, const char *filename, int flags)
+{
+    MmapFileContext *c = h->priv_data;
+    struct stat st;
+
+    av_strstart(filename, "mmapfile:", &filename);
+
+    if (flags & AVIO_FLAG_WRITE) {
+        return AVERROR(EINVAL);
+    }
+
+    c->fd = avpriv_open(filename, O_RDONLY);
+    if (c->fd < 0) {
+        return AVERROR(errno);
+    }
+
+    if (fstat(c->fd, &st) < 0) {
+        int ret = AVERROR(errno);
+        close(c->fd);
+        return ret;
+    }
+    if (!S_ISREG(st.st_mode)) {
+        close(c->fd);
+        return AVERROR(EINVAL);
+    }
+
+    c->size = st.st_size;
+    c->pos = 0;
+    c->data = NULL;
+    c->mapped_size = 0;
+
+    /* files that can not be mapped, e.g. larger than the address space, are read with pread */
+    if (c->size > 0 && c->size <= SIZE_MAX) {
+        void *data = mmap(NULL, (size_t)c->size, PROT_READ, MAP_SHARED, c->fd, 0);
+        if (data != MAP_FAILED) {
+            c->data = data;
+            c->mapped_size = c->size;
+            if (c->advice != MADV_NORMAL) {
+                madvise(c->data, (size_t)c->size, c->advice);
+            }
+        } else {
+            av_log(h, AV_LOG_VERBOSE, "mmap failed for %s, falling back to pread: %s\n", filename, av_err2str(AVERROR(errno)));
+        }
+    }
+
+    h->is_streamed = 0;
+
+    return 0;
+}
+
+static int mmapfile_read(URLContext *h, unsigned char *buf, int size)
+{
+    MmapFileContext *c = h->priv_data;
+    int length;
+    int ret;
+
+    /* check whether the file has grown only when its cached end is reached */
+    if (c->pos >= c->size) {
+        ret = mmapfile_update_size(c);
+        if (ret < 0) {
+            return ret;
+        }
+        if (c->pos >= c->size) {
+            return AVERROR_EOF;
+        }
+    }
+
+    length = (int)FFMIN((int64_t)size, c->size - c->pos);
+
+    /* bytes appended after the file was mapped are read with pread */
+    if (c->data != NULL && c->pos < c->mapped_size) {
+        length = (int)FFMIN((int64_t)length, c->mapped_size - c->pos);
+        memcpy(buf, c->data + c->pos, length);
+    } else {
+        length = pread(c->fd, buf, length, c->pos);
+        if (length < 0) {
+            return AVERROR(errno);
+        }
+        if (length == 0) {
+            return AVERROR_EOF;
+        }
+    }
+
+    c->pos += length;
+
+    return length;
+}
+
+static int64_t mmapfile_seek(URLContext *h, int64_t pos, int whence)
+{
+    MmapFileContext *c = h->priv_data;
+    int64_t new_pos;
+    int ret;
+
+    if ((whence & ~AVSEEK_FORCE) == AVSEEK_SIZE || (whence & ~AVSEEK_FORCE) == SEEK_END) {
+        ret = mmapfile_update_size(c);
+        if (ret < 0) {
+            return ret;
+        }
+    }
+
+    switch (whence & ~AVSEEK_FORCE) {
+        case AVSEEK_SIZE:
+            return c->size;
+        case SEEK_SET:
+            new_pos = pos;
+            break;
+        case SEEK_CUR:
+            new_pos = c->pos + pos;
+            break;
+        case SEEK_END:
+            new_pos = c->size + pos;
+            break;
+        default:
+            return AVERROR(EINVAL);
+    }
+
+    if (new_pos < 0) {
+        return AVERROR(EINVAL);
+    }
+
+    if (new_pos != c->pos) {
+        c->pos = new_pos;
+        mmapfile_willneed(c);
+    }
+
+    return c->pos;
+}
+
+static int mmapfile_get_handle(URLContext *h)
+{
+    MmapFileContext *c = h->priv_data;
+    return c->fd;
+}
+
+static int mmapfile_check(URLContext *h, int mask)
+{
+    struct stat st;
+    const char *filename = h->filename;
+    av_strstart(filename, "mmapfile:", &filename);
+
+    if (stat(filename, &st) < 0)
+        return AVERROR(errno);
+
+    return (st.st_mode & S_IRUSR) ? (mask & AVIO_FLAG_READ) : 0;
+}
+
+static int mmapfile_close(URLContext *h)
+{
+    MmapFileContext *c = h->priv_data;
+
+    if (c->data != NULL) {
+        munmap(c->data, (size_t)c->mapped_size);
+        c->data = NULL;
+    }
+
+    return close(c->fd);
+}
+
+static const AVClass mmapfile_class = {
+    .class_name = "mmapfile",
+    .item_name  = av_default_item_name,
+    .option     = mmapfile_options,
+    .version    = LIBAVUTIL_VERSION_INT,
+};
+
+const URLProtocol ff_mmapfile_protocol = {
+    .name                = "mmapfile",
+    .url_open            = mmapfile_open,
+    .url_read            = mmapfile_read,
+    .url_seek            = mmapfile_seek,
+    .url_close           = mmapfile_close,
+    .url_get_file_handle = mmapfile_get_handle,
+    .url_check           = mmapfile_check,
+    .priv_data_size      = sizeof(MmapFileContext),
+    .priv_data_class     = &mmapfile_class,
+    .default_whitelist   = "mmapfile,file,crypto,data"
+};
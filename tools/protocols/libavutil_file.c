@@ -35,3 +35,49 @@ void av_set_saf_open(saf_open_function open_function) {
 void av_set_saf_close(saf_close_function close_function) {
     _saf_close_function = close_function;
 }
+
+static fkio_open_function _fkio_open_function = NULL;
+static fkio_read_function _fkio_read_function = NULL;
+static fkio_write_function _fkio_write_function = NULL;
+static fkio_seek_function _fkio_seek_function = NULL;
+static fkio_close_function _fkio_close_function = NULL;
+
+fkio_open_function av_get_fkio_open() {
+    return _fkio_open_function;
+}
+
+fkio_read_function av_get_fkio_read() {
+    return _fkio_read_function;
+}
+
+fkio_write_function av_get_fkio_write() {
+    return _fkio_write_function;
+}
+
+fkio_seek_function av_get_fkio_seek() {
+    return _fkio_seek_function;
+}
+
+fkio_close_function av_get_fkio_close() {
+    return _fkio_close_function;
+}
+
+void av_set_fkio_open(fkio_open_function open_function) {
+    _fkio_open_function = open_function;
+}
+
+void av_set_fkio_read(fkio_read_function read_function) {
+    _fkio_read_function = read_function;
+}
+
+void av_set_fkio_write(fkio_write_function write_function) {
+    _fkio_write_function = write_function;
+}
+
+void av_set_fkio_seek(fkio_seek_function seek_function) {
+    _fkio_seek_function = seek_function;
+}
+
+void av_set_fkio_close(fkio_close_function close_function) {
+    _fkio_close_function = close_function;
+}
@@ -32,4 +32,34 @@ void av_set_saf_open(saf_open_function);
 
 void av_set_saf_close(saf_close_function);
 
+typedef void* (*fkio_open_function)(int, int);
+
+typedef int (*fkio_read_function)(void*, unsigned char*, int);
+
+typedef int (*fkio_write_function)(void*, const unsigned char*, int);
+
+typedef int64_t (*fkio_seek_function)(void*, int64_t, int);
+
+typedef int (*fkio_close_function)(void*);
+
+fkio_open_function av_get_fkio_open(void);
+
+fkio_read_function av_get_fkio_read(void);
+
+fkio_write_function av_get_fkio_write(void);
+
+fkio_seek_function av_get_fkio_seek(void);
+
+fkio_close_function av_get_fkio_close(void);
+
+void av_set_fkio_open(fkio_open_function);
+
+void av_set_fkio_read(fkio_read_function);
+
+void av_set_fkio_write(fkio_write_function);
+
+void av_set_fkio_seek(fkio_seek_function);
+
+void av_set_fkio_close(fkio_close_function);
+
 #endif /* AVUTIL_FILE_FFMPEG_KIT_PROTOCOLS_H */
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Appended to libavutil/slicethread.c. pthread_create is called in parentheses below, so the
+ * macro defined in libavutil/thread.h is not expanded.
+ */
+
+#if HAVE_PTHREADS
+
+typedef struct HookedThread {
+    void *(*start_routine)(void *);
+    void *arg;
+    long owner;
+} HookedThread;
+
+static thread_create_hook_function _thread_create_hook_function = NULL;
+static thread_start_hook_function _thread_start_hook_function = NULL;
+static thread_end_hook_function _thread_end_hook_function = NULL;
+
+void av_set_thread_hooks(thread_create_hook_function create_function, thread_start_hook_function start_function, thread_end_hook_function end_function) {
+    _thread_create_hook_function = create_function;
+    _thread_start_hook_function = start_function;
+    _thread_end_hook_function = end_function;
+}
+
+static void *hooked_thread_start(void *arg) {
+    HookedThread hooked = *(HookedThread *)arg;
+    thread_start_hook_function start_function = _thread_start_hook_function;
+    thread_end_hook_function end_function = _thread_end_hook_function;
+    void *ret;
+
+    av_free(arg);
+
+    if (start_function) {
+        start_function(hooked.owner);
+    }
+
+    ret = hooked.start_routine(hooked.arg);
+
+    if (end_function) {
+        end_function();
+    }
+
+    return ret;
+}
+
+int av_pthread_create_hooked(pthread_t *thread, const pthread_attr_t *attr, void *(*start_routine)(void *), void *arg) {
+    thread_create_hook_function create_function = _thread_create_hook_function;
+    HookedThread *hooked;
+    int ret;
+
+    if (!create_function) {
+        return (pthread_create)(thread, attr, start_routine, arg);
+    }
+
+    hooked = av_malloc(sizeof(*hooked));
+    if (!hooked) {
+        return ENOMEM;
+    }
+    hooked->start_routine = start_routine;
+    hooked->arg = arg;
+    hooked->owner = create_function();
+
+    ret = (pthread_create)(thread, attr, hooked_thread_start, hooked);
+    if (ret) {
+        av_free(hooked);
+    }
+
+    return ret;
+}
+
+#endif /* HAVE_PTHREADS */
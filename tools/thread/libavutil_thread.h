@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2021 Taner Sener
+ *
+ * This file is part of FFmpegKit.
+ *
+ * FFmpegKit is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FFmpegKit is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with FFmpegKit.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef AVUTIL_THREAD_FFMPEG_KIT_HOOKS_H
+#define AVUTIL_THREAD_FFMPEG_KIT_HOOKS_H
+
+#if HAVE_PTHREADS
+
+/** Called on the creating thread, returns the owner passed to the new thread. */
+typedef long (*thread_create_hook_function)(void);
+
+/** Called on a new thread with its owner, before the start routine runs. */
+typedef void (*thread_start_hook_function)(long);
+
+/** Called on a thread after its start routine returns. */
+typedef void (*thread_end_hook_function)(void);
+
+void av_set_thread_hooks(thread_create_hook_function, thread_start_hook_function, thread_end_hook_function);
+
+int av_pthread_create_hooked(pthread_t *thread, const pthread_attr_t *attr, void *(*start_routine)(void *), void *arg);
+
+#ifndef pthread_create
+#define pthread_create(thread, attr, start_routine, arg) av_pthread_create_hooked(thread, attr, start_routine, arg)
+#endif
+
+#endif /* HAVE_PTHREADS */
+
+#endif /* AVUTIL_THREAD_FFMPEG_KIT_HOOKS_H */